@@ -0,0 +1,479 @@
+package com.fashionstore.ai;
+
+import com.fashionstore.models.Outfit;
+import com.fashionstore.models.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Item-based collaborative filtering over wardrobes and outfits.
+ *
+ * Each user is a row of a sparse user x item matrix: 1 for every product in
+ * their wardrobe plus {@link #OUTFIT_WEIGHT} for every outfit of theirs it
+ * appears in, so items worn together count more than items merely owned
+ * together. Items are compared by the cosine of their columns, and each item
+ * keeps only its {@code k} most similar neighbours. Both the matrix and the
+ * neighbour lists are stored as primitive CSR arrays (row pointers, column
+ * indexes, values).
+ *
+ * A model is immutable; {@link #build} recomputes all similarities, splitting
+ * the items across a fork-join pool. Recommending for a user then only walks
+ * the neighbours of the items they own.
+ */
+public class ItemSimilarityModel {
+
+    public static final int DEFAULT_NEIGHBOURS = 20;
+
+    // Extra weight of an item for each of the user's outfits it appears in
+    static final float OUTFIT_WEIGHT = 0.5f;
+
+    // Fewest items per fork-join task; each task allocates two arrays the
+    // size of the catalog, so tasks aren't split much finer than the pool
+    private static final int MIN_ITEMS_PER_TASK = 64;
+    private static final int TASKS_PER_THREAD = 8;
+
+    public static final ItemSimilarityModel EMPTY = new ItemSimilarityModel(
+            new String[0], Collections.emptyMap(), new String[0], Collections.emptyMap(),
+            new int[] { 0 }, new int[0], new float[0], new int[] { 0 }, new int[0], new float[0]);
+
+    private final String[] itemIds;
+    private final Map<String, Integer> itemIndexes;
+    private final String[] userIds;
+    private final Map<String, Integer> userIndexes;
+
+    // User x item matrix, CSR
+    private final int[] userRowStart;
+    private final int[] userItems;
+    private final float[] userWeights;
+
+    // Top-k neighbours of each item, CSR, most similar first
+    private final int[] neighbourStart;
+    private final int[] neighbours;
+    private final float[] similarities;
+
+    // Per-thread score accumulator for recommend(), one slot per item
+    private final ThreadLocal<float[]> scratch;
+
+    private ItemSimilarityModel(String[] itemIds, Map<String, Integer> itemIndexes,
+            String[] userIds, Map<String, Integer> userIndexes,
+            int[] userRowStart, int[] userItems, float[] userWeights,
+            int[] neighbourStart, int[] neighbours, float[] similarities) {
+        this.itemIds = itemIds;
+        this.itemIndexes = itemIndexes;
+        this.userIds = userIds;
+        this.userIndexes = userIndexes;
+        this.userRowStart = userRowStart;
+        this.userItems = userItems;
+        this.userWeights = userWeights;
+        this.neighbourStart = neighbourStart;
+        this.neighbours = neighbours;
+        this.similarities = similarities;
+        this.scratch = ThreadLocal.withInitial(() -> new float[itemIds.length]);
+    }
+
+    /**
+     * Builds the user x item matrix and computes every item's top-k
+     * neighbours on the given pool.
+     *
+     * @param users   Users whose wardrobes and outfits make up the matrix
+     * @param outfits Outfits of those users; AI-generated outfits are skipped
+     *                so recommendations don't reinforce themselves
+     */
+    public static ItemSimilarityModel build(Collection<User> users, Collection<Outfit> outfits,
+            int neighbourCount, ForkJoinPool pool) {
+        // Rows: each user's item weights, in a stable item order
+        Map<String, List<Outfit>> outfitsByUser = new HashMap<>();
+        for (Outfit outfit : outfits) {
+            if (outfit != null && outfit.getUserId() != null && !outfit.isAiGenerated()) {
+                outfitsByUser.computeIfAbsent(outfit.getUserId(), id -> new ArrayList<>()).add(outfit);
+            }
+        }
+
+        Map<String, Integer> itemIndexes = new HashMap<>();
+        List<String> itemIds = new ArrayList<>();
+        Map<String, Integer> userIndexes = new HashMap<>();
+        List<String> userIds = new ArrayList<>();
+        List<Map<Integer, Float>> rows = new ArrayList<>();
+        int entryCount = 0;
+
+        for (User user : users) {
+            if (user == null || user.getUserId() == null || userIndexes.containsKey(user.getUserId())) {
+                continue;
+            }
+            Map<Integer, Float> row = new LinkedHashMap<>();
+            for (String productId : user.getWardrobeItemIds()) {
+                row.merge(indexOf(productId, itemIndexes, itemIds), 1f, Float::sum);
+            }
+            for (Outfit outfit : outfitsByUser.getOrDefault(user.getUserId(), Collections.emptyList())) {
+                for (String productId : outfit.getProductIds()) {
+                    row.merge(indexOf(productId, itemIndexes, itemIds), OUTFIT_WEIGHT, Float::sum);
+                }
+            }
+            userIndexes.put(user.getUserId(), userIds.size());
+            userIds.add(user.getUserId());
+            rows.add(row);
+            entryCount += row.size();
+        }
+
+        int userCount = userIds.size();
+        int itemCount = itemIds.size();
+        int[] rowStart = new int[userCount + 1];
+        int[] rowItems = new int[entryCount];
+        float[] rowWeights = new float[entryCount];
+        int position = 0;
+        for (int u = 0; u < userCount; u++) {
+            rowStart[u] = position;
+            int[] sortedItems = rows.get(u).keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            for (int item : sortedItems) {
+                rowItems[position] = item;
+                rowWeights[position] = rows.get(u).get(item);
+                position++;
+            }
+        }
+        rowStart[userCount] = position;
+
+        // Columns: the same matrix transposed, for walking an item's users
+        int[] columnStart = new int[itemCount + 1];
+        for (int i = 0; i < entryCount; i++) {
+            columnStart[rowItems[i] + 1]++;
+        }
+        for (int i = 0; i < itemCount; i++) {
+            columnStart[i + 1] += columnStart[i];
+        }
+        int[] columnUsers = new int[entryCount];
+        float[] columnWeights = new float[entryCount];
+        int[] fill = Arrays.copyOf(columnStart, itemCount);
+        double[] squaredNorms = new double[itemCount];
+        for (int u = 0; u < userCount; u++) {
+            for (int p = rowStart[u]; p < rowStart[u + 1]; p++) {
+                int item = rowItems[p];
+                columnUsers[fill[item]] = u;
+                columnWeights[fill[item]] = rowWeights[p];
+                fill[item]++;
+                squaredNorms[item] += (double) rowWeights[p] * rowWeights[p];
+            }
+        }
+        float[] norms = new float[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            norms[i] = (float) Math.sqrt(squaredNorms[i]);
+        }
+
+        // Each item's top-k neighbours, written to its own k-slot block
+        int k = Math.max(1, neighbourCount);
+        int[] blockNeighbours = new int[itemCount * k];
+        float[] blockSimilarities = new float[itemCount * k];
+        int[] blockCounts = new int[itemCount];
+        int itemsPerTask = Math.max(MIN_ITEMS_PER_TASK, itemCount / (pool.getParallelism() * TASKS_PER_THREAD));
+        pool.invoke(new NeighbourTask(0, itemCount, k, itemsPerTask, rowStart, rowItems, rowWeights,
+                columnStart, columnUsers, columnWeights, norms,
+                blockNeighbours, blockSimilarities, blockCounts));
+
+        // Compact the blocks into CSR
+        int[] neighbourStart = new int[itemCount + 1];
+        for (int i = 0; i < itemCount; i++) {
+            neighbourStart[i + 1] = neighbourStart[i] + blockCounts[i];
+        }
+        int[] neighbours = new int[neighbourStart[itemCount]];
+        float[] similarities = new float[neighbourStart[itemCount]];
+        for (int i = 0; i < itemCount; i++) {
+            System.arraycopy(blockNeighbours, i * k, neighbours, neighbourStart[i], blockCounts[i]);
+            System.arraycopy(blockSimilarities, i * k, similarities, neighbourStart[i], blockCounts[i]);
+        }
+
+        return new ItemSimilarityModel(itemIds.toArray(new String[0]), itemIndexes,
+                userIds.toArray(new String[0]), userIndexes,
+                rowStart, rowItems, rowWeights, neighbourStart, neighbours, similarities);
+    }
+
+    private static int indexOf(String productId, Map<String, Integer> itemIndexes, List<String> itemIds) {
+        Integer index = itemIndexes.get(productId);
+        if (index == null) {
+            index = itemIds.size();
+            itemIndexes.put(productId, index);
+            itemIds.add(productId);
+        }
+        return index;
+    }
+
+    /**
+     * Computes the top-k neighbours of a range of items, splitting the range
+     * until it is small.
+     */
+    private static final class NeighbourTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int k;
+        private final int itemsPerTask;
+        private final int[] rowStart;
+        private final int[] rowItems;
+        private final float[] rowWeights;
+        private final int[] columnStart;
+        private final int[] columnUsers;
+        private final float[] columnWeights;
+        private final float[] norms;
+        private final int[] blockNeighbours;
+        private final float[] blockSimilarities;
+        private final int[] blockCounts;
+
+        NeighbourTask(int from, int to, int k, int itemsPerTask, int[] rowStart, int[] rowItems, float[] rowWeights,
+                int[] columnStart, int[] columnUsers, float[] columnWeights, float[] norms,
+                int[] blockNeighbours, float[] blockSimilarities, int[] blockCounts) {
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.itemsPerTask = itemsPerTask;
+            this.rowStart = rowStart;
+            this.rowItems = rowItems;
+            this.rowWeights = rowWeights;
+            this.columnStart = columnStart;
+            this.columnUsers = columnUsers;
+            this.columnWeights = columnWeights;
+            this.norms = norms;
+            this.blockNeighbours = blockNeighbours;
+            this.blockSimilarities = blockSimilarities;
+            this.blockCounts = blockCounts;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > itemsPerTask) {
+                int middle = (from + to) >>> 1;
+                invokeAll(split(from, middle), split(middle, to));
+                return;
+            }
+
+            // Dot products of one item's column with every other column
+            float[] dots = new float[norms.length];
+            int[] touched = new int[norms.length];
+            for (int item = from; item < to; item++) {
+                int touchedCount = 0;
+                for (int c = columnStart[item]; c < columnStart[item + 1]; c++) {
+                    int user = columnUsers[c];
+                    float weight = columnWeights[c];
+                    for (int p = rowStart[user]; p < rowStart[user + 1]; p++) {
+                        int other = rowItems[p];
+                        if (other == item) {
+                            continue;
+                        }
+                        if (dots[other] == 0f) {
+                            touched[touchedCount++] = other;
+                        }
+                        dots[other] += weight * rowWeights[p];
+                    }
+                }
+
+                int base = item * k;
+                int count = 0;
+                for (int t = 0; t < touchedCount; t++) {
+                    int other = touched[t];
+                    float similarity = dots[other] / (norms[item] * norms[other]);
+                    dots[other] = 0f;
+                    count = offer(base, count, other, similarity);
+                }
+                blockCounts[item] = count;
+            }
+        }
+
+        /**
+         * Inserts a neighbour into an item's block, kept sorted by descending
+         * similarity and capped at k.
+         */
+        private int offer(int base, int count, int other, float similarity) {
+            if (count == k && similarity <= blockSimilarities[base + k - 1]) {
+                return count;
+            }
+            int slot = count < k ? count++ : k - 1;
+            while (slot > 0 && blockSimilarities[base + slot - 1] < similarity) {
+                blockSimilarities[base + slot] = blockSimilarities[base + slot - 1];
+                blockNeighbours[base + slot] = blockNeighbours[base + slot - 1];
+                slot--;
+            }
+            blockSimilarities[base + slot] = similarity;
+            blockNeighbours[base + slot] = other;
+            return count;
+        }
+
+        private NeighbourTask split(int splitFrom, int splitTo) {
+            return new NeighbourTask(splitFrom, splitTo, k, itemsPerTask, rowStart, rowItems, rowWeights,
+                    columnStart, columnUsers, columnWeights, norms,
+                    blockNeighbours, blockSimilarities, blockCounts);
+        }
+    }
+
+    /**
+     * Recommends products similar to those in a user's row of the matrix,
+     * leaving out products they already have.
+     *
+     * @return Up to {@code count} products, best first; empty for users
+     *         unknown to this model
+     */
+    public List<ScoredProduct> recommend(String userId, int count) {
+        Integer user = userId != null ? userIndexes.get(userId) : null;
+        if (user == null) {
+            return Collections.emptyList();
+        }
+        int start = userRowStart[user];
+        int end = userRowStart[user + 1];
+        return recommend(Arrays.copyOfRange(userItems, start, end),
+                Arrays.copyOfRange(userWeights, start, end), count);
+    }
+
+    /**
+     * Recommends products similar to the given ones, e.g. a wardrobe that
+     * changed since the model was built.
+     */
+    public List<ScoredProduct> recommendForItems(Collection<String> productIds, int count) {
+        Set<String> distinct = new LinkedHashSet<>(productIds);
+        int[] items = new int[distinct.size()];
+        float[] weights = new float[distinct.size()];
+        int known = 0;
+        for (String productId : distinct) {
+            Integer item = itemIndexes.get(productId);
+            if (item != null) {
+                items[known] = item;
+                weights[known] = 1f;
+                known++;
+            }
+        }
+        return recommend(Arrays.copyOf(items, known), Arrays.copyOf(weights, known), count);
+    }
+
+    /**
+     * Scores each neighbour of the owned items by the owned weight times the
+     * similarity, summed over the owned items, and keeps the best.
+     */
+    private List<ScoredProduct> recommend(int[] ownedItems, float[] ownedWeights, int count) {
+        if (ownedItems.length == 0 || count <= 0) {
+            return Collections.emptyList();
+        }
+        float[] scores = scratch.get();
+        int[] candidates = new int[Math.min(itemIds.length, neighbourCount(ownedItems))];
+        int candidateCount = 0;
+
+        for (int o = 0; o < ownedItems.length; o++) {
+            int item = ownedItems[o];
+            for (int n = neighbourStart[item]; n < neighbourStart[item + 1]; n++) {
+                int other = neighbours[n];
+                if (scores[other] == 0f) {
+                    candidates[candidateCount++] = other;
+                }
+                scores[other] += ownedWeights[o] * similarities[n];
+            }
+        }
+        // Owned items aren't recommended
+        for (int item : ownedItems) {
+            scores[item] = -1f;
+        }
+
+        // Keep the best count candidates, sorted by descending score
+        int keep = Math.min(count, candidateCount);
+        int[] best = new int[keep];
+        float[] bestScores = new float[keep];
+        int bestCount = 0;
+        for (int c = 0; c < candidateCount; c++) {
+            int item = candidates[c];
+            float score = scores[item];
+            scores[item] = 0f;
+            if (score <= 0f || (bestCount == keep && score <= bestScores[keep - 1])) {
+                continue;
+            }
+            int slot = bestCount < keep ? bestCount++ : keep - 1;
+            while (slot > 0 && bestScores[slot - 1] < score) {
+                bestScores[slot] = bestScores[slot - 1];
+                best[slot] = best[slot - 1];
+                slot--;
+            }
+            bestScores[slot] = score;
+            best[slot] = item;
+        }
+        for (int item : ownedItems) {
+            scores[item] = 0f;
+        }
+
+        List<ScoredProduct> results = new ArrayList<>(bestCount);
+        for (int i = 0; i < bestCount; i++) {
+            results.add(new ScoredProduct(itemIds[best[i]], bestScores[i]));
+        }
+        return results;
+    }
+
+    private int neighbourCount(int[] items) {
+        int total = 0;
+        for (int item : items) {
+            total += neighbourStart[item + 1] - neighbourStart[item];
+        }
+        return total;
+    }
+
+    /**
+     * Gets the cosine similarity of two products if either is among the
+     * other's top-k neighbours, otherwise 0.
+     */
+    public float similarity(String productId, String otherProductId) {
+        Integer item = itemIndexes.get(productId);
+        Integer other = itemIndexes.get(otherProductId);
+        if (item == null || other == null) {
+            return 0f;
+        }
+        float forward = neighbourSimilarity(item, other);
+        return forward > 0f ? forward : neighbourSimilarity(other, item);
+    }
+
+    private float neighbourSimilarity(int item, int other) {
+        for (int n = neighbourStart[item]; n < neighbourStart[item + 1]; n++) {
+            if (neighbours[n] == other) {
+                return similarities[n];
+            }
+        }
+        return 0f;
+    }
+
+    /**
+     * Gets the most similar products to one, best first.
+     */
+    public List<ScoredProduct> getNeighbours(String productId) {
+        Integer item = itemIndexes.get(productId);
+        if (item == null) {
+            return Collections.emptyList();
+        }
+        List<ScoredProduct> results = new ArrayList<>();
+        for (int n = neighbourStart[item]; n < neighbourStart[item + 1]; n++) {
+            results.add(new ScoredProduct(itemIds[neighbours[n]], similarities[n]));
+        }
+        return results;
+    }
+
+    public int getUserCount() {
+        return userIds.length;
+    }
+
+    public int getItemCount() {
+        return itemIds.length;
+    }
+
+    /**
+     * Gets the number of non-zero user x item entries.
+     */
+    public int getInteractionCount() {
+        return userItems.length;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemSimilarityModel{users=" + userIds.length + ", items=" + itemIds.length
+                + ", interactions=" + userItems.length + ", neighbours=" + neighbours.length + "}";
+    }
+}
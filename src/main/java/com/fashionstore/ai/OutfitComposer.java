@@ -0,0 +1,382 @@
+package com.fashionstore.ai;
+
+import com.fashionstore.models.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Finds the best-scoring outfits that take one item from each slot (top,
+ * bottom, shoes, ...), skipping optional slots where that scores better.
+ *
+ * An outfit's score is the sum of its items' own scores plus a score for
+ * every pair of items, both supplied by a {@link Scorer}. Slots are filled
+ * in order with a beam search: each step extends every partial outfit with
+ * every item of the next slot, drops partial outfits that can't beat the
+ * current N-th best complete outfit even with the best possible remaining
+ * items, and keeps at most {@code beamWidth} of the rest. The remaining-score
+ * bound never underestimates, so while the beam is never cut the result is
+ * exactly the top N; the beam width caps the work either way.
+ *
+ * Search is deterministic. The seed only orders items, which decides ties,
+ * so the same seed and wardrobe always give the same outfits.
+ */
+public class OutfitComposer {
+
+    public static final int DEFAULT_BEAM_WIDTH = 2000;
+
+    /**
+     * Scores items and item pairs. Pair scores must never exceed
+     * {@link #maxPairScore()}, which bounds what unfilled slots can add.
+     */
+    public interface Scorer {
+        double itemScore(Product item);
+
+        double pairScore(Product first, Product second);
+
+        double maxPairScore();
+    }
+
+    /**
+     * One piece of an outfit and the items that can fill it.
+     */
+    public static class Slot {
+        private final String name;
+        private final List<Product> items;
+        private final boolean optional;
+        private final double itemCost;
+
+        /**
+         * @param itemCost Subtracted from the score when an optional slot is
+         *                 filled, so extra layers have to earn their place
+         */
+        public Slot(String name, List<Product> items, boolean optional, double itemCost) {
+            this.name = name;
+            this.items = items;
+            this.optional = optional;
+            this.itemCost = itemCost;
+        }
+
+        public static Slot required(String name, List<Product> items) {
+            return new Slot(name, items, false, 0);
+        }
+
+        public static Slot optional(String name, List<Product> items, double itemCost) {
+            return new Slot(name, items, true, itemCost);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Product> getItems() {
+            return items;
+        }
+
+        public boolean isOptional() {
+            return optional;
+        }
+
+        public double getItemCost() {
+            return itemCost;
+        }
+    }
+
+    /**
+     * A composed outfit: the chosen items in slot order and their score.
+     */
+    public static class Candidate {
+        private final List<Product> items;
+        private final double score;
+
+        Candidate(List<Product> items, double score) {
+            this.items = items;
+            this.score = score;
+        }
+
+        public List<Product> getItems() {
+            return items;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * The outfits found by one search, best first, and how much work it took.
+     */
+    public static class Composition {
+        private final List<Candidate> candidates;
+        private final long expanded;
+        private final long pruned;
+        private final boolean exact;
+
+        Composition(List<Candidate> candidates, long expanded, long pruned, boolean exact) {
+            this.candidates = candidates;
+            this.expanded = expanded;
+            this.pruned = pruned;
+            this.exact = exact;
+        }
+
+        public List<Candidate> getCandidates() {
+            return candidates;
+        }
+
+        public long getExpanded() {
+            return expanded;
+        }
+
+        public long getPruned() {
+            return pruned;
+        }
+
+        /**
+         * Tells whether the beam was never cut, so these are exactly the top N.
+         */
+        public boolean isExact() {
+            return exact;
+        }
+
+        @Override
+        public String toString() {
+            return "Composition{outfits=" + candidates.size() + ", expanded=" + expanded
+                    + ", pruned=" + pruned + ", exact=" + exact + "}";
+        }
+    }
+
+    // A partial outfit: chosen item index per filled slot, -1 if skipped
+    private static final class State {
+        final int[] choices;
+        final double score;
+        final double bound;
+        final long tieKey;
+
+        State(int[] choices, double score, double bound, long tieKey) {
+            this.choices = choices;
+            this.score = score;
+            this.bound = bound;
+            this.tieKey = tieKey;
+        }
+    }
+
+    private static final Comparator<State> BY_BOUND = Comparator
+            .comparingDouble((State state) -> state.bound).reversed()
+            .thenComparingLong(state -> state.tieKey);
+
+    private static final Comparator<State> BY_SCORE = Comparator
+            .comparingDouble((State state) -> state.score).reversed()
+            .thenComparingLong(state -> state.tieKey);
+
+    private final Scorer scorer;
+    private final int beamWidth;
+    private final long seed;
+
+    public OutfitComposer(Scorer scorer, int beamWidth, long seed) {
+        if (beamWidth <= 0) {
+            throw new IllegalArgumentException("Beam width must be positive");
+        }
+        this.scorer = scorer;
+        this.beamWidth = beamWidth;
+        this.seed = seed;
+    }
+
+    /**
+     * Finds the {@code count} best outfits. Required slots with no items
+     * make outfits impossible, so the result is empty.
+     */
+    public Composition compose(List<Slot> slots, int count) {
+        if (count <= 0 || slots.isEmpty()) {
+            return new Composition(Collections.emptyList(), 0, 0, true);
+        }
+        for (Slot slot : slots) {
+            if (!slot.optional && slot.items.isEmpty()) {
+                return new Composition(Collections.emptyList(), 0, 0, true);
+            }
+        }
+
+        // Required slots first, so every state past them is a complete outfit
+        // once its remaining optional slots are skipped
+        List<Slot> ordered = new ArrayList<>(slots.size());
+        for (Slot slot : slots) {
+            if (!slot.optional) {
+                ordered.add(slot);
+            }
+        }
+        int requiredCount = ordered.size();
+        for (Slot slot : slots) {
+            if (slot.optional) {
+                ordered.add(slot);
+            }
+        }
+
+        int slotCount = ordered.size();
+        Product[][] items = new Product[slotCount][];
+        double[][] itemScores = new double[slotCount][];
+        long[][] tieKeys = new long[slotCount][];
+        double[] bestItemScore = new double[slotCount];
+        Random random = new Random(seed);
+        for (int s = 0; s < slotCount; s++) {
+            Slot slot = ordered.get(s);
+            items[s] = slot.items.toArray(new Product[0]);
+            itemScores[s] = new double[items[s].length];
+            tieKeys[s] = new long[items[s].length];
+            bestItemScore[s] = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < items[s].length; i++) {
+                itemScores[s][i] = scorer.itemScore(items[s][i]) - slot.itemCost;
+                tieKeys[s][i] = random.nextLong() >>> 8;
+                bestItemScore[s] = Math.max(bestItemScore[s], itemScores[s][i]);
+            }
+        }
+        double maxPair = scorer.maxPairScore();
+
+        // Pair scores between every two slots, computed once
+        double[][][][] pairScores = new double[slotCount][slotCount][][];
+        for (int a = 0; a < slotCount; a++) {
+            for (int b = a + 1; b < slotCount; b++) {
+                pairScores[a][b] = new double[items[a].length][items[b].length];
+                for (int i = 0; i < items[a].length; i++) {
+                    for (int j = 0; j < items[b].length; j++) {
+                        pairScores[a][b][i][j] = scorer.pairScore(items[a][i], items[b][j]);
+                    }
+                }
+            }
+        }
+
+        // N-th best score of any complete outfit seen so far; nothing
+        // scoring below it can make the top N
+        PriorityQueue<Double> bestComplete = new PriorityQueue<>();
+        long expanded = 0;
+        long pruned = 0;
+        boolean exact = true;
+
+        List<State> beam = Collections.singletonList(new State(new int[slotCount], 0, 0, 0));
+        for (int s = 0; s < slotCount; s++) {
+            Slot slot = ordered.get(s);
+            List<State> next = new ArrayList<>();
+            for (State state : beam) {
+                int present = countPresent(state.choices, s);
+                if (slot.optional) {
+                    // Leave the slot empty
+                    State skipped = extend(state, s, -1, state.score, 0, present,
+                            remainingBound(bestItemScore, ordered, s + 1, present, maxPair));
+                    expanded++;
+                    if (keep(skipped, bestComplete, count)) {
+                        next.add(skipped);
+                    } else {
+                        pruned++;
+                    }
+                }
+                for (int i = 0; i < items[s].length; i++) {
+                    double score = state.score + itemScores[s][i];
+                    for (int p = 0; p < s; p++) {
+                        int chosen = state.choices[p];
+                        if (chosen >= 0) {
+                            score += pairScores[p][s][chosen][i];
+                        }
+                    }
+                    State child = extend(state, s, i, score, tieKeys[s][i], present,
+                            remainingBound(bestItemScore, ordered, s + 1, present + 1, maxPair));
+                    expanded++;
+                    if (keep(child, bestComplete, count)) {
+                        next.add(child);
+                    } else {
+                        pruned++;
+                    }
+                }
+            }
+
+            if (s + 1 >= requiredCount) {
+                // Each state is also an outfit as it stands. States that
+                // skipped this slot are their parent's outfit, already counted.
+                for (State state : next) {
+                    if (s + 1 == requiredCount || state.choices[s] >= 0) {
+                        offer(bestComplete, state.score, count);
+                    }
+                }
+                next.removeIf(state -> !keep(state, bestComplete, count));
+            }
+            if (next.size() > beamWidth) {
+                next.sort(BY_BOUND);
+                next = new ArrayList<>(next.subList(0, beamWidth));
+                exact = false;
+            }
+            beam = next;
+        }
+
+        List<State> complete = new ArrayList<>(beam);
+        complete.removeIf(state -> countPresent(state.choices, slotCount) == 0);
+        complete.sort(BY_SCORE);
+        List<Candidate> candidates = new ArrayList<>();
+        for (State state : complete.subList(0, Math.min(count, complete.size()))) {
+            List<Product> chosen = new ArrayList<>();
+            for (int s = 0; s < slotCount; s++) {
+                if (state.choices[s] >= 0) {
+                    chosen.add(items[s][state.choices[s]]);
+                }
+            }
+            candidates.add(new Candidate(chosen, state.score));
+        }
+        return new Composition(candidates, expanded, pruned, exact);
+    }
+
+    private static State extend(State parent, int slot, int choice, double score, long tieKey,
+            int present, double remaining) {
+        int[] choices = parent.choices.clone();
+        choices[slot] = choice;
+        // Tie keys of the chosen items, mixed so outfits rarely tie on them
+        long key = parent.tieKey * 31 + tieKey + 1;
+        return new State(choices, score, score + remaining, key);
+    }
+
+    private static int countPresent(int[] choices, int filled) {
+        int present = 0;
+        for (int s = 0; s < filled; s++) {
+            if (choices[s] >= 0) {
+                present++;
+            }
+        }
+        return present;
+    }
+
+    /**
+     * Gets the most the slots from {@code from} on can add. A slot adds its
+     * best item score plus at most one best pair score per item before it,
+     * which can be anywhere between the items already present plus the
+     * required slots in between and every slot in between being filled. An
+     * optional slot can also be skipped, so it never counts below zero.
+     */
+    private static double remainingBound(double[] bestItemScore, List<Slot> ordered, int from,
+            int present, double maxPair) {
+        double bound = 0;
+        int fewestBefore = present;
+        for (int s = from; s < ordered.size(); s++) {
+            int mostBefore = present + (s - from);
+            double gain = bestItemScore[s] + Math.max(maxPair * fewestBefore, maxPair * mostBefore);
+            if (ordered.get(s).optional) {
+                bound += Math.max(0, gain);
+            } else {
+                bound += gain;
+                fewestBefore++;
+            }
+        }
+        return bound;
+    }
+
+    private static boolean keep(State state, PriorityQueue<Double> bestComplete, int count) {
+        return bestComplete.size() < count || state.bound >= bestComplete.peek();
+    }
+
+    private static void offer(PriorityQueue<Double> bestComplete, double score, int count) {
+        if (bestComplete.size() < count) {
+            bestComplete.add(score);
+        } else if (score > bestComplete.peek()) {
+            bestComplete.poll();
+            bestComplete.add(score);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
 
+import com.fashionstore.ai.ProductFeatures.Slot;
 import com.fashionstore.models.Outfit;
 import com.fashionstore.models.Product;
 import com.fashionstore.models.User;
@@ -23,10 +24,7 @@ import com.fashionstore.models.User;
 public class OutfitMatcher {
 
     // Style themes for outfit creation
-    private static final String[] STYLE_THEMES = {
-            "Casual", "Formal", "Business", "Athletic", "Evening", "Streetwear", 
-            "Vintage", "Bohemian", "Minimalist", "Preppy"
-    };
+    private static final String[] STYLE_THEMES = ProductFeatures.STYLE_THEMES;
 
     // Seasonal categories for matching
     private static final String[] SEASONS = {
@@ -34,67 +32,62 @@ public class OutfitMatcher {
     };
 
     // Category requirements for complete outfits
-    private static final Map<String, String[]> REQUIRED_CATEGORIES = new HashMap<>();
-    private static final Map<String, String[]> OPTIONAL_CATEGORIES = new HashMap<>();
+    private static final Map<String, Slot[]> REQUIRED_CATEGORIES = new HashMap<>();
+    private static final Map<String, Slot[]> OPTIONAL_CATEGORIES = new HashMap<>();
 
-    // Color compatibility data
-    private static final Map<String, List<String>> COLOR_COMPATIBILITY = new HashMap<>();
-    
-    // Patterns that work well together
-    private static final Map<String, List<String>> PATTERN_COMPATIBILITY = new HashMap<>();
+    // Outfit score components
+    private static final double THEME_MATCH_SCORE = 0.3;
+    private static final double COMPATIBLE_COLOR_SCORE = 0.3;
+    private static final double SAME_COLOR_SCORE = 0.1;
+    private static final double PATTERN_CLASH_COST = 0.2;
+    private static final double ACCESSORY_COST = 0.15;
+
+    private static final int MAX_RECENT_SIGNATURES = 10;
 
     // Store recently generated outfits to avoid duplicates
     private final Set<String> recentOutfitSignatures = new HashSet<>();
-    private final Random random = new Random();
+
+    // Breaks ties between outfits and picks themes and names
+    private final long seed;
+    private final Random random;
+
+    public OutfitMatcher() {
+        this(System.nanoTime());
+    }
+
+    /**
+     * Creates a matcher that gives the same outfits and names every time for
+     * the same seed and wardrobe.
+     */
+    public OutfitMatcher(long seed) {
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
 
     static {
         // Initialize required outfit components by style theme
-        REQUIRED_CATEGORIES.put("Casual", new String[]{"Tops", "Bottoms", "Footwear"});
-        REQUIRED_CATEGORIES.put("Formal", new String[]{"Tops", "Bottoms", "Footwear"});
-        REQUIRED_CATEGORIES.put("Business", new String[]{"Tops", "Bottoms", "Footwear"});
-        REQUIRED_CATEGORIES.put("Athletic", new String[]{"Tops", "Bottoms", "Footwear"});
-        REQUIRED_CATEGORIES.put("Evening", new String[]{"Tops", "Bottoms", "Footwear"});
-        REQUIRED_CATEGORIES.put("Streetwear", new String[]{"Tops", "Bottoms", "Footwear"});
-        REQUIRED_CATEGORIES.put("Vintage", new String[]{"Tops", "Bottoms", "Footwear"});
-        REQUIRED_CATEGORIES.put("Bohemian", new String[]{"Tops", "Bottoms", "Footwear"});
-        REQUIRED_CATEGORIES.put("Minimalist", new String[]{"Tops", "Bottoms", "Footwear"});
-        REQUIRED_CATEGORIES.put("Preppy", new String[]{"Tops", "Bottoms", "Footwear"});
+        REQUIRED_CATEGORIES.put("Casual", new Slot[]{Slot.TOPS, Slot.BOTTOMS, Slot.FOOTWEAR});
+        REQUIRED_CATEGORIES.put("Formal", new Slot[]{Slot.TOPS, Slot.BOTTOMS, Slot.FOOTWEAR});
+        REQUIRED_CATEGORIES.put("Business", new Slot[]{Slot.TOPS, Slot.BOTTOMS, Slot.FOOTWEAR});
+        REQUIRED_CATEGORIES.put("Athletic", new Slot[]{Slot.TOPS, Slot.BOTTOMS, Slot.FOOTWEAR});
+        REQUIRED_CATEGORIES.put("Evening", new Slot[]{Slot.TOPS, Slot.BOTTOMS, Slot.FOOTWEAR});
+        REQUIRED_CATEGORIES.put("Streetwear", new Slot[]{Slot.TOPS, Slot.BOTTOMS, Slot.FOOTWEAR});
+        REQUIRED_CATEGORIES.put("Vintage", new Slot[]{Slot.TOPS, Slot.BOTTOMS, Slot.FOOTWEAR});
+        REQUIRED_CATEGORIES.put("Bohemian", new Slot[]{Slot.TOPS, Slot.BOTTOMS, Slot.FOOTWEAR});
+        REQUIRED_CATEGORIES.put("Minimalist", new Slot[]{Slot.TOPS, Slot.BOTTOMS, Slot.FOOTWEAR});
+        REQUIRED_CATEGORIES.put("Preppy", new Slot[]{Slot.TOPS, Slot.BOTTOMS, Slot.FOOTWEAR});
 
         // Initialize optional outfit components by style theme
-        OPTIONAL_CATEGORIES.put("Casual", new String[]{"Outerwear", "Accessories"});
-        OPTIONAL_CATEGORIES.put("Formal", new String[]{"Outerwear", "Accessories"});
-        OPTIONAL_CATEGORIES.put("Business", new String[]{"Outerwear", "Accessories"});
-        OPTIONAL_CATEGORIES.put("Athletic", new String[]{"Accessories"});
-        OPTIONAL_CATEGORIES.put("Evening", new String[]{"Accessories"});
-        OPTIONAL_CATEGORIES.put("Streetwear", new String[]{"Outerwear", "Accessories"});
-        OPTIONAL_CATEGORIES.put("Vintage", new String[]{"Outerwear", "Accessories"});
-        OPTIONAL_CATEGORIES.put("Bohemian", new String[]{"Outerwear", "Accessories"});
-        OPTIONAL_CATEGORIES.put("Minimalist", new String[]{"Outerwear"});
-        OPTIONAL_CATEGORIES.put("Preppy", new String[]{"Outerwear", "Accessories"});
-
-        // Initialize color compatibility
-        COLOR_COMPATIBILITY.put("Black", Arrays.asList("White", "Red", "Blue", "Gray", "Pink", "Green", "Yellow", "Purple", "Orange"));
-        COLOR_COMPATIBILITY.put("White", Arrays.asList("Black", "Blue", "Red", "Brown", "Gray", "Navy", "Purple", "Green"));
-        COLOR_COMPATIBILITY.put("Blue", Arrays.asList("White", "Gray", "Brown", "Green", "Black", "Pink", "Orange"));
-        COLOR_COMPATIBILITY.put("Red", Arrays.asList("Black", "White", "Gray", "Blue", "Yellow", "Brown"));
-        COLOR_COMPATIBILITY.put("Green", Arrays.asList("Blue", "Yellow", "Brown", "Gray", "Black", "White"));
-        COLOR_COMPATIBILITY.put("Yellow", Arrays.asList("Green", "Blue", "Black", "Gray", "Red"));
-        COLOR_COMPATIBILITY.put("Purple", Arrays.asList("White", "Black", "Gray", "Pink", "Teal"));
-        COLOR_COMPATIBILITY.put("Pink", Arrays.asList("Blue", "Gray", "Black", "White", "Purple"));
-        COLOR_COMPATIBILITY.put("Brown", Arrays.asList("Blue", "Green", "White", "Gray", "Beige"));
-        COLOR_COMPATIBILITY.put("Gray", Arrays.asList("Black", "White", "Blue", "Red", "Pink", "Purple", "Navy"));
-        COLOR_COMPATIBILITY.put("Navy", Arrays.asList("White", "Gray", "Black", "Red", "Beige"));
-        COLOR_COMPATIBILITY.put("Beige", Arrays.asList("Navy", "Brown", "Green", "Blue", "Gray"));
-        COLOR_COMPATIBILITY.put("Orange", Arrays.asList("Blue", "Black", "White", "Gray"));
-        COLOR_COMPATIBILITY.put("Teal", Arrays.asList("White", "Gray", "Navy", "Purple"));
-
-        // Initialize pattern compatibility
-        PATTERN_COMPATIBILITY.put("Solid", Arrays.asList("Solid", "Striped", "Floral", "Plaid", "Polka Dot", "Geometric"));
-        PATTERN_COMPATIBILITY.put("Striped", Arrays.asList("Solid", "Plaid"));
-        PATTERN_COMPATIBILITY.put("Floral", Arrays.asList("Solid", "Geometric"));
-        PATTERN_COMPATIBILITY.put("Plaid", Arrays.asList("Solid", "Striped"));
-        PATTERN_COMPATIBILITY.put("Polka Dot", Arrays.asList("Solid"));
-        PATTERN_COMPATIBILITY.put("Geometric", Arrays.asList("Solid", "Floral"));
+        OPTIONAL_CATEGORIES.put("Casual", new Slot[]{Slot.OUTERWEAR, Slot.ACCESSORIES});
+        OPTIONAL_CATEGORIES.put("Formal", new Slot[]{Slot.OUTERWEAR, Slot.ACCESSORIES});
+        OPTIONAL_CATEGORIES.put("Business", new Slot[]{Slot.OUTERWEAR, Slot.ACCESSORIES});
+        OPTIONAL_CATEGORIES.put("Athletic", new Slot[]{Slot.ACCESSORIES});
+        OPTIONAL_CATEGORIES.put("Evening", new Slot[]{Slot.ACCESSORIES});
+        OPTIONAL_CATEGORIES.put("Streetwear", new Slot[]{Slot.OUTERWEAR, Slot.ACCESSORIES});
+        OPTIONAL_CATEGORIES.put("Vintage", new Slot[]{Slot.OUTERWEAR, Slot.ACCESSORIES});
+        OPTIONAL_CATEGORIES.put("Bohemian", new Slot[]{Slot.OUTERWEAR, Slot.ACCESSORIES});
+        OPTIONAL_CATEGORIES.put("Minimalist", new Slot[]{Slot.OUTERWEAR});
+        OPTIONAL_CATEGORIES.put("Preppy", new Slot[]{Slot.OUTERWEAR, Slot.ACCESSORIES});
     }
 
     /**
@@ -105,10 +98,41 @@ public class OutfitMatcher {
      * @return A recommended outfit, or null if it couldn't be generated
      */
     public Outfit generateOutfit(User user, List<Product> wardrobeItems) {
-        if (wardrobeItems == null || wardrobeItems.isEmpty()) {
+        List<Outfit> outfits = generateOutfits(user, wardrobeItems, MAX_RECENT_SIGNATURES + 1);
+        if (outfits.isEmpty()) {
             return null;
         }
 
+        // Take the best outfit not generated recently
+        for (Outfit outfit : outfits) {
+            String outfitSignature = generateOutfitSignature(outfit, wardrobeItems);
+            if (recentOutfitSignatures.add(outfitSignature)) {
+                if (recentOutfitSignatures.size() > MAX_RECENT_SIGNATURES) {
+                    // Start over once the best outfits have all been shown
+                    recentOutfitSignatures.clear();
+                    recentOutfitSignatures.add(outfitSignature);
+                }
+                return outfit;
+            }
+        }
+        recentOutfitSignatures.clear();
+        return outfits.get(0);
+    }
+
+    /**
+     * Generates the best-matching outfits from the user's wardrobe, best first
+     * 
+     * @param user          The user to generate outfits for
+     * @param wardrobeItems The user's wardrobe items
+     * @param count         Maximum number of outfits
+     * @return The outfits, or a single fallback outfit if no complete outfit
+     *         can be made
+     */
+    public List<Outfit> generateOutfits(User user, List<Product> wardrobeItems, int count) {
+        if (wardrobeItems == null || wardrobeItems.isEmpty()) {
+            return Collections.emptyList();
+        }
+
         try {
             // Choose a style theme based on user's items
             String styleTheme = selectStyleTheme(user, wardrobeItems);
@@ -117,7 +141,7 @@ public class OutfitMatcher {
             String season = determineCurrentSeason();
             
             // Categorize wardrobe items
-            Map<String, List<Product>> categorizedItems = categorizeItems(wardrobeItems);
+            Map<Slot, List<Product>> categorizedItems = ProductFeatures.groupBySlot(wardrobeItems);
 
             // Check if wardrobe has enough items for a complete outfit
             if (!hasRequiredCategories(categorizedItems, styleTheme)) {
@@ -125,100 +149,132 @@ public class OutfitMatcher {
                 styleTheme = findViableStyleTheme(categorizedItems);
                 if (styleTheme == null) {
                     // Fall back to random selection if no complete outfit can be created
-                    return createFallbackOutfit(user, wardrobeItems, season);
+                    return singletonOrEmpty(createFallbackOutfit(user, wardrobeItems, season));
                 }
             }
-            
-            // Start building the outfit
-            OutfitBuilder builder = new OutfitBuilder(user, styleTheme, season);
-            
-            // First, handle special case of dresses (they count as both top and bottom)
-            if (categorizedItems.containsKey("Dresses") && !categorizedItems.get("Dresses").isEmpty() 
-                    && random.nextBoolean()) {
-                // 50% chance to use a dress if available
-                Product dress = selectItemFromCategory(categorizedItems, "Dresses", null, null);
-                builder.addCoreItem(dress);
-                // No need to add tops or bottoms if we have a dress
-            } else {
-                // Add bottoms first (base item)
-                Product bottoms = selectItemFromCategory(categorizedItems, "Bottoms", null, null);
-                if (bottoms != null) {
-                    builder.addCoreItem(bottoms);
-                    
-                    // Then add a matching top
-                    Product top = selectItemFromCategory(categorizedItems, "Tops", bottoms, styleTheme);
-                    if (top != null) {
-                        builder.addCoreItem(top);
+
+            OutfitComposer composer = new OutfitComposer(new ThemeScorer(styleTheme),
+                    OutfitComposer.DEFAULT_BEAM_WIDTH, seed);
+            List<OutfitComposer.Slot> extras = optionalSlots(categorizedItems, styleTheme, season);
+
+            // Separates, and dresses (they count as both top and bottom)
+            List<OutfitComposer.Candidate> candidates = new ArrayList<>();
+            List<OutfitComposer.Slot> separates = new ArrayList<>(Arrays.asList(
+                    OutfitComposer.Slot.required("Bottoms", categorizedItems.get(Slot.BOTTOMS)),
+                    OutfitComposer.Slot.required("Tops", categorizedItems.get(Slot.TOPS)),
+                    OutfitComposer.Slot.required("Footwear", categorizedItems.get(Slot.FOOTWEAR))));
+            separates.addAll(extras);
+            candidates.addAll(composer.compose(separates, count).getCandidates());
+
+            List<OutfitComposer.Slot> dresses = new ArrayList<>(Arrays.asList(
+                    OutfitComposer.Slot.required("Dresses", categorizedItems.get(Slot.DRESSES)),
+                    OutfitComposer.Slot.required("Footwear", categorizedItems.get(Slot.FOOTWEAR))));
+            dresses.addAll(extras);
+            candidates.addAll(composer.compose(dresses, count).getCandidates());
+
+            candidates.sort((first, second) -> Double.compare(second.getScore(), first.getScore()));
+
+            List<Outfit> outfits = new ArrayList<>();
+            for (OutfitComposer.Candidate candidate : candidates.subList(0, Math.min(count, candidates.size()))) {
+                OutfitBuilder builder = new OutfitBuilder(user, styleTheme, season);
+                for (Product item : candidate.getItems()) {
+                    Slot slot = ProductFeatures.of(item).getSlot();
+                    if (slot == Slot.OUTERWEAR || slot == Slot.ACCESSORIES) {
+                        builder.addOptionalItem(item);
+                    } else {
+                        builder.addCoreItem(item);
                     }
                 }
+                outfits.add(builder.build());
             }
-            
-            // Add footwear
-            Product shoes = selectItemFromCategory(categorizedItems, "Footwear", builder.getPrimaryColorItem(), styleTheme);
-            if (shoes != null) {
-                builder.addCoreItem(shoes);
-            }
-            
-            // Add outerwear if appropriate for the season and style
-            if (shouldAddOuterwear(season, styleTheme)) {
-                Product outerwear = selectItemFromCategory(categorizedItems, "Outerwear", builder.getPrimaryColorItem(), styleTheme);
-                if (outerwear != null) {
-                    builder.addOptionalItem(outerwear);
-                }
-            }
-            
-            // Add accessories
-            if (categorizedItems.containsKey("Accessories") && !categorizedItems.get("Accessories").isEmpty()) {
-                Product accessory = selectItemFromCategory(categorizedItems, "Accessories", builder.getPrimaryColorItem(), styleTheme);
-            if (accessory != null) {
-                    builder.addOptionalItem(accessory);
-                }
-            }
-            
-            // Build the final outfit
-            Outfit outfit = builder.build();
-            
-            // Check if this is too similar to recently generated outfits
-            String outfitSignature = generateOutfitSignature(outfit, wardrobeItems);
-            if (recentOutfitSignatures.contains(outfitSignature)) {
-                // Try one more time with different selections
-                return generateOutfit(user, wardrobeItems);
-            }
-            
-            // Add to recent outfits to avoid duplication
-            recentOutfitSignatures.add(outfitSignature);
-            if (recentOutfitSignatures.size() > 10) {
-                // Only keep the 10 most recent signatures
-                recentOutfitSignatures.clear(); 
-            }
-
-            return outfit;
+            return outfits;
         } catch (Exception e) {
             System.err.println("Error generating outfit: " + e.getMessage());
             e.printStackTrace();
-            return createFallbackOutfit(user, wardrobeItems, determineCurrentSeason());
+            return singletonOrEmpty(createFallbackOutfit(user, wardrobeItems, determineCurrentSeason()));
+        }
+    }
+
+    private static List<Outfit> singletonOrEmpty(Outfit outfit) {
+        return outfit != null ? Collections.singletonList(outfit) : Collections.emptyList();
+    }
+
+    /**
+     * Gets the outerwear and accessory slots the style allows, with a cost
+     * per layer so they are only added when they coordinate
+     */
+    private List<OutfitComposer.Slot> optionalSlots(Map<Slot, List<Product>> categorizedItems,
+            String styleTheme, String season) {
+        List<Slot> allowed = Arrays.asList(OPTIONAL_CATEGORIES.getOrDefault(styleTheme, new Slot[0]));
+        List<OutfitComposer.Slot> slots = new ArrayList<>();
+        if (allowed.contains(Slot.OUTERWEAR)) {
+            slots.add(OutfitComposer.Slot.optional("Outerwear", categorizedItems.get(Slot.OUTERWEAR),
+                    outerwearCost(season, styleTheme)));
+        }
+        if (allowed.contains(Slot.ACCESSORIES)) {
+            slots.add(OutfitComposer.Slot.optional("Accessories", categorizedItems.get(Slot.ACCESSORIES),
+                    ACCESSORY_COST));
+        }
+        return slots;
+    }
+
+    /**
+     * Scores outfits for a style theme: items that fit the theme, and pairs
+     * of items with compatible colors and patterns
+     */
+    private static class ThemeScorer implements OutfitComposer.Scorer {
+        private final int theme;
+        private final Palette palette = Palette.getDefault();
+
+        ThemeScorer(String styleTheme) {
+            this.theme = ProductFeatures.themeOrdinal(styleTheme);
+        }
+
+        @Override
+        public double itemScore(Product item) {
+            return theme >= 0 && ProductFeatures.of(item).hasTheme(theme) ? THEME_MATCH_SCORE : 0;
+        }
+
+        @Override
+        public double pairScore(Product first, Product second) {
+            ProductFeatures firstFeatures = ProductFeatures.of(first);
+            ProductFeatures secondFeatures = ProductFeatures.of(second);
+            double score = palette.patternsMatch(firstFeatures.getPattern(), secondFeatures.getPattern())
+                    ? 0 : -PATTERN_CLASH_COST;
+            int firstColor = firstFeatures.getColor();
+            int secondColor = secondFeatures.getColor();
+            if (palette.colorsMatch(firstColor, secondColor)) {
+                return score + COMPATIBLE_COLOR_SCORE;
+            }
+            return firstColor == secondColor && firstColor != ProductFeatures.NO_COLOR
+                    ? score + SAME_COLOR_SCORE : score;
+        }
+
+        @Override
+        public double maxPairScore() {
+            return COMPATIBLE_COLOR_SCORE;
         }
     }
 
     /**
      * Determine if the wardrobe has enough items to create an outfit for the given style
      */
-    private boolean hasRequiredCategories(Map<String, List<Product>> categorizedItems, String styleTheme) {
+    private boolean hasRequiredCategories(Map<Slot, List<Product>> categorizedItems, String styleTheme) {
         if (!REQUIRED_CATEGORIES.containsKey(styleTheme)) {
             return false;
         }
         
         // Check for a dress (which counts as both top and bottom)
-        boolean hasDress = categorizedItems.containsKey("Dresses") && !categorizedItems.get("Dresses").isEmpty();
+        boolean hasDress = !categorizedItems.get(Slot.DRESSES).isEmpty();
         
         // If we have a dress, we only need to check for footwear
         if (hasDress) {
-            return categorizedItems.containsKey("Footwear") && !categorizedItems.get("Footwear").isEmpty();
+            return !categorizedItems.get(Slot.FOOTWEAR).isEmpty();
         }
         
         // Otherwise check for all required categories
-        for (String category : REQUIRED_CATEGORIES.get(styleTheme)) {
-            if (!categorizedItems.containsKey(category) || categorizedItems.get(category).isEmpty()) {
+        for (Slot category : REQUIRED_CATEGORIES.get(styleTheme)) {
+            if (categorizedItems.get(category).isEmpty()) {
                 return false;
             }
         }
@@ -229,7 +285,7 @@ public class OutfitMatcher {
     /**
      * Find a style theme that can be created with the available items
      */
-    private String findViableStyleTheme(Map<String, List<Product>> categorizedItems) {
+    private String findViableStyleTheme(Map<Slot, List<Product>> categorizedItems) {
         for (String theme : STYLE_THEMES) {
             if (hasRequiredCategories(categorizedItems, theme)) {
                 return theme;
@@ -239,70 +295,50 @@ public class OutfitMatcher {
     }
     
     /**
-     * Determine if outerwear should be added based on season and style
+     * Gets the score an outerwear layer must make up for, by season and style
      */
-    private boolean shouldAddOuterwear(String season, String styleTheme) {
-        // More likely to add outerwear in colder seasons
-        double seasonProbability;
+    private double outerwearCost(String season, String styleTheme) {
+        // Cheaper in colder seasons
+        double cost;
         switch(season) {
             case "Winter":
-                seasonProbability = 0.9;
+                cost = 0.0;
                 break;
             case "Fall":
-                seasonProbability = 0.7;
+                cost = 0.1;
                 break;
             case "Spring":
-                seasonProbability = 0.5;
+                cost = 0.25;
                 break;
             case "Summer":
-                seasonProbability = 0.2;
+                cost = 0.5;
                 break;
             default:
-                seasonProbability = 0.5;
+                cost = 0.25;
                 break;
         }
         
         // Adjust by style
         if (styleTheme.equals("Athletic") || styleTheme.equals("Evening")) {
-            seasonProbability *= 0.5; // Less likely for athletic or evening wear
+            cost += 0.2; // Less likely for athletic or evening wear
         } else if (styleTheme.equals("Streetwear") || styleTheme.equals("Casual")) {
-            seasonProbability *= 1.2; // More likely for streetwear or casual
+            cost = Math.max(0, cost - 0.05); // More likely for streetwear or casual
         }
         
-        return random.nextDouble() < seasonProbability;
+        return cost;
     }
     
     /**
      * Selects an appropriate style theme based on the user's wardrobe
      */
     private String selectStyleTheme(User user, List<Product> items) {
-        // Count items by potential style themes
-        Map<String, Integer> themeCount = new HashMap<>();
-        for (String theme : STYLE_THEMES) {
-            themeCount.put(theme, 0);
-        }
-        
-        // Check each item description and category for style indicators
+        // Count items by the style themes they suit
+        int[] themeCount = new int[STYLE_THEMES.length];
         for (Product item : items) {
-            String description = (item.getDescription() != null) ? item.getDescription().toLowerCase() : "";
-            String category = item.getCategory().toLowerCase();
-            
-            for (String theme : STYLE_THEMES) {
-                if (description.contains(theme.toLowerCase()) || category.contains(theme.toLowerCase())) {
-                    themeCount.put(theme, themeCount.get(theme) + 1);
-                }
-            }
-            
-            // Special cases
-            if (description.contains("jean") || category.contains("jean") || description.contains("t-shirt") || category.contains("t-shirt")) {
-                themeCount.put("Casual", themeCount.get("Casual") + 1);
-            }
-            if (description.contains("suit") || category.contains("suit") || description.contains("blazer") || category.contains("blazer")) {
-                themeCount.put("Business", themeCount.get("Business") + 1);
-                themeCount.put("Formal", themeCount.get("Formal") + 1);
-            }
-            if (description.contains("sport") || category.contains("sport") || description.contains("running") || category.contains("running")) {
-                themeCount.put("Athletic", themeCount.get("Athletic") + 1);
+            int themes = ProductFeatures.of(item).getThemes();
+            while (themes != 0) {
+                themeCount[Integer.numberOfTrailingZeros(themes)]++;
+                themes &= themes - 1;
             }
         }
         
@@ -310,10 +346,10 @@ public class OutfitMatcher {
         String bestTheme = null;
         int maxCount = -1;
         
-        for (Map.Entry<String, Integer> entry : themeCount.entrySet()) {
-            if (entry.getValue() > maxCount) {
-                maxCount = entry.getValue();
-                bestTheme = entry.getKey();
+        for (int theme = 0; theme < STYLE_THEMES.length; theme++) {
+            if (themeCount[theme] > maxCount) {
+                maxCount = themeCount[theme];
+                bestTheme = STYLE_THEMES[theme];
             }
         }
         
@@ -342,195 +378,6 @@ public class OutfitMatcher {
         }
     }
 
-    /**
-     * Categorize wardrobe items by product type
-     */
-    private Map<String, List<Product>> categorizeItems(List<Product> items) {
-        Map<String, List<Product>> categorized = new HashMap<>();
-        
-        // Initialize categories
-        categorized.put("Tops", new ArrayList<>());
-        categorized.put("Bottoms", new ArrayList<>());
-        categorized.put("Dresses", new ArrayList<>());
-        categorized.put("Footwear", new ArrayList<>());
-        categorized.put("Outerwear", new ArrayList<>());
-        categorized.put("Accessories", new ArrayList<>());
-
-        for (Product item : items) {
-            String category = item.getCategory().toLowerCase();
-            String subcategory = item.getSubcategory() != null ? item.getSubcategory().toLowerCase() : "";
-            String description = item.getDescription() != null ? item.getDescription().toLowerCase() : "";
-            
-            if (category.contains("dress") || subcategory.contains("dress") || description.contains("dress")) {
-                categorized.get("Dresses").add(item);
-            } else if (category.contains("top") || category.contains("shirt") || category.contains("blouse") || 
-                    category.contains("sweater") || category.contains("tee") || category.contains("t-shirt") ||
-                    subcategory.contains("top") || subcategory.contains("shirt")) {
-                categorized.get("Tops").add(item);
-            } else if (category.contains("pant") || category.contains("jean") || category.contains("skirt") || 
-                    category.contains("short") || category.contains("bottom") || category.contains("trouser") ||
-                    subcategory.contains("pant") || subcategory.contains("bottom")) {
-                categorized.get("Bottoms").add(item);
-            } else if (category.contains("shoe") || category.contains("boot") || category.contains("sneaker") || 
-                    category.contains("sandal") || category.contains("footwear") || subcategory.contains("shoe") ||
-                    description.contains("shoe") || description.contains("footwear")) {
-                categorized.get("Footwear").add(item);
-            } else if (category.contains("jacket") || category.contains("coat") || category.contains("hoodie") || 
-                    category.contains("blazer") || category.contains("sweater") || category.contains("cardigan") ||
-                    subcategory.contains("outerwear") || description.contains("outerwear")) {
-                categorized.get("Outerwear").add(item);
-            } else if (category.contains("accessory") || category.contains("jewelry") || category.contains("hat") || 
-                    category.contains("scarf") || category.contains("belt") || category.contains("bag") || 
-                    category.contains("watch") || category.contains("glasses") || subcategory.contains("accessory")) {
-                categorized.get("Accessories").add(item);
-            } else {
-                // Try to determine category from description
-                if (description.contains("shirt") || description.contains("top") || description.contains("blouse")) {
-                    categorized.get("Tops").add(item);
-                } else if (description.contains("pant") || description.contains("jean") || description.contains("skirt")) {
-                    categorized.get("Bottoms").add(item);
-                } else if (description.contains("boot") || description.contains("sneaker") || description.contains("sandal")) {
-                    categorized.get("Footwear").add(item);
-                } else {
-                    // If we can't determine, default to tops
-                    categorized.get("Tops").add(item);
-                }
-            }
-        }
-
-        return categorized;
-    }
-
-    /**
-     * Select an item from a specific category that matches/coordinates with a reference item
-     */
-    private Product selectItemFromCategory(Map<String, List<Product>> categorizedItems, String category, 
-                                          Product referenceItem, String styleTheme) {
-        // Check if the category exists and has items
-        if (!categorizedItems.containsKey(category) || categorizedItems.get(category).isEmpty()) {
-            return null;
-        }
-        
-        List<Product> categoryItems = categorizedItems.get(category);
-        
-        // If no reference item, just return a random item from the category
-        if (referenceItem == null) {
-            return categoryItems.get(random.nextInt(categoryItems.size()));
-        }
-        
-        // Try to find items that match the style theme first
-        List<Product> styleMatches = new ArrayList<>();
-        if (styleTheme != null) {
-            for (Product item : categoryItems) {
-                String description = item.getDescription() != null ? item.getDescription().toLowerCase() : "";
-                String itemCategory = item.getCategory().toLowerCase();
-                
-                if (description.contains(styleTheme.toLowerCase()) || itemCategory.contains(styleTheme.toLowerCase())) {
-                    styleMatches.add(item);
-                }
-            }
-        }
-        
-        // Get color of reference item
-        String referenceColor = extractColor(referenceItem);
-        if (referenceColor != null && COLOR_COMPATIBILITY.containsKey(referenceColor)) {
-            // Create a list of color-compatible items
-            List<String> compatibleColors = COLOR_COMPATIBILITY.get(referenceColor);
-            List<Product> colorMatches = new ArrayList<>();
-            
-            // Source items from style matches if available, otherwise use all category items
-            List<Product> sourceItems = styleMatches.isEmpty() ? categoryItems : styleMatches;
-            
-            for (Product item : sourceItems) {
-                String itemColor = extractColor(item);
-                if (itemColor != null && compatibleColors.contains(itemColor)) {
-                    colorMatches.add(item);
-                }
-            }
-            
-            // If we found color matches, return a random one
-            if (!colorMatches.isEmpty()) {
-                return colorMatches.get(random.nextInt(colorMatches.size()));
-            }
-        }
-        
-        // If we have style matches but no color matches, use a style match
-        if (!styleMatches.isEmpty()) {
-            return styleMatches.get(random.nextInt(styleMatches.size()));
-        }
-        
-        // Fallback to a random item from the category
-        return categoryItems.get(random.nextInt(categoryItems.size()));
-    }
-    
-    /**
-     * Extract the main color from a product
-     */
-    private String extractColor(Product product) {
-        // First check if the product has a color attribute
-        if (product.getColor() != null && !product.getColor().isEmpty()) {
-            return matchColorName(product.getColor());
-        }
-        
-        // Check description for color
-        if (product.getDescription() != null) {
-            return extractColorFromText(product.getDescription());
-        }
-        
-        // Check name for color
-        if (product.getName() != null) {
-            return extractColorFromText(product.getName());
-        }
-        
-        return null;
-    }
-    
-    /**
-     * Extract color from text description or name
-     */
-    private String extractColorFromText(String text) {
-        String lowerText = text.toLowerCase();
-        
-        // Common colors to check for
-        String[] colors = {
-            "Black", "White", "Red", "Blue", "Green", "Yellow", "Purple",
-            "Pink", "Orange", "Brown", "Gray", "Navy", "Teal", "Beige", "Cream",
-            "Maroon", "Turquoise", "Gold", "Silver", "Olive", "Lavender"
-        };
-        
-        for (String color : colors) {
-            if (lowerText.contains(color.toLowerCase())) {
-                return color;
-            }
-        }
-
-        return null;
-    }
-
-    /**
-     * Match a color string to a standard color name
-     */
-    private String matchColorName(String colorInput) {
-        String color = colorInput.toLowerCase();
-        
-        if (color.contains("black")) return "Black";
-        if (color.contains("white")) return "White";
-        if (color.contains("red")) return "Red";
-        if (color.contains("blue")) return "Blue";
-        if (color.contains("green")) return "Green";
-        if (color.contains("yellow")) return "Yellow";
-        if (color.contains("purple")) return "Purple";
-        if (color.contains("pink")) return "Pink";
-        if (color.contains("orange")) return "Orange";
-        if (color.contains("brown")) return "Brown";
-        if (color.contains("gray") || color.contains("grey")) return "Gray";
-        if (color.contains("navy")) return "Navy";
-        if (color.contains("teal") || color.contains("turquoise")) return "Teal";
-        if (color.contains("beige") || color.contains("tan") || color.contains("khaki")) return "Beige";
-        
-        return colorInput;
-    }
-    
     /**
      * Create a unique signature for an outfit to avoid duplicates
      */
@@ -564,7 +411,7 @@ public class OutfitMatcher {
 
         // Create a shuffled copy of the items
         List<Product> shuffled = new ArrayList<>(wardrobeItems);
-        Collections.shuffle(shuffled);
+        Collections.shuffle(shuffled, random);
         
         // Create a simple outfit with random items
         String themeName = STYLE_THEMES[random.nextInt(STYLE_THEMES.length)];
@@ -1,16 +1,18 @@
 package com.fashionstore.ai;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
+import com.fashionstore.ai.ProductFeatures.Slot;
 import com.fashionstore.models.Outfit;
 import com.fashionstore.models.Product;
 import com.fashionstore.models.StylePreference;
@@ -23,47 +25,35 @@ import com.fashionstore.models.User;
  */
 public class OutfitRecommender {
 
-    // Color coordination maps
-    private static final Map<String, List<String>> COMPLEMENTARY_COLORS = new HashMap<>();
-
     // Style coordination maps
     private static final Map<String, List<String>> STYLE_MATCHES = new HashMap<>();
     
     // Feature weights for the recommendation algorithm
     private static final Map<String, Double> FEATURE_WEIGHTS = new HashMap<>();
     
-    // User similarity cache for collaborative filtering
-    private final Map<String, Map<String, Double>> userSimilarityCache = new HashMap<>();
-    
-    // Product similarity cache for content-based filtering
-    private final Map<String, Map<String, Double>> productSimilarityCache = new HashMap<>();
-    
-    // User-Item matrix for collaborative filtering
-    private final Map<String, Map<String, Double>> userItemMatrix = new HashMap<>();
-    
-    // Learning rate for preference updates
-    private static final double LEARNING_RATE = 0.05;
-    
-    // Regularization parameter to prevent overfitting
-    private static final double REGULARIZATION = 0.01;
+    // Shared by all recommenders; replaced whole by rebuildItemModel
+    private static volatile ItemSimilarityModel itemModel = ItemSimilarityModel.EMPTY;
+
+    // Runs item similarity recomputation
+    private static final ForkJoinPool SIMILARITY_POOL = new ForkJoinPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    // Outfit score components; a rating is BASE_RATING plus the score
+    private static final double BASE_RATING = 3.0;
+    private static final double COMPLEMENTARY_COLOR_SCORE = 0.25;
+    private static final double SAME_COLOR_SCORE = 0.1;
+    private static final double PATTERN_CLASH_COST = 0.2;
+    private static final double CO_OCCURRENCE_BONUS = 0.5;
+    private static final double PREFERENCE_MATCH_SCORE = 0.1;
+    private static final double OUTERWEAR_COST = 0.3;
+    private static final double ACCESSORY_COST = 0.2;
+
+    // Ties between equally rated outfits are broken the same way every time
+    private static final long DEFAULT_SEED = 42;
     
     // Normalization factor for ratings
-    private static final double NORM_FACTOR = 5.0;    // Static initializer to set up color and style matching rules
+    private static final double NORM_FACTOR = 5.0;    // Static initializer to set up style matching rules
     static {
-        // Initialize complementary color pairings
-        COMPLEMENTARY_COLORS.put("black", Arrays.asList("white", "gray", "red", "blue", "green", "pink", "yellow"));
-        COMPLEMENTARY_COLORS.put("white", Arrays.asList("black", "navy", "blue", "red", "brown"));
-        COMPLEMENTARY_COLORS.put("blue", Arrays.asList("white", "gray", "brown", "navy", "khaki"));
-        COMPLEMENTARY_COLORS.put("red", Arrays.asList("white", "black", "gray", "navy", "khaki"));
-        COMPLEMENTARY_COLORS.put("green", Arrays.asList("white", "black", "khaki", "brown"));
-        COMPLEMENTARY_COLORS.put("yellow", Arrays.asList("black", "navy", "blue", "purple"));
-        COMPLEMENTARY_COLORS.put("purple", Arrays.asList("white", "gray", "yellow"));
-        COMPLEMENTARY_COLORS.put("pink", Arrays.asList("black", "white", "gray", "navy"));
-        COMPLEMENTARY_COLORS.put("gray", Arrays.asList("black", "white", "navy", "red", "pink", "blue"));
-        COMPLEMENTARY_COLORS.put("navy", Arrays.asList("white", "gray", "pink", "red", "yellow"));
-        COMPLEMENTARY_COLORS.put("brown", Arrays.asList("white", "blue", "green", "khaki"));
-        COMPLEMENTARY_COLORS.put("khaki", Arrays.asList("black", "navy", "brown", "green", "red"));
-
         // Initialize style matching rules
         STYLE_MATCHES.put("formal", Arrays.asList("formal", "business", "elegant"));
         STYLE_MATCHES.put("casual", Arrays.asList("casual", "everyday", "relaxed"));
@@ -91,6 +81,19 @@ public class OutfitRecommender {
             User user,
             List<Product> wardrobeItems,
             int maxRecommendations) {
+        return generateRecommendations(user, wardrobeItems, maxRecommendations, DEFAULT_SEED);
+    }
+
+    /**
+     * Generates the highest-rated outfits from the user's wardrobe, best
+     * first. The seed only breaks ties between equally rated outfits, so the
+     * same seed and wardrobe always give the same recommendations.
+     */
+    public List<Outfit> generateRecommendations(
+            User user,
+            List<Product> wardrobeItems,
+            int maxRecommendations,
+            long seed) {
 
         // Make sure we have enough items to work with
         if (wardrobeItems.size() < 2) {
@@ -98,124 +101,85 @@ public class OutfitRecommender {
         }
 
         // Categorize wardrobe items
-        Map<String, List<Product>> categorizedItems = categorizeWardrobeItems(wardrobeItems);
-
-        List<Outfit> recommendations = new ArrayList<>();
-
-        // Try to create enough outfit combinations
-        for (int attempt = 0; attempt < maxRecommendations * 3
-                && recommendations.size() < maxRecommendations; attempt++) {
-            Outfit outfit = createOutfitCombination(user, categorizedItems);
-            if (outfit != null && !outfitExists(recommendations, outfit)) {
-                // Calculate and set style rating
-                double rating = calculateOutfitRating(outfit, wardrobeItems, user);
-                outfit.setStyleRating(rating);
+        Map<Slot, List<Product>> categorizedItems = ProductFeatures.groupBySlot(wardrobeItems);
 
-                recommendations.add(outfit);
-            }
+        // Tops and bottoms, or a dress, are required; shoes when there are
+        // any; extra layers only when they raise the rating
+        List<OutfitComposer.Slot> extras = new ArrayList<>();
+        if (!categorizedItems.get(Slot.FOOTWEAR).isEmpty()) {
+            extras.add(OutfitComposer.Slot.required("shoes", categorizedItems.get(Slot.FOOTWEAR)));
+        }
+        extras.add(OutfitComposer.Slot.optional("outerwear", categorizedItems.get(Slot.OUTERWEAR), 0));
+        extras.add(OutfitComposer.Slot.optional("accessories", categorizedItems.get(Slot.ACCESSORIES), 0));
+
+        OutfitComposer composer = new OutfitComposer(new RatingScorer(user), OutfitComposer.DEFAULT_BEAM_WIDTH, seed);
+        List<OutfitComposer.Candidate> candidates = new ArrayList<>();
+
+        List<OutfitComposer.Slot> separates = new ArrayList<>();
+        separates.add(OutfitComposer.Slot.required("tops", categorizedItems.get(Slot.TOPS)));
+        separates.add(OutfitComposer.Slot.required("bottoms", categorizedItems.get(Slot.BOTTOMS)));
+        separates.addAll(extras);
+        candidates.addAll(composer.compose(separates, maxRecommendations).getCandidates());
+
+        if (!categorizedItems.get(Slot.DRESSES).isEmpty()) {
+            List<OutfitComposer.Slot> dresses = new ArrayList<>();
+            dresses.add(OutfitComposer.Slot.required("dresses", categorizedItems.get(Slot.DRESSES)));
+            dresses.addAll(extras);
+            candidates.addAll(composer.compose(dresses, maxRecommendations).getCandidates());
+            candidates.sort((first, second) -> Double.compare(second.getScore(), first.getScore()));
         }
 
-        // Sort recommendations by rating (highest first)
-        recommendations.sort((o1, o2) -> Double.compare(o2.getStyleRating(), o1.getStyleRating()));
-
+        List<Outfit> recommendations = new ArrayList<>();
+        for (OutfitComposer.Candidate candidate : candidates.subList(0, Math.min(maxRecommendations, candidates.size()))) {
+            recommendations.add(createOutfit(user, candidate));
+        }
         return recommendations;
     }
 
     /**
-     * Categorizes wardrobe items by their product category
+     * Recomputes item similarities from every user's wardrobe and outfits and
+     * makes them the model used by all recommenders.
+     *
+     * @return The new model
      */
-    private Map<String, List<Product>> categorizeWardrobeItems(List<Product> wardrobeItems) {
-        Map<String, List<Product>> categorized = new HashMap<>();
-
-        // Initialize common categories
-        categorized.put("tops", new ArrayList<>());
-        categorized.put("bottoms", new ArrayList<>());
-        categorized.put("shoes", new ArrayList<>());
-        categorized.put("accessories", new ArrayList<>());
-        categorized.put("outerwear", new ArrayList<>());
-
-        // Categorize each item
-        for (Product product : wardrobeItems) {
-            String category = product.getCategory().toLowerCase();
-
-            if (category.contains("top") || category.contains("shirt") || category.contains("tee") ||
-                    category.contains("blouse") || category.contains("sweater")) {
-                categorized.get("tops").add(product);
-            } else if (category.contains("bottom") || category.contains("pant") ||
-                    category.contains("jean") || category.contains("skirt") ||
-                    category.contains("short")) {
-                categorized.get("bottoms").add(product);
-            } else if (category.contains("shoe") || category.contains("boot") ||
-                    category.contains("sneaker") || category.contains("sandal")) {
-                categorized.get("shoes").add(product);
-            } else if (category.contains("accessory") || category.contains("accessories") ||
-                    category.contains("hat") || category.contains("bag") ||
-                    category.contains("jewelry") || category.contains("watch") ||
-                    category.contains("belt") || category.contains("scarf")) {
-                categorized.get("accessories").add(product);
-            } else if (category.contains("outerwear") || category.contains("jacket") ||
-                    category.contains("coat") || category.contains("hoodie")) {
-                categorized.get("outerwear").add(product);
-            } else {
-                // If we don't know where it goes, try to guess from the name
-                String name = product.getName().toLowerCase();
-                if (name.contains("shirt") || name.contains("top") || name.contains("tee")) {
-                    categorized.get("tops").add(product);
-                } else if (name.contains("pant") || name.contains("jean") || name.contains("skirt")) {
-                    categorized.get("bottoms").add(product);
-                } else if (name.contains("shoe") || name.contains("boot") || name.contains("sneaker")) {
-                    categorized.get("shoes").add(product);
-                } else {
-                    // Default to accessories if we can't categorize
-                    categorized.get("accessories").add(product);
-                }
-            }
-        }
+    public static ItemSimilarityModel rebuildItemModel(Collection<User> users, Collection<Outfit> outfits) {
+        long start = System.nanoTime();
+        ItemSimilarityModel model = ItemSimilarityModel.build(users, outfits,
+                ItemSimilarityModel.DEFAULT_NEIGHBOURS, SIMILARITY_POOL);
+        itemModel = model;
+        System.out.println("OutfitRecommender: rebuilt " + model + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return model;
+    }
 
-        return categorized;
+    public static ItemSimilarityModel getItemModel() {
+        return itemModel;
     }
 
     /**
-     * Creates a single outfit combination from the user's wardrobe items
+     * Recommends products other users pair with the items in this user's
+     * wardrobe. Uses the user's current wardrobe, so items added since the
+     * model was built count too.
+     *
+     * @return Up to {@code count} product IDs with scores, best first
      */
-    private Outfit createOutfitCombination(User user, Map<String, List<Product>> categorizedItems) {
-        Random random = new Random();
-
-        // Make sure we have essential items
-        if (categorizedItems.get("tops").isEmpty() || categorizedItems.get("bottoms").isEmpty()) {
-            return null;
-        }
+    public List<ScoredProduct> recommendProducts(User user, int count) {
+        ItemSimilarityModel model = itemModel;
+        List<ScoredProduct> fromWardrobe = model.recommendForItems(user.getWardrobeItemIds(), count);
+        return fromWardrobe.isEmpty() ? model.recommend(user.getUserId(), count) : fromWardrobe;
+    }
 
-        // Start building the outfit
+    /**
+     * Creates an outfit from a composed combination of wardrobe items
+     */
+    private Outfit createOutfit(User user, OutfitComposer.Candidate candidate) {
         Outfit outfit = new Outfit(user.getUserId(), "AI Recommendation");
         outfit.setAiGenerated(true);
         outfit.setDescription("AI-generated outfit based on your style preferences and wardrobe items.");
-
-        // Select a top
-        Product top = getRandomItem(categorizedItems.get("tops"));
-        outfit.addProduct(top.getProductId());
-
-        // Select a bottom that coordinates with the top
-        Product bottom = selectCoordinatingItem(top, categorizedItems.get("bottoms"));
-        outfit.addProduct(bottom.getProductId());
-
-        // Add shoes if available
-        if (!categorizedItems.get("shoes").isEmpty()) {
-            Product shoes = selectCoordinatingItem(bottom, categorizedItems.get("shoes"));
-            outfit.addProduct(shoes.getProductId());
-        }
-
-        // Maybe add outerwear (30% chance)
-        if (!categorizedItems.get("outerwear").isEmpty() && random.nextDouble() < 0.3) {
-            Product outerwear = selectCoordinatingItem(top, categorizedItems.get("outerwear"));
-            outfit.addProduct(outerwear.getProductId());
-        }
-
-        // Maybe add an accessory (50% chance)
-        if (!categorizedItems.get("accessories").isEmpty() && random.nextDouble() < 0.5) {
-            Product accessory = getRandomItem(categorizedItems.get("accessories"));
-            outfit.addProduct(accessory.getProductId());
+        for (Product product : candidate.getItems()) {
+            outfit.addProduct(product.getProductId());
         }
+        outfit.setStyleRating(toRating(candidate.getScore()));
 
         // Determine appropriate season
         determineOutfitSeason(outfit);
@@ -226,50 +190,6 @@ public class OutfitRecommender {
         return outfit;
     }
 
-    /**
-     * Gets a random item from a list
-     */
-    private Product getRandomItem(List<Product> items) {
-        if (items.isEmpty())
-            return null;
-        return items.get(new Random().nextInt(items.size()));
-    }
-
-    /**
-     * Selects an item that coordinates well with the reference item
-     */
-    private Product selectCoordinatingItem(Product referenceItem, List<Product> candidates) {
-        if (candidates.isEmpty())
-            return null;
-
-        // Get color of the reference item
-        String referenceColor = referenceItem.getColor() != null ? referenceItem.getColor().toLowerCase() : null;
-
-        // If we don't have a color, just return a random item
-        if (referenceColor == null) {
-            return getRandomItem(candidates);
-        }
-
-        // Try to find complementary colors
-        List<String> complementaryColors = COMPLEMENTARY_COLORS.getOrDefault(
-                referenceColor, Collections.emptyList());
-
-        // Filter items by complementary colors
-        List<Product> matchingItems = candidates.stream()
-                .filter(item -> item.getColor() != null &&
-                        (complementaryColors.contains(item.getColor().toLowerCase()) ||
-                                item.getColor().equalsIgnoreCase(referenceColor)))
-                .collect(Collectors.toList());
-
-        // If no matches, return random item
-        if (matchingItems.isEmpty()) {
-            return getRandomItem(candidates);
-        }
-
-        // Return a random matching item
-        return getRandomItem(matchingItems);
-    }
-
     /**
      * Determines the most appropriate season for the outfit
      */
@@ -301,69 +221,116 @@ public class OutfitRecommender {
      * Calculates a style rating for the outfit (0-5)
      */
     public double calculateOutfitRating(Outfit outfit, List<Product> allItems, User user) {
-        // Base rating
-        double rating = 3.0;
-
         // Convert outfit to products
         List<Product> outfitProducts = outfit.getProductIds().stream()
                 .map(id -> findProductById(id, allItems))
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
 
-        // Check color coordination
-        if (hasGoodColorCoordination(outfitProducts)) {
-            rating += 0.5;
-        }
-
-        // Check if it matches user preferences
-        if (user.getStylePreferences() != null && !user.getStylePreferences().isEmpty()) {
-            for (StylePreference preference : user.getStylePreferences()) {
-                // Simple match - if any product matches a preference, increase rating
-                if (outfitProducts.stream().anyMatch(p -> p.getCategory() != null &&
-                        p.getCategory().toLowerCase().contains(preference.getValue().toLowerCase()))) {
-                    rating += 0.25 * preference.getWeight();
-                }
-            }
-        }
+        // Same score the composer ranks recommendations by
+        return toRating(new RatingScorer(user).outfitScore(outfitProducts));
+    }
 
-        // Ensure rating is within 0-5 range
-        return Math.max(0, Math.min(5, rating));
+    /**
+     * Converts an outfit score to a rating, starting from 3 and kept within 0-5
+     */
+    private static double toRating(double score) {
+        return Math.max(0, Math.min(5, BASE_RATING + score));
     }
 
     /**
-     * Checks if outfit has good color coordination
+     * Scores outfits for a user: matching preferences per item, a cost for
+     * each extra layer, and for each pair of items, coordinating colors and
+     * patterns and how often other users pair them
      */
-    private boolean hasGoodColorCoordination(List<Product> products) {
-        // Need at least 2 items to coordinate
-        if (products.size() < 2) {
-            return true;
+    private static class RatingScorer implements OutfitComposer.Scorer {
+        private final Palette palette = Palette.getDefault();
+        private final String[] preferenceValues;
+        private final double[] preferenceWeights;
+        private final ItemSimilarityModel model = itemModel;
+
+        RatingScorer(User user) {
+            List<StylePreference> preferences = new ArrayList<>();
+            if (user.getStylePreferences() != null) {
+                for (StylePreference preference : user.getStylePreferences()) {
+                    if (preference.getValue() != null) {
+                        preferences.add(preference);
+                    }
+                }
+            }
+            this.preferenceValues = new String[preferences.size()];
+            this.preferenceWeights = new double[preferences.size()];
+            for (int i = 0; i < preferences.size(); i++) {
+                preferenceValues[i] = preferences.get(i).getValue().toLowerCase();
+                preferenceWeights[i] = preferences.get(i).getWeight();
+            }
         }
 
-        // Count products with complementary colors
-        int complementaryPairs = 0;
-
-        for (int i = 0; i < products.size(); i++) {
-            String color1 = products.get(i).getColor();
-            if (color1 == null)
-                continue;
+        @Override
+        public double itemScore(Product item) {
+            ProductFeatures features = ProductFeatures.of(item);
+            double score = 0;
+            for (int i = 0; i < preferenceValues.length; i++) {
+                if (features.getCategory().contains(preferenceValues[i])) {
+                    score += PREFERENCE_MATCH_SCORE * preferenceWeights[i];
+                }
+            }
+            if (features.getSlot() == Slot.OUTERWEAR) {
+                score -= OUTERWEAR_COST;
+            } else if (features.getSlot() == Slot.ACCESSORIES) {
+                score -= ACCESSORY_COST;
+            }
+            return score;
+        }
 
-            for (int j = i + 1; j < products.size(); j++) {
-                String color2 = products.get(j).getColor();
-                if (color2 == null)
-                    continue;
+        @Override
+        public double pairScore(Product first, Product second) {
+            ProductFeatures firstFeatures = ProductFeatures.of(first);
+            ProductFeatures secondFeatures = ProductFeatures.of(second);
+            int firstColor = firstFeatures.getColor();
+            int secondColor = secondFeatures.getColor();
+            double score = 0;
+            if (palette.colorsMatch(firstColor, secondColor)) {
+                score += COMPLEMENTARY_COLOR_SCORE;
+            } else if (firstColor == secondColor && firstColor != ProductFeatures.NO_COLOR) {
+                score += SAME_COLOR_SCORE;
+            }
+            if (!palette.patternsMatch(firstFeatures.getPattern(), secondFeatures.getPattern())) {
+                score -= PATTERN_CLASH_COST;
+            }
+            // Items other users wear together
+            return score + CO_OCCURRENCE_BONUS * model.similarity(first.getProductId(), second.getProductId());
+        }
 
-                // Check if colors are complementary
-                List<String> complementaryColors = COMPLEMENTARY_COLORS.getOrDefault(color1.toLowerCase(),
-                        Collections.emptyList());
+        @Override
+        public double maxPairScore() {
+            return COMPLEMENTARY_COLOR_SCORE + CO_OCCURRENCE_BONUS;
+        }
 
-                if (complementaryColors.contains(color2.toLowerCase())) {
-                    complementaryPairs++;
+        /**
+         * Scores a whole outfit, the same as summing its item and pair
+         * scores, with colors and patterns checked for all pairs at once
+         */
+        double outfitScore(List<Product> items) {
+            int size = items.size();
+            int[] colors = new int[size];
+            int[] patterns = new int[size];
+            double score = 0;
+            for (int i = 0; i < size; i++) {
+                ProductFeatures features = ProductFeatures.of(items.get(i));
+                colors[i] = features.getColor();
+                patterns[i] = features.getPattern();
+                score += itemScore(items.get(i));
+                for (int j = 0; j < i; j++) {
+                    score += CO_OCCURRENCE_BONUS
+                            * model.similarity(items.get(j).getProductId(), items.get(i).getProductId());
                 }
             }
+            Palette.Harmony harmony = palette.harmony(colors, patterns, size);
+            return score + COMPLEMENTARY_COLOR_SCORE * harmony.getMatchingColors()
+                    + SAME_COLOR_SCORE * harmony.getSameColors()
+                    - PATTERN_CLASH_COST * harmony.getPatternClashes();
         }
-
-        // Consider coordinated if at least 1 complementary pair
-        return complementaryPairs > 0;
     }
 
     /**
@@ -375,24 +342,4 @@ public class OutfitRecommender {
                 .findFirst()
                 .orElse(null);
     }
-
-    /**
-     * Checks if an outfit already exists in the recommendations
-     */
-    private boolean outfitExists(List<Outfit> outfits, Outfit newOutfit) {
-        // Compare by product IDs
-        Set<String> newOutfitProducts = newOutfit.getProductIds();
-
-        for (Outfit existing : outfits) {
-            Set<String> existingProducts = existing.getProductIds();
-
-            // If they have the same products (regardless of order), consider them duplicate
-            if (existingProducts.containsAll(newOutfitProducts) &&
-                    newOutfitProducts.containsAll(existingProducts)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,373 @@
+package com.fashionstore.ai;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The colors and patterns the outfit engines know, and which of them go
+ * together.
+ *
+ * Colors and patterns are numbered, and which ones match is kept as one
+ * bitmask per color or pattern, so checking a pair is a single bit test.
+ * Matches always work both ways. The rules are read from
+ * {@code palette.properties}; see that file for the format.
+ */
+public final class Palette {
+
+    public static final String RESOURCE = "/palette.properties";
+
+    // Most colors or patterns a long bitmask can hold
+    private static final int MAX_ORDINALS = Long.SIZE;
+
+    private static volatile Palette instance;
+
+    private final String[] colors;
+    private final String[] lowerColors;
+    // Lower case color names and aliases, checked in order, and their colors
+    private final String[] colorKeywords;
+    private final int[] keywordColors;
+    private final long[] colorMatches;
+
+    private final String[] patterns;
+    private final String[][] patternKeywords;
+    private final long[] patternMatches;
+
+    /**
+     * The pairs in an outfit that coordinate or clash.
+     */
+    public static class Harmony {
+        private final int matchingColors;
+        private final int sameColors;
+        private final int patternClashes;
+
+        Harmony(int matchingColors, int sameColors, int patternClashes) {
+            this.matchingColors = matchingColors;
+            this.sameColors = sameColors;
+            this.patternClashes = patternClashes;
+        }
+
+        /**
+         * Gets the number of pairs whose colors go together.
+         */
+        public int getMatchingColors() {
+            return matchingColors;
+        }
+
+        /**
+         * Gets the number of pairs in the same color, not counting colors
+         * that match themselves.
+         */
+        public int getSameColors() {
+            return sameColors;
+        }
+
+        /**
+         * Gets the number of pairs whose patterns shouldn't be worn together.
+         */
+        public int getPatternClashes() {
+            return patternClashes;
+        }
+
+        @Override
+        public String toString() {
+            return "Harmony{matchingColors=" + matchingColors + ", sameColors=" + sameColors
+                    + ", patternClashes=" + patternClashes + "}";
+        }
+    }
+
+    private Palette(Properties rules) {
+        this.colors = list(rules, "colors");
+        this.patterns = list(rules, "patterns");
+        if (colors.length == 0 || colors.length > MAX_ORDINALS) {
+            throw new IllegalArgumentException("Palette needs 1 to " + MAX_ORDINALS + " colors, got " + colors.length);
+        }
+        if (patterns.length == 0 || patterns.length > MAX_ORDINALS) {
+            throw new IllegalArgumentException("Palette needs 1 to " + MAX_ORDINALS + " patterns, got " + patterns.length);
+        }
+
+        this.lowerColors = new String[colors.length];
+        for (int color = 0; color < colors.length; color++) {
+            lowerColors[color] = colors[color].toLowerCase();
+        }
+
+        // Each color's own name first, then its aliases
+        List<String> keywords = new ArrayList<>();
+        List<Integer> keywordOwners = new ArrayList<>();
+        for (int color = 0; color < colors.length; color++) {
+            keywords.add(lowerColors[color]);
+            keywordOwners.add(color);
+            for (String alias : list(rules, "alias." + colors[color])) {
+                keywords.add(alias.toLowerCase());
+                keywordOwners.add(color);
+            }
+        }
+        this.colorKeywords = keywords.toArray(new String[0]);
+        this.keywordColors = keywordOwners.stream().mapToInt(Integer::intValue).toArray();
+
+        this.patternKeywords = new String[patterns.length][];
+        for (int pattern = 0; pattern < patterns.length; pattern++) {
+            String[] words = list(rules, "keywords." + patterns[pattern]);
+            for (int i = 0; i < words.length; i++) {
+                words[i] = words[i].toLowerCase();
+            }
+            patternKeywords[pattern] = words;
+        }
+
+        this.colorMatches = matrix(rules, "colorMatch.", colors);
+        this.patternMatches = matrix(rules, "patternMatch.", patterns);
+    }
+
+    /**
+     * Gets the palette read from {@link #RESOURCE}.
+     *
+     * @throws IllegalStateException if the resource is missing or invalid
+     */
+    public static Palette getDefault() {
+        if (instance == null) {
+            synchronized (Palette.class) {
+                if (instance == null) {
+                    instance = fromResource(RESOURCE);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Reads a palette from a classpath resource.
+     *
+     * @throws IllegalStateException if the resource is missing or invalid
+     */
+    public static Palette fromResource(String resource) {
+        try (InputStream in = Palette.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Palette resource not found: " + resource);
+            }
+            Palette palette = load(in);
+            System.out.println("Loaded palette from " + resource + ": " + palette);
+            return palette;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Could not load palette from " + resource + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a palette from rules in properties format.
+     *
+     * @throws IllegalArgumentException if the rules name unknown colors or
+     *                                  patterns, or too many of them
+     */
+    public static Palette load(InputStream in) throws IOException {
+        Properties rules = new Properties();
+        rules.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return new Palette(rules);
+    }
+
+    public int getColorCount() {
+        return colors.length;
+    }
+
+    public String getColorName(int color) {
+        return colors[color];
+    }
+
+    /**
+     * Gets the color a color name is a shade of, by the first color name or
+     * alias it contains, or -1 if none.
+     */
+    public int findColor(String colorName) {
+        String color = colorName.toLowerCase();
+        for (int i = 0; i < colorKeywords.length; i++) {
+            if (color.contains(colorKeywords[i])) {
+                return keywordColors[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the first color whose name appears in lower case text, or -1 if
+     * none. Aliases are not checked, as short ones like "tan" turn up inside
+     * other words.
+     */
+    public int findColorInText(String lowerText) {
+        for (int color = 0; color < colors.length; color++) {
+            if (lowerText.contains(lowerColors[color])) {
+                return color;
+            }
+        }
+        return -1;
+    }
+
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    public String getPatternName(int pattern) {
+        return patterns[pattern];
+    }
+
+    /**
+     * Gets the ordinal of a pattern name, or -1 if it is not one.
+     */
+    public int patternOrdinal(String pattern) {
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i].equalsIgnoreCase(pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the first pattern whose keywords appear in lower case text, or
+     * the first pattern if none do.
+     */
+    public int findPatternInText(String lowerText) {
+        for (int pattern = 0; pattern < patterns.length; pattern++) {
+            for (String keyword : patternKeywords[pattern]) {
+                if (lowerText.contains(keyword)) {
+                    return pattern;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Tells whether two colors go together. Colors outside the palette,
+     * including -1, match nothing.
+     */
+    public boolean colorsMatch(int first, int second) {
+        return first >= 0 && first < colors.length && second >= 0 && second < colors.length
+                && (colorMatches[first] & (1L << second)) != 0;
+    }
+
+    /**
+     * Gets the colors that go with a color, one bit per color.
+     */
+    public long getColorMatches(int color) {
+        return color >= 0 && color < colors.length ? colorMatches[color] : 0;
+    }
+
+    /**
+     * Tells whether two patterns can be worn together. Patterns outside the
+     * palette match anything.
+     */
+    public boolean patternsMatch(int first, int second) {
+        if (first < 0 || first >= patterns.length || second < 0 || second >= patterns.length) {
+            return true;
+        }
+        return (patternMatches[first] & (1L << second)) != 0;
+    }
+
+    /**
+     * Counts, over every pair of items in an outfit, the pairs whose colors
+     * match, the pairs in the same color and the pairs whose patterns clash.
+     *
+     * @param colors   Color ordinal of each item, -1 if it has none
+     * @param patterns Pattern ordinal of each item
+     * @param size     Number of items; only the first {@code size} entries
+     *                 of each array are read
+     */
+    public Harmony harmony(int[] colors, int[] patterns, int size) {
+        // Bitmasks of the colors and patterns seen so far, so each item is
+        // checked against all earlier items at once. Colors outside the
+        // palette are counted by equality only.
+        long colorsSeen = 0;
+        long patternsSeen = 0;
+        int[] colorCounts = new int[MAX_ORDINALS];
+        int[] patternCounts = new int[MAX_ORDINALS];
+        int matching = 0;
+        int same = 0;
+        int clashes = 0;
+        for (int i = 0; i < size; i++) {
+            int color = colors[i];
+            if (color >= 0 && color < this.colors.length) {
+                long matches = colorMatches[color] & colorsSeen;
+                while (matches != 0) {
+                    matching += colorCounts[Long.numberOfTrailingZeros(matches)];
+                    matches &= matches - 1;
+                }
+                if ((colorMatches[color] & (1L << color)) == 0) {
+                    same += colorCounts[color];
+                }
+                colorsSeen |= 1L << color;
+                colorCounts[color]++;
+            } else if (color >= 0) {
+                for (int j = 0; j < i; j++) {
+                    if (colors[j] == color) {
+                        same++;
+                    }
+                }
+            }
+
+            int pattern = patterns[i];
+            if (pattern >= 0 && pattern < this.patterns.length) {
+                long clashing = ~patternMatches[pattern] & patternsSeen;
+                while (clashing != 0) {
+                    clashes += patternCounts[Long.numberOfTrailingZeros(clashing)];
+                    clashing &= clashing - 1;
+                }
+                patternsSeen |= 1L << pattern;
+                patternCounts[pattern]++;
+            }
+        }
+        return new Harmony(matching, same, clashes);
+    }
+
+    private static String[] list(Properties rules, String key) {
+        String value = rules.getProperty(key, "").trim();
+        if (value.isEmpty()) {
+            return new String[0];
+        }
+        return value.split("\\s*,\\s*");
+    }
+
+    /**
+     * Reads match rules into one bitmask per name, adding each rule both ways
+     */
+    private static long[] matrix(Properties rules, String prefix, String[] names) {
+        long[] matches = new long[names.length];
+        for (String key : rules.stringPropertyNames()) {
+            if (!key.startsWith(prefix)) {
+                continue;
+            }
+            int first = indexOf(names, key.substring(prefix.length()), key);
+            for (String other : list(rules, key)) {
+                int second = indexOf(names, other, key);
+                matches[first] |= 1L << second;
+                matches[second] |= 1L << first;
+            }
+        }
+        return matches;
+    }
+
+    private static int indexOf(String[] names, String name, String key) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown name '" + name + "' in " + key);
+    }
+
+    @Override
+    public String toString() {
+        int colorRules = 0;
+        for (long matches : colorMatches) {
+            colorRules += Long.bitCount(matches);
+        }
+        int patternRules = 0;
+        for (long matches : patternMatches) {
+            patternRules += Long.bitCount(matches);
+        }
+        return "Palette{colors=" + colors.length + ", patterns=" + patterns.length
+                + ", colorMatches=" + colorRules + ", patternMatches=" + patternRules + "}";
+    }
+}
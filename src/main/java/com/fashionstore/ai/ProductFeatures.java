@@ -0,0 +1,312 @@
+package com.fashionstore.ai;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fashionstore.models.Product;
+
+/**
+ * What the outfit engines need to know about a product, worked out once from
+ * its text fields: which part of an outfit it is, its color, the style
+ * themes it suits, its pattern and the seasons it is for.
+ *
+ * Features are cached per product and recomputed when the product changes,
+ * so scoring outfits compares ints and bitmasks instead of scanning strings.
+ */
+public final class ProductFeatures {
+
+    /**
+     * The part of an outfit a product fills.
+     */
+    public enum Slot {
+        TOPS("Tops"),
+        BOTTOMS("Bottoms"),
+        DRESSES("Dresses"),
+        FOOTWEAR("Footwear"),
+        OUTERWEAR("Outerwear"),
+        ACCESSORIES("Accessories");
+
+        private final String label;
+
+        Slot(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // Style themes, in bit order of getThemes()
+    static final String[] STYLE_THEMES = {
+            "Casual", "Formal", "Business", "Athletic", "Evening", "Streetwear",
+            "Vintage", "Bohemian", "Minimalist", "Preppy"
+    };
+
+    // Standard colors and patterns, and which go together
+    private static final Palette PALETTE = Palette.getDefault();
+
+    public static final int NO_COLOR = -1;
+
+    public static final int SPRING = 1;
+    public static final int SUMMER = 1 << 1;
+    public static final int FALL = 1 << 2;
+    public static final int WINTER = 1 << 3;
+    public static final int ALL_SEASONS = SPRING | SUMMER | FALL | WINTER;
+
+    private static final Map<String, ProductFeatures> CACHE = new ConcurrentHashMap<>();
+
+    // Ordinals of color names that are not standard colors
+    private static final Map<String, Integer> EXTRA_COLORS = new ConcurrentHashMap<>();
+    private static final List<String> EXTRA_COLOR_NAMES = new ArrayList<>();
+
+    private final long lastUpdated;
+    private final int modCount;
+    private final Slot slot;
+    private final int color;
+    private final int themes;
+    private final int pattern;
+    private final int seasons;
+    private final String category;
+
+    private ProductFeatures(Product product, long lastUpdated) {
+        this.lastUpdated = lastUpdated;
+        this.modCount = product.getModCount();
+
+        String category = lower(product.getCategory());
+        String subcategory = lower(product.getSubcategory());
+        String description = lower(product.getDescription());
+        String name = lower(product.getName());
+
+        this.slot = classify(category, subcategory, description, name);
+        this.color = extractColor(product.getColor(), description, name);
+        this.themes = extractThemes(category, description);
+        this.pattern = extractPattern(product.getAttribute("pattern"), description, name);
+        this.seasons = extractSeasons(lower(product.getSeason()));
+        this.category = category;
+    }
+
+    /**
+     * Gets the features of a product, computing them only if the product
+     * changed since they were last computed.
+     */
+    public static ProductFeatures of(Product product) {
+        long lastUpdated = product.getLastUpdated().getTime();
+        ProductFeatures cached = CACHE.get(product.getProductId());
+        if (cached != null && cached.lastUpdated == lastUpdated && cached.modCount == product.getModCount()) {
+            return cached;
+        }
+        ProductFeatures features = new ProductFeatures(product, lastUpdated);
+        CACHE.put(product.getProductId(), features);
+        return features;
+    }
+
+    /**
+     * Groups products by the slot they fill. Every slot has a list, possibly
+     * empty.
+     */
+    public static Map<Slot, List<Product>> groupBySlot(Collection<Product> products) {
+        Map<Slot, List<Product>> grouped = new EnumMap<>(Slot.class);
+        for (Slot slot : Slot.values()) {
+            grouped.put(slot, new ArrayList<>());
+        }
+        for (Product product : products) {
+            grouped.get(of(product).slot).add(product);
+        }
+        return grouped;
+    }
+
+    public Slot getSlot() {
+        return slot;
+    }
+
+    /**
+     * Gets the color ordinal, or {@link #NO_COLOR} if the product names none.
+     * Products with the same ordinal have the same color.
+     */
+    public int getColor() {
+        return color;
+    }
+
+    /**
+     * Gets the style themes the product suits, one bit per theme.
+     */
+    public int getThemes() {
+        return themes;
+    }
+
+    public boolean hasTheme(int theme) {
+        return (themes & (1 << theme)) != 0;
+    }
+
+    public int getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Gets the seasons the product is for, as {@link #SPRING} to
+     * {@link #WINTER} bits. Products that don't say are for all seasons.
+     */
+    public int getSeasons() {
+        return seasons;
+    }
+
+    /**
+     * Gets the product category in lower case, for matching preferences.
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Gets the ordinal of a style theme, or -1 if it is not one.
+     */
+    public static int themeOrdinal(String theme) {
+        for (int i = 0; i < STYLE_THEMES.length; i++) {
+            if (STYLE_THEMES[i].equalsIgnoreCase(theme)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the ordinal of a color name, giving names that aren't standard
+     * colors a new ordinal.
+     */
+    public static int colorOrdinal(String colorName) {
+        if (colorName == null || colorName.trim().isEmpty()) {
+            return NO_COLOR;
+        }
+        int standard = PALETTE.findColor(colorName);
+        if (standard >= 0) {
+            return standard;
+        }
+        String color = colorName.trim().toLowerCase();
+        Integer extra = EXTRA_COLORS.get(color);
+        if (extra != null) {
+            return extra;
+        }
+        synchronized (EXTRA_COLOR_NAMES) {
+            return EXTRA_COLORS.computeIfAbsent(color, key -> {
+                EXTRA_COLOR_NAMES.add(colorName.trim());
+                return PALETTE.getColorCount() + EXTRA_COLOR_NAMES.size() - 1;
+            });
+        }
+    }
+
+    public static String colorName(int ordinal) {
+        if (ordinal >= 0 && ordinal < PALETTE.getColorCount()) {
+            return PALETTE.getColorName(ordinal);
+        }
+        synchronized (EXTRA_COLOR_NAMES) {
+            int extra = ordinal - PALETTE.getColorCount();
+            return extra >= 0 && extra < EXTRA_COLOR_NAMES.size() ? EXTRA_COLOR_NAMES.get(extra) : null;
+        }
+    }
+
+    private static String lower(String text) {
+        return text != null ? text.toLowerCase() : "";
+    }
+
+    private static Slot classify(String category, String subcategory, String description, String name) {
+        if (category.contains("dress") || subcategory.contains("dress")) {
+            return Slot.DRESSES;
+        } else if (category.contains("top") || category.contains("shirt") || category.contains("blouse") ||
+                category.contains("sweater") || category.contains("tee") ||
+                subcategory.contains("top") || subcategory.contains("shirt")) {
+            return Slot.TOPS;
+        } else if (category.contains("pant") || category.contains("jean") || category.contains("skirt") ||
+                category.contains("short") || category.contains("bottom") || category.contains("trouser") ||
+                subcategory.contains("pant") || subcategory.contains("bottom")) {
+            return Slot.BOTTOMS;
+        } else if (category.contains("shoe") || category.contains("boot") || category.contains("sneaker") ||
+                category.contains("sandal") || category.contains("footwear") || subcategory.contains("shoe")) {
+            return Slot.FOOTWEAR;
+        } else if (category.contains("outerwear") || category.contains("jacket") || category.contains("coat") ||
+                category.contains("hoodie") || category.contains("blazer") || category.contains("cardigan") ||
+                subcategory.contains("outerwear")) {
+            return Slot.OUTERWEAR;
+        } else if (category.contains("accessor") || category.contains("jewelry") || category.contains("hat") ||
+                category.contains("scarf") || category.contains("belt") || category.contains("bag") ||
+                category.contains("watch") || category.contains("glasses") || subcategory.contains("accessor")) {
+            return Slot.ACCESSORIES;
+        }
+
+        // Guess from the description, then the name
+        for (String text : new String[]{description, name}) {
+            if (text.contains("dress") && !text.contains("dress shoe") && !text.contains("dress shirt")) {
+                return Slot.DRESSES;
+            } else if (text.contains("shirt") || text.contains("top") || text.contains("blouse") || text.contains("tee")) {
+                return Slot.TOPS;
+            } else if (text.contains("pant") || text.contains("jean") || text.contains("skirt")) {
+                return Slot.BOTTOMS;
+            } else if (text.contains("shoe") || text.contains("boot") || text.contains("sneaker") ||
+                    text.contains("sandal") || text.contains("footwear")) {
+                return Slot.FOOTWEAR;
+            } else if (text.contains("outerwear") || text.contains("jacket") || text.contains("coat")) {
+                return Slot.OUTERWEAR;
+            }
+        }
+        return Slot.ACCESSORIES;
+    }
+
+    private static int extractColor(String color, String description, String name) {
+        if (color != null && !color.isEmpty()) {
+            return colorOrdinal(color);
+        }
+        int fromDescription = PALETTE.findColorInText(description);
+        return fromDescription >= 0 ? fromDescription : Math.max(NO_COLOR, PALETTE.findColorInText(name));
+    }
+
+    private static int extractThemes(String category, String description) {
+        int themes = 0;
+        for (int i = 0; i < STYLE_THEMES.length; i++) {
+            String theme = STYLE_THEMES[i].toLowerCase();
+            if (description.contains(theme) || category.contains(theme)) {
+                themes |= 1 << i;
+            }
+        }
+
+        // Items that suggest a theme without naming it
+        String text = category + " " + description;
+        if (text.contains("jean") || text.contains("t-shirt")) {
+            themes |= 1 << themeOrdinal("Casual");
+        }
+        if (text.contains("suit") || text.contains("blazer")) {
+            themes |= 1 << themeOrdinal("Business") | 1 << themeOrdinal("Formal");
+        }
+        if (text.contains("sport") || text.contains("running")) {
+            themes |= 1 << themeOrdinal("Athletic");
+        }
+        return themes;
+    }
+
+    private static int extractPattern(String attribute, String description, String name) {
+        int named = attribute != null ? PALETTE.patternOrdinal(attribute.trim()) : -1;
+        if (named >= 0) {
+            return named;
+        }
+        return PALETTE.findPatternInText(lower(attribute) + " " + description + " " + name);
+    }
+
+    private static int extractSeasons(String season) {
+        int seasons = 0;
+        if (season.contains("spring")) seasons |= SPRING;
+        if (season.contains("summer")) seasons |= SUMMER;
+        if (season.contains("fall") || season.contains("autumn")) seasons |= FALL;
+        if (season.contains("winter")) seasons |= WINTER;
+        return seasons != 0 ? seasons : ALL_SEASONS;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductFeatures{slot=" + slot + ", color=" + colorName(color) + ", themes="
+                + Integer.toBinaryString(themes) + ", pattern=" + PALETTE.getPatternName(pattern)
+                + ", seasons=" + Integer.toBinaryString(seasons) + "}";
+    }
+}
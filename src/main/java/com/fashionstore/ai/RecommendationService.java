@@ -0,0 +1,465 @@
+package com.fashionstore.ai;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fashionstore.models.Outfit;
+import com.fashionstore.models.Product;
+import com.fashionstore.models.StylePreference;
+import com.fashionstore.models.User;
+import com.fashionstore.storage.DataManager;
+
+/**
+ * Precomputes outfit recommendations for every active user in a scheduled
+ * batch, so showing them is a cache lookup.
+ *
+ * Each user's recommendations are stored with a hash of what they were
+ * made from: the features of the user's wardrobe items, the user's style
+ * preferences and the season. A batch run only recomputes users whose
+ * hash changed since the last run. Users who ask before the batch has caught
+ * up get theirs computed on the same worker pool, so interactive load never
+ * adds threads.
+ *
+ * The batch runs at startup and then every 30 minutes, or every
+ * {@code fashionstore.recommendationIntervalMinutes} minutes if that system
+ * property is set.
+ */
+public class RecommendationService {
+
+    public static final int RECOMMENDATIONS_PER_USER = 5;
+
+    // Best outfits to pick the distinct recommendations from
+    private static final int CANDIDATE_OUTFITS = 50;
+
+    // Outfits sharing more than this share of items count as the same
+    private static final double MAX_SHARED_ITEMS = 0.5;
+
+    private static final String INTERVAL_PROPERTY = "fashionstore.recommendationIntervalMinutes";
+    private static final long DEFAULT_INTERVAL_MINUTES = 30;
+
+    private static volatile RecommendationService instance;
+
+    private final ExecutorService workers;
+    private final int workerCount;
+    private ScheduledExecutorService scheduler;
+
+    // User ID -> their latest recommendations
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    // User ID and input version being computed, so repeated requests share one job
+    private final Map<String, CompletableFuture<List<Outfit>>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong batchRuns = new AtomicLong();
+    private final AtomicLong computed = new AtomicLong();
+    private final AtomicLong upToDate = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong computeNanos = new AtomicLong();
+    private volatile long lastBatchMillis;
+
+    private static final class Entry {
+        final long version;
+        final List<Outfit> outfits;
+
+        Entry(long version, List<Outfit> outfits) {
+            this.version = version;
+            this.outfits = outfits;
+        }
+    }
+
+    public RecommendationService(int workerCount) {
+        this.workerCount = workerCount;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public static RecommendationService getInstance() {
+        RecommendationService current = instance;
+        if (current != null) {
+            return current;
+        }
+        synchronized (RecommendationService.class) {
+            if (instance == null) {
+                int workerCount = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+                instance = new RecommendationService(workerCount);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Starts running the batch for the users in {@code dataManager}, once
+     * now and then on a fixed schedule. Does nothing if already started.
+     */
+    public synchronized void start(DataManager dataManager) {
+        if (scheduler != null) {
+            return;
+        }
+        long interval = Math.max(1, Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MINUTES));
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runBatch(dataManager);
+            } catch (RuntimeException e) {
+                // Keep the schedule going; the next run retries
+                System.err.println("Recommendation batch failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }, 0, interval, TimeUnit.MINUTES);
+        System.out.println("RecommendationService: batch every " + interval + " min on "
+                + workerCount + " workers");
+    }
+
+    /**
+     * Recomputes recommendations for every active user whose wardrobe,
+     * preferences or season changed since their last computation, and
+     * drops those of users no longer active. Blocks until done.
+     *
+     * @return The number of users recomputed
+     */
+    public int runBatch(DataManager dataManager) {
+        long start = System.nanoTime();
+        List<User> users = dataManager.getAllUsers();
+
+        // At most two jobs per worker in flight, so a large batch doesn't
+        // queue ahead of users waiting for theirs
+        Semaphore inFlight = new Semaphore(workerCount * 2);
+        List<CompletableFuture<List<Outfit>>> jobs = new ArrayList<>();
+        Set<String> active = new HashSet<>();
+        for (User user : users) {
+            if (!isActive(user)) {
+                continue;
+            }
+            active.add(user.getUserId());
+            List<Product> wardrobe = dataManager.getUserWardrobe(user.getUserId());
+            Entry entry = cache.get(user.getUserId());
+            if (entry != null && entry.version == version(user, wardrobe)) {
+                upToDate.incrementAndGet();
+                continue;
+            }
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            CompletableFuture<List<Outfit>> job = submit(user, wardrobe);
+            job.whenComplete((outfits, error) -> inFlight.release());
+            jobs.add(job);
+        }
+
+        for (CompletableFuture<List<Outfit>> job : jobs) {
+            try {
+                job.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // Counted and logged by the job
+            }
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            // Shutting down; users not reached yet keep their old entries
+            return jobs.size();
+        }
+        cache.keySet().retainAll(active);
+
+        if (!jobs.isEmpty() || OutfitRecommender.getItemModel().getUserCount() == 0) {
+            // Wardrobes changed, so item pairings may have too
+            OutfitRecommender.rebuildItemModel(users, dataManager.getAllOutfits());
+        }
+
+        batchRuns.incrementAndGet();
+        lastBatchMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("RecommendationService: batch recomputed " + jobs.size() + " of "
+                + active.size() + " users in " + lastBatchMillis + " ms: " + getMetrics());
+        return jobs.size();
+    }
+
+    /**
+     * Gets a user's precomputed recommendations, if they are still current
+     * for this wardrobe.
+     *
+     * @return New copies of the outfits, safe to save, or null if the user's
+     *         recommendations are missing or out of date
+     */
+    public List<Outfit> getRecommendations(User user, List<Product> wardrobe) {
+        Entry entry = cache.get(user.getUserId());
+        if (entry == null || entry.version != version(user, wardrobe)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return copies(entry.outfits);
+    }
+
+    /**
+     * Computes a user's recommendations on the worker pool, for when
+     * {@link #getRecommendations} has none.
+     *
+     * @return Completes with new copies of the outfits
+     */
+    public CompletableFuture<List<Outfit>> recompute(User user, List<Product> wardrobe) {
+        return submit(user, wardrobe).thenApply(this::copies);
+    }
+
+    private CompletableFuture<List<Outfit>> submit(User user, List<Product> wardrobe) {
+        // Keyed by version too, so a request after a wardrobe or preference
+        // change never joins a job still computing for the old inputs
+        String key = user.getUserId() + "@" + version(user, wardrobe);
+        CompletableFuture<List<Outfit>> job = pending.computeIfAbsent(key,
+                k -> CompletableFuture.supplyAsync(() -> compute(user, wardrobe), workers));
+        job.whenComplete((outfits, error) -> pending.remove(key, job));
+        return job;
+    }
+
+    // Computation, on a worker thread
+
+    private List<Outfit> compute(User user, List<Product> wardrobe) {
+        long start = System.nanoTime();
+        try {
+            long version = version(user, wardrobe);
+            // Seeded by the version, so unchanged inputs give the same outfits
+            List<Outfit> candidates = new OutfitMatcher(version)
+                    .generateOutfits(user, wardrobe, CANDIDATE_OUTFITS);
+
+            // Take the best-rated outfits, skipping ones too close to a
+            // better one already taken
+            List<Outfit> outfits = new ArrayList<>();
+            for (Outfit candidate : candidates) {
+                if (outfits.size() >= RECOMMENDATIONS_PER_USER) {
+                    break;
+                }
+                if (!candidate.getProductIds().isEmpty() && isUnique(candidate, outfits)) {
+                    outfits.add(candidate);
+                }
+            }
+            outfits = Collections.unmodifiableList(outfits);
+            cache.put(user.getUserId(), new Entry(version, outfits));
+            computed.incrementAndGet();
+            return outfits;
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("Could not compute recommendations for " + user.getUsername()
+                    + ": " + e.getMessage());
+            throw e;
+        } finally {
+            computeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private static boolean isActive(User user) {
+        return !user.isDeactivated() && !user.isBanned() && !user.getWardrobeItemIds().isEmpty();
+    }
+
+    /**
+     * Hashes what a user's recommendations depend on: the wardrobe items and
+     * their outfit features, the style preferences and the season. Stock,
+     * ratings and other fields the engines don't read leave it unchanged, as
+     * does reloading the same products from storage.
+     */
+    private static long version(User user, List<Product> wardrobe) {
+        List<Product> items = new ArrayList<>(wardrobe);
+        items.sort(Comparator.comparing(Product::getProductId));
+        long hash = mix(user.getUserId().hashCode(), LocalDate.now().getMonthValue() % 12 / 3);
+        for (Product item : items) {
+            ProductFeatures features = ProductFeatures.of(item);
+            hash = mix(hash, item.getProductId().hashCode());
+            hash = mix(hash, features.getSlot().ordinal());
+            hash = mix(hash, features.getColor());
+            hash = mix(hash, features.getPattern());
+            hash = mix(hash, features.getThemes());
+            hash = mix(hash, features.getSeasons());
+            hash = mix(hash, features.getCategory().hashCode());
+        }
+        if (user.getStylePreferences() != null) {
+            for (StylePreference preference : user.getStylePreferences()) {
+                hash = mix(hash, String.valueOf(preference.getType()).hashCode());
+                hash = mix(hash, String.valueOf(preference.getValue()).hashCode());
+                hash = mix(hash, Double.doubleToLongBits(preference.getWeight()));
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        // splitmix64 finalizer over the running hash
+        long z = hash * 31 + value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static boolean isUnique(Outfit newOutfit, List<Outfit> existingOutfits) {
+        for (Outfit existing : existingOutfits) {
+            int commonItems = 0;
+            for (String productId : newOutfit.getProductIds()) {
+                if (existing.containsProduct(productId)) {
+                    commonItems++;
+                }
+            }
+            if ((double) commonItems / newOutfit.getProductIds().size() > MAX_SHARED_ITEMS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies cached outfits, each with a new ID, so saving one doesn't save
+     * the cached outfit itself
+     */
+    private List<Outfit> copies(List<Outfit> outfits) {
+        List<Outfit> copies = new ArrayList<>(outfits.size());
+        for (Outfit outfit : outfits) {
+            Outfit copy = new Outfit(outfit.getUserId(), outfit.getName());
+            copy.setDescription(outfit.getDescription());
+            copy.setAiGenerated(outfit.isAiGenerated());
+            copy.setStyleRating(outfit.getStyleRating());
+            copy.setSeason(outfit.getSeason());
+            copy.setOccasion(outfit.getOccasion());
+            outfit.getProductIds().forEach(copy::addProduct);
+            outfit.getTags().forEach(copy::addTag);
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(this);
+    }
+
+    /**
+     * Snapshot of batch and cache activity.
+     */
+    public static class Metrics {
+        private final long batchRuns;
+        private final long computed;
+        private final long upToDate;
+        private final long failed;
+        private final long hits;
+        private final long misses;
+        private final long computeMillis;
+        private final long lastBatchMillis;
+        private final int cachedUsers;
+
+        private Metrics(RecommendationService service) {
+            this.batchRuns = service.batchRuns.get();
+            this.computed = service.computed.get();
+            this.upToDate = service.upToDate.get();
+            this.failed = service.failed.get();
+            this.hits = service.hits.get();
+            this.misses = service.misses.get();
+            this.computeMillis = service.computeNanos.get() / 1_000_000;
+            this.lastBatchMillis = service.lastBatchMillis;
+            this.cachedUsers = service.cache.size();
+        }
+
+        public long getBatchRuns() {
+            return batchRuns;
+        }
+
+        /**
+         * Gets the number of users whose recommendations were computed, in
+         * batches or on request.
+         */
+        public long getComputed() {
+            return computed;
+        }
+
+        /**
+         * Gets the number of times a batch skipped a user whose
+         * recommendations were still current.
+         */
+        public long getUpToDate() {
+            return upToDate;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * Gets the number of requests answered from the cache.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        /**
+         * Gets the total worker time spent computing, in milliseconds.
+         */
+        public long getComputeMillis() {
+            return computeMillis;
+        }
+
+        public long getLastBatchMillis() {
+            return lastBatchMillis;
+        }
+
+        public int getCachedUsers() {
+            return cachedUsers;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "RecommendationMetrics{batches=%d, computed=%d, upToDate=%d, failed=%d, hitRate=%.2f, "
+                            + "workerMs=%d, lastBatchMs=%d, cachedUsers=%d}",
+                    batchRuns, computed, upToDate, failed, getHitRate(), computeMillis, lastBatchMillis,
+                    cachedUsers);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.fashionstore.ai;
+
+/**
+ * A product recommended to a user, with its collaborative filtering score.
+ */
+public class ScoredProduct {
+    private final String productId;
+    private final float score;
+
+    public ScoredProduct(String productId, float score) {
+        this.productId = productId;
+        this.score = score;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return productId + " (" + score + ")";
+    }
+}
@@ -3,7 +3,9 @@ package com.fashionstore.application;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import com.fashionstore.ai.RecommendationService;
 import com.fashionstore.storage.DataManager;
+import com.fashionstore.utils.DatabaseUtils;
 import com.fashionstore.utils.SceneManager;
 
 import javafx.application.Application;
@@ -26,6 +28,9 @@ public class FashionStoreApp extends Application {
         // Setup auto-save timer
         setupAutoSave();
 
+        // Precompute outfit recommendations in the background
+        RecommendationService.getInstance().start(dataManager);
+
         // Configure the primary stage
         primaryStage.setTitle("Fashion Store");
 
@@ -56,12 +61,19 @@ public class FashionStoreApp extends Application {
 
         // Load the initial scene
         SceneManager.loadScene("LoginView.fxml");
+    }
 
-        // Add a shutdown hook to save data on exit
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+    @Override
+    public void stop() {
+        RecommendationService.getInstance().shutdown();
+        // Flush queued writes before exit; the write-behind queue also
+        // registers a JVM shutdown hook for exits that bypass stop()
+        if (dataManager != null) {
             System.out.println("Saving data before shutdown...");
             dataManager.saveAllData();
-        }));
+            dataManager.shutdown();
+        }
+        DatabaseUtils.shutdown();
     }
 
     public static DataManager getDataManager() {
@@ -9,10 +9,12 @@ import java.util.ResourceBundle;
 import java.util.UUID;
 import java.util.Random;
 
-import com.fashionstore.ai.OutfitMatcher;
+import com.fashionstore.ai.ProductFeatures;
+import com.fashionstore.ai.RecommendationService;
 import com.fashionstore.application.FashionStoreApp;
 import com.fashionstore.models.Outfit;
 import com.fashionstore.models.Product;
+import com.fashionstore.models.User;
 import com.fashionstore.storage.DataManager;
 import com.fashionstore.ui.components.ClothingItemView;
 import com.fashionstore.utils.SceneManager;
@@ -53,14 +55,14 @@ public class AIRecommendationsController implements Initializable {
     private ProgressIndicator progressIndicator;
 
     private DataManager dataManager;
-    private OutfitMatcher outfitMatcher;
+    private RecommendationService recommendationService;
     private List<Outfit> currentRecommendations = new ArrayList<>();
     private Map<String, String> categoryIconMap = new HashMap<>();
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         dataManager = FashionStoreApp.getDataManager();
-        outfitMatcher = new OutfitMatcher();
+        recommendationService = RecommendationService.getInstance();
 
         if (dataManager.getCurrentUser() == null) {
             return;
@@ -140,72 +142,51 @@ public class AIRecommendationsController implements Initializable {
             return;
         }
 
-        // Process in background to avoid freezing UI
-        Thread generationThread = new Thread(() -> {
-            try {
-                List<Outfit> generatedOutfits = new ArrayList<>();
-                
-                try {
-                    // Try to generate outfits using OutfitMatcher
-                    int maxAttempts = 10; // Allow more attempts to find diverse outfits
-                    int outfitsGenerated = 0;
-                    
-                    for (int i = 0; i < maxAttempts && outfitsGenerated < 5; i++) {
-                        Outfit recommendation = outfitMatcher.generateOutfit(
-                                dataManager.getCurrentUser(), wardrobeItems);
-                        
-                        if (recommendation != null && !recommendation.getProductIds().isEmpty()) {
-                            // Check if this recommendation is sufficiently different from existing ones
-                            if (isUnique(recommendation, generatedOutfits)) {
-                                generatedOutfits.add(recommendation);
-                                outfitsGenerated++;
-                            }
-                        }
-                    }
-                } catch (Error e) {
-                    // OutfitMatcher has compilation issues, use fallback method
-                    System.err.println("Error using OutfitMatcher: " + e.getMessage());
-                    e.printStackTrace();
-                    generatedOutfits = generateFallbackOutfits(wardrobeItems);
-                }
-                
-                // Store the recommendations
-                currentRecommendations.addAll(generatedOutfits);
-                
-                // Update UI on the JavaFX thread
-                final List<Outfit> finalOutfits = generatedOutfits;
-                Platform.runLater(() -> {
-                    if (finalOutfits.isEmpty()) {
-                        statusLabel.setText("Couldn't generate recommendations. Try adding more variety to your wardrobe.");
-                    } else {
-                        // Display all recommendations
-                        for (int i = 0; i < finalOutfits.size(); i++) {
-                            addOutfitRecommendation(finalOutfits.get(i), i + 1);
-                            
-                            // Add separator unless it's the last recommendation
-                            if (i < finalOutfits.size() - 1) {
-                                recommendationsContainer.getChildren().add(new Separator());
-                            }
-                        }
-                        statusLabel.setText("Created " + finalOutfits.size() + " outfit recommendations");
-                    }
-                    
-                    // Hide progress indicator and re-enable button
-                    progressIndicator.setVisible(false);
-                    generateButton.setDisable(false);
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    statusLabel.setText("Error generating recommendations: " + e.getMessage());
-                    progressIndicator.setVisible(false);
-                    generateButton.setDisable(false);
-                });
-                e.printStackTrace();
+        // Precomputed by the recommendation batch unless the wardrobe
+        // changed since its last run
+        User user = dataManager.getCurrentUser();
+        List<Outfit> precomputed = recommendationService.getRecommendations(user, wardrobeItems);
+        if (precomputed != null) {
+            showRecommendations(precomputed);
+            return;
+        }
+
+        recommendationService.recompute(user, wardrobeItems).whenComplete((outfits, error) -> {
+            List<Outfit> generatedOutfits = outfits;
+            if (error != null) {
+                System.err.println("Error generating recommendations: " + error.getMessage());
+                generatedOutfits = generateFallbackOutfits(wardrobeItems);
             }
+            final List<Outfit> finalOutfits = generatedOutfits;
+            Platform.runLater(() -> showRecommendations(finalOutfits));
         });
-        
-        generationThread.setDaemon(true);
-        generationThread.start();
+    }
+
+    /**
+     * Shows the recommendations and re-enables the Generate button
+     */
+    private void showRecommendations(List<Outfit> outfits) {
+        currentRecommendations.clear();
+        currentRecommendations.addAll(outfits);
+
+        if (outfits.isEmpty()) {
+            statusLabel.setText("Couldn't generate recommendations. Try adding more variety to your wardrobe.");
+        } else {
+            // Display all recommendations
+            for (int i = 0; i < outfits.size(); i++) {
+                addOutfitRecommendation(outfits.get(i), i + 1);
+
+                // Add separator unless it's the last recommendation
+                if (i < outfits.size() - 1) {
+                    recommendationsContainer.getChildren().add(new Separator());
+                }
+            }
+            statusLabel.setText("Created " + outfits.size() + " outfit recommendations");
+        }
+
+        // Hide progress indicator and re-enable button
+        progressIndicator.setVisible(false);
+        generateButton.setDisable(false);
     }
     
     /**
@@ -354,47 +335,13 @@ public class AIRecommendationsController implements Initializable {
      * Determine which category a product belongs to
      */
     private String determineCategory(Product product) {
-        String category = product.getCategory().toLowerCase();
-        String subcategory = product.getSubcategory() != null ? product.getSubcategory().toLowerCase() : "";
-        String description = product.getDescription() != null ? product.getDescription().toLowerCase() : "";
-        
-        if (category.contains("dress") || subcategory.contains("dress") || description.contains("dress")) {
-            return "Dresses";
-        } else if (category.contains("top") || category.contains("shirt") || category.contains("blouse") || 
-                category.contains("sweater") || category.contains("tee") || subcategory.contains("top")) {
-            return "Tops";
-        } else if (category.contains("pant") || category.contains("jean") || category.contains("skirt") || 
-                category.contains("short") || category.contains("bottom") || subcategory.contains("bottom")) {
-            return "Bottoms";
-        } else if (category.contains("shoe") || category.contains("boot") || category.contains("sneaker") || 
-                category.contains("sandal") || category.contains("footwear")) {
-            return "Footwear";
-        } else if (category.contains("jacket") || category.contains("coat") || category.contains("hoodie") || 
-                category.contains("blazer") || category.contains("cardigan")) {
-            return "Outerwear";
-        } else if (category.contains("accessory") || category.contains("jewelry") || category.contains("hat") || 
-                category.contains("scarf") || category.contains("belt") || category.contains("bag") || 
-                category.contains("watch") || category.contains("glasses")) {
-            return "Accessories";
-        } else {
-            // Try to determine from description
-            if (description.contains("shirt") || description.contains("top") || description.contains("blouse")) {
-                return "Tops";
-            } else if (description.contains("pant") || description.contains("jean") || description.contains("skirt")) {
-                return "Bottoms";
-            } else if (description.contains("boot") || description.contains("sneaker") || description.contains("shoe")) {
-                return "Footwear";
-            } else {
-                return "Accessories";  // Default when we can't determine
-            }
-        }
+        return ProductFeatures.of(product).getSlot().getLabel();
     }
 
     private void saveRecommendation(Outfit outfit) {
         // Save the outfit to user's collection
-        dataManager.addOutfit(outfit);
+        dataManager.addOutfitAsync(outfit);
         dataManager.getCurrentUser().addOutfit(outfit.getOutfitId());
-        dataManager.saveAllData();
 
         SceneManager.showAlert("Outfit Saved",
                 "The outfit \"" + outfit.getName() + "\" has been saved to your collection!");
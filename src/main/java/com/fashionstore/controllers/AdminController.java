@@ -4,9 +4,9 @@ import com.fashionstore.application.FashionStoreApp;
 import com.fashionstore.models.Product;
 import com.fashionstore.models.User;
 import com.fashionstore.models.Outfit;
+import com.fashionstore.models.Order;
 import com.fashionstore.storage.DataManager;
 import com.fashionstore.utils.SceneManager;
-import com.fashionstore.utils.WindowManager;
 
 import javafx.application.Platform;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -253,13 +253,11 @@ public class AdminController {
                 // Show dialog and wait for it to close
                 stage.showAndWait();
 
-                // After dialog closes, force refresh
+                // After dialog closes, force refresh; open store views
+                // follow the reload through its change event
                 System.out.println("Dialog closed, refreshing data...");
                 dataManager.loadAllData(); // Reload all data from database
                 refreshProductTable();
-
-                // Also refresh other views
-                WindowManager.refreshHomeView();
             } catch (IOException e) {
                 SceneManager.showErrorAlert("Error", "Failed to load editor: " + e.getMessage());
                 e.printStackTrace();
@@ -283,15 +281,12 @@ public class AdminController {
                         System.out.println("Deleting product: " + selected.getProductId() + " - " + selected.getName());
 
                         try {
-                            // Delete the product
+                            // Delete the product; open store views drop its card
+                            // when they get the change event
                             dataManager.deleteProduct(selected.getProductId());
 
-                            // Reload all data from database to ensure consistency
-                            dataManager.loadAllData();
-
                             // Refresh views
                             refreshProductTable();
-                            WindowManager.refreshHomeView();
 
                             setStatus("Product \"" + selected.getName() + "\" has been removed from the system.");
                         } catch (Exception e) {
@@ -319,7 +314,6 @@ public class AdminController {
 
             // Refresh views
             refreshProductTable();
-            WindowManager.refreshHomeView();
 
             String statusMessage = "Product \"" + selected.getName() + "\" is now " +
                     (newVisibility ? "visible" : "hidden") + " in store";
@@ -1665,7 +1659,7 @@ public class AdminController {
         Map<String, Integer> stockLevelData = com.fashionstore.utils.AnalyticsService
                 .getStockLevelDistribution(products);
         Map<String, Integer> priceRangeData = com.fashionstore.utils.AnalyticsService
-                .getPriceRangeDistribution(products);
+                .getPriceRangeDistribution(dataManager.getPriceIndex());
 
         // Create metrics grid
         GridPane statsGrid = new GridPane();
@@ -1764,8 +1758,11 @@ public class AdminController {
         VBox content = new VBox(20);
         content.setPadding(new Insets(20));
 
-        // Get projection data
-        Map<String, Double> projectionData = com.fashionstore.utils.AnalyticsService.getRevenueProjection();
+        // Project from the revenue recorded in the order ledger
+        List<Order> recentOrders = dataManager.getOrderService().getOrdersBetween(
+                com.fashionstore.utils.AnalyticsService.getRevenueHistoryStart(), java.time.LocalDateTime.now());
+        Map<String, Double> projectionData = com.fashionstore.utils.AnalyticsService
+                .getRevenueProjection(recentOrders);
 
         // Create chart title
         Label projectionTitle = new Label("Revenue Forecast (Next 6 Months)");
@@ -2098,9 +2095,6 @@ public class AdminController {
         }
         dataManager.saveAllData(); // Explicit save after addition/modification
         refreshProductTable();
-
-        // Also refresh store views
-        WindowManager.refreshHomeView();
     }
 
     public void refreshProductTable() {
@@ -2347,7 +2341,8 @@ public class AdminController {
                         existingProduct.setMaterial(productObj.getString("material"));
                     }
 
-                    existingProduct.setStockQuantity(stockQuantity);
+                    dataManager.getInventoryService().restock(existingProduct,
+                            stockQuantity - existingProduct.getStockQuantity());
                     existingProduct.setVisible(visible);
 
                     // Set image path, ensuring every product has an image
@@ -2715,9 +2710,6 @@ public class AdminController {
         // Refresh the product table
         refreshProductTable();
 
-        // Refresh the Home view to update product images there too
-        WindowManager.refreshHomeView();
-
         if (updatedCount > 0) {
             setStatus(updatedCount + " products updated with default image");
             SceneManager.showAlert("Default Images Applied",
@@ -1,9 +1,11 @@
 package com.fashionstore.controllers;
 
 import com.fashionstore.application.FashionStoreApp;
+import com.fashionstore.models.Order;
 import com.fashionstore.models.ShoppingCart;
-import com.fashionstore.models.Product;
 import com.fashionstore.storage.DataManager;
+import com.fashionstore.storage.OrderService;
+import com.fashionstore.storage.StockReservation;
 import com.fashionstore.utils.SceneManager;
 import com.fashionstore.utils.WindowManager;
 import javafx.fxml.FXML;
@@ -65,6 +67,9 @@ public class CheckoutController implements Initializable {
     private ShoppingCart cart;
     private NumberFormat currencyFormat = NumberFormat.getCurrencyInstance();
 
+    // Idempotency key for the order placed from this checkout window
+    private final String orderKey = OrderService.newIdempotencyKey();
+
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         dataManager = FashionStoreApp.getDataManager();
@@ -397,6 +402,9 @@ public class CheckoutController implements Initializable {
 
         // Process the order based on payment method
         String confirmationMessage = processOrder(paymentMethod);
+        if (confirmationMessage == null) {
+            return;
+        }
 
         // Show success message and close the checkout window
         SceneManager.showAlert("Order Placed", confirmationMessage);
@@ -405,7 +413,29 @@ public class CheckoutController implements Initializable {
     }
 
     private String processOrder(String paymentMethod) {
-        StringBuilder confirmation = new StringBuilder("Your order has been successfully placed!\n\n");
+        // Reserve stock for the whole cart and record the order. The key is
+        // fixed for this checkout, so a repeated submit can't order twice.
+        OrderService.PlacementResult result = dataManager.getOrderService()
+                .placeOrder(cart, paymentMethod, orderKey);
+        if (!result.isPlaced()) {
+            StockReservation reservation = result.getReservation();
+            if (reservation != null && !reservation.getFailedLines().isEmpty()) {
+                SceneManager.showErrorAlert("Insufficient Stock",
+                        "Some items in your cart can't be ordered:\n\n"
+                                + dataManager.getInventoryService().describeFailures(reservation));
+            } else {
+                SceneManager.showErrorAlert("Order Failed",
+                        "Your order could not be placed: " + result.getErrorMessage());
+            }
+            return null;
+        }
+        // A duplicate means an earlier submit of this checkout already placed
+        // the order; confirm that one. Finishing up below is safe to repeat.
+        Order order = result.getOrder();
+
+        StringBuilder confirmation = new StringBuilder(result.isDuplicate()
+                ? "Your order was already placed.\n\n"
+                : "Your order has been successfully placed!\n\n");
 
         if ("Credit Card".equals(paymentMethod)) {
             confirmation.append("Payment Method: Credit Card (ending with ")
@@ -421,25 +451,15 @@ public class CheckoutController implements Initializable {
                     .append("Please bring your order confirmation and ID when picking up.\n");
         }
 
-        confirmation.append("\nOrder Total: ").append(currencyFormat.format(cart.getTotalPrice()));
+        confirmation.append("\nOrder Number: ").append(order.getOrderId());
+        confirmation.append("\nOrder Total: ").append(currencyFormat.format(order.getTotalAmount()));
 
-        // Add purchased items to wardrobe and decrease stock
+        // Add purchased items to wardrobe; stock was already taken by the reservation
         if (dataManager.getCurrentUser() != null) {
             for (ShoppingCart.CartItem item : cart.getItems()) {
-                Product product = item.getProduct();
-                int quantity = item.getQuantity();
-
-                // Decrease product stock for each item in the cart based on quantity
-                int currentStock = product.getStockQuantity();
-                int newStock = Math.max(0, currentStock - quantity);
-                product.setStockQuantity(newStock);
-
-                // Update the product in database to reflect stock change
-                dataManager.updateProduct(product);
-
-                // Add each product to the user's wardrobe
-                dataManager.getCurrentUser().addToWardrobe(product.getProductId());
+                dataManager.getCurrentUser().addToWardrobe(item.getProduct().getProductId());
             }
+            dataManager.queueSave(dataManager.getCurrentUser());
 
             // Append purchased items to confirmation
             confirmation.append("\n\nItems added to your wardrobe:");
@@ -453,22 +473,10 @@ public class CheckoutController implements Initializable {
 
         // Clear the cart
         cart.clear();
-        dataManager.saveCart(cart);
-        dataManager.saveAllData();
-
-        // Update cart counter in HomeController
-        updateHomeControllerCart();
+        dataManager.queueSave(cart);
 
+        // Open store views update the stock labels of the ordered products
+        // from the change events of the stock reservation
         return confirmation.toString();
     }
-
-    // Method to update HomeController's cart counter
-    private void updateHomeControllerCart() {
-        try {
-            // Refresh all open views to show updated stock levels
-            WindowManager.refreshHomeView();
-        } catch (Exception e) {
-            System.err.println("Failed to update views: " + e.getMessage());
-        }
-    }
 }
\ No newline at end of file
@@ -1,18 +1,24 @@
 package com.fashionstore.controllers;
 
-import java.math.BigDecimal;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.stream.Collectors;
 
 import com.fashionstore.application.FashionStoreApp;
 import com.fashionstore.models.Product;
 import com.fashionstore.models.ShoppingCart;
 import com.fashionstore.models.User;
+import com.fashionstore.search.FacetIndex;
+import com.fashionstore.storage.DataChangeEvent;
 import com.fashionstore.storage.DataManager;
+import com.fashionstore.ui.components.FacetCountCell;
+import com.fashionstore.ui.components.SearchSuggestions;
 import com.fashionstore.ui.components.StoreItemView;
+import com.fashionstore.ui.components.VirtualGrid;
 import com.fashionstore.utils.SceneManager;
 import com.fashionstore.utils.WindowManager;
 
@@ -23,7 +29,6 @@ import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
-import javafx.scene.layout.FlowPane;
 import javafx.stage.Stage;
 
 public class HomeController implements Initializable {
@@ -48,14 +53,18 @@ public class HomeController implements Initializable {
     @FXML
     private Button searchButton;
     @FXML
-    private FlowPane storeItemsPane;
+    private VirtualGrid<Product> storeItemsPane;
     @FXML
     private Label itemCountLabel;
     @FXML
     private Button themeToggleButton;
 
+    // Suggestions shown under the search field
+    private static final int MAX_SEARCH_SUGGESTIONS = 8;
+
     private DataManager dataManager;
     private User currentUser;
+    private SearchSuggestions searchSuggestions;
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
@@ -89,27 +98,38 @@ public class HomeController implements Initializable {
             storeItems = new ArrayList<>();
         }
 
-        setupFilters(storeItems);
+        // Only the cards in view exist; they are rebound to other products while scrolling
+        storeItemsPane.setCellFactory(this::createStoreItemView);
+
+        // Apply purchases, stock and catalog changes to the cards in place
+        WindowManager.listenForChanges(storeItemsPane, dataManager, this::applyChange);
+
+        setupFilters();
         displayStoreItems(storeItems);
 
         // Ensure filtering happens when value changes
         categoryFilter.setOnAction(e -> handleSearch());
         priceFilter.setOnAction(e -> handleSearch());
 
+        // Typeahead suggestions as the user types; Enter or a picked suggestion searches
+        searchSuggestions = SearchSuggestions.install(searchField,
+                text -> dataManager.getSearchSuggestions(text, MAX_SEARCH_SUGGESTIONS),
+                text -> handleSearch());
+        searchField.setOnAction(e -> {
+            searchSuggestions.hide();
+            handleSearch();
+        });
+
         Platform.runLater(this::maximizeWindow);
         Platform.runLater(this::setupResponsiveLayout);
         optimizeLayoutForMaximizedWindow();
     }
 
     private void setupResponsiveLayout() {
-        storeItemsPane.prefWrapLengthProperty().bind(
-                storeItemsPane.widthProperty());
-
         storeItemsPane.getScene().widthProperty().addListener((obs, oldVal, newVal) -> {
             double width = newVal.doubleValue();
             if (width > 1600) {
                 storeItemsPane.setHgap(25);
-                storeItemsPane.setPrefWidth(width - 40);
             } else {
                 storeItemsPane.setHgap(20);
             }
@@ -130,65 +150,159 @@ public class HomeController implements Initializable {
      * Initializes the category and price filters when the product list is loaded.
      * Makes sure the filters work correctly by setting proper event handlers.
      */
-    private void setupFilters(List<Product> storeItems) {
+    private void setupFilters() {
         // Clear existing items to avoid duplicates
         categoryFilter.getItems().clear();
         categoryFilter.getItems().add("All Categories");
         categoryFilter.setValue("All Categories");
         
         if (priceFilter.getItems().isEmpty()) {
-            priceFilter.getItems().addAll(
-                    "All Prices",
-                    "Under $50",
-                    "$50 - $100",
-                    "$100 - $200",
-                    "Over $200");
+            priceFilter.getItems().add("All Prices");
+            priceFilter.getItems().addAll(FacetIndex.PRICE_BUCKETS);
             priceFilter.setValue("All Prices");
         }
 
-        // Add unique categories from the product list
-        storeItems.stream()
-            .map(Product::getCategory)
-            .distinct()
-            .sorted()
-            .forEach(category -> {
-                if (!categoryFilter.getItems().contains(category)) {
-                    categoryFilter.getItems().add(category);
-                }
-            });
+        // Add the categories that currently have products, from the category index
+        categoryFilter.getItems().addAll(dataManager.getProductCategories());
         
         // Connect filters directly to the filterItems method
         // This is more reliable than using the handleSearch method
         categoryFilter.setOnAction(e -> filterItems());
         priceFilter.setOnAction(e -> filterItems());
+
+        updateFacetCounts(currentSelection());
         
         System.out.println("Filters configured with direct connection to filterItems method");
     }
 
+    /**
+     * Gets the facet values selected in the category and price filters
+     */
+    private Map<FacetIndex.Facet, String> currentSelection() {
+        Map<FacetIndex.Facet, String> selection = new EnumMap<>(FacetIndex.Facet.class);
+        String selectedCategory = categoryFilter.getValue();
+        if (selectedCategory != null && !"All Categories".equals(selectedCategory)) {
+            selection.put(FacetIndex.Facet.CATEGORY, selectedCategory);
+        }
+        String selectedPrice = priceFilter.getValue();
+        if (selectedPrice != null && !"All Prices".equals(selectedPrice)) {
+            selection.put(FacetIndex.Facet.PRICE, selectedPrice);
+        }
+        return selection;
+    }
+
+    /**
+     * Shows how many products each category and price filter value would
+     * show, given the value selected in the other filter
+     */
+    private void updateFacetCounts(Map<FacetIndex.Facet, String> selection) {
+        FacetIndex facets = dataManager.getFacetIndex();
+        Map<String, Integer> categoryCounts = facets.counts(FacetIndex.Facet.CATEGORY, selection, false);
+        Map<String, Integer> priceCounts = facets.counts(FacetIndex.Facet.PRICE, selection, false);
+
+        FacetCountCell.install(categoryFilter,
+                value -> "All Categories".equals(value) ? null : categoryCounts.getOrDefault(value, 0));
+        FacetCountCell.install(priceFilter,
+                value -> "All Prices".equals(value) ? null : priceCounts.getOrDefault(value, 0));
+    }
+
     private void displayStoreItems(List<Product> items) {
-        storeItemsPane.getChildren().clear();
-        itemCountLabel.setText("Showing " + items.size() + " items");
+        storeItemsPane.getItems().setAll(items);
+        storeItemsPane.scrollToTop();
+        updateItemCount();
+    }
+
+    private void updateItemCount() {
+        itemCountLabel.setText("Showing " + storeItemsPane.getItems().size() + " items");
+    }
+
+    /**
+     * Applies a data change to the listing: a changed product only rebinds
+     * its own card, or is added or dropped if the change moved it in or out
+     * of the current search and filters, and a deleted one is dropped.
+     */
+    private void applyChange(DataChangeEvent event) {
+        if (event.getKind() == DataChangeEvent.Kind.RELOADED) {
+            handleSearch();
+            return;
+        }
+        if (!event.isAbout(DataChangeEvent.EntityType.PRODUCT)) {
+            return;
+        }
 
-        // Prepare all item views
-        List<StoreItemView> itemViews = new ArrayList<>();
-        for (Product item : items) {
-            StoreItemView itemView = new StoreItemView(item);
-            itemView.setOnPurchase(e -> handlePurchase(item));
-            // Make items fully visible immediately instead of starting with opacity 0
-            itemView.setOpacity(1);
-            // Add animation class that includes transform and other effects immediately
-            itemView.getStyleClass().add("item-fade-in");
-            itemViews.add(itemView);
+        List<Product> shown = storeItemsPane.getItems();
+        int index = indexOfProduct(event.getEntityId());
+        switch (event.getKind()) {
+            case UPDATED:
+                // The cache may hold a new instance, e.g. from the item editor
+                Product product = dataManager.getProduct(event.getEntityId());
+                if (product == null || !belongsInResults(product)) {
+                    if (index >= 0) {
+                        shown.remove(index);
+                        updateItemCount();
+                    }
+                } else if (index < 0) {
+                    shown.add(product);
+                    updateItemCount();
+                } else if (shown.get(index) != product) {
+                    // The grid rebinds the card to the new instance
+                    shown.set(index, product);
+                } else {
+                    storeItemsPane.refreshItem(product);
+                }
+                updateFacetCounts(currentSelection());
+                break;
+            case REMOVED:
+                if (index >= 0) {
+                    shown.remove(index);
+                    updateItemCount();
+                    updateFacetCounts(currentSelection());
+                }
+                break;
+            default:
+                // A new product may belong anywhere in the current results
+                handleSearch();
+                break;
         }
+    }
 
-        // Add all items to the flow pane (already visible)
-        storeItemsPane.getChildren().addAll(itemViews);
+    /**
+     * Tells whether a product matches the current filters and search, as
+     * handleSearch would list it.
+     */
+    private boolean belongsInResults(Product product) {
+        Map<FacetIndex.Facet, String> selection = currentSelection();
+        List<String> productId = Collections.singletonList(product.getProductId());
+        if (dataManager.getFacetIndex().retain(productId, selection, false).isEmpty()) {
+            return false;
+        }
+        String searchTerm = searchField.getText().trim();
+        return searchTerm.isEmpty() || dataManager.searchProducts(searchTerm, selection, false).stream()
+                .anyMatch(match -> match.getProductId().equals(product.getProductId()));
+    }
+
+    private int indexOfProduct(String productId) {
+        List<Product> shown = storeItemsPane.getItems();
+        for (int i = 0; i < shown.size(); i++) {
+            if (shown.get(i).getProductId().equals(productId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private StoreItemView createStoreItemView() {
+        StoreItemView itemView = new StoreItemView();
+        itemView.setOnPurchase(e -> handlePurchase(itemView.getProduct()));
+        // Make items fully visible immediately instead of starting with opacity 0
+        itemView.setOpacity(1);
+        // Add animation class that includes transform and other effects immediately
+        itemView.getStyleClass().add("item-fade-in");
+        return itemView;
     }
 
     private void optimizeLayoutForMaximizedWindow() {
         storeItemsPane.getStyleClass().add("flow-pane-maximized");
-        storeItemsPane.prefWrapLengthProperty().bind(
-                storeItemsPane.widthProperty());
 
         storeItemsPane.widthProperty().addListener((obs, oldVal, newVal) -> {
             double width = newVal.doubleValue();
@@ -210,7 +324,7 @@ public class HomeController implements Initializable {
      */
     @FXML
     private void handleSearch() {
-        String searchTerm = searchField.getText().toLowerCase().trim();
+        String searchTerm = searchField.getText().trim();
         String selectedCategory = categoryFilter.getValue();
         String selectedPrice = priceFilter.getValue();
 
@@ -218,46 +332,14 @@ public class HomeController implements Initializable {
                            "', category: '" + selectedCategory + 
                            "', price: '" + selectedPrice + "'");
 
-        // IMPORTANT: Always get fresh products from the data manager to include both featured and regular items
-        List<Product> allProducts = dataManager.getAllProducts();
-        
-        // Apply the same filtering logic as in the filterItems method
-        List<Product> filteredItems = allProducts.stream()
-                .filter(product -> {
-                    // Search term filter
-                    boolean matchesSearch = searchTerm.isEmpty() ||
-                            product.getName().toLowerCase().contains(searchTerm) ||
-                            product.getDescription().toLowerCase().contains(searchTerm) ||
-                            product.getCategory().toLowerCase().contains(searchTerm);
-
-                    // Category filter
-                    boolean matchesCategory = "All Categories".equals(selectedCategory) ||
-                            product.getCategory().equals(selectedCategory);
-
-                    // Price filter
-                    boolean matchesPrice;
-                    switch (selectedPrice) {
-                        case "Under $50":
-                            matchesPrice = product.getPrice().compareTo(new BigDecimal("50")) < 0;
-                            break;
-                        case "$50 - $100":
-                            matchesPrice = product.getPrice().compareTo(new BigDecimal("50")) >= 0 && 
-                                          product.getPrice().compareTo(new BigDecimal("100")) <= 0;
-                            break;
-                        case "$100 - $200":
-                            matchesPrice = product.getPrice().compareTo(new BigDecimal("100")) > 0 && 
-                                          product.getPrice().compareTo(new BigDecimal("200")) <= 0;
-                            break;
-                        case "Over $200":
-                            matchesPrice = product.getPrice().compareTo(new BigDecimal("200")) > 0;
-                            break;
-                        default: // "All Prices"
-                            matchesPrice = true;
-                            break;
-                    }
-                    return matchesSearch && matchesCategory && matchesPrice;
-                })
-                .collect(Collectors.toList());
+        // IMPORTANT: Always get fresh products from the data manager to include both featured and regular items.
+        // A search term is answered by the full-text index, ranked by relevance, and the category
+        // and price filters by intersecting facet bitmaps instead of scanning the catalog.
+        Map<FacetIndex.Facet, String> selection = currentSelection();
+        List<Product> filteredItems = searchTerm.isEmpty()
+                ? dataManager.filterProducts(selection, false)
+                : dataManager.searchProducts(searchTerm, selection, false);
+        updateFacetCounts(selection);
 
         // Display the filtered items
         System.out.println("Search found " + filteredItems.size() + " items");
@@ -275,8 +357,8 @@ public class HomeController implements Initializable {
         // Make sure the product has an image path before adding to cart
         if (product.getImagePath() == null || product.getImagePath().isEmpty()) {
             product.setImagePath("/images/default-product.jpg");
-            // Update product in database to ensure image path is saved
-            dataManager.updateProduct(product);
+            // Queue the product so the image path is saved
+            dataManager.queueSave(product);
         }
 
         ShoppingCart cart = dataManager.getCart(currentUser.getUserId());
@@ -300,8 +382,7 @@ public class HomeController implements Initializable {
         
         // Add to cart (ShoppingCart.addItem will handle stock validation)
         cart.addItem(product);
-        dataManager.saveCart(cart);
-        dataManager.saveAllData();
+        dataManager.queueSave(cart);
         
         // Check if we were limited by stock
         if (currentQuantity + 1 >= product.getStockQuantity()) {
@@ -311,9 +392,6 @@ public class HomeController implements Initializable {
             SceneManager.showAlert("Added to Cart",
                     product.getName() + " has been added to your shopping cart.");
         }
-
-        // Refresh all open views
-        WindowManager.refreshHomeView();
     }
 
     @FXML
@@ -364,7 +442,7 @@ public class HomeController implements Initializable {
     public void refreshView() {
         // Reload products
         List<Product> storeItems = dataManager.getVisibleProducts();
-        setupFilters(storeItems);
+        setupFilters();
         displayStoreItems(storeItems);
     }
 
@@ -610,41 +688,10 @@ public class HomeController implements Initializable {
         System.out.println("Direct filtering with category: '" + selectedCategory + 
                        "', price: '" + selectedPrice + "'");
         
-        // Get ALL products to ensure we filter everything including featured items
-        List<Product> allProducts = dataManager.getAllProducts();
-        
-        // Apply the filters
-        List<Product> filteredItems = allProducts.stream()
-            .filter(product -> {
-                // Category filter
-                boolean matchesCategory = "All Categories".equals(selectedCategory) ||
-                        product.getCategory().equals(selectedCategory);
-                
-                // Price filter
-                boolean matchesPrice;
-                switch (selectedPrice) {
-                    case "Under $50":
-                        matchesPrice = product.getPrice().compareTo(new BigDecimal("50")) < 0;
-                        break;
-                    case "$50 - $100":
-                        matchesPrice = product.getPrice().compareTo(new BigDecimal("50")) >= 0 && 
-                                      product.getPrice().compareTo(new BigDecimal("100")) <= 0;
-                        break;
-                    case "$100 - $200":
-                        matchesPrice = product.getPrice().compareTo(new BigDecimal("100")) > 0 && 
-                                      product.getPrice().compareTo(new BigDecimal("200")) <= 0;
-                        break;
-                    case "Over $200":
-                        matchesPrice = product.getPrice().compareTo(new BigDecimal("200")) > 0;
-                        break;
-                    default: // "All Prices"
-                        matchesPrice = true;
-                        break;
-                }
-                
-                return matchesCategory && matchesPrice;
-            })
-            .collect(Collectors.toList());
+        // Get ALL matching products, featured items included, from the facet bitmaps
+        Map<FacetIndex.Facet, String> selection = currentSelection();
+        List<Product> filteredItems = dataManager.filterProducts(selection, false);
+        updateFacetCounts(selection);
         
         // Display the filtered items
         System.out.println("Direct filter found " + filteredItems.size() + " items");
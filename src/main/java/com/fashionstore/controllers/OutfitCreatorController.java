@@ -83,6 +83,10 @@ public class OutfitCreatorController implements Initializable {
 
     // AI components
     private OutfitRecommender recommender;
+
+    // Top-rated outfits the AI button cycles through
+    private static final int AI_SUGGESTIONS = 10;
+    private int aiSuggestionIndex;
     private final DecimalFormat ratingFormat = new DecimalFormat("#.#");
 
     @Override
@@ -96,6 +100,13 @@ public class OutfitCreatorController implements Initializable {
 
         // Initialize AI recommender
         recommender = new OutfitRecommender();
+        if (OutfitRecommender.getItemModel().getUserCount() == 0) {
+            // Learn which items users pair together; ratings use it once ready
+            Thread modelThread = new Thread(() -> OutfitRecommender.rebuildItemModel(
+                    dataManager.getAllUsers(), dataManager.getAllOutfits()), "item-model-build");
+            modelThread.setDaemon(true);
+            modelThread.start();
+        }
 
         // Load wardrobe items
         loadWardrobeItems();
@@ -348,11 +359,11 @@ public class OutfitCreatorController implements Initializable {
         // Clear existing outfit
         clearOutfit();
 
-        // Generate outfit recommendation
+        // Generate outfit recommendations
         List<Outfit> recommendations = recommender.generateRecommendations(
                 dataManager.getCurrentUser(),
                 wardrobeItems,
-                1);
+                AI_SUGGESTIONS);
 
         if (recommendations.isEmpty()) {
             SceneManager.showAlert("No Recommendations",
@@ -360,8 +371,8 @@ public class OutfitCreatorController implements Initializable {
             return;
         }
 
-        // Get the first recommendation
-        Outfit recommendation = recommendations.get(0);
+        // Recommendations are the same each time, so step through them
+        Outfit recommendation = recommendations.get(aiSuggestionIndex++ % recommendations.size());
 
         // Set outfit name
         outfitNameField.setText(recommendation.getName());
@@ -1,14 +1,22 @@
 package com.fashionstore.controllers;
 
 import java.net.URL;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.stream.Collectors;
 
 import com.fashionstore.application.FashionStoreApp;
 import com.fashionstore.models.Product;
+import com.fashionstore.search.FacetIndex;
+import com.fashionstore.storage.DataChangeEvent;
 import com.fashionstore.storage.DataManager;
+import com.fashionstore.storage.ProductPage;
+import com.fashionstore.storage.ProductQuery;
+import com.fashionstore.ui.components.FacetCountCell;
 import com.fashionstore.ui.components.StoreItemView;
+import com.fashionstore.ui.components.VirtualGrid;
 import com.fashionstore.utils.SceneManager;
 import com.fashionstore.utils.WindowManager;
 
@@ -16,19 +24,26 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
-import javafx.scene.layout.FlowPane;
 
 public class StoreViewController implements Initializable {
 
     @FXML
-    private FlowPane storeItemsPane;
+    private VirtualGrid<Product> storeItemsPane;
     @FXML
     private ComboBox<String> categoryFilter;
     @FXML
     private Label itemCountLabel; // Optional - can add this to your FXML if desired
 
+    // Items added per page; the next page is loaded as scrolling nears the end
+    private static final int PAGE_SIZE = 48;
+
     private DataManager dataManager;
-    private List<Product> storeItems;
+    private int visibleProductCount;
+
+    // The listing being shown and the cursor of its next page
+    private ProductQuery listingQuery;
+    private String nextCursor;
+    private int listingTotal;
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
@@ -50,8 +65,18 @@ public class StoreViewController implements Initializable {
             }
         });
 
+        // Only the cards in view exist; they are rebound to other products while scrolling
+        storeItemsPane.setCellFactory(this::createStoreItemView);
+        storeItemsPane.setOnNearEnd(this::showNextPage);
+        Label noItemsLabel = new Label("No items available in this category.");
+        noItemsLabel.getStyleClass().add("no-items-label");
+        storeItemsPane.setPlaceholder(noItemsLabel);
+
         // Load store items (only visible products)
         loadVisibleProducts();
+
+        // Apply purchases, stock and visibility changes to the cards in place
+        WindowManager.listenForChanges(storeItemsPane, dataManager, this::applyChange);
         
         // Set up filters
         setupFilters();
@@ -61,28 +86,26 @@ public class StoreViewController implements Initializable {
     }
     
     /**
-     * Load the most up-to-date visible products from the database
+     * Counts the visible products; the products themselves are queried a
+     * page at a time as they are shown
      */
     private void loadVisibleProducts() {
-        // Force reload all data from the database to ensure latest visibility status
-        dataManager.loadAllData();
-        
-        // Get fresh product list (only visible)
-        storeItems = dataManager.getVisibleProducts();
-        System.out.println("StoreViewController: Loaded " + storeItems.size() + " visible products");
+        // Pages are queried as they are shown; only count the products here
+        visibleProductCount = dataManager.getProductCount(true);
+        System.out.println("StoreViewController: " + visibleProductCount + " visible products");
     }
 
     private void setupFilters() {
-        // Add categories
+        // Add categories (cleared first so a refresh doesn't duplicate them)
+        categoryFilter.getItems().clear();
         categoryFilter.getItems().add("All Categories");
 
-        // Get unique categories
-        storeItems.stream()
-                .map(Product::getCategory)
-                .filter(c -> c != null && !c.isEmpty())
-                .distinct()
-                .sorted() // Sort categories alphabetically
-                .forEach(category -> categoryFilter.getItems().add(category));
+        // Only categories that have visible products, with their counts
+        Map<String, Integer> categoryCounts = dataManager.getFacetIndex()
+                .counts(FacetIndex.Facet.CATEGORY, Collections.emptyMap(), true);
+        categoryFilter.getItems().addAll(categoryCounts.keySet());
+        FacetCountCell.install(categoryFilter,
+                value -> "All Categories".equals(value) ? null : categoryCounts.getOrDefault(value, 0));
 
         categoryFilter.setValue("All Categories");
         categoryFilter.setOnAction(e -> displayStoreItems());
@@ -90,60 +113,160 @@ public class StoreViewController implements Initializable {
 
     private void displayStoreItems() {
         // Clear existing items
-        storeItemsPane.getChildren().clear();
-        
-        if (storeItems.isEmpty()) {
-            Label noItemsLabel = new Label("No items available in this category.");
-            noItemsLabel.getStyleClass().add("no-items-label");
-            storeItemsPane.getChildren().add(noItemsLabel);
-            if (itemCountLabel != null) {
-                itemCountLabel.setText("Showing 0 items");
-            }
-            return;
-        }
+        storeItemsPane.getItems().clear();
+        storeItemsPane.scrollToTop();
+        nextCursor = null;
 
         // Apply category filter if selected
         String category = categoryFilter.getValue();
-        List<Product> filteredItems = storeItems;
-        
+        Map<FacetIndex.Facet, String> selection = new EnumMap<>(FacetIndex.Facet.class);
         if (category != null && !category.equals("All Categories")) {
-            filteredItems = storeItems.stream()
-                    .filter(item -> category.equals(item.getCategory()))
-                    .collect(Collectors.toList());
-        }
-
-        // Check if filtered list is empty
-        if (filteredItems.isEmpty()) {
-            Label noItemsLabel = new Label("No items available in this category.");
-            noItemsLabel.getStyleClass().add("no-items-label");
-            storeItemsPane.getChildren().add(noItemsLabel);
-            if (itemCountLabel != null) {
-                itemCountLabel.setText("Showing 0 items");
-            }
+            selection.put(FacetIndex.Facet.CATEGORY, category);
+        }
+        listingQuery = new ProductQuery.Builder()
+                .filters(selection)
+                .visibleOnly(true)
+                .sortBy(ProductQuery.SortKey.NAME)
+                .pageSize(PAGE_SIZE)
+                .build();
+        listingTotal = countListing();
+        if (listingTotal > 0) {
+            showPage(listingQuery);
+        } else {
+            updateItemCount();
+        }
+    }
+
+    /**
+     * Appends the next page of the listing, if there is one.
+     */
+    private void showNextPage() {
+        if (listingQuery != null && nextCursor != null) {
+            showPage(listingQuery.after(nextCursor));
+        }
+    }
+
+    private void showPage(ProductQuery query) {
+        ProductPage page = dataManager.queryProducts(query);
+        nextCursor = page.getNextCursor();
+        storeItemsPane.getItems().addAll(page.getItems());
+        updateItemCount();
+    }
+
+    private int countListing() {
+        Map<FacetIndex.Facet, String> selection = listingQuery.getSelection();
+        return selection.isEmpty()
+                ? dataManager.getProductCount(true)
+                : dataManager.getFacetIndex().count(selection, true);
+    }
+
+    /**
+     * Applies a data change to the cards already shown: a product that was
+     * bought only gets its stock label updated, a hidden or deleted one is
+     * removed, and one that now belongs in the listing is inserted in order.
+     */
+    private void applyChange(DataChangeEvent event) {
+        if (event.getKind() == DataChangeEvent.Kind.RELOADED) {
+            refreshView();
+            return;
+        }
+        if (!event.isAbout(DataChangeEvent.EntityType.PRODUCT) || listingQuery == null) {
             return;
         }
 
-        // Create store item view components
-        for (Product product : filteredItems) {
-            // Skip items that aren't visible (additional safety check)
-            if (!product.isVisible()) {
-                continue;
+        List<Product> shown = storeItemsPane.getItems();
+        int index = indexOfProduct(event.getEntityId());
+        Product product = dataManager.getProduct(event.getEntityId());
+        if (product != null && belongsInListing(product)) {
+            if (index < 0) {
+                insertInOrder(product);
+            } else if (!isInOrder(index, product)) {
+                // Renamed; move the card to its new place
+                shown.remove(index);
+                insertInOrder(product);
+            } else if (shown.get(index) != product) {
+                // The cache holds a new instance, e.g. from the item editor;
+                // the grid rebinds the card to it
+                shown.set(index, product);
+            } else {
+                storeItemsPane.refreshItem(product);
+            }
+        } else if (index >= 0) {
+            shown.remove(index);
+        }
+        visibleProductCount = dataManager.getProductCount(true);
+        listingTotal = countListing();
+        updateItemCount();
+    }
+
+    private boolean belongsInListing(Product product) {
+        if (!product.isVisible()) {
+            return false;
+        }
+        String category = listingQuery.getSelection().get(FacetIndex.Facet.CATEGORY);
+        return category == null || category.equals(product.getCategory());
+    }
+
+    /**
+     * Inserts a product at its place in the name order. Products that sort
+     * after the last loaded page are left for that page to bring in.
+     */
+    private void insertInOrder(Product product) {
+        List<Product> shown = storeItemsPane.getItems();
+        int position = 0;
+        while (position < shown.size() && compareByName(shown.get(position), product) < 0) {
+            position++;
+        }
+        if (position < shown.size() || nextCursor == null) {
+            shown.add(position, product);
+        }
+    }
+
+    /**
+     * Tells whether a product still sorts between the neighbours of a
+     * position in the listing.
+     */
+    private boolean isInOrder(int index, Product product) {
+        List<Product> shown = storeItemsPane.getItems();
+        return (index == 0 || compareByName(shown.get(index - 1), product) < 0)
+                && (index == shown.size() - 1 || compareByName(product, shown.get(index + 1)) < 0);
+    }
+
+    private static int compareByName(Product a, Product b) {
+        String nameA = a.getName() != null ? a.getName() : "";
+        String nameB = b.getName() != null ? b.getName() : "";
+        int byName = String.CASE_INSENSITIVE_ORDER.compare(nameA, nameB);
+        return byName != 0 ? byName : a.getProductId().compareTo(b.getProductId());
+    }
+
+    private int indexOfProduct(String productId) {
+        List<Product> shown = storeItemsPane.getItems();
+        for (int i = 0; i < shown.size(); i++) {
+            if (shown.get(i).getProductId().equals(productId)) {
+                return i;
             }
-            
-            StoreItemView itemView = new StoreItemView(product);
-            itemView.setOnPurchase(e -> handlePurchase(product));
-            // Make items fully visible immediately with animation class
-            itemView.setOpacity(1);
-            itemView.getStyleClass().add("item-fade-in");
-            storeItemsPane.getChildren().add(itemView);
         }
+        return -1;
+    }
 
-        // Update count label if it exists
+    private void updateItemCount() {
         if (itemCountLabel != null) {
-            itemCountLabel.setText("Showing " + filteredItems.size() + " items");
+            int shown = storeItemsPane.getItems().size();
+            itemCountLabel.setText(shown == listingTotal
+                    ? "Showing " + shown + " items"
+                    : "Showing " + shown + " of " + listingTotal + " items");
         }
     }
 
+    private StoreItemView createStoreItemView() {
+        StoreItemView itemView = new StoreItemView();
+        itemView.setOnPurchase(e -> handlePurchase(itemView.getProduct()));
+        // Make items fully visible immediately with animation class
+        itemView.setOpacity(1);
+        itemView.getStyleClass().add("item-fade-in");
+        return itemView;
+    }
+
     private void handlePurchase(Product product) {
         // Check if item is already in wardrobe
         List<Product> wardrobe = dataManager.getUserWardrobe(dataManager.getCurrentUser().getUserId());
@@ -168,26 +291,19 @@ public class StoreViewController implements Initializable {
             product.setImagePath("/images/default-product.jpg");
         }
 
-        // Decrease stock quantity by 1
-        product.setStockQuantity(product.getStockQuantity() - 1);
-
-        // Update product in database to reflect stock change
-        dataManager.updateProduct(product);
-
-        // Add to user's wardrobe
-        dataManager.getCurrentUser().addToWardrobe(product.getProductId());
-
-        // Important: Save data after modifications
-        dataManager.saveAllData();
+        // Reserve one unit in the database and add it to the user's wardrobe;
+        // this fails if another purchase, possibly from another instance of
+        // the app, took the last unit in the meantime.
+        if (!dataManager.purchaseProduct(dataManager.getCurrentUser(), product, 1)) {
+            SceneManager.showAlert("Out of Stock",
+                    "Sorry, this item is currently out of stock.");
+            return;
+        }
 
+        // The stock change reaches this and every other open view as a
+        // change event, which updates just this product's card
         SceneManager.showAlert("Purchase Successful",
                 "Item added to your wardrobe: " + product.getName());
-
-        // Refresh the current view
-        refreshView();
-
-        // Refresh other open views
-        WindowManager.refreshHomeView();
     }
 
     // Refresh the view (can be called from outside)
@@ -200,7 +316,7 @@ public class StoreViewController implements Initializable {
         // Debug visibility of products
         logProductVisibility();
         
-        System.out.println("StoreViewController: Refreshed with " + storeItems.size() + " products");
+        System.out.println("StoreViewController: Refreshed with " + visibleProductCount + " products");
         setupFilters();
         displayStoreItems();
     }
@@ -209,20 +325,12 @@ public class StoreViewController implements Initializable {
      * Log visibility status of products for debugging
      */
     private void logProductVisibility() {
-        // Get all products to check visibility status
-        List<Product> allProducts = dataManager.getAllProducts();
-        List<Product> visibleProducts = dataManager.getVisibleProducts();
-        
-        System.out.println("VISIBILITY STATUS: Total products: " + allProducts.size() + 
-                          ", Visible products: " + visibleProducts.size() + 
-                          ", Hidden products: " + (allProducts.size() - visibleProducts.size()));
-        
-        // Log hidden products for debugging
-        if (allProducts.size() > visibleProducts.size()) {
-            System.out.println("Hidden products:");
-            allProducts.stream()
-                .filter(p -> !p.isVisible())
-                .forEach(p -> System.out.println("  - " + p.getName() + " (ID: " + p.getProductId() + ")"));
-        }
+        // Counted from the indexes rather than copying the catalog twice
+        int totalProducts = dataManager.getProductCount(false);
+        int visibleProducts = dataManager.getProductCount(true);
+
+        System.out.println("VISIBILITY STATUS: Total products: " + totalProducts +
+                          ", Visible products: " + visibleProducts +
+                          ", Hidden products: " + (totalProducts - visibleProducts));
     }
-}
\ No newline at end of file
+}
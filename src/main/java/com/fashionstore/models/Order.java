@@ -0,0 +1,172 @@
+package com.fashionstore.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A placed order. Orders are immutable once built: line items record the
+ * product name and unit price at the time of purchase, so later catalog
+ * changes don't rewrite sales history.
+ */
+public class Order {
+    private final String orderId;
+    private final String idempotencyKey;
+    private final String userId;
+    private final String paymentMethod;
+    private final LocalDateTime createdAt;
+    private final List<OrderItem> items;
+    private final BigDecimal totalAmount;
+
+    public static class OrderItem {
+        private final String productId;
+        private final String productName;
+        private final int quantity;
+        private final BigDecimal unitPrice;
+
+        public OrderItem(String productId, String productName, int quantity, BigDecimal unitPrice) {
+            this.productId = productId;
+            this.productName = productName;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getUnitPrice() {
+            return unitPrice;
+        }
+
+        public BigDecimal getLineTotal() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    private Order(Builder builder) {
+        this.orderId = builder.orderId != null ? builder.orderId : UUID.randomUUID().toString();
+        this.idempotencyKey = builder.idempotencyKey;
+        this.userId = builder.userId;
+        this.paymentMethod = builder.paymentMethod;
+        this.createdAt = builder.createdAt != null ? builder.createdAt : LocalDateTime.now();
+        this.items = Collections.unmodifiableList(new ArrayList<>(builder.items));
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            total = total.add(item.getLineTotal());
+        }
+        this.totalAmount = total;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<OrderItem> getItems() {
+        return items;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getItemCount() {
+        return items.stream().mapToInt(OrderItem::getQuantity).sum();
+    }
+
+    /**
+     * Gets the quantity ordered of each product, adding up lines for the same
+     * product.
+     */
+    public Map<String, Integer> getQuantities() {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem item : items) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    @Override
+    public String toString() {
+        return "Order{" +
+                "orderId='" + orderId + '\'' +
+                ", userId='" + userId + '\'' +
+                ", items=" + items.size() +
+                ", total=" + totalAmount +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+
+    // Builder pattern for complex creation
+    public static class Builder {
+        private final String userId;
+        private final String idempotencyKey;
+        private String orderId;
+        private String paymentMethod;
+        private LocalDateTime createdAt;
+        private final List<OrderItem> items = new ArrayList<>();
+
+        public Builder(String userId, String idempotencyKey) {
+            this.userId = userId;
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        public Builder orderId(String orderId) {
+            this.orderId = orderId;
+            return this;
+        }
+
+        public Builder paymentMethod(String paymentMethod) {
+            this.paymentMethod = paymentMethod;
+            return this;
+        }
+
+        public Builder createdAt(LocalDateTime createdAt) {
+            this.createdAt = createdAt;
+            return this;
+        }
+
+        public Builder addItem(String productId, String productName, int quantity, BigDecimal unitPrice) {
+            items.add(new OrderItem(productId, productName, quantity, unitPrice));
+            return this;
+        }
+
+        public Builder addItem(Product product, int quantity) {
+            return addItem(product.getProductId(), product.getName(), quantity, product.getPrice());
+        }
+
+        public Order build() {
+            return new Order(this);
+        }
+    }
+}
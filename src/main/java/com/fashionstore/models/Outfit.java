@@ -2,6 +2,8 @@ package com.fashionstore.models;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 public class Outfit implements Serializable, Comparable<Outfit> {
     private static final long serialVersionUID = 2L; // Updated for new version
@@ -18,7 +20,13 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     private final Set<String> productIds; // Using Set to avoid duplicates
     private OutfitSeason season;
     private OutfitOccasion occasion;
-    private List<String> tags;
+    private CopyOnWriteArrayList<String> tags;
+
+    // Change tracking for incremental persistence (see DataManager.saveOutfits)
+    private transient volatile boolean dirty = true;
+    private transient volatile boolean productsDirty = true;
+    private transient volatile boolean tagsDirty = true;
+    private transient volatile int modCount;
 
     public enum OutfitSeason {
         SPRING, SUMMER, FALL, WINTER, ALL_SEASON
@@ -34,8 +42,8 @@ public class Outfit implements Serializable, Comparable<Outfit> {
         this.name = Objects.requireNonNull(name, "Outfit name cannot be null");
         this.createdAt = new Date();
         this.lastModified = new Date();
-        this.productIds = new LinkedHashSet<>(); // Preserves insertion order
-        this.tags = new ArrayList<>();
+        this.productIds = new CopyOnWriteArraySet<>(); // Preserves insertion order, safe to copy while edited
+        this.tags = new CopyOnWriteArrayList<>();
         this.styleRating = 0.0;
         this.likesCount = 0;
         this.season = OutfitSeason.ALL_SEASON;
@@ -49,6 +57,8 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     public void setOutfitId(String outfitId) {
         if (outfitId != null) {
             this.outfitId = outfitId;
+            this.dirty = true;
+            this.modCount++;
         }
     }
     
@@ -102,13 +112,21 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     public boolean addProduct(String productId) {
         Objects.requireNonNull(productId, "Product ID cannot be null");
         boolean added = productIds.add(productId);
-        if (added) updateModified();
+        if (added) {
+            productsDirty = true;
+            modCount++;
+            updateModified();
+        }
         return added;
     }
 
     public boolean removeProduct(String productId) {
         boolean removed = productIds.remove(productId);
-        if (removed) updateModified();
+        if (removed) {
+            productsDirty = true;
+            modCount++;
+            updateModified();
+        }
         return removed;
     }
 
@@ -119,6 +137,8 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     public void clearProducts() {
         if (!productIds.isEmpty()) {
             productIds.clear();
+            productsDirty = true;
+            modCount++;
             updateModified();
         }
     }
@@ -126,15 +146,20 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     // Tag Management
     public void addTag(String tag) {
         Objects.requireNonNull(tag, "Tag cannot be null");
-        if (!tags.contains(tag)) {
-            tags.add(tag);
+        if (tags.addIfAbsent(tag)) {
+            tagsDirty = true;
+            modCount++;
             updateModified();
         }
     }
 
     public boolean removeTag(String tag) {
         boolean removed = tags.remove(tag);
-        if (removed) updateModified();
+        if (removed) {
+            tagsDirty = true;
+            modCount++;
+            updateModified();
+        }
         return removed;
     }
 
@@ -159,6 +184,40 @@ public class Outfit implements Serializable, Comparable<Outfit> {
     // Utility Methods
     private void updateModified() {
         this.lastModified = new Date();
+        this.dirty = true;
+        this.modCount++;
+    }
+
+    // Change tracking
+    public boolean isDirty() { return dirty; }
+    public boolean isProductsDirty() { return productsDirty; }
+    public boolean isTagsDirty() { return tagsDirty; }
+    public boolean hasUnsavedChanges() { return dirty || productsDirty || tagsDirty; }
+
+    /**
+     * Marks the outfit and its product/tag rows as unchanged. Called by the
+     * storage layer after the outfit has been loaded or saved.
+     */
+    public void markClean() {
+        this.dirty = false;
+        this.productsDirty = false;
+        this.tagsDirty = false;
+    }
+
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Marks this entity clean only if it has not changed since
+     * {@code expectedModCount} was captured by the storage layer.
+     */
+    public boolean markClean(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            return false;
+        }
+        markClean();
+        return true;
     }
 
     public String toShortString() {
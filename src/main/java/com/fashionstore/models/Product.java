@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Product implements Serializable, Comparable<Product> {
     private static final long serialVersionUID = 1L;
@@ -24,6 +25,11 @@ public class Product implements Serializable, Comparable<Product> {
     private BigDecimal originalPrice;
     private BigDecimal cost;
 
+    // Prices in whole cents, kept in step with price/originalPrice so price
+    // indexes and filters can compare primitives
+    private long priceCents;
+    private long originalPriceCents;
+
     // Additional attributes
     private String gender;
     private String size;
@@ -42,15 +48,22 @@ public class Product implements Serializable, Comparable<Product> {
     private double averageRating;
     private int reviewCount;
 
+    // Change tracking for incremental persistence (see DataManager.saveProducts)
+    private transient volatile boolean dirty = true;
+    private transient volatile boolean attributesDirty = true;
+    private transient volatile int modCount;
+
     public Product(String name, String category, BigDecimal price) {
         this.productId = "PROD-" + UUID.randomUUID().toString();
         this.name = Objects.requireNonNull(name, "Product name cannot be null");
         this.category = Objects.requireNonNull(category, "Category cannot be null");
         this.price = Objects.requireNonNull(price, "Price cannot be null").setScale(2, RoundingMode.HALF_UP);
         this.originalPrice = this.price;
+        this.priceCents = toCents(this.price);
+        this.originalPriceCents = this.priceCents;
         this.dateAdded = new Date();
         this.lastUpdated = new Date();
-        this.attributes = new HashMap<>();
+        this.attributes = new ConcurrentHashMap<>();
         this.stockQuantity = 0;
         this.reviewCount = 0;
         this.averageRating = 0.0;
@@ -67,6 +80,9 @@ public class Product implements Serializable, Comparable<Product> {
     public void setProductId(String productId) {
         if (productId != null) {
             this.productId = productId;
+            this.dirty = true;
+            this.attributesDirty = true;
+            this.modCount++;
         }
     }
 
@@ -98,6 +114,20 @@ public class Product implements Serializable, Comparable<Product> {
         return originalPrice;
     }
 
+    /**
+     * Gets the current price in cents.
+     */
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    /**
+     * Gets the original (undiscounted) price in cents, or -1 if there is none.
+     */
+    public long getOriginalPriceCents() {
+        return originalPriceCents;
+    }
+
     public BigDecimal getCost() {
         return cost;
     }
@@ -159,7 +189,7 @@ public class Product implements Serializable, Comparable<Product> {
     }
 
     public boolean isOnSale() {
-        return price.compareTo(originalPrice) < 0;
+        return priceCents < originalPriceCents;
     }
 
     public boolean isVisible() {
@@ -204,11 +234,13 @@ public class Product implements Serializable, Comparable<Product> {
     public void setPrice(BigDecimal price) {
         this.price = Objects.requireNonNull(price, "Price cannot be null")
                 .setScale(2, RoundingMode.HALF_UP);
+        this.priceCents = toCents(this.price);
         updateTimestamp();
     }
 
     public void setOriginalPrice(BigDecimal originalPrice) {
         this.originalPrice = originalPrice != null ? originalPrice.setScale(2, RoundingMode.HALF_UP) : null;
+        this.originalPriceCents = toCents(this.originalPrice);
         updateTimestamp();
     }
 
@@ -245,6 +277,7 @@ public class Product implements Serializable, Comparable<Product> {
     public void setImagePath(String imagePath) {
         if (imagePath == null || imagePath.isEmpty()) {
             this.imagePath = "/images/default-product.jpg";
+            updateTimestamp();
             return;
         }
 
@@ -287,6 +320,8 @@ public class Product implements Serializable, Comparable<Product> {
     // Attribute management
     public void addAttribute(String key, String value) {
         attributes.put(Objects.requireNonNull(key), Objects.requireNonNull(value));
+        attributesDirty = true;
+        modCount++;
         updateTimestamp();
     }
 
@@ -296,7 +331,10 @@ public class Product implements Serializable, Comparable<Product> {
     }
 
     public void removeAttribute(String key) {
-        attributes.remove(key);
+        if (attributes.remove(key) != null) {
+            attributesDirty = true;
+            modCount++;
+        }
         updateTimestamp();
     }
 
@@ -337,21 +375,70 @@ public class Product implements Serializable, Comparable<Product> {
     public void applyDiscount(BigDecimal discountPercentage) {
         Objects.requireNonNull(discountPercentage, "Discount percentage cannot be null");
         if (discountPercentage.compareTo(BigDecimal.ZERO) < 0
-                || discountPercentage.compareTo(new BigDecimal("1.00")) > 0) {
+                || discountPercentage.compareTo(BigDecimal.ONE) > 0) {
             throw new IllegalArgumentException("Discount must be between 0 and 1 (0% to 100%)");
         }
         price = originalPrice.multiply(BigDecimal.ONE.subtract(discountPercentage))
                 .setScale(2, RoundingMode.HALF_UP);
+        priceCents = toCents(price);
         updateTimestamp();
     }
 
     public void removeDiscount() {
         price = originalPrice;
+        priceCents = originalPriceCents;
         updateTimestamp();
     }
 
+    /**
+     * Converts a two-decimal price to cents, or -1 for no price.
+     */
+    private static long toCents(BigDecimal amount) {
+        return amount != null ? amount.unscaledValue().longValue() : -1;
+    }
+
     private void updateTimestamp() {
         this.lastUpdated = new Date();
+        this.dirty = true;
+        this.modCount++;
+    }
+
+    // Change tracking
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public boolean isAttributesDirty() {
+        return attributesDirty;
+    }
+
+    public boolean hasUnsavedChanges() {
+        return dirty || attributesDirty;
+    }
+
+    /**
+     * Marks the product and its attributes as unchanged. Called by the storage
+     * layer after the product has been loaded or saved.
+     */
+    public void markClean() {
+        this.dirty = false;
+        this.attributesDirty = false;
+    }
+
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Marks this entity clean only if it has not changed since
+     * {@code expectedModCount} was captured by the storage layer.
+     */
+    public boolean markClean(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            return false;
+        }
+        markClean();
+        return true;
     }
 
     @Override
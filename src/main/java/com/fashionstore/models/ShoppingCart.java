@@ -4,13 +4,19 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 public class ShoppingCart {
     private String cartId;
     private String userId;
     private List<CartItem> items;
-    private BigDecimal totalPrice;
+    private volatile BigDecimal totalPrice;
+
+    // Change tracking for incremental persistence (see DataManager.saveCarts)
+    private volatile boolean dirty = true;
+    private volatile boolean itemsDirty = true;
+    private volatile int modCount;
 
     public class CartItem {
         private Product product;
@@ -53,6 +59,8 @@ public class ShoppingCart {
             
             // Recalculate parent cart total if quantity changed
             if (changed) {
+                ShoppingCart.this.itemsDirty = true;
+                ShoppingCart.this.modCount++;
                 System.out.println("CartItem.setQuantity: Quantity changed to: " + quantity + 
                                   " for product: " + (product != null ? product.getName() : "null"));
                 ShoppingCart.this.recalculateTotal();
@@ -78,7 +86,7 @@ public class ShoppingCart {
     public ShoppingCart(String userId) {
         this.cartId = UUID.randomUUID().toString();
         this.userId = userId;
-        this.items = new ArrayList<>();
+        this.items = new CopyOnWriteArrayList<>();
         this.totalPrice = BigDecimal.ZERO;
     }
 
@@ -86,7 +94,7 @@ public class ShoppingCart {
         addItem(product, 1);
     }
 
-    public void addItem(Product product, int quantity) {
+    public synchronized void addItem(Product product, int quantity) {
         if (product == null) {
             throw new IllegalArgumentException("Product cannot be null");
         }
@@ -125,6 +133,8 @@ public class ShoppingCart {
         // Add new item if product doesn't exist in cart and stock is available
         if (adjustedQuantity > 0) {
             items.add(new CartItem(product, adjustedQuantity));
+            itemsDirty = true;
+            modCount++;
             recalculateTotal();
         }
     }
@@ -136,7 +146,7 @@ public class ShoppingCart {
      * @param productId The ID of the product to remove
      * @return true if the item was removed, false otherwise
      */
-    public boolean removeItem(String productId) {
+    public synchronized boolean removeItem(String productId) {
         if (productId == null || productId.isEmpty()) {
             System.err.println("Cannot remove item: productId is null or empty");
             return false;
@@ -171,6 +181,8 @@ public class ShoppingCart {
         
         // Recalculate cart total after removal
         if (found) {
+            itemsDirty = true;
+            modCount++;
             System.out.println("ShoppingCart.removeItem: Item successfully removed");
             recalculateTotal();
         } else {
@@ -180,7 +192,11 @@ public class ShoppingCart {
         return found;
     }
 
-    public void clear() {
+    public synchronized void clear() {
+        if (!items.isEmpty()) {
+            itemsDirty = true;
+            modCount++;
+        }
         items.clear();
         totalPrice = BigDecimal.ZERO;
     }
@@ -219,7 +235,47 @@ public class ShoppingCart {
     public void setCartId(String cartId) {
         if (cartId != null) {
             this.cartId = cartId;
+            this.dirty = true;
+            this.modCount++;
+        }
+    }
+
+    // Change tracking
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public boolean isItemsDirty() {
+        return itemsDirty;
+    }
+
+    public boolean hasUnsavedChanges() {
+        return dirty || itemsDirty;
+    }
+
+    /**
+     * Marks the cart and its items as unchanged. Called by the storage layer
+     * after the cart has been loaded or saved.
+     */
+    public void markClean() {
+        this.dirty = false;
+        this.itemsDirty = false;
+    }
+
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Marks this entity clean only if it has not changed since
+     * {@code expectedModCount} was captured by the storage layer.
+     */
+    public boolean markClean(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            return false;
         }
+        markClean();
+        return true;
     }
 
     public String getUserId() {
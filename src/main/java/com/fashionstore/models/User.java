@@ -6,6 +6,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import com.fashionstore.utils.PasswordUtil;
 
 public class User implements Serializable {
@@ -19,9 +20,9 @@ public class User implements Serializable {
     private String lastName;
     private Date dateRegistered;
     private Date lastLogin;
-    private List<String> wardrobeItemIds; // References to product IDs
-    private List<String> outfitIds; // References to outfit IDs
-    private List<StylePreference> stylePreferences;
+    private CopyOnWriteArrayList<String> wardrobeItemIds; // References to product IDs
+    private CopyOnWriteArrayList<String> outfitIds; // References to outfit IDs
+    private CopyOnWriteArrayList<StylePreference> stylePreferences;
     private boolean isDeactivated = false;
     private Date deactivationDate = null;
     private boolean isDarkModeEnabled = false;
@@ -29,6 +30,14 @@ public class User implements Serializable {
     private String banReason = null;
     private Date banExpiration = null;
 
+    // Change tracking for incremental persistence. New users start dirty so
+    // that the first save inserts them; DataManager marks them clean after
+    // loading from or flushing to the database.
+    private transient volatile boolean dirty = true;
+    private transient volatile boolean wardrobeDirty = true;
+    private transient volatile boolean stylePreferencesDirty = true;
+    private transient volatile int modCount;
+
     public User(String username, String email, String passwordHash) {
         this.userId = UUID.randomUUID().toString();
         this.username = username;
@@ -56,9 +65,10 @@ public class User implements Serializable {
         }
 
         this.dateRegistered = new Date();
-        this.wardrobeItemIds = new ArrayList<>();
-        this.outfitIds = new ArrayList<>();
-        this.stylePreferences = new ArrayList<>();
+        // Copy-on-write so the storage layer can copy these while the UI thread edits them
+        this.wardrobeItemIds = new CopyOnWriteArrayList<>();
+        this.outfitIds = new CopyOnWriteArrayList<>();
+        this.stylePreferences = new CopyOnWriteArrayList<>();
     }
 
     /**
@@ -100,6 +110,8 @@ public class User implements Serializable {
 
     public void setUserId(String userId) {
         this.userId = userId;
+        this.dirty = true;
+        this.modCount++;
     }
 
     public String getUsername() {
@@ -108,6 +120,8 @@ public class User implements Serializable {
 
     public void setUsername(String username) {
         this.username = username;
+        this.dirty = true;
+        this.modCount++;
     }
 
     public String getEmail() {
@@ -116,6 +130,8 @@ public class User implements Serializable {
 
     public void setEmail(String email) {
         this.email = email;
+        this.dirty = true;
+        this.modCount++;
     }
 
     public String getPasswordHash() {
@@ -124,6 +140,8 @@ public class User implements Serializable {
 
     public void setPasswordHash(String passwordHash) {
         this.passwordHash = passwordHash;
+        this.dirty = true;
+        this.modCount++;
     }
 
     public String getFirstName() {
@@ -132,6 +150,8 @@ public class User implements Serializable {
 
     public void setFirstName(String firstName) {
         this.firstName = firstName;
+        this.dirty = true;
+        this.modCount++;
     }
 
     public String getLastName() {
@@ -140,6 +160,8 @@ public class User implements Serializable {
 
     public void setLastName(String lastName) {
         this.lastName = lastName;
+        this.dirty = true;
+        this.modCount++;
     }
 
     public Date getDateRegistered() {
@@ -148,6 +170,8 @@ public class User implements Serializable {
 
     public void setDateRegistered(Date dateRegistered) {
         this.dateRegistered = dateRegistered;
+        this.dirty = true;
+        this.modCount++;
     }
 
     public Date getLastLogin() {
@@ -156,10 +180,14 @@ public class User implements Serializable {
 
     public void setLastLogin(Date lastLogin) {
         this.lastLogin = lastLogin;
+        this.dirty = true;
+        this.modCount++;
     }
 
     public void updateLastLogin() {
         this.lastLogin = new Date();
+        this.dirty = true;
+        this.modCount++;
     }
 
     public List<String> getWardrobeItemIds() {
@@ -167,13 +195,19 @@ public class User implements Serializable {
     }
 
     public void addToWardrobe(String productId) {
-        if (!wardrobeItemIds.contains(productId)) {
-            this.wardrobeItemIds.add(productId);
+        if (this.wardrobeItemIds.addIfAbsent(productId)) {
+            this.wardrobeDirty = true;
+            this.modCount++;
         }
     }
 
     public boolean removeFromWardrobe(String productId) {
-        return this.wardrobeItemIds.remove(productId);
+        boolean removed = this.wardrobeItemIds.remove(productId);
+        if (removed) {
+            this.wardrobeDirty = true;
+            this.modCount++;
+        }
+        return removed;
     }
 
     public List<String> getOutfitIds() {
@@ -181,9 +215,7 @@ public class User implements Serializable {
     }
 
     public void addOutfit(String outfitId) {
-        if (!outfitIds.contains(outfitId)) {
-            this.outfitIds.add(outfitId);
-        }
+        this.outfitIds.addIfAbsent(outfitId);
     }
 
     public boolean removeOutfit(String outfitId) {
@@ -211,13 +243,19 @@ public class User implements Serializable {
     }
 
     public void addStylePreference(StylePreference preference) {
-        if (!stylePreferences.contains(preference)) {
-            this.stylePreferences.add(preference);
+        if (this.stylePreferences.addIfAbsent(preference)) {
+            this.stylePreferencesDirty = true;
+            this.modCount++;
         }
     }
 
     public boolean removeStylePreference(StylePreference preference) {
-        return this.stylePreferences.remove(preference);
+        boolean removed = this.stylePreferences.remove(preference);
+        if (removed) {
+            this.stylePreferencesDirty = true;
+            this.modCount++;
+        }
+        return removed;
     }
 
     /**
@@ -256,6 +294,8 @@ public class User implements Serializable {
     public void deactivateAccount() {
         this.isDeactivated = true;
         this.deactivationDate = new Date();
+        this.dirty = true;
+        this.modCount++;
     }
 
     /**
@@ -264,6 +304,8 @@ public class User implements Serializable {
     public void reactivateAccount() {
         this.isDeactivated = false;
         this.deactivationDate = null;
+        this.dirty = true;
+        this.modCount++;
     }
 
     /**
@@ -331,7 +373,11 @@ public class User implements Serializable {
      * @param enabled true to enable dark mode, false otherwise
      */
     public void setDarkModeEnabled(boolean enabled) {
-        this.isDarkModeEnabled = enabled;
+        if (this.isDarkModeEnabled != enabled) {
+            this.isDarkModeEnabled = enabled;
+            this.dirty = true;
+            this.modCount++;
+        }
     }
 
     /**
@@ -352,6 +398,8 @@ public class User implements Serializable {
         this.isBanned = true;
         this.banReason = reason;
         this.banExpiration = null; // Permanent ban by default
+        this.dirty = true;
+        this.modCount++;
     }
 
     /**
@@ -368,6 +416,8 @@ public class User implements Serializable {
         Calendar calendar = Calendar.getInstance();
         calendar.add(Calendar.DAY_OF_MONTH, days);
         this.banExpiration = calendar.getTime();
+        this.dirty = true;
+        this.modCount++;
     }
 
     /**
@@ -428,6 +478,8 @@ public class User implements Serializable {
         this.isBanned = false;
         this.banReason = null;
         this.banExpiration = null;
+        this.dirty = true;
+        this.modCount++;
     }
 
     /**
@@ -448,6 +500,78 @@ public class User implements Serializable {
         return banReason;
     }
 
+    /**
+     * Checks if the user row itself has unsaved changes.
+     *
+     * @return true if the user record needs to be written
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Checks if the wardrobe item list has unsaved changes.
+     *
+     * @return true if the wardrobe rows need to be rewritten
+     */
+    public boolean isWardrobeDirty() {
+        return wardrobeDirty;
+    }
+
+    /**
+     * Checks if the style preferences have unsaved changes.
+     *
+     * @return true if the style preference rows need to be rewritten
+     */
+    public boolean isStylePreferencesDirty() {
+        return stylePreferencesDirty;
+    }
+
+    /**
+     * Checks if anything about this user needs to be persisted.
+     *
+     * @return true if the user or any of its child rows changed
+     */
+    public boolean hasUnsavedChanges() {
+        return dirty || wardrobeDirty || stylePreferencesDirty;
+    }
+
+    /**
+     * Marks the user row and its child rows as unchanged. Called by the
+     * storage layer after the user has been loaded or saved.
+     */
+    public void markClean() {
+        this.dirty = false;
+        this.wardrobeDirty = false;
+        this.stylePreferencesDirty = false;
+    }
+
+    /**
+     * Gets a counter that is incremented on every tracked change. The storage
+     * layer records it before writing so that changes made while a save is in
+     * flight are not lost.
+     *
+     * @return the current modification count
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Marks the user clean only if it has not been modified since
+     * {@code expectedModCount} was read.
+     *
+     * @param expectedModCount the modification count captured before saving
+     * @return true if the user was marked clean
+     */
+    public boolean markClean(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            return false;
+        }
+        markClean();
+        return true;
+    }
+
     @Override
     public String toString() {
         return "User{" +
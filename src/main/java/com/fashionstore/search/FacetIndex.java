@@ -0,0 +1,352 @@
+package com.fashionstore.search;
+
+import com.fashionstore.models.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Facet bitmaps over the product catalog.
+ *
+ * For every facet value (e.g. category "Dresses" or price bucket "Under $50")
+ * the index keeps a bitmap of the products having that value. A filter is the
+ * intersection of the bitmaps of the selected values, and the count next to a
+ * facet value is the cardinality of its bitmap intersected with the other
+ * selected facets, so neither needs a pass over the products themselves.
+ *
+ * Products are referred to by dense ordinals, which keeps the bitmaps small.
+ * The index is updated one product at a time by DataManager. Updates take a
+ * write lock and queries a read lock.
+ */
+public class FacetIndex {
+
+    /**
+     * Product attributes that can be filtered on.
+     */
+    public enum Facet {
+        CATEGORY, BRAND, COLOR, SIZE, SEASON, GENDER, PRICE
+    }
+
+    // Price bucket labels, as shown in the storefront's price filter
+    public static final String PRICE_UNDER_50 = "Under $50";
+    public static final String PRICE_50_TO_100 = "$50 - $100";
+    public static final String PRICE_100_TO_200 = "$100 - $200";
+    public static final String PRICE_OVER_200 = "Over $200";
+
+    public static final List<String> PRICE_BUCKETS = Collections.unmodifiableList(
+            Arrays.asList(PRICE_UNDER_50, PRICE_50_TO_100, PRICE_100_TO_200, PRICE_OVER_200));
+
+    private static final long FIFTY_CENTS = 5000;
+    private static final long ONE_HUNDRED_CENTS = 10000;
+    private static final long TWO_HUNDRED_CENTS = 20000;
+
+    private static final Facet[] FACETS = Facet.values();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Facet -> value -> products having that value
+    private final Map<Facet, Map<String, BitSet>> bitmaps = new EnumMap<>(Facet.class);
+
+    private final BitSet indexed = new BitSet();
+    private final BitSet visible = new BitSet();
+
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private final List<String> idByOrdinal = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    // Facet values each product was last indexed with, by ordinal
+    private final List<String[]> indexedValues = new ArrayList<>();
+
+    public FacetIndex() {
+        for (Facet facet : FACETS) {
+            bitmaps.put(facet, new HashMap<>());
+        }
+    }
+
+    /**
+     * Gets the price bucket a price falls into: under $50, $50 to $100
+     * inclusive, over $100 up to $200 inclusive, and over $200.
+     */
+    public static String priceBucket(BigDecimal price) {
+        if (price == null) {
+            return null;
+        }
+        return priceBucket(price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue());
+    }
+
+    /**
+     * Gets the price bucket a price in cents falls into, or null for a
+     * negative (missing) price.
+     */
+    public static String priceBucket(long cents) {
+        if (cents < 0) {
+            return null;
+        }
+        if (cents < FIFTY_CENTS) {
+            return PRICE_UNDER_50;
+        }
+        if (cents <= ONE_HUNDRED_CENTS) {
+            return PRICE_50_TO_100;
+        }
+        if (cents <= TWO_HUNDRED_CENTS) {
+            return PRICE_100_TO_200;
+        }
+        return PRICE_OVER_200;
+    }
+
+    /**
+     * Gets the prices in cents a price bucket covers.
+     *
+     * @return {minimum inclusive, maximum exclusive}
+     * @throws IllegalArgumentException if the bucket is not one of {@link #PRICE_BUCKETS}
+     */
+    public static long[] priceBucketRange(String bucket) {
+        switch (bucket) {
+            case PRICE_UNDER_50:
+                return new long[] { 0, FIFTY_CENTS };
+            case PRICE_50_TO_100:
+                return new long[] { FIFTY_CENTS, ONE_HUNDRED_CENTS + 1 };
+            case PRICE_100_TO_200:
+                return new long[] { ONE_HUNDRED_CENTS + 1, TWO_HUNDRED_CENTS + 1 };
+            case PRICE_OVER_200:
+                return new long[] { TWO_HUNDRED_CENTS + 1, Long.MAX_VALUE };
+            default:
+                throw new IllegalArgumentException("Unknown price bucket: " + bucket);
+        }
+    }
+
+    /**
+     * Adds a product or moves it between facet values after a change.
+     */
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        String[] values = facetValues(product);
+
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.get(product.getProductId());
+            if (ordinal == null) {
+                ordinal = allocateOrdinal(product.getProductId());
+            }
+
+            String[] oldValues = indexedValues.get(ordinal);
+            for (Facet facet : FACETS) {
+                String oldValue = oldValues != null ? oldValues[facet.ordinal()] : null;
+                String newValue = values[facet.ordinal()];
+                if (oldValue != null && oldValue.equals(newValue)) {
+                    continue;
+                }
+                if (oldValue != null) {
+                    clearBit(facet, oldValue, ordinal);
+                }
+                if (newValue != null) {
+                    bitmaps.get(facet).computeIfAbsent(newValue, k -> new BitSet()).set(ordinal);
+                }
+            }
+            indexedValues.set(ordinal, values);
+            indexed.set(ordinal);
+            visible.set(ordinal, product.isVisible());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.remove(productId);
+            if (ordinal == null) {
+                return;
+            }
+            String[] oldValues = indexedValues.get(ordinal);
+            if (oldValues != null) {
+                for (Facet facet : FACETS) {
+                    if (oldValues[facet.ordinal()] != null) {
+                        clearBit(facet, oldValues[facet.ordinal()], ordinal);
+                    }
+                }
+            }
+            indexedValues.set(ordinal, null);
+            idByOrdinal.set(ordinal, null);
+            indexed.clear(ordinal);
+            visible.clear(ordinal);
+            freeOrdinals.push(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            bitmaps.values().forEach(Map::clear);
+            indexed.clear();
+            visible.clear();
+            ordinalById.clear();
+            idByOrdinal.clear();
+            freeOrdinals.clear();
+            indexedValues.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the IDs of the products matching every selected facet value.
+     *
+     * @param selection   selected value per facet; facets without a value
+     *                    are not filtered on
+     * @param visibleOnly whether to leave out hidden products
+     */
+    public List<String> filter(Map<Facet, String> selection, boolean visibleOnly) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = match(selection, null, visibleOnly);
+            List<String> ids = new ArrayList<>(matches.cardinality());
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                ids.add(idByOrdinal.get(ordinal));
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keeps the given products that match every selected facet value, in
+     * their original order (e.g. search relevance).
+     */
+    public List<String> retain(List<String> productIds, Map<Facet, String> selection, boolean visibleOnly) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = match(selection, null, visibleOnly);
+            List<String> retained = new ArrayList<>();
+            for (String productId : productIds) {
+                Integer ordinal = ordinalById.get(productId);
+                if (ordinal != null && matches.get(ordinal)) {
+                    retained.add(productId);
+                }
+            }
+            return retained;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the products for each value of a facet, given the values selected
+     * on the other facets. The facet's own selection is ignored, so the counts
+     * say how many products picking each value would show.
+     *
+     * @return value to product count, sorted by value; values with no
+     *         matching products are left out
+     */
+    public Map<String, Integer> counts(Facet facet, Map<Facet, String> selection, boolean visibleOnly) {
+        lock.readLock().lock();
+        try {
+            BitSet base = match(selection, facet, visibleOnly);
+            Map<String, Integer> counts = new TreeMap<>();
+            for (Map.Entry<String, BitSet> entry : bitmaps.get(facet).entrySet()) {
+                BitSet values = (BitSet) entry.getValue().clone();
+                values.and(base);
+                int count = values.cardinality();
+                if (count > 0) {
+                    counts.put(entry.getKey(), count);
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the products matching every selected facet value.
+     */
+    public int count(Map<Facet, String> selection, boolean visibleOnly) {
+        lock.readLock().lock();
+        try {
+            return match(selection, null, visibleOnly).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Intersects the bitmaps of the selected values, skipping {@code excluded}.
+     * Must be called with the read lock held.
+     */
+    private BitSet match(Map<Facet, String> selection, Facet excluded, boolean visibleOnly) {
+        BitSet result = (BitSet) (visibleOnly ? visible : indexed).clone();
+        if (selection == null) {
+            return result;
+        }
+        for (Map.Entry<Facet, String> entry : selection.entrySet()) {
+            if (entry.getKey() == excluded || entry.getValue() == null) {
+                continue;
+            }
+            BitSet values = bitmaps.get(entry.getKey()).get(entry.getValue());
+            if (values == null) {
+                result.clear();
+                break;
+            }
+            result.and(values);
+        }
+        return result;
+    }
+
+    private static String[] facetValues(Product product) {
+        String[] values = new String[FACETS.length];
+        values[Facet.CATEGORY.ordinal()] = emptyToNull(product.getCategory());
+        values[Facet.BRAND.ordinal()] = emptyToNull(product.getBrand());
+        values[Facet.COLOR.ordinal()] = emptyToNull(product.getColor());
+        values[Facet.SIZE.ordinal()] = emptyToNull(product.getSize());
+        values[Facet.SEASON.ordinal()] = emptyToNull(product.getSeason());
+        values[Facet.GENDER.ordinal()] = emptyToNull(product.getGender());
+        values[Facet.PRICE.ordinal()] = priceBucket(product.getPriceCents());
+        return values;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private int allocateOrdinal(String productId) {
+        int ordinal;
+        if (!freeOrdinals.isEmpty()) {
+            ordinal = freeOrdinals.pop();
+            idByOrdinal.set(ordinal, productId);
+        } else {
+            ordinal = idByOrdinal.size();
+            idByOrdinal.add(productId);
+            indexedValues.add(null);
+        }
+        ordinalById.put(productId, ordinal);
+        return ordinal;
+    }
+
+    private void clearBit(Facet facet, String value, int ordinal) {
+        Map<String, BitSet> values = bitmaps.get(facet);
+        BitSet products = values.get(value);
+        if (products != null) {
+            products.clear(ordinal);
+            if (products.isEmpty()) {
+                values.remove(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.fashionstore.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds dictionary terms within a few typos of a query term.
+ *
+ * Every term is split into trigrams, padded so first and last letters count
+ * ("$$j", "$ja", "jac", ..., "et$"). A term within k edits of the query
+ * keeps all but about 3k of the query's trigrams, so candidates are the terms
+ * sharing enough trigrams with it, counted from per-trigram posting lists.
+ * Each candidate is then verified with an edit distance computed only inside
+ * a band around the diagonal, abandoned as soon as it must exceed k.
+ *
+ * The distance counts insertions, deletions, substitutions and swaps of
+ * adjacent letters. Not thread-safe: ProductSearchIndex calls it under its
+ * own lock.
+ */
+final class FuzzyTermIndex {
+
+    private static final char PADDING = '$';
+
+    /**
+     * A dictionary term and its edit distance from the query.
+     */
+    static final class Match {
+        final String term;
+        final int distance;
+
+        Match(String term, int distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+    }
+
+    // Trigram -> ids of the terms containing it (weights unused)
+    private final Map<String, Postings> trigrams = new HashMap<>();
+
+    private final Map<String, Integer> idByTerm = new HashMap<>();
+    private final List<String> termById = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+
+    void add(String term) {
+        if (idByTerm.containsKey(term)) {
+            return;
+        }
+        int id;
+        if (!freeIds.isEmpty()) {
+            id = freeIds.pop();
+            termById.set(id, term);
+        } else {
+            id = termById.size();
+            termById.add(term);
+        }
+        idByTerm.put(term, id);
+        for (String trigram : trigrams(term, true)) {
+            trigrams.computeIfAbsent(trigram, k -> new Postings()).put(id, 1.0f);
+        }
+    }
+
+    void remove(String term) {
+        Integer id = idByTerm.remove(term);
+        if (id == null) {
+            return;
+        }
+        for (String trigram : trigrams(term, true)) {
+            Postings postings = trigrams.get(trigram);
+            if (postings != null) {
+                postings.remove(id);
+                if (postings.size() == 0) {
+                    trigrams.remove(trigram);
+                }
+            }
+        }
+        termById.set(id, null);
+        freeIds.push(id);
+    }
+
+    void clear() {
+        trigrams.clear();
+        idByTerm.clear();
+        termById.clear();
+        freeIds.clear();
+    }
+
+    /**
+     * Gets the terms within {@code maxEdits} of the query, closest first.
+     *
+     * @param prefix whether the query is a prefix still being typed, in which
+     *               case it is compared with the start of each term
+     * @param limit  most matches to return
+     */
+    List<Match> match(String query, int maxEdits, boolean prefix, int limit) {
+        List<Match> matches = new ArrayList<>();
+        if (maxEdits <= 0 || query.isEmpty()) {
+            return matches;
+        }
+
+        Set<String> queryTrigrams = trigrams(query, !prefix);
+        int required = Math.max(1, queryTrigrams.size() - 3 * maxEdits);
+        int[] shared = new int[termById.size()];
+        List<Integer> candidates = new ArrayList<>();
+        for (String trigram : queryTrigrams) {
+            Postings postings = trigrams.get(trigram);
+            if (postings == null) {
+                continue;
+            }
+            for (int i = 0; i < postings.size(); i++) {
+                int id = postings.doc(i);
+                if (++shared[id] == required) {
+                    candidates.add(id);
+                }
+            }
+        }
+
+        for (int id : candidates) {
+            String term = termById.get(id);
+            int distance = prefix ? prefixDistance(query, term, maxEdits) : distance(query, term, maxEdits);
+            if (distance <= maxEdits) {
+                matches.add(new Match(term, distance));
+            }
+        }
+        matches.sort((a, b) -> a.distance != b.distance
+                ? Integer.compare(a.distance, b.distance)
+                : a.term.compareTo(b.term));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Gets a term's distinct trigrams, padded at the start and optionally
+     * at the end.
+     */
+    private static Set<String> trigrams(String term, boolean padEnd) {
+        String padded = PADDING + "" + PADDING + term + (padEnd ? String.valueOf(PADDING) : "");
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the edit distance between two strings, or {@code max + 1} if it
+     * is more than {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] lastRow = editRow(a, b, max);
+        return lastRow == null ? max + 1 : Math.min(lastRow[b.length()], max + 1);
+    }
+
+    /**
+     * Gets the smallest edit distance between {@code a} and any prefix of
+     * {@code b}, or {@code max + 1} if it is more than {@code max}.
+     */
+    static int prefixDistance(String a, String b, int max) {
+        if (b.length() < a.length() - max) {
+            return max + 1;
+        }
+        int[] lastRow = editRow(a, b, max);
+        if (lastRow == null) {
+            return max + 1;
+        }
+        int best = max + 1;
+        int from = Math.max(0, a.length() - max);
+        int to = Math.min(b.length(), a.length() + max);
+        for (int j = from; j <= to; j++) {
+            best = Math.min(best, lastRow[j]);
+        }
+        return best;
+    }
+
+    /**
+     * Computes the last row of the edit distance table between {@code a}
+     * and the prefixes of {@code b}, only within {@code max} of the diagonal.
+     * Cells outside the band hold {@code max + 1}.
+     *
+     * @return the last row, or null once every cell of a row exceeds max
+     */
+    private static int[] editRow(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        int over = max + 1;
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = Math.min(j, over);
+        }
+
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(m, i + max);
+            current[0] = Math.min(i, over);
+            if (from > 1) {
+                current[from - 1] = over;
+            }
+            int rowMin = from == 1 ? current[0] : over;
+            char ca = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    // Swapped adjacent letters
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = Math.min(value, over);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = over;
+            }
+            if (rowMin > max) {
+                return null;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,61 @@
+package com.fashionstore.search;
+
+import java.util.Arrays;
+
+/**
+ * Posting list of one term: document ordinals in ascending order with the
+ * term's weight in each document. Stored as parallel primitive arrays so a
+ * large catalog doesn't pay an object per posting, and so lists can be
+ * intersected with a linear merge.
+ */
+final class Postings {
+
+    private int[] docs = new int[4];
+    private float[] weights = new float[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    int doc(int index) {
+        return docs[index];
+    }
+
+    float weight(int index) {
+        return weights[index];
+    }
+
+    /**
+     * Adds a document or replaces its weight.
+     */
+    void put(int doc, float weight) {
+        int index = Arrays.binarySearch(docs, 0, size, doc);
+        if (index >= 0) {
+            weights[index] = weight;
+            return;
+        }
+
+        int insertAt = -index - 1;
+        if (size == docs.length) {
+            int capacity = size + (size >> 1) + 1;
+            docs = Arrays.copyOf(docs, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        System.arraycopy(docs, insertAt, docs, insertAt + 1, size - insertAt);
+        System.arraycopy(weights, insertAt, weights, insertAt + 1, size - insertAt);
+        docs[insertAt] = doc;
+        weights[insertAt] = weight;
+        size++;
+    }
+
+    void remove(int doc) {
+        int index = Arrays.binarySearch(docs, 0, size, doc);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+        System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+        size--;
+    }
+}
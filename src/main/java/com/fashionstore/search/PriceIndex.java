@@ -0,0 +1,294 @@
+package com.fashionstore.search;
+
+import com.fashionstore.models.Product;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Products sorted by price, held in primitive arrays.
+ *
+ * Prices are kept as {@code long} cents next to product ordinals, sorted by
+ * price. A price range is located with two binary searches, so counting the
+ * products in a range is O(log n) and a histogram costs one binary search per
+ * bucket boundary, regardless of catalog size. Products on sale are tracked in
+ * a bitmap.
+ *
+ * The index is updated one product at a time by DataManager, which re-indexes
+ * a product whenever its price changes (including discounts). Moving a
+ * product shifts the array between its old and new position. Updates take a
+ * write lock and queries a read lock.
+ */
+public class PriceIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Sorted by (cents, ordinal)
+    private long[] sortedCents = new long[16];
+    private int[] sortedOrdinals = new int[16];
+    private int size;
+
+    private final BitSet onSale = new BitSet();
+
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private final List<String> idByOrdinal = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    // Price each ordinal is currently sorted under, to find it again on update
+    private long[] centsByOrdinal = new long[16];
+
+    /**
+     * Adds a product or moves it to its new price.
+     */
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null || product.getPrice() == null) {
+            return;
+        }
+        long cents = product.getPriceCents();
+
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.get(product.getProductId());
+            if (ordinal == null) {
+                ordinal = allocateOrdinal(product.getProductId());
+                insertEntry(cents, ordinal);
+            } else if (centsByOrdinal[ordinal] != cents) {
+                removeEntry(centsByOrdinal[ordinal], ordinal);
+                insertEntry(cents, ordinal);
+            }
+            centsByOrdinal[ordinal] = cents;
+            onSale.set(ordinal, product.isOnSale());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.remove(productId);
+            if (ordinal == null) {
+                return;
+            }
+            removeEntry(centsByOrdinal[ordinal], ordinal);
+            onSale.clear(ordinal);
+            idByOrdinal.set(ordinal, null);
+            freeOrdinals.push(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            onSale.clear();
+            ordinalById.clear();
+            idByOrdinal.clear();
+            freeOrdinals.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the products priced in {@code [minCents, maxCents)}.
+     */
+    public int countInRange(long minCents, long maxCents) {
+        lock.readLock().lock();
+        try {
+            return Math.max(0, lowerBound(maxCents) - lowerBound(minCents));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the IDs of the products priced in {@code [minCents, maxCents)},
+     * cheapest first.
+     */
+    public List<String> productIdsInRange(long minCents, long maxCents) {
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(minCents);
+            int to = lowerBound(maxCents);
+            List<String> ids = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                ids.add(idByOrdinal.get(sortedOrdinals[i]));
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the IDs of the products currently on sale, cheapest first.
+     */
+    public List<String> productIdsOnSale() {
+        lock.readLock().lock();
+        try {
+            List<String> ids = new ArrayList<>(onSale.cardinality());
+            for (int i = 0; i < size; i++) {
+                if (onSale.get(sortedOrdinals[i])) {
+                    ids.add(idByOrdinal.get(sortedOrdinals[i]));
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countOnSale() {
+        lock.readLock().lock();
+        try {
+            return onSale.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts products per price bucket. Given ascending boundaries
+     * {@code b0 < b1 < ... < bn}, the buckets are {@code [.., b0)},
+     * {@code [b0, b1)}, ..., {@code [bn, ..)}.
+     *
+     * @param boundariesCents ascending bucket boundaries in cents
+     * @return one count per bucket, {@code boundariesCents.length + 1} in total
+     */
+    public int[] histogram(long[] boundariesCents) {
+        lock.readLock().lock();
+        try {
+            int[] counts = new int[boundariesCents.length + 1];
+            int previous = 0;
+            for (int i = 0; i < boundariesCents.length; i++) {
+                int position = lowerBound(boundariesCents[i]);
+                counts[i] = position - previous;
+                previous = position;
+            }
+            counts[boundariesCents.length] = size - previous;
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the lowest indexed price in cents, or -1 if the index is empty.
+     */
+    public long getMinCents() {
+        lock.readLock().lock();
+        try {
+            return size > 0 ? sortedCents[0] : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the highest indexed price in cents, or -1 if the index is empty.
+     */
+    public long getMaxCents() {
+        lock.readLock().lock();
+        try {
+            return size > 0 ? sortedCents[size - 1] : -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Sorted array maintenance
+
+    /**
+     * Gets the position of the first entry priced at or above {@code cents}.
+     */
+    private int lowerBound(long cents) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedCents[mid] < cents) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the position of an entry, or where it would be inserted.
+     */
+    private int position(long cents, int ordinal) {
+        int low = lowerBound(cents);
+        int high = size;
+        // Entries with equal prices are ordered by ordinal
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedCents[mid] == cents && sortedOrdinals[mid] < ordinal) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void insertEntry(long cents, int ordinal) {
+        int at = position(cents, ordinal);
+        if (size == sortedCents.length) {
+            int capacity = size + (size >> 1) + 1;
+            sortedCents = Arrays.copyOf(sortedCents, capacity);
+            sortedOrdinals = Arrays.copyOf(sortedOrdinals, capacity);
+        }
+        System.arraycopy(sortedCents, at, sortedCents, at + 1, size - at);
+        System.arraycopy(sortedOrdinals, at, sortedOrdinals, at + 1, size - at);
+        sortedCents[at] = cents;
+        sortedOrdinals[at] = ordinal;
+        size++;
+    }
+
+    private void removeEntry(long cents, int ordinal) {
+        int at = position(cents, ordinal);
+        if (at >= size || sortedCents[at] != cents || sortedOrdinals[at] != ordinal) {
+            return;
+        }
+        System.arraycopy(sortedCents, at + 1, sortedCents, at, size - at - 1);
+        System.arraycopy(sortedOrdinals, at + 1, sortedOrdinals, at, size - at - 1);
+        size--;
+    }
+
+    private int allocateOrdinal(String productId) {
+        int ordinal;
+        if (!freeOrdinals.isEmpty()) {
+            ordinal = freeOrdinals.pop();
+            idByOrdinal.set(ordinal, productId);
+        } else {
+            ordinal = idByOrdinal.size();
+            idByOrdinal.add(productId);
+            if (ordinal == centsByOrdinal.length) {
+                centsByOrdinal = Arrays.copyOf(centsByOrdinal, ordinal + (ordinal >> 1) + 1);
+            }
+        }
+        ordinalById.put(productId, ordinal);
+        return ordinal;
+    }
+}
@@ -0,0 +1,469 @@
+package com.fashionstore.search;
+
+import com.fashionstore.models.Product;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Full-text inverted index over the product catalog.
+ *
+ * Product name, description, brand, category, color and material are split
+ * into terms. Each term maps to a posting list of the products containing it,
+ * weighted by the fields the term appears in (a match in the name counts more
+ * than one in the description). Queries only touch the posting lists of their
+ * own terms, so their cost depends on how many products match rather than on
+ * the size of the catalog.
+ *
+ * Query syntax:
+ * <ul>
+ * <li>terms separated by spaces must all match ({@code red dress})</li>
+ * <li>{@code OR} or {@code |} separates alternatives ({@code dress OR skirt})</li>
+ * <li>a term ending in {@code *} matches as a prefix ({@code sneak*}); the
+ * last term of a query always does, so results follow the user's typing</li>
+ * <li>a term that matches nothing is matched against the terms within a few
+ * typos of it ({@code snekers}, {@code jaket}); see {@link #setMaxEdits}</li>
+ * </ul>
+ *
+ * Results are ranked with a BM25-style score: rarer terms and matches in more
+ * important fields rank higher, exact terms rank above prefix expansions, and
+ * both rank above typo corrections, fewer typos first.
+ *
+ * The index is updated one product at a time by DataManager. Updates take a
+ * write lock and searches a read lock.
+ */
+public class ProductSearchIndex {
+
+    // How much a term occurrence counts in each field
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BRAND_WEIGHT = 2.5f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float COLOR_WEIGHT = 1.5f;
+    private static final float MATERIAL_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+
+    // BM25 term frequency saturation
+    private static final float K1 = 1.2f;
+
+    // Score factor for terms that only match a query term as a prefix
+    private static final float PREFIX_MATCH_FACTOR = 0.7f;
+
+    // Upper bound on the terms a single prefix expands to
+    private static final int MAX_PREFIX_EXPANSIONS = 256;
+
+    // Score factor per typo for terms matched by edit distance
+    private static final float FUZZY_MATCH_FACTOR = 0.5f;
+
+    // Upper bound on the terms a misspelled term expands to
+    private static final int MAX_FUZZY_EXPANSIONS = 32;
+
+    public static final int DEFAULT_MAX_EDITS = 2;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Term dictionary, sorted so prefix queries are a range scan
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+
+    // Trigrams of the terms above, for typo-tolerant matching
+    private final FuzzyTermIndex fuzzyTerms = new FuzzyTermIndex();
+
+    // Most typos a query term may have; 0 turns typo tolerance off
+    private volatile int maxEdits = DEFAULT_MAX_EDITS;
+
+    // Products are referred to by dense ordinals inside the index
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private final List<String> idByOrdinal = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    // Term weights each product was last indexed with, to undo them on update
+    private final List<Map<String, Float>> indexedTerms = new ArrayList<>();
+
+    /**
+     * Adds a product or re-indexes it after a change. Re-indexing an unchanged
+     * product only costs the tokenization.
+     */
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        Map<String, Float> newTerms = termWeights(product);
+
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.get(product.getProductId());
+            if (ordinal == null) {
+                ordinal = allocateOrdinal(product.getProductId());
+            }
+
+            Map<String, Float> oldTerms = indexedTerms.get(ordinal);
+            if (newTerms.equals(oldTerms)) {
+                return;
+            }
+
+            if (oldTerms != null) {
+                for (String term : oldTerms.keySet()) {
+                    if (!newTerms.containsKey(term)) {
+                        removePosting(term, ordinal);
+                    }
+                }
+            }
+            for (Map.Entry<String, Float> entry : newTerms.entrySet()) {
+                Float oldWeight = oldTerms != null ? oldTerms.get(entry.getKey()) : null;
+                if (!entry.getValue().equals(oldWeight)) {
+                    Postings postings = terms.get(entry.getKey());
+                    if (postings == null) {
+                        postings = new Postings();
+                        terms.put(entry.getKey(), postings);
+                        fuzzyTerms.add(entry.getKey());
+                    }
+                    postings.put(ordinal, entry.getValue());
+                }
+            }
+            indexedTerms.set(ordinal, newTerms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalById.remove(productId);
+            if (ordinal == null) {
+                return;
+            }
+            Map<String, Float> oldTerms = indexedTerms.get(ordinal);
+            if (oldTerms != null) {
+                for (String term : oldTerms.keySet()) {
+                    removePosting(term, ordinal);
+                }
+            }
+            indexedTerms.set(ordinal, null);
+            idByOrdinal.set(ordinal, null);
+            freeOrdinals.push(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            fuzzyTerms.clear();
+            ordinalById.clear();
+            idByOrdinal.clear();
+            freeOrdinals.clear();
+            indexedTerms.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of indexed products.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of distinct terms in the index.
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the most typos a query term may have and still match, counting
+     * inserted, deleted, replaced and swapped letters. Short terms allow
+     * fewer: none up to 2 letters and one up to 5. 0 turns typo tolerance off.
+     */
+    public void setMaxEdits(int maxEdits) {
+        if (maxEdits < 0) {
+            throw new IllegalArgumentException("Max edits cannot be negative");
+        }
+        this.maxEdits = maxEdits;
+    }
+
+    public int getMaxEdits() {
+        return maxEdits;
+    }
+
+    /**
+     * Finds every product matching a query, best match first.
+     */
+    public List<SearchHit> search(String query) {
+        return search(query, 0);
+    }
+
+    /**
+     * Finds the products matching a query, best match first.
+     *
+     * @param limit maximum number of hits, or 0 for all of them
+     */
+    public List<SearchHit> search(String query, int limit) {
+        List<List<QueryTerm>> clauses = parse(query);
+        if (clauses.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            ScoredDocs matches = null;
+            for (List<QueryTerm> clause : clauses) {
+                ScoredDocs clauseMatches = matchAll(clause);
+                matches = matches == null ? clauseMatches : matches.or(clauseMatches, true);
+            }
+            return topHits(matches, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Indexing
+
+    private static Map<String, Float> termWeights(Product product) {
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getBrand(), BRAND_WEIGHT);
+        addField(weights, product.getCategory(), CATEGORY_WEIGHT);
+        addField(weights, product.getColor(), COLOR_WEIGHT);
+        addField(weights, product.getMaterial(), MATERIAL_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        // Saturate so a term repeated throughout the description can't
+        // outweigh a single match in the name
+        weights.replaceAll((term, weight) -> weight * (K1 + 1) / (weight + K1));
+        return weights;
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float fieldWeight) {
+        for (String term : Tokenizer.tokenize(text)) {
+            weights.merge(term, fieldWeight, Float::sum);
+        }
+    }
+
+    private int allocateOrdinal(String productId) {
+        int ordinal;
+        if (!freeOrdinals.isEmpty()) {
+            ordinal = freeOrdinals.pop();
+            idByOrdinal.set(ordinal, productId);
+        } else {
+            ordinal = idByOrdinal.size();
+            idByOrdinal.add(productId);
+            indexedTerms.add(null);
+        }
+        ordinalById.put(productId, ordinal);
+        return ordinal;
+    }
+
+    private void removePosting(String term, int ordinal) {
+        Postings postings = terms.get(term);
+        if (postings != null) {
+            postings.remove(ordinal);
+            if (postings.size() == 0) {
+                terms.remove(term);
+                fuzzyTerms.remove(term);
+            }
+        }
+    }
+
+    // Querying
+
+    private static class QueryTerm {
+        final String text;
+        final boolean prefix;
+
+        QueryTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+
+    private static List<List<QueryTerm>> parse(String query) {
+        List<List<QueryTerm>> clauses = new ArrayList<>();
+        if (query == null || query.trim().isEmpty()) {
+            return clauses;
+        }
+
+        List<QueryTerm> clause = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            if (word.equals("OR") || word.equals("|")) {
+                if (!clause.isEmpty()) {
+                    clauses.add(clause);
+                    clause = new ArrayList<>();
+                }
+                continue;
+            }
+            if (word.equals("AND")) {
+                continue;
+            }
+
+            List<String> tokens = Tokenizer.tokenize(word);
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean prefix = word.endsWith("*") && i == tokens.size() - 1;
+                clause.add(new QueryTerm(tokens.get(i), prefix));
+            }
+        }
+        if (!clause.isEmpty()) {
+            clauses.add(clause);
+        }
+
+        // The last term is probably still being typed
+        if (!clauses.isEmpty() && !query.endsWith(" ")) {
+            List<QueryTerm> last = clauses.get(clauses.size() - 1);
+            QueryTerm term = last.get(last.size() - 1);
+            last.set(last.size() - 1, new QueryTerm(term.text, true));
+        }
+        return clauses;
+    }
+
+    /**
+     * Matches documents containing every term of a clause.
+     */
+    private ScoredDocs matchAll(List<QueryTerm> clause) {
+        List<ScoredDocs> termMatches = new ArrayList<>(clause.size());
+        for (QueryTerm term : clause) {
+            ScoredDocs docs = match(term);
+            if (docs.size == 0) {
+                return ScoredDocs.EMPTY;
+            }
+            termMatches.add(docs);
+        }
+
+        // Intersect starting from the rarest term so intermediate results stay small
+        termMatches.sort((a, b) -> Integer.compare(a.size, b.size));
+        ScoredDocs result = termMatches.get(0);
+        for (int i = 1; i < termMatches.size() && result.size > 0; i++) {
+            result = result.and(termMatches.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Matches a term as written, falling back to the terms a few typos away
+     * when nothing is spelled like it.
+     */
+    private ScoredDocs match(QueryTerm term) {
+        ScoredDocs docs = matchSpelling(term);
+        return docs.size > 0 ? docs : matchFuzzy(term);
+    }
+
+    private ScoredDocs matchSpelling(QueryTerm term) {
+        if (!term.prefix) {
+            Postings postings = terms.get(term.text);
+            return postings != null ? ScoredDocs.of(postings, idf(postings.size())) : ScoredDocs.EMPTY;
+        }
+
+        List<ScoredDocs> expansions = new ArrayList<>();
+        for (Map.Entry<String, Postings> entry : terms
+                .subMap(term.text, true, term.text + Character.MAX_VALUE, false).entrySet()) {
+            Postings postings = entry.getValue();
+            float factor = idf(postings.size());
+            if (!entry.getKey().equals(term.text)) {
+                factor *= PREFIX_MATCH_FACTOR;
+            }
+            expansions.add(ScoredDocs.of(postings, factor));
+            if (expansions.size() == MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+        }
+        return unionAll(expansions);
+    }
+
+    private ScoredDocs matchFuzzy(QueryTerm term) {
+        int edits = Math.min(maxEdits, allowedEdits(term.text.length()));
+        List<ScoredDocs> expansions = new ArrayList<>();
+        for (FuzzyTermIndex.Match match : fuzzyTerms.match(term.text, edits, term.prefix, MAX_FUZZY_EXPANSIONS)) {
+            Postings postings = terms.get(match.term);
+            float factor = idf(postings.size()) * (float) Math.pow(FUZZY_MATCH_FACTOR, match.distance);
+            if (term.prefix && match.term.length() > term.text.length()) {
+                factor *= PREFIX_MATCH_FACTOR;
+            }
+            expansions.add(ScoredDocs.of(postings, factor));
+        }
+        return unionAll(expansions);
+    }
+
+    /**
+     * Gets the typos a term of the given length may have, so short terms
+     * don't match half the dictionary.
+     */
+    private static int allowedEdits(int length) {
+        if (length <= 2) {
+            return 0;
+        }
+        return length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Merges expansions pairwise, keeping each document's best score.
+     */
+    private static ScoredDocs unionAll(List<ScoredDocs> expansions) {
+        if (expansions.isEmpty()) {
+            return ScoredDocs.EMPTY;
+        }
+        while (expansions.size() > 1) {
+            List<ScoredDocs> merged = new ArrayList<>((expansions.size() + 1) / 2);
+            for (int i = 0; i < expansions.size(); i += 2) {
+                merged.add(i + 1 < expansions.size()
+                        ? expansions.get(i).or(expansions.get(i + 1), false)
+                        : expansions.get(i));
+            }
+            expansions = merged;
+        }
+        return expansions.get(0);
+    }
+
+    private float idf(int documentFrequency) {
+        int documentCount = ordinalById.size();
+        return (float) Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private List<SearchHit> topHits(ScoredDocs matches, int limit) {
+        int count = limit > 0 ? Math.min(limit, matches.size) : matches.size;
+        List<SearchHit> hits = new ArrayList<>(count);
+        if (count == 0) {
+            return hits;
+        }
+
+        // Keep the best `count` matches in a min-heap; ties go to the older product
+        PriorityQueue<Integer> best = new PriorityQueue<>(count + 1, (a, b) -> {
+            int byScore = Float.compare(matches.scores[a], matches.scores[b]);
+            return byScore != 0 ? byScore : Integer.compare(matches.docs[b], matches.docs[a]);
+        });
+        for (int i = 0; i < matches.size; i++) {
+            best.add(i);
+            if (best.size() > count) {
+                best.poll();
+            }
+        }
+
+        while (!best.isEmpty()) {
+            int index = best.poll();
+            hits.add(new SearchHit(idByOrdinal.get(matches.docs[index]), matches.scores[index]));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+}
@@ -0,0 +1,86 @@
+package com.fashionstore.search;
+
+/**
+ * Documents matched by part of a query, in ascending ordinal order with a
+ * score each. Combined with other matches by linear merges.
+ */
+final class ScoredDocs {
+
+    static final ScoredDocs EMPTY = new ScoredDocs(new int[0], new float[0], 0);
+
+    final int[] docs;
+    final float[] scores;
+    final int size;
+
+    ScoredDocs(int[] docs, float[] scores, int size) {
+        this.docs = docs;
+        this.scores = scores;
+        this.size = size;
+    }
+
+    /**
+     * Scores every document of a posting list by {@code weight * factor}.
+     */
+    static ScoredDocs of(Postings postings, float factor) {
+        int[] docs = new int[postings.size()];
+        float[] scores = new float[postings.size()];
+        for (int i = 0; i < postings.size(); i++) {
+            docs[i] = postings.doc(i);
+            scores[i] = postings.weight(i) * factor;
+        }
+        return new ScoredDocs(docs, scores, docs.length);
+    }
+
+    /**
+     * Documents in both sets, with the scores added.
+     */
+    ScoredDocs and(ScoredDocs other) {
+        int capacity = Math.min(size, other.size);
+        int[] resultDocs = new int[capacity];
+        float[] resultScores = new float[capacity];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (docs[i] < other.docs[j]) {
+                i++;
+            } else if (docs[i] > other.docs[j]) {
+                j++;
+            } else {
+                resultDocs[count] = docs[i];
+                resultScores[count] = scores[i] + other.scores[j];
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return new ScoredDocs(resultDocs, resultScores, count);
+    }
+
+    /**
+     * Documents in either set. A document in both gets the sum of its scores
+     * when {@code sum} is set, otherwise the higher score.
+     */
+    ScoredDocs or(ScoredDocs other, boolean sum) {
+        int[] resultDocs = new int[size + other.size];
+        float[] resultScores = new float[size + other.size];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && docs[i] < other.docs[j])) {
+                resultDocs[count] = docs[i];
+                resultScores[count++] = scores[i++];
+            } else if (i >= size || docs[i] > other.docs[j]) {
+                resultDocs[count] = other.docs[j];
+                resultScores[count++] = other.scores[j++];
+            } else {
+                resultDocs[count] = docs[i];
+                resultScores[count++] = sum ? scores[i] + other.scores[j] : Math.max(scores[i], other.scores[j]);
+                i++;
+                j++;
+            }
+        }
+        return new ScoredDocs(resultDocs, resultScores, count);
+    }
+}
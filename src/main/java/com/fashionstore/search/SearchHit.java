@@ -0,0 +1,27 @@
+package com.fashionstore.search;
+
+/**
+ * A product matched by a search, with its relevance score.
+ */
+public class SearchHit {
+    private final String productId;
+    private final float score;
+
+    public SearchHit(String productId, float score) {
+        this.productId = productId;
+        this.score = score;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return productId + " (" + score + ")";
+    }
+}
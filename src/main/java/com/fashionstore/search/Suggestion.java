@@ -0,0 +1,51 @@
+package com.fashionstore.search;
+
+/**
+ * A typeahead suggestion: a product name, brand or category that starts with
+ * what the user typed, with how strongly it is weighted.
+ */
+public class Suggestion {
+
+    /**
+     * Where a suggested term comes from.
+     */
+    public enum Kind {
+        NAME, BRAND, CATEGORY
+    }
+
+    private final String text;
+    private final Kind kind;
+    private final float weight;
+    private final int productCount;
+
+    public Suggestion(String text, Kind kind, float weight, int productCount) {
+        this.text = text;
+        this.kind = kind;
+        this.weight = weight;
+        this.productCount = productCount;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public float getWeight() {
+        return weight;
+    }
+
+    /**
+     * Gets how many products have this name, brand or category.
+     */
+    public int getProductCount() {
+        return productCount;
+    }
+
+    @Override
+    public String toString() {
+        return text + " [" + kind + "] (" + weight + ")";
+    }
+}
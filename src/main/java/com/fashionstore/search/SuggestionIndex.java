@@ -0,0 +1,637 @@
+package com.fashionstore.search;
+
+import com.fashionstore.models.Product;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typeahead suggestions for the search field.
+ *
+ * Product names, brands and categories are normalized (see {@link Tokenizer})
+ * and stored in a compressed trie, in which each edge holds a run of
+ * characters rather than a single one. Terms are also stored under each of
+ * their first few word starts, so "shirt" suggests "Blue Oxford Shirt".
+ *
+ * Each term is weighted by the products having it: stock, rating (discounted
+ * when there are few reviews) and featured status. Every trie node keeps the
+ * best {@link #MAX_SUGGESTIONS} terms of its subtree, so a lookup walks the
+ * typed prefix and returns that node's list, without visiting the subtree.
+ *
+ * The index is updated one product at a time by DataManager. A change only
+ * recomputes the best-term lists on the paths of the terms it affects.
+ * Updates take a write lock and lookups a read lock.
+ */
+public class SuggestionIndex {
+
+    // Suggestions kept per trie node, and so the most a lookup can return
+    public static final int MAX_SUGGESTIONS = 10;
+
+    // Word starts after the first that a term is also suggested under
+    private static final int MAX_WORD_KEYS = 3;
+
+    // Product weight factors
+    private static final float OUT_OF_STOCK_WEIGHT = 0.2f;
+    private static final float FEATURED_BOOST = 1.5f;
+    private static final double RATING_PRIOR_REVIEWS = 10.0;
+
+    // Ends the text of every trie key, followed by the term id, so a term's
+    // keys are its own even when its text is a word start of another term.
+    // Normalized text never contains it.
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final Suggestion.Kind[] KINDS = Suggestion.Kind.values();
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Node root = new Node(new char[0]);
+
+    // Terms by dense id
+    private String[] termText = new String[16];
+    private String[] termKey = new String[16];
+    private Suggestion.Kind[] termKind = new Suggestion.Kind[16];
+    private double[] termWeight = new double[16];
+    private int[] termProducts = new int[16];
+    private int termLimit;
+    private final Deque<Integer> freeTerms = new ArrayDeque<>();
+    private final Map<String, Integer> termIdByKey = new HashMap<>();
+
+    // Terms and weight each product was last indexed with, to undo them on update
+    private final Map<String, Contribution> contributions = new HashMap<>();
+
+    /**
+     * Adds a product or re-weights its terms after a change.
+     */
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        String[] texts = { product.getName(), product.getBrand(), product.getCategory() };
+        String[] keys = new String[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            keys[i] = normalize(texts[i]);
+        }
+        float weight = productWeight(product);
+
+        lock.writeLock().lock();
+        try {
+            Contribution old = contributions.get(product.getProductId());
+            if (old != null && old.weight == weight && sameTerms(old, keys)) {
+                // Only the display text can have changed, e.g. its case
+                for (int i = 0; i < texts.length; i++) {
+                    if (!keys[i].isEmpty()) {
+                        termText[termIdByKey.get(mapKey(keys[i], KINDS[i]))] = texts[i].trim();
+                    }
+                }
+                return;
+            }
+
+            int[] terms = new int[texts.length];
+            int termCount = 0;
+            List<Integer> created = new ArrayList<>();
+            Map<Integer, Double> previousWeights = new HashMap<>();
+
+            if (old != null) {
+                for (int term : old.terms) {
+                    previousWeights.putIfAbsent(term, termWeight[term]);
+                    termWeight[term] -= old.weight;
+                    termProducts[term]--;
+                }
+            }
+            for (int i = 0; i < texts.length; i++) {
+                if (keys[i].isEmpty()) {
+                    continue;
+                }
+                Suggestion.Kind kind = KINDS[i];
+                Integer term = termIdByKey.get(mapKey(keys[i], kind));
+                if (term == null) {
+                    term = allocateTerm(keys[i], kind);
+                    created.add(term);
+                } else {
+                    previousWeights.putIfAbsent(term, termWeight[term]);
+                }
+                termText[term] = texts[i].trim();
+                termWeight[term] += weight;
+                termProducts[term]++;
+                terms[termCount++] = term;
+            }
+            contributions.put(product.getProductId(), new Contribution(Arrays.copyOf(terms, termCount), weight));
+
+            for (int term : created) {
+                insertTerm(term);
+            }
+            for (Map.Entry<Integer, Double> entry : previousWeights.entrySet()) {
+                settleTerm(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            Contribution old = contributions.remove(productId);
+            if (old == null) {
+                return;
+            }
+            for (int term : old.terms) {
+                double previousWeight = termWeight[term];
+                termWeight[term] -= old.weight;
+                termProducts[term]--;
+                settleTerm(term, previousWeight);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root.children = NO_CHILDREN;
+            root.top = null;
+            Arrays.fill(termText, null);
+            Arrays.fill(termKey, null);
+            Arrays.fill(termKind, null);
+            termLimit = 0;
+            freeTerms.clear();
+            termIdByKey.clear();
+            contributions.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of distinct names, brands and categories indexed.
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return termIdByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the best weighted terms starting with the typed text. Case,
+     * punctuation and repeated spaces are ignored.
+     *
+     * @param prefix what the user typed
+     * @param limit  most suggestions to return, capped at {@link #MAX_SUGGESTIONS}
+     * @return suggestions, highest weight first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalizeQuery(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = find(key);
+            if (node == null) {
+                return new ArrayList<>();
+            }
+            int count = node.top != null ? Math.min(limit, node.top.length) : 1;
+            List<Suggestion> suggestions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int term = node.top != null ? node.top[i] : node.term;
+                suggestions.add(new Suggestion(termText[term], termKind[term], (float) termWeight[term],
+                        termProducts[term]));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Weights a product by stock, rating and featured status. Out of stock
+     * products still count a little so their names can be found.
+     */
+    static float productWeight(Product product) {
+        int stock = product.getStockQuantity();
+        float stockScore = stock > 0 ? 1.0f + (float) Math.log1p(stock) / 4.0f : OUT_OF_STOCK_WEIGHT;
+        double confidence = product.getReviewCount() / (product.getReviewCount() + RATING_PRIOR_REVIEWS);
+        float ratingScore = 1.0f + (float) (product.getAverageRating() / 5.0 * confidence);
+        return stockScore * ratingScore * (product.isFeatured() ? FEATURED_BOOST : 1.0f);
+    }
+
+    /**
+     * Adds standalone terms in bulk and computes the best-term lists once at
+     * the end. Used to load large term sets, e.g. for benchmarks.
+     */
+    void addTerms(Suggestion.Kind kind, String[] texts, float[] weights) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < texts.length; i++) {
+                String key = normalize(texts[i]);
+                if (key.isEmpty() || termIdByKey.containsKey(mapKey(key, kind))) {
+                    continue;
+                }
+                int term = allocateTerm(key, kind);
+                termText[term] = texts[i];
+                termWeight[term] = weights[i];
+                termProducts[term] = 1;
+                for (String trieKey : trieKeys(term)) {
+                    insertKey(trieKey, term, false);
+                }
+            }
+            rebuildTop(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Terms
+
+    private int allocateTerm(String key, Suggestion.Kind kind) {
+        int term;
+        if (!freeTerms.isEmpty()) {
+            term = freeTerms.pop();
+        } else {
+            if (termLimit == termKey.length) {
+                int capacity = termLimit + (termLimit >> 1) + 1;
+                termText = Arrays.copyOf(termText, capacity);
+                termKey = Arrays.copyOf(termKey, capacity);
+                termKind = Arrays.copyOf(termKind, capacity);
+                termWeight = Arrays.copyOf(termWeight, capacity);
+                termProducts = Arrays.copyOf(termProducts, capacity);
+            }
+            term = termLimit++;
+        }
+        termKey[term] = key;
+        termKind[term] = kind;
+        termWeight[term] = 0;
+        termProducts[term] = 0;
+        termIdByKey.put(mapKey(key, kind), term);
+        return term;
+    }
+
+    private void insertTerm(int term) {
+        for (String trieKey : trieKeys(term)) {
+            insertKey(trieKey, term, true);
+        }
+    }
+
+    /**
+     * Brings the trie in line with a term's new weight, dropping the term
+     * once no product has it.
+     */
+    private void settleTerm(int term, double previousWeight) {
+        List<String> keys = trieKeys(term);
+        if (termProducts[term] <= 0) {
+            for (String trieKey : keys) {
+                removeKey(trieKey, term);
+            }
+            termIdByKey.remove(mapKey(termKey[term], termKind[term]));
+            termText[term] = null;
+            termKey[term] = null;
+            termKind[term] = null;
+            freeTerms.push(term);
+        } else if (termWeight[term] != previousWeight) {
+            for (String trieKey : keys) {
+                refreshPath(trieKey);
+            }
+        }
+    }
+
+    private boolean sameTerms(Contribution old, String[] keys) {
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].isEmpty()) {
+                continue;
+            }
+            Integer term = termIdByKey.get(mapKey(keys[i], KINDS[i]));
+            if (term == null || count >= old.terms.length || old.terms[count] != term) {
+                return false;
+            }
+            count++;
+        }
+        return count == old.terms.length;
+    }
+
+    /**
+     * Orders terms by weight, then alphabetically, then by kind.
+     */
+    private boolean ranksBefore(int a, int b) {
+        if (termWeight[a] != termWeight[b]) {
+            return termWeight[a] > termWeight[b];
+        }
+        int byText = termKey[a].compareTo(termKey[b]);
+        if (byText != 0) {
+            return byText < 0;
+        }
+        return termKind[a].ordinal() < termKind[b].ordinal();
+    }
+
+    private static String mapKey(String key, Suggestion.Kind kind) {
+        return kind.ordinal() + ":" + key;
+    }
+
+    /**
+     * Gets the trie keys a term is stored under: its full text and its first
+     * few word starts, each followed by the term id.
+     */
+    private List<String> trieKeys(int term) {
+        String key = termKey[term];
+        String suffix = new String(new char[] { KEY_SEPARATOR, (char) (term >>> 16), (char) term });
+        List<String> keys = new ArrayList<>(2);
+        keys.add(key + suffix);
+        int words = 0;
+        for (int i = key.indexOf(' '); i >= 0 && words < MAX_WORD_KEYS; i = key.indexOf(' ', i + 1)) {
+            keys.add(key.substring(i + 1) + suffix);
+            words++;
+        }
+        return keys;
+    }
+
+    static String normalize(String text) {
+        return String.join(" ", Tokenizer.tokenize(text));
+    }
+
+    /**
+     * Normalizes typed text like a term, keeping a trailing space so a
+     * finished word only matches terms with more words after it.
+     */
+    private static String normalizeQuery(String text) {
+        String key = normalize(text);
+        if (!key.isEmpty() && !Character.isLetterOrDigit(text.charAt(text.length() - 1))) {
+            key += " ";
+        }
+        return key;
+    }
+
+    // Trie
+
+    private Node find(String key) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                return null;
+            }
+            char[] label = child.label;
+            int j = 0;
+            while (j < label.length && i < key.length()) {
+                if (label[j++] != key.charAt(i++)) {
+                    return null;
+                }
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    private void insertKey(String key, int term, boolean refresh) {
+        // Bulk loads compute the best-term lists afterwards, so need no path
+        List<Node> path = refresh ? new ArrayList<>() : null;
+        addToPath(path, root);
+        Node node = root;
+        int i = 0;
+        while (true) {
+            if (i == key.length()) {
+                node.term = term;
+                break;
+            }
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                Node leaf = new Node(key.substring(i).toCharArray());
+                leaf.term = term;
+                node.addChild(leaf);
+                addToPath(path, leaf);
+                break;
+            }
+            int common = 0;
+            while (common < child.label.length && i + common < key.length()
+                    && child.label[common] == key.charAt(i + common)) {
+                common++;
+            }
+            if (common < child.label.length) {
+                // Split the edge where the key leaves it
+                Node middle = new Node(Arrays.copyOf(child.label, common));
+                node.replaceChild(middle);
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                middle.children = new Node[] { child };
+                child = middle;
+            }
+            addToPath(path, child);
+            node = child;
+            i += common;
+        }
+        if (refresh) {
+            for (int j = path.size() - 1; j >= 0; j--) {
+                recomputeTop(path.get(j));
+            }
+        }
+    }
+
+    private static void addToPath(List<Node> path, Node node) {
+        if (path != null) {
+            path.add(node);
+        }
+    }
+
+    private void removeKey(String key, int term) {
+        List<Node> path = pathTo(key);
+        if (path == null || path.get(path.size() - 1).term != term) {
+            return;
+        }
+        path.get(path.size() - 1).term = -1;
+
+        for (int j = path.size() - 1; j >= 0; j--) {
+            Node node = path.get(j);
+            if (j > 0 && node.term < 0 && node.children.length == 0) {
+                path.get(j - 1).removeChild(node);
+            } else if (j > 0 && node.term < 0 && node.children.length == 1) {
+                // Merge the node into its only child
+                Node child = node.children[0];
+                char[] label = Arrays.copyOf(node.label, node.label.length + child.label.length);
+                System.arraycopy(child.label, 0, label, node.label.length, child.label.length);
+                child.label = label;
+                path.get(j - 1).replaceChild(child);
+            } else {
+                recomputeTop(node);
+            }
+        }
+    }
+
+    private void refreshPath(String key) {
+        List<Node> path = pathTo(key);
+        if (path == null) {
+            return;
+        }
+        for (int j = path.size() - 1; j >= 0; j--) {
+            recomputeTop(path.get(j));
+        }
+    }
+
+    /**
+     * Gets the nodes from the root to the node holding a full key, or null
+     * if the key is not in the trie.
+     */
+    private List<Node> pathTo(String key) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null || child.label.length > key.length() - i) {
+                return null;
+            }
+            for (int j = 1; j < child.label.length; j++) {
+                if (child.label[j] != key.charAt(i + j)) {
+                    return null;
+                }
+            }
+            i += child.label.length;
+            node = child;
+            path.add(node);
+        }
+        return path;
+    }
+
+    private void rebuildTop(Node node) {
+        for (Node child : node.children) {
+            rebuildTop(child);
+        }
+        recomputeTop(node);
+    }
+
+    /**
+     * Recomputes a node's best terms from its own term and its children's
+     * lists. Leaves keep no list; their best term is their own.
+     */
+    private void recomputeTop(Node node) {
+        if (node.children.length == 0) {
+            node.top = null;
+            return;
+        }
+        int[] best = new int[MAX_SUGGESTIONS];
+        int size = 0;
+        if (node.term >= 0) {
+            size = offer(best, size, node.term);
+        }
+        for (Node child : node.children) {
+            if (child.top == null) {
+                size = offer(best, size, child.term);
+                continue;
+            }
+            for (int term : child.top) {
+                // Child lists are sorted, so the rest of this one cannot get in
+                if (size == best.length && !ranksBefore(term, best[size - 1])) {
+                    break;
+                }
+                size = offer(best, size, term);
+            }
+        }
+        node.top = size == best.length ? best : Arrays.copyOf(best, size);
+    }
+
+    /**
+     * Inserts a term into a sorted best-term list, dropping the last term
+     * if the list is full.
+     */
+    private int offer(int[] best, int size, int term) {
+        for (int i = 0; i < size; i++) {
+            if (best[i] == term) {
+                // Already in via another of the term's keys
+                return size;
+            }
+        }
+        boolean full = size == best.length;
+        if (full && !ranksBefore(term, best[size - 1])) {
+            return size;
+        }
+        int at = full ? size - 1 : size;
+        while (at > 0 && ranksBefore(term, best[at - 1])) {
+            best[at] = best[at - 1];
+            at--;
+        }
+        best[at] = term;
+        return full ? size : size + 1;
+    }
+
+    private static final class Contribution {
+        final int[] terms;
+        final float weight;
+
+        Contribution(int[] terms, float weight) {
+            this.terms = terms;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A trie node. Its edge label is the run of characters leading to it,
+     * and its children are sorted by the first character of their labels.
+     */
+    private static final class Node {
+        char[] label;
+        Node[] children = NO_CHILDREN;
+        int term = -1;
+        int[] top;
+
+        Node(char[] label) {
+            this.label = label;
+        }
+
+        Node child(char first) {
+            int index = indexOf(first);
+            return index >= 0 ? children[index] : null;
+        }
+
+        void addChild(Node child) {
+            int at = -indexOf(child.label[0]) - 1;
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = child;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+        }
+
+        /**
+         * Replaces the child whose label starts with the same character.
+         */
+        void replaceChild(Node child) {
+            children[indexOf(child.label[0])] = child;
+        }
+
+        void removeChild(Node child) {
+            int at = indexOf(child.label[0]);
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, at);
+            System.arraycopy(children, at + 1, shrunk, at, children.length - at - 1);
+            children = shrunk;
+        }
+
+        private int indexOf(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label[0];
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
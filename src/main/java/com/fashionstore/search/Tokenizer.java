@@ -0,0 +1,38 @@
+package com.fashionstore.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lowercase search terms. A term is a run of letters and
+ * digits; everything else separates terms.
+ */
+final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        int start = -1;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(text.substring(start).toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+}
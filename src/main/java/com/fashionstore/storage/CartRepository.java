@@ -0,0 +1,29 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Product;
+import com.fashionstore.models.ShoppingCart;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistence operations for shopping carts and their items.
+ */
+public interface CartRepository {
+
+    /**
+     * Loads every stored cart with its items. Item products are resolved from
+     * {@code products}; a product missing from it is rebuilt from storage and
+     * added to the map.
+     */
+    List<ShoppingCart> loadAll(Map<String, Product> products) throws SQLException;
+
+    /**
+     * Writes the given changed carts in one transaction. Item rows are only
+     * rewritten for carts whose contents changed.
+     *
+     * @return true if all carts were persisted
+     */
+    boolean saveAll(List<ShoppingCart> changedCarts);
+}
@@ -0,0 +1,80 @@
+package com.fashionstore.storage;
+
+/**
+ * An entity added, changed or removed through {@link DataManager}.
+ *
+ * Listeners get the event on the thread that made the change, after the
+ * cache and indexes have been updated, so they can read the new state from
+ * DataManager straight away.
+ */
+public class DataChangeEvent {
+
+    public enum EntityType {
+        USER, PRODUCT, OUTFIT, CART
+    }
+
+    public enum Kind {
+        ADDED, UPDATED, REMOVED,
+        /** The caches were reloaded from storage; any entity may have changed. */
+        RELOADED
+    }
+
+    private final EntityType entityType;
+    private final Kind kind;
+    private final String entityId;
+    private final Object entity;
+
+    private DataChangeEvent(EntityType entityType, Kind kind, String entityId, Object entity) {
+        this.entityType = entityType;
+        this.kind = kind;
+        this.entityId = entityId;
+        this.entity = entity;
+    }
+
+    static DataChangeEvent added(EntityType entityType, String entityId, Object entity) {
+        return new DataChangeEvent(entityType, Kind.ADDED, entityId, entity);
+    }
+
+    static DataChangeEvent updated(EntityType entityType, String entityId, Object entity) {
+        return new DataChangeEvent(entityType, Kind.UPDATED, entityId, entity);
+    }
+
+    static DataChangeEvent removed(EntityType entityType, String entityId) {
+        return new DataChangeEvent(entityType, Kind.REMOVED, entityId, null);
+    }
+
+    static DataChangeEvent reloaded() {
+        return new DataChangeEvent(null, Kind.RELOADED, null, null);
+    }
+
+    /**
+     * Gets the type of entity that changed, or null for {@link Kind#RELOADED}.
+     */
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * Gets the entity as it is now, or null if it was removed.
+     */
+    public Object getEntity() {
+        return entity;
+    }
+
+    public boolean isAbout(EntityType type) {
+        return entityType == type;
+    }
+
+    @Override
+    public String toString() {
+        return kind + (entityType != null ? " " + entityType + " " + entityId : "");
+    }
+}
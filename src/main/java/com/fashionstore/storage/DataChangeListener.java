@@ -0,0 +1,14 @@
+package com.fashionstore.storage;
+
+/**
+ * Receives the entity changes made through {@link DataManager}.
+ */
+@FunctionalInterface
+public interface DataChangeListener {
+
+    /**
+     * Called on the thread that made the change. Listeners that update the
+     * UI must hand the event over to the JavaFX thread themselves.
+     */
+    void onDataChanged(DataChangeEvent event);
+}
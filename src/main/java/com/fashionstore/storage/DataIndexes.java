@@ -0,0 +1,337 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Outfit;
+import com.fashionstore.models.Product;
+import com.fashionstore.models.ShoppingCart;
+import com.fashionstore.models.User;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory secondary indexes over the DataManager caches.
+ *
+ * Each index remembers the values it last indexed for an entity, so calling
+ * {@code indexX} again after the entity changed moves it between buckets
+ * instead of leaving stale entries behind. DataManager re-indexes an entity
+ * whenever it is added, updated, saved or queued for saving, and un-indexes
+ * it when it is removed.
+ *
+ * Updates take a write lock and lookups a read lock, so concurrent readers
+ * don't block each other. Lookups return copies that callers may keep.
+ */
+class DataIndexes {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Users
+    private final Map<String, String> userIdByUsername = new HashMap<>();
+    private final Map<String, String> indexedUsername = new HashMap<>();
+    private final Map<String, Set<String>> indexedWardrobe = new HashMap<>();
+
+    // Outfits
+    private final Map<String, Set<String>> outfitIdsByUser = new HashMap<>();
+    private final Map<String, String> indexedOutfitOwner = new HashMap<>();
+    private final Map<String, Set<String>> indexedOutfitProducts = new HashMap<>();
+
+    // Products
+    private final Map<String, Set<String>> productIdsByCategory = new HashMap<>();
+    private final Map<String, String> indexedCategory = new HashMap<>();
+    private final Set<String> visibleProductIds = new LinkedHashSet<>();
+
+    // Carts (keyed by user ID, like DataManager.carts)
+    private final Map<String, Set<String>> indexedCartProducts = new HashMap<>();
+
+    // Reverse references: product ID -> IDs of the users/outfits/carts that use it
+    private final Map<String, Set<String>> wardrobeOwnersByProduct = new HashMap<>();
+    private final Map<String, Set<String>> outfitIdsByProduct = new HashMap<>();
+    private final Map<String, Set<String>> cartOwnersByProduct = new HashMap<>();
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            userIdByUsername.clear();
+            indexedUsername.clear();
+            indexedWardrobe.clear();
+            outfitIdsByUser.clear();
+            indexedOutfitOwner.clear();
+            indexedOutfitProducts.clear();
+            productIdsByCategory.clear();
+            indexedCategory.clear();
+            visibleProductIds.clear();
+            indexedCartProducts.clear();
+            wardrobeOwnersByProduct.clear();
+            outfitIdsByProduct.clear();
+            cartOwnersByProduct.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Users
+
+    void indexUser(User user) {
+        lock.writeLock().lock();
+        try {
+            String userId = user.getUserId();
+            String username = user.getUsername();
+
+            String oldUsername = indexedUsername.put(userId, username);
+            if (oldUsername != null && !oldUsername.equals(username)) {
+                userIdByUsername.remove(oldUsername, userId);
+            }
+            if (username != null) {
+                userIdByUsername.put(username, userId);
+            }
+
+            Set<String> wardrobe = new HashSet<>(user.getWardrobeItemIds());
+            Set<String> oldWardrobe = indexedWardrobe.put(userId, wardrobe);
+            updateReferences(wardrobeOwnersByProduct, userId, oldWardrobe, wardrobe);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void unindexUser(String userId) {
+        lock.writeLock().lock();
+        try {
+            String username = indexedUsername.remove(userId);
+            if (username != null) {
+                userIdByUsername.remove(username, userId);
+            }
+            Set<String> oldWardrobe = indexedWardrobe.remove(userId);
+            updateReferences(wardrobeOwnersByProduct, userId, oldWardrobe, Collections.emptySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    String userIdForUsername(String username) {
+        lock.readLock().lock();
+        try {
+            return userIdByUsername.get(username);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Products
+
+    void indexProduct(Product product) {
+        lock.writeLock().lock();
+        try {
+            String productId = product.getProductId();
+            String category = product.getCategory();
+
+            String oldCategory = indexedCategory.put(productId, category);
+            if (oldCategory != null && !oldCategory.equals(category)) {
+                removeFromBucket(productIdsByCategory, oldCategory, productId);
+            }
+            if (category != null) {
+                productIdsByCategory.computeIfAbsent(category, k -> new LinkedHashSet<>()).add(productId);
+            }
+
+            if (product.isVisible()) {
+                visibleProductIds.add(productId);
+            } else {
+                visibleProductIds.remove(productId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void unindexProduct(String productId) {
+        lock.writeLock().lock();
+        try {
+            String category = indexedCategory.remove(productId);
+            if (category != null) {
+                removeFromBucket(productIdsByCategory, category, productId);
+            }
+            visibleProductIds.remove(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Set<String> productIdsInCategory(String category) {
+        lock.readLock().lock();
+        try {
+            Set<String> ids = productIdsByCategory.get(category);
+            return copyOf(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Set<String> visibleProductIds() {
+        lock.readLock().lock();
+        try {
+            return copyOf(visibleProductIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Set<String> categories() {
+        lock.readLock().lock();
+        try {
+            return new TreeSet<>(productIdsByCategory.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Outfits
+
+    void indexOutfit(Outfit outfit) {
+        lock.writeLock().lock();
+        try {
+            String outfitId = outfit.getOutfitId();
+            String userId = outfit.getUserId();
+
+            String oldOwner = indexedOutfitOwner.put(outfitId, userId);
+            if (oldOwner != null && !oldOwner.equals(userId)) {
+                removeFromBucket(outfitIdsByUser, oldOwner, outfitId);
+            }
+            outfitIdsByUser.computeIfAbsent(userId, k -> new LinkedHashSet<>()).add(outfitId);
+
+            Set<String> productIds = new HashSet<>(outfit.getProductIds());
+            Set<String> oldProductIds = indexedOutfitProducts.put(outfitId, productIds);
+            updateReferences(outfitIdsByProduct, outfitId, oldProductIds, productIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void unindexOutfit(String outfitId) {
+        lock.writeLock().lock();
+        try {
+            String owner = indexedOutfitOwner.remove(outfitId);
+            if (owner != null) {
+                removeFromBucket(outfitIdsByUser, owner, outfitId);
+            }
+            Set<String> oldProductIds = indexedOutfitProducts.remove(outfitId);
+            updateReferences(outfitIdsByProduct, outfitId, oldProductIds, Collections.emptySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    Set<String> outfitIdsForUser(String userId) {
+        lock.readLock().lock();
+        try {
+            Set<String> ids = outfitIdsByUser.get(userId);
+            return copyOf(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Carts
+
+    void indexCart(ShoppingCart cart) {
+        lock.writeLock().lock();
+        try {
+            String ownerId = cart.getUserId();
+            Set<String> productIds = new HashSet<>();
+            for (ShoppingCart.CartItem item : cart.getItems()) {
+                if (item.getProduct() != null) {
+                    productIds.add(item.getProduct().getProductId());
+                }
+            }
+            Set<String> oldProductIds = indexedCartProducts.put(ownerId, productIds);
+            updateReferences(cartOwnersByProduct, ownerId, oldProductIds, productIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void unindexCart(String userId) {
+        lock.writeLock().lock();
+        try {
+            Set<String> oldProductIds = indexedCartProducts.remove(userId);
+            updateReferences(cartOwnersByProduct, userId, oldProductIds, Collections.emptySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Product references
+
+    Set<String> wardrobeOwnersOf(String productId) {
+        lock.readLock().lock();
+        try {
+            return copyOf(wardrobeOwnersByProduct.get(productId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Set<String> outfitsContaining(String productId) {
+        lock.readLock().lock();
+        try {
+            return copyOf(outfitIdsByProduct.get(productId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Set<String> cartOwnersContaining(String productId) {
+        lock.readLock().lock();
+        try {
+            return copyOf(cartOwnersByProduct.get(productId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean isReferenced(String productId) {
+        lock.readLock().lock();
+        try {
+            return wardrobeOwnersByProduct.containsKey(productId)
+                    || outfitIdsByProduct.containsKey(productId)
+                    || cartOwnersByProduct.containsKey(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Helpers
+
+    private static void updateReferences(Map<String, Set<String>> index, String ownerId,
+            Set<String> oldProductIds, Set<String> newProductIds) {
+        if (oldProductIds != null) {
+            for (String productId : oldProductIds) {
+                if (!newProductIds.contains(productId)) {
+                    removeFromBucket(index, productId, ownerId);
+                }
+            }
+        }
+        for (String productId : newProductIds) {
+            if (oldProductIds == null || !oldProductIds.contains(productId)) {
+                index.computeIfAbsent(productId, k -> new HashSet<>()).add(ownerId);
+            }
+        }
+    }
+
+    private static void removeFromBucket(Map<String, Set<String>> index, String key, String value) {
+        Set<String> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(value);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static Set<String> copyOf(Set<String> ids) {
+        return ids != null ? new LinkedHashSet<>(ids) : new LinkedHashSet<>();
+    }
+}
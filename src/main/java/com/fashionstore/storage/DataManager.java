@@ -4,64 +4,108 @@ import com.fashionstore.models.Outfit;
 import com.fashionstore.models.Product;
 import com.fashionstore.models.ShoppingCart;
 import com.fashionstore.models.User;
-import com.fashionstore.models.StylePreference;
-import com.fashionstore.utils.DatabaseUtils;
+import com.fashionstore.search.FacetIndex;
+import com.fashionstore.search.PriceIndex;
+import com.fashionstore.search.ProductSearchIndex;
+import com.fashionstore.search.SearchHit;
+import com.fashionstore.search.Suggestion;
+import com.fashionstore.search.SuggestionIndex;
 
 import java.math.BigDecimal;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.lang.reflect.Field;
 
 public class DataManager {
     // Flag to track if data has been initialized
-    private static boolean dataInitialized = false;
+    private static volatile boolean dataInitialized = false;
 
-    // Data storage (maintained as cache for performance)
+    // Filtered listings matching at most this many products per page are
+    // sorted directly instead of walking the sort index
+    private static final int SELECTIVE_QUERY_FACTOR = 8;
+
+    // Payment method recorded for purchases made straight from the store
+    private static final String QUICK_PURCHASE_PAYMENT = "Quick Purchase";
+
+    // Data storage (maintained as cache for performance). These are read and
+    // written from the FX thread, the auto-save timer, the write-behind flusher
+    // and background tasks, so they are concurrent maps.
     private Map<String, User> users;
     private Map<String, Product> products;
     private Map<String, Outfit> outfits;
     private Map<String, ShoppingCart> carts;
-    private User currentUser;
+    private volatile User currentUser;
+
+    // Secondary indexes over the caches above (username, outfits by owner,
+    // products by category/visibility, product references)
+    private final DataIndexes indexes = new DataIndexes();
+
+    // Full-text index over product text fields
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+
+    // Facet bitmaps for storefront filters and their counts
+    private final FacetIndex facetIndex = new FacetIndex();
+
+    // Products sorted by price in cents, for price ranges and histograms
+    private final PriceIndex priceIndex = new PriceIndex();
+
+    // Typeahead over product names, brands and categories
+    private final SuggestionIndex suggestionIndex = new SuggestionIndex();
+
+    // Products in each listing order, for paginated queries
+    private final ProductSortIndex sortIndex = new ProductSortIndex();
+
+    // Set once the product cache has been loaded, after which listings are
+    // paged from the cache instead of the database
+    private volatile boolean productsLoaded;
+
+    // Per-entity locks for updates that must change several entities together
+    private final StripedLocks entityLocks = new StripedLocks();
+
+    // Serializes JDBC flushes from the FX thread, auto-save timer and write-behind flusher
+    private final Object persistenceLock = new Object();
+
+    // Where entities are loaded from and saved to
+    private final StorageBackend storage;
+
+    // Background persistence for changes made on the FX thread
+    private final WriteBehindQueue writeBehind;
+
+    // Atomic stock reservations against the storage backend
+    private final InventoryService inventory;
+
+    // Order placement and the order ledger
+    private final OrderService orderService;
+
+    // Notified of every entity change made through this DataManager
+    private final List<DataChangeListener> changeListeners = new CopyOnWriteArrayList<>();
 
     public DataManager() {
-        this.users = new HashMap<>();
-        this.products = new HashMap<>();
-        this.outfits = new HashMap<>();
-        this.carts = new HashMap<>();
+        this(new JdbcStorageBackend());
+    }
+
+    /**
+     * Creates a DataManager on top of the given storage backend, e.g. an
+     * {@link InMemoryStorageBackend} for benchmarks.
+     */
+    public DataManager(StorageBackend storage) {
+        this.storage = storage;
+        this.users = new ConcurrentHashMap<>();
+        this.products = new ConcurrentHashMap<>();
+        this.outfits = new ConcurrentHashMap<>();
+        this.carts = new ConcurrentHashMap<>();
+        this.writeBehind = new WriteBehindQueue(this);
+        this.inventory = new InventoryService(this, storage.products());
+        this.orderService = new OrderService(inventory, storage.orders());
 
         // Initialize database schema if needed
         try {
-            // Create database and tables if they don't exist
-            DatabaseUtils.createDatabaseIfNotExists();
-            
-            // Verify that we can connect to the database
-            Connection conn = null;
-            try {
-                conn = DatabaseUtils.getConnection();
-                System.out.println("Database connection verified successfully.");
-                
-                // Test a simple query to make sure tables exist
-                PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM users");
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    int userCount = rs.getInt(1);
-                    System.out.println("Database ready: " + userCount + " users found in database.");
-                }
-                rs.close();
-                ps.close();
-            } catch (SQLException e) {
-                System.err.println("Error verifying database connection: " + e.getMessage());
-                throw e; // Re-throw to ensure we don't proceed if database is not available
-            } finally {
-                DatabaseUtils.close(conn, null, null);
-            }
+            storage.initialize();
         } catch (Exception e) {
-            System.err.println("Error initializing database schema: " + e.getMessage());
+            System.err.println("Error initializing " + storage.getName() + " storage: " + e.getMessage());
             e.printStackTrace();
             // Don't stop app initialization if database fails, it will use in-memory
         }
@@ -69,13 +113,29 @@ public class DataManager {
 
     // Data loading methods
     public void loadAllData() {
+        long loadStart = System.nanoTime();
+
+        // Write out queued changes first so the reload can't overwrite them with stale rows
+        writeBehind.flush();
+
+        // Loading replaces cached entities, so it must not interleave with a save
+        synchronized (persistenceLock) {
+            loadAllDataLocked();
+        }
+
+        System.out.println("loadAllData: Completed in " + elapsedMillis(loadStart) + " ms");
+        publish(DataChangeEvent.reloaded());
+    }
+
+    private void loadAllDataLocked() {
         boolean hasExistingData = false;
 
         // Load users
         try {
+            long phaseStart = System.nanoTime();
             loadUsersFromDb();
+            logLoadPhase("users", users.size(), phaseStart);
             if (!users.isEmpty()) {
-                System.out.println("Loaded " + users.size() + " users");
                 hasExistingData = true;
             }
         } catch (SQLException e) {
@@ -85,9 +145,10 @@ public class DataManager {
 
         // Load products
         try {
+            long phaseStart = System.nanoTime();
             loadProductsFromDb();
+            logLoadPhase("products", products.size(), phaseStart);
             if (!products.isEmpty()) {
-                System.out.println("Loaded " + products.size() + " products");
                 hasExistingData = true;
             }
         } catch (SQLException e) {
@@ -97,9 +158,10 @@ public class DataManager {
 
         // Load outfits
         try {
+            long phaseStart = System.nanoTime();
             loadOutfitsFromDb();
+            logLoadPhase("outfits", outfits.size(), phaseStart);
             if (!outfits.isEmpty()) {
-                System.out.println("Loaded " + outfits.size() + " outfits");
                 hasExistingData = true;
             }
         } catch (SQLException e) {
@@ -109,9 +171,10 @@ public class DataManager {
 
         // Load carts
         try {
+            long phaseStart = System.nanoTime();
             loadCartsFromDb();
+            logLoadPhase("shopping carts", carts.size(), phaseStart);
             if (!carts.isEmpty()) {
-                System.out.println("Loaded " + carts.size() + " shopping carts");
                 hasExistingData = true;
             }
         } catch (SQLException e) {
@@ -130,366 +193,202 @@ public class DataManager {
         }
     }
 
-    private void loadUsersFromDb() throws SQLException {
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-
-        try {
-            conn = DatabaseUtils.getConnection();
-
-            // Load users
-            ps = conn.prepareStatement("SELECT * FROM users");
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                String userId = rs.getString("user_id");
-                String username = rs.getString("username");
-                String email = rs.getString("email");
-                String passwordHash = rs.getString("password_hash");
-
-                User user = new User(username, email, passwordHash);
-                // We need to set the user ID explicitly since we're reconstructing from DB
-                user.setUserId(userId);
-
-                // Set first and last name properly
-                user.setFirstName(rs.getString("first_name"));
-                user.setLastName(rs.getString("last_name"));
-
-                // Handle date fields
-                Timestamp dateRegistered = rs.getTimestamp("date_registered");
-                if (dateRegistered != null) {
-                    user.setDateRegistered(new Date(dateRegistered.getTime()));
-                }
-
-                Timestamp lastLogin = rs.getTimestamp("last_login");
-                if (lastLogin != null) {
-                    user.setLastLogin(new Date(lastLogin.getTime()));
-                }
+    private static void logLoadPhase(String entityName, int count, long phaseStart) {
+        System.out.println("Loaded " + count + " " + entityName + " in " + elapsedMillis(phaseStart) + " ms");
+    }
 
-                // Load deactivation status and date
-                try {
-                    boolean isDeactivated = rs.getBoolean("is_deactivated");
-                    if (!rs.wasNull() && isDeactivated) {
-                        // Call deactivateAccount which handles setting isDeactivated
-                        user.deactivateAccount();
-
-                        // Override the deactivation date with the one from the database
-                        Timestamp deactivationDate = rs.getTimestamp("deactivation_date");
-                        if (deactivationDate != null) {
-                            // We don't need to explicitly set this as deactivateAccount() already sets it
-                            // But we want to use the date from the database, not the current date
-                            Field deactivationDateField = User.class.getDeclaredField("deactivationDate");
-                            deactivationDateField.setAccessible(true);
-                            deactivationDateField.set(user, new Date(deactivationDate.getTime()));
-                        }
-                    }
-                } catch (SQLException e) {
-                    // Column might not exist in older databases
-                    System.out.println("Warning: Deactivation columns not found for user " + userId);
-                } catch (Exception e) {
-                    // This is for the reflection part - if it fails, just stick with the default
-                    // deactivation date
-                    System.out.println("Warning: Could not set deactivation date via reflection for " + userId);
-                }
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
 
-                // Load dark mode preference
-                try {
-                    boolean isDarkMode = rs.getBoolean("is_dark_mode");
-                    if (!rs.wasNull()) {
-                        user.setDarkModeEnabled(isDarkMode);
-                    }
-                } catch (SQLException e) {
-                    // Column might not exist in older databases
-                    System.out.println("Warning: Dark mode column not found for user " + userId);
-                }
+    private void loadUsersFromDb() throws SQLException {
+        List<User> loadedUsers = storage.users().loadAll();
+        for (User user : loadedUsers) {
+            users.put(user.getUserId(), user);
+        }
 
-                // Load ban information
-                try {
-                    boolean isBanned = rs.getBoolean("is_banned");
-                    if (!rs.wasNull() && isBanned) {
-                        String banReason = rs.getString("ban_reason");
-                        user.banUser(banReason);
-
-                        // Set ban expiration if it exists
-                        Timestamp banExpiration = rs.getTimestamp("ban_expiration");
-                        if (banExpiration != null) {
-                            try {
-                                // We need to use reflection to set the ban expiration date directly
-                                // because banUser() method sets it to null by default (permanent ban)
-                                Field banExpirationField = User.class.getDeclaredField("banExpiration");
-                                banExpirationField.setAccessible(true);
-                                banExpirationField.set(user, new Date(banExpiration.getTime()));
-                            } catch (Exception e) {
-                                System.out
-                                        .println("Warning: Could not set ban expiration via reflection for " + userId);
-                            }
-                        }
-                    }
-                } catch (SQLException e) {
-                    // Column might not exist in older databases
-                    System.out.println("Warning: Ban columns not found for user " + userId);
-                }
+        // Freshly loaded users match the database
+        loadedUsers.forEach(User::markClean);
+        loadedUsers.forEach(indexes::indexUser);
+    }
 
-                // Add to cache
-                users.put(userId, user);
-            }
-            rs.close();
-            ps.close();
+    private void loadProductsFromDb() throws SQLException {
+        List<Product> loadedProducts = storage.products().loadAll();
+        for (Product product : loadedProducts) {
+            products.put(product.getProductId(), product);
+        }
 
-            // Load wardrobe items for users
-            for (User user : users.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT product_id FROM wardrobe_items WHERE user_id = ?");
-                ps.setString(1, user.getUserId());
-                rs = ps.executeQuery();
+        // Freshly loaded products match the database
+        loadedProducts.forEach(Product::markClean);
+        loadedProducts.forEach(this::indexProduct);
+        productsLoaded = true;
+    }
 
-                while (rs.next()) {
-                    user.addToWardrobe(rs.getString("product_id"));
-                }
-                rs.close();
-                ps.close();
-            }
+    private void loadOutfitsFromDb() throws SQLException {
+        List<Outfit> loadedOutfits = storage.outfits().loadAll();
+        for (Outfit outfit : loadedOutfits) {
+            outfits.put(outfit.getOutfitId(), outfit);
 
-            // Load style preferences for users
-            for (User user : users.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT preference_type, preference_value, preference_weight " +
-                                "FROM style_preferences WHERE user_id = ?");
-                ps.setString(1, user.getUserId());
-                rs = ps.executeQuery();
-
-                while (rs.next()) {
-                    StylePreference preference = new StylePreference(
-                            rs.getString("preference_type"),
-                            rs.getString("preference_value"),
-                            rs.getDouble("preference_weight"));
-                    user.addStylePreference(preference);
-                }
-                rs.close();
-                ps.close();
+            // Add to user's outfits list
+            User user = users.get(outfit.getUserId());
+            if (user != null) {
+                user.addOutfit(outfit.getOutfitId());
             }
-
-        } finally {
-            DatabaseUtils.close(conn, ps, rs);
         }
-    }
-
-    private void loadProductsFromDb() throws SQLException {
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
 
-        try {
-            conn = DatabaseUtils.getConnection();
-            ps = conn.prepareStatement("SELECT * FROM products");
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                String productId = rs.getString("product_id");
-                String name = rs.getString("name");
-                String category = rs.getString("category");
-                BigDecimal price = rs.getBigDecimal("price");
-
-                Product product = new Product(name, category, price);
-                // Set the product ID explicitly since we're reconstructing from DB
-                product.setProductId(productId);
-
-                product.setDescription(rs.getString("description"));
-                product.setBrand(rs.getString("brand"));
-                product.setSubcategory(rs.getString("subcategory"));
-                product.setOriginalPrice(rs.getBigDecimal("original_price"));
-                product.setCost(rs.getBigDecimal("cost"));
-                product.setGender(rs.getString("gender"));
-                product.setSize(rs.getString("size"));
-                product.setColor(rs.getString("color"));
-                product.setMaterial(rs.getString("material"));
-                product.setSeason(rs.getString("season"));
-                product.setImagePath(rs.getString("image_path"));
-                product.setStockQuantity(rs.getInt("stock_quantity"));
-                product.setFeatured(rs.getBoolean("is_featured"));
-
-                // Default to true if column doesn't exist or is null
-                boolean isVisible = true;
-                try {
-                    isVisible = rs.getBoolean("is_visible");
-                    if (rs.wasNull()) {
-                        isVisible = true; // Default to visible if NULL
-                    }
-                } catch (SQLException e) {
-                    // Column doesn't exist, use default value
-                    System.out.println("Warning: is_visible column not found, defaulting to true");
-                }
-                product.setVisible(isVisible);
+        // Freshly loaded outfits match the database
+        loadedOutfits.forEach(Outfit::markClean);
+        loadedOutfits.forEach(indexes::indexOutfit);
+    }
 
-                // Add to cache
-                products.put(productId, product);
-            }
-            rs.close();
-            ps.close();
-
-            // Load product attributes
-            for (Product product : products.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT attribute_name, attribute_value FROM product_attributes " +
-                                "WHERE product_id = ?");
-                ps.setString(1, product.getProductId());
-                rs = ps.executeQuery();
-
-                while (rs.next()) {
-                    product.setAttribute(
-                            rs.getString("attribute_name"),
-                            rs.getString("attribute_value"));
-                }
-                rs.close();
-                ps.close();
+    private void loadCartsFromDb() throws SQLException {
+        // Cart items resolve their products from the cache; products the cache
+        // doesn't have yet are rebuilt by the repository and added to it
+        List<ShoppingCart> loadedCarts = storage.carts().loadAll(products);
+        for (ShoppingCart cart : loadedCarts) {
+            carts.put(cart.getUserId(), cart);
+            for (ShoppingCart.CartItem item : cart.getItems()) {
+                indexProduct(item.getProduct());
             }
-
-        } finally {
-            DatabaseUtils.close(conn, ps, rs);
         }
+
+        // Freshly loaded carts match the database
+        loadedCarts.forEach(ShoppingCart::markClean);
+        loadedCarts.forEach(indexes::indexCart);
     }
 
-    private void loadOutfitsFromDb() throws SQLException {
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
+    /**
+     * Updates every product index after a product was added or changed.
+     */
+    private void indexProduct(Product product) {
+        indexes.indexProduct(product);
+        searchIndex.index(product);
+        facetIndex.index(product);
+        priceIndex.index(product);
+        suggestionIndex.index(product);
+        sortIndex.index(product);
+    }
 
-        try {
-            conn = DatabaseUtils.getConnection();
-            ps = conn.prepareStatement("SELECT * FROM outfits");
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                String outfitId = rs.getString("outfit_id");
-                String userId = rs.getString("user_id");
-                String name = rs.getString("name");
-
-                Outfit outfit = new Outfit(userId, name);
-                // Set the outfit ID explicitly since we're reconstructing from DB
-                outfit.setOutfitId(outfitId);
-
-                outfit.setDescription(rs.getString("description"));
-                outfit.setAiGenerated(rs.getBoolean("ai_generated"));
-                outfit.setStyleRating(rs.getDouble("style_rating"));
-
-                String seasonStr = rs.getString("season");
-                if (seasonStr != null) {
-                    outfit.setSeason(Outfit.OutfitSeason.valueOf(seasonStr));
-                }
+    private void unindexProduct(String productId) {
+        indexes.unindexProduct(productId);
+        searchIndex.remove(productId);
+        facetIndex.remove(productId);
+        priceIndex.remove(productId);
+        suggestionIndex.remove(productId);
+        sortIndex.remove(productId);
+    }
 
-                String occasionStr = rs.getString("occasion");
-                if (occasionStr != null) {
-                    outfit.setOccasion(Outfit.OutfitOccasion.valueOf(occasionStr));
-                }
+    // Change notification
+
+    /**
+     * Registers a listener for entity changes made through this DataManager,
+     * so views can update what they show instead of reloading everything.
+     */
+    public void addChangeListener(DataChangeListener listener) {
+        changeListeners.add(listener);
+    }
 
-                // Add to cache
-                outfits.put(outfitId, outfit);
+    public void removeChangeListener(DataChangeListener listener) {
+        changeListeners.remove(listener);
+    }
 
-                // Add to user's outfits list
-                User user = users.get(userId);
-                if (user != null) {
-                    user.addOutfit(outfitId);
-                }
-            }
-            rs.close();
-            ps.close();
-
-            // Load outfit products
-            for (Outfit outfit : outfits.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT product_id FROM outfit_products WHERE outfit_id = ?");
-                ps.setString(1, outfit.getOutfitId());
-                rs = ps.executeQuery();
-
-                while (rs.next()) {
-                    outfit.addProduct(rs.getString("product_id"));
-                }
-                rs.close();
-                ps.close();
+    private void publish(DataChangeEvent event) {
+        for (DataChangeListener listener : changeListeners) {
+            try {
+                listener.onDataChanged(event);
+            } catch (RuntimeException e) {
+                // One broken view must not stop the change or the other views
+                System.err.println("Error delivering " + event + ": " + e.getMessage());
+                e.printStackTrace();
             }
+        }
+    }
 
-            // Load outfit tags
-            for (Outfit outfit : outfits.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT tag FROM outfit_tags WHERE outfit_id = ?");
-                ps.setString(1, outfit.getOutfitId());
-                rs = ps.executeQuery();
+    // Write-behind persistence
 
-                while (rs.next()) {
-                    outfit.addTag(rs.getString("tag"));
-                }
-                rs.close();
-                ps.close();
-            }
+    /**
+     * Queues a changed user for background persistence. Repeated calls for the
+     * same user before the next flush are coalesced into one write.
+     */
+    public void queueSave(User user) {
+        indexes.indexUser(user);
+        writeBehind.submit(user);
+        publish(DataChangeEvent.updated(DataChangeEvent.EntityType.USER, user.getUserId(), user));
+    }
 
-        } finally {
-            DatabaseUtils.close(conn, ps, rs);
-        }
+    /**
+     * Queues a changed product for background persistence.
+     */
+    public void queueSave(Product product) {
+        indexProduct(product);
+        writeBehind.submit(product);
+        publish(DataChangeEvent.updated(DataChangeEvent.EntityType.PRODUCT, product.getProductId(), product));
     }
 
-    private void loadCartsFromDb() throws SQLException {
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
+    /**
+     * Queues a changed outfit for background persistence.
+     */
+    public void queueSave(Outfit outfit) {
+        indexes.indexOutfit(outfit);
+        writeBehind.submit(outfit);
+        publish(DataChangeEvent.updated(DataChangeEvent.EntityType.OUTFIT, outfit.getOutfitId(), outfit));
+    }
 
-        try {
-            conn = DatabaseUtils.getConnection();
+    /**
+     * Queues a changed shopping cart for background persistence.
+     */
+    public void queueSave(ShoppingCart cart) {
+        indexes.indexCart(cart);
+        writeBehind.submit(cart);
+        publish(DataChangeEvent.updated(DataChangeEvent.EntityType.CART, cart.getUserId(), cart));
+    }
 
-            // Get all carts
-            ps = conn.prepareStatement("SELECT * FROM shopping_carts");
-            rs = ps.executeQuery();
+    /**
+     * Blocks until every queued change has been written.
+     *
+     * @return true if all queued changes were persisted
+     */
+    public boolean flushPendingSaves() {
+        return writeBehind.flush();
+    }
 
-            while (rs.next()) {
-                String cartId = rs.getString("cart_id");
-                String userId = rs.getString("user_id");
+    /**
+     * Gets a snapshot of the write-behind queue depth and flush latency counters.
+     */
+    public WriteBehindQueue.Metrics getWriteBehindMetrics() {
+        return writeBehind.getMetrics();
+    }
 
-                ShoppingCart cart = new ShoppingCart(userId);
-                // Set the cart ID explicitly since we're reconstructing from DB
-                cart.setCartId(cartId);
-                carts.put(userId, cart);
-            }
-            rs.close();
-            ps.close();
-
-            // Load cart items
-            for (ShoppingCart cart : carts.values()) {
-                ps = conn.prepareStatement(
-                        "SELECT ci.product_id, ci.quantity, p.* " +
-                                "FROM cart_items ci " +
-                                "JOIN products p ON ci.product_id = p.product_id " +
-                                "WHERE ci.cart_id = ?");
-                ps.setString(1, cart.getCartId());
-                rs = ps.executeQuery();
-
-                while (rs.next()) {
-                    // For each cart item, we need the product and quantity
-                    String productId = rs.getString("product_id");
-                    int quantity = rs.getInt("quantity");
-
-                    // Get the product from cache if it exists, or create a new one
-                    Product product = products.get(productId);
-                    if (product == null) {
-                        String name = rs.getString("name");
-                        String category = rs.getString("category");
-                        BigDecimal price = rs.getBigDecimal("price");
-
-                        product = new Product(name, category, price);
-                        // Set the product ID explicitly since we're reconstructing from DB
-                        product.setProductId(productId);
-                        products.put(productId, product);
-                    }
-
-                    // Add product to cart with specified quantity
-                    cart.addItem(product, quantity);
-                }
-                rs.close();
-                ps.close();
-            }
+    /**
+     * Flushes all queued changes and stops the background writer. Called when the
+     * application exits; the queue's own shutdown hook covers abnormal exits.
+     */
+    public void shutdown() {
+        writeBehind.shutdown();
+    }
 
-        } finally {
-            DatabaseUtils.close(conn, ps, rs);
+    /**
+     * Writes one coalesced batch from the write-behind queue. Products go first
+     * because wardrobe, outfit and cart rows reference them.
+     *
+     * @return true if every entity type was saved successfully
+     */
+    boolean persistChanges(Collection<User> changedUsers, Collection<Product> changedProducts,
+            Collection<Outfit> changedOutfits, Collection<ShoppingCart> changedCarts) {
+        boolean success = true;
+        if (!changedProducts.isEmpty()) {
+            success &= saveProducts(changedProducts);
+        }
+        if (!changedUsers.isEmpty()) {
+            success &= saveUsers(changedUsers);
+        }
+        if (!changedOutfits.isEmpty()) {
+            success &= saveOutfits(changedOutfits);
         }
+        if (!changedCarts.isEmpty()) {
+            success &= saveCarts(changedCarts);
+        }
+        return success;
     }
 
     // Data saving methods
@@ -505,557 +404,160 @@ public class DataManager {
         }
     }
 
-    private void saveUsers() {
-        Connection conn = null;
-        PreparedStatement ps = null;
-        boolean databaseSaved = false;
-
-        try {
-            conn = DatabaseUtils.getConnection();
-            conn.setAutoCommit(false);
-
-            // Make sure the users table has the new columns - using more compatible approach
-            try {
-                // Check if columns exist first, then add them if they don't
-                java.sql.DatabaseMetaData dbm = conn.getMetaData();
-                java.sql.ResultSet rs = dbm.getColumns(null, null, "users", "is_deactivated");
-                boolean isDeactivatedExists = rs.next();
-                rs.close();
-                
-                rs = dbm.getColumns(null, null, "users", "deactivation_date");
-                boolean deactivationDateExists = rs.next();
-                rs.close();
-                
-                rs = dbm.getColumns(null, null, "users", "is_dark_mode");
-                boolean isDarkModeExists = rs.next();
-                rs.close();
-                
-                rs = dbm.getColumns(null, null, "users", "is_banned");
-                boolean isBannedExists = rs.next();
-                rs.close();
-                
-                rs = dbm.getColumns(null, null, "users", "ban_reason");
-                boolean banReasonExists = rs.next();
-                rs.close();
-                
-                rs = dbm.getColumns(null, null, "users", "ban_expiration");
-                boolean banExpirationExists = rs.next();
-                rs.close();
-                
-                // Add each column individually if it doesn't exist
-                if (!isDeactivatedExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN is_deactivated BOOLEAN DEFAULT FALSE");
-                    ps.executeUpdate();
-                    ps.close();
-                }
-                
-                if (!deactivationDateExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN deactivation_date TIMESTAMP NULL");
-                    ps.executeUpdate();
-                    ps.close();
-                }
-                
-                if (!isDarkModeExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN is_dark_mode BOOLEAN DEFAULT FALSE");
-                    ps.executeUpdate();
-                    ps.close();
-                }
-                
-                if (!isBannedExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN is_banned BOOLEAN DEFAULT FALSE");
-                    ps.executeUpdate();
-                    ps.close();
-                }
-                
-                if (!banReasonExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN ban_reason VARCHAR(255) NULL");
-                    ps.executeUpdate();
-                    ps.close();
-                }
-                
-                if (!banExpirationExists) {
-                    ps = conn.prepareStatement("ALTER TABLE users ADD COLUMN ban_expiration TIMESTAMP NULL");
-                    ps.executeUpdate();
-                    ps.close();
-                }
-                
-                System.out.println("Successfully updated users table schema");
-                
-            } catch (SQLException e) {
-                System.err.println("Warning: Could not update users table schema: " + e.getMessage());
-                // Continue anyway, as we'll save to memory
-            }
-
-            // Clear existing style preferences to avoid duplicates
-            ps = conn.prepareStatement("DELETE FROM style_preferences");
-            ps.executeUpdate();
-            ps.close();
-
-            // Clear existing wardrobe items to avoid duplicates
-            ps = conn.prepareStatement("DELETE FROM wardrobe_items");
-            ps.executeUpdate();
-            ps.close();
-
-            for (User user : users.values()) {
-                try {
-                    // First, check if the user exists
-                    ps = conn.prepareStatement("SELECT user_id FROM users WHERE user_id = ?");
-                    ps.setString(1, user.getUserId());
-                    boolean userExists = ps.executeQuery().next();
-                    ps.close();
-                    
-                    if (userExists) {
-                        // If user exists, do an UPDATE
-                        ps = conn.prepareStatement(
-                                "UPDATE users SET " +
-                                        "username = ?, " +
-                                        "email = ?, " +
-                                        "password_hash = ?, " +
-                                        "first_name = ?, " +
-                                        "last_name = ?, " +
-                                        "last_login = ?, " +
-                                        "is_deactivated = ?, " +
-                                        "deactivation_date = ?, " +
-                                        "is_dark_mode = ?, " +
-                                        "is_banned = ?, " +
-                                        "ban_reason = ?, " +
-                                        "ban_expiration = ? " +
-                                        "WHERE user_id = ?");
-                        
-                        ps.setString(1, user.getUsername());
-                        ps.setString(2, user.getEmail());
-                        ps.setString(3, user.getPasswordHash());
-                        ps.setString(4, user.getFirstName());
-                        ps.setString(5, user.getLastName());
-                        ps.setTimestamp(6, user.getLastLogin() != null ? new Timestamp(user.getLastLogin().getTime()) : null);
-                        ps.setBoolean(7, user.isDeactivated());
-                        ps.setTimestamp(8,
-                                user.getDeactivationDate() != null ? new Timestamp(user.getDeactivationDate().getTime())
-                                        : null);
-                        ps.setBoolean(9, user.isDarkModeEnabled());
-                        ps.setBoolean(10, user.isBanned());
-                        ps.setString(11, user.getBanReason());
-                        ps.setTimestamp(12,
-                                user.getBanExpiration() != null ? new Timestamp(user.getBanExpiration().getTime()) : null);
-                        ps.setString(13, user.getUserId());
-                        
-                    } else {
-                        // If user doesn't exist, do an INSERT
-                        ps = conn.prepareStatement(
-                                "INSERT INTO users " +
-                                        "(user_id, username, email, password_hash, first_name, last_name, date_registered, " +
-                                        "last_login, is_deactivated, deactivation_date, is_dark_mode, is_banned, ban_reason, ban_expiration) " +
-                                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
-                        
-                        ps.setString(1, user.getUserId());
-                        ps.setString(2, user.getUsername());
-                        ps.setString(3, user.getEmail());
-                        ps.setString(4, user.getPasswordHash());
-                        ps.setString(5, user.getFirstName());
-                        ps.setString(6, user.getLastName());
-                        ps.setTimestamp(7,
-                                user.getDateRegistered() != null ? new Timestamp(user.getDateRegistered().getTime()) : null);
-                        ps.setTimestamp(8, user.getLastLogin() != null ? new Timestamp(user.getLastLogin().getTime()) : null);
-                        ps.setBoolean(9, user.isDeactivated());
-                        ps.setTimestamp(10,
-                                user.getDeactivationDate() != null ? new Timestamp(user.getDeactivationDate().getTime())
-                                        : null);
-                        ps.setBoolean(11, user.isDarkModeEnabled());
-                        ps.setBoolean(12, user.isBanned());
-                        ps.setString(13, user.getBanReason());
-                        ps.setTimestamp(14,
-                                user.getBanExpiration() != null ? new Timestamp(user.getBanExpiration().getTime()) : null);
-                    }
-                    
-                    ps.executeUpdate();
-                    ps.close();
-                    
-                    // Log user saving
-                    System.out.println("Saved user: " + user.getUsername() + " (ID: " + user.getUserId() + ")");
-                
-                } catch (SQLException e) {
-                    System.err.println("Error saving user " + user.getUsername() + ": " + e.getMessage());
-                    throw e; // Rethrow to trigger rollback
-                }
-
-                // Insert wardrobe items
-                if (!user.getWardrobeItemIds().isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO wardrobe_items (user_id, product_id) VALUES (?, ?)");
-
-                    for (String productId : user.getWardrobeItemIds()) {
-                        ps.setString(1, user.getUserId());
-                        ps.setString(2, productId);
-                        ps.addBatch();
-                    }
-
-                    ps.executeBatch();
-                    ps.close();
-                }
-
-                // Insert style preferences
-                if (!user.getStylePreferences().isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO style_preferences " +
-                                    "(preference_id, user_id, preference_type, preference_value, preference_weight) " +
-                                    "VALUES (?, ?, ?, ?, ?)");
-
-                    for (StylePreference pref : user.getStylePreferences()) {
-                        String prefId = UUID.randomUUID().toString();
-                        ps.setString(1, prefId);
-                        ps.setString(2, user.getUserId());
-                        ps.setString(3, pref.getType());
-                        ps.setString(4, pref.getValue());
-                        ps.setDouble(5, pref.getWeight());
-                        ps.addBatch();
-                    }
-
-                    ps.executeBatch();
-                    ps.close();
-                }
-            }
-
-            conn.commit();
-            databaseSaved = true;
-            System.out.println("Saved " + users.size() + " users to database");
+    private boolean saveUsers() {
+        return saveUsers(users.values());
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Error saving users to database: " + e.getMessage());
-            e.printStackTrace();
+    private boolean saveUsers(Collection<User> candidates) {
+        synchronized (persistenceLock) {
+            return saveUsersLocked(candidates);
+        }
+    }
 
-            try {
-                if (conn != null)
-                    conn.rollback();
-            } catch (SQLException ex) {
-                System.err.println("Error rolling back transaction: " + ex.getMessage());
+    private boolean saveUsersLocked(Collection<User> candidates) {
+        // Only users whose row or child rows changed since the last load/save are
+        // written, so the cost of a save depends on what changed rather than on the
+        // size of the users table. The modification count is captured before any
+        // field is read so that changes made during the save keep the user dirty.
+        // It is taken under the user's entity lock so a compound update such as
+        // purchaseProduct is never captured half-applied.
+        Map<User, Integer> dirtyVersions = new LinkedHashMap<>();
+        for (User user : candidates) {
+            if (user.hasUnsavedChanges()) {
+                dirtyVersions.put(user, entityLocks.callWithLocks(user::getModCount, user.getUserId()));
             }
-        } finally {
-            try {
-                if (conn != null)
-                    conn.setAutoCommit(true);
-            } catch (SQLException e) {
-                System.err.println("Error resetting auto-commit: " + e.getMessage());
-            }
-
-            DatabaseUtils.close(conn, ps, null);
         }
+        if (dirtyVersions.isEmpty()) {
+            return true;
+        }
+        List<User> dirtyUsers = new ArrayList<>(dirtyVersions.keySet());
+        dirtyUsers.forEach(indexes::indexUser);
 
-        // If we failed to save to the database, log the error
-        if (!databaseSaved) {
-            System.err.println("Failed to save users to database!");
+        // Users rejected for a username conflict stay dirty so the clash is
+        // reported again on the next save instead of being silently dropped
+        List<User> conflicts = new ArrayList<>();
+        if (!storage.users().saveAll(dirtyUsers, conflicts)) {
+            return false;
         }
+        conflicts.forEach(dirtyVersions::remove);
+        dirtyVersions.forEach(User::markClean);
+        return true;
     }
 
-    private void saveProducts() {
-        Connection conn = null;
-        PreparedStatement ps = null;
-
-        try {
-            conn = DatabaseUtils.getConnection();
-            conn.setAutoCommit(false);
-
-            // Clear existing product attributes to avoid duplicates
-            ps = conn.prepareStatement("DELETE FROM product_attributes");
-            ps.executeUpdate();
-            ps.close();
-
-            for (Product product : products.values()) {
-                // Upsert product record
-                ps = conn.prepareStatement(
-                        "INSERT INTO products " +
-                                "(product_id, name, description, brand, category, subcategory, price, " +
-                                "original_price, cost, gender, size, color, material, season, " +
-                                "image_path, stock_quantity, date_added, last_updated, is_featured, " +
-                                "average_rating, review_count, is_visible) " +
-                                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
-                                "ON DUPLICATE KEY UPDATE " +
-                                "name = VALUES(name), " +
-                                "description = VALUES(description), " +
-                                "brand = VALUES(brand), " +
-                                "category = VALUES(category), " +
-                                "subcategory = VALUES(subcategory), " +
-                                "price = VALUES(price), " +
-                                "original_price = VALUES(original_price), " +
-                                "cost = VALUES(cost), " +
-                                "gender = VALUES(gender), " +
-                                "size = VALUES(size), " +
-                                "color = VALUES(color), " +
-                                "material = VALUES(material), " +
-                                "season = VALUES(season), " +
-                                "image_path = VALUES(image_path), " +
-                                "stock_quantity = VALUES(stock_quantity), " +
-                                "last_updated = VALUES(last_updated), " +
-                                "is_featured = VALUES(is_featured), " +
-                                "average_rating = VALUES(average_rating), " +
-                                "review_count = VALUES(review_count), " +
-                                "is_visible = VALUES(is_visible)");
-
-                ps.setString(1, product.getProductId());
-                ps.setString(2, product.getName());
-                ps.setString(3, product.getDescription());
-                ps.setString(4, product.getBrand());
-                ps.setString(5, product.getCategory());
-                ps.setString(6, product.getSubcategory());
-                ps.setBigDecimal(7, product.getPrice());
-                ps.setBigDecimal(8, product.getOriginalPrice());
-                ps.setBigDecimal(9, product.getCost());
-                ps.setString(10, product.getGender());
-                ps.setString(11, product.getSize());
-                ps.setString(12, product.getColor());
-                ps.setString(13, product.getMaterial());
-                ps.setString(14, product.getSeason());
-                ps.setString(15, product.getImagePath());
-                ps.setInt(16, product.getStockQuantity());
-                ps.setTimestamp(17,
-                        product.getDateAdded() != null ? new Timestamp(product.getDateAdded().getTime()) : null);
-                ps.setTimestamp(18,
-                        product.getLastUpdated() != null ? new Timestamp(product.getLastUpdated().getTime()) : null);
-                ps.setBoolean(19, product.isFeatured());
-                ps.setDouble(20, product.getAverageRating());
-                ps.setInt(21, product.getReviewCount());
-                ps.setBoolean(22, product.isVisible());
-
-                ps.executeUpdate();
-                ps.close();
-
-                // Insert product attributes
-                Map<String, String> attributes = product.getAllAttributes();
-                if (!attributes.isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO product_attributes (product_id, attribute_name, attribute_value) " +
-                                    "VALUES (?, ?, ?)");
-
-                    for (Map.Entry<String, String> entry : attributes.entrySet()) {
-                        ps.setString(1, product.getProductId());
-                        ps.setString(2, entry.getKey());
-                        ps.setString(3, entry.getValue());
-                        ps.addBatch();
-                    }
-
-                    ps.executeBatch();
-                    ps.close();
-                }
-            }
-
-            conn.commit();
-            System.out.println("Saved " + products.size() + " products to database");
+    private boolean saveProducts() {
+        return saveProducts(products.values());
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Error saving products: " + e.getMessage());
-            e.printStackTrace();
+    private boolean saveProducts(Collection<Product> candidates) {
+        synchronized (persistenceLock) {
+            return saveProductsLocked(candidates);
+        }
+    }
 
-            try {
-                if (conn != null)
-                    conn.rollback();
-            } catch (SQLException ex) {
-                System.err.println("Error rolling back transaction: " + ex.getMessage());
-            }
-        } finally {
-            try {
-                if (conn != null)
-                    conn.setAutoCommit(true);
-            } catch (SQLException e) {
-                System.err.println("Error resetting auto-commit: " + e.getMessage());
+    private boolean saveProductsLocked(Collection<Product> candidates) {
+        Map<Product, Integer> dirtyVersions = new LinkedHashMap<>();
+        for (Product product : candidates) {
+            if (product.hasUnsavedChanges()) {
+                dirtyVersions.put(product,
+                        entityLocks.callWithLocks(product::getModCount, product.getProductId()));
             }
+        }
+        if (dirtyVersions.isEmpty()) {
+            return true;
+        }
+        List<Product> dirtyProducts = new ArrayList<>(dirtyVersions.keySet());
+        dirtyProducts.forEach(this::indexProduct);
 
-            DatabaseUtils.close(conn, ps, null);
+        if (!storage.products().saveAll(dirtyProducts)) {
+            return false;
         }
+        dirtyVersions.forEach(Product::markClean);
+        return true;
     }
 
-    private void saveOutfits() {
-        Connection conn = null;
-        PreparedStatement ps = null;
-
-        try {
-            conn = DatabaseUtils.getConnection();
-            conn.setAutoCommit(false);
-
-            // Filter out empty outfits
-            List<Outfit> emptyOutfits = outfits.values().stream()
-                    .filter(outfit -> outfit.getProductIds().isEmpty())
-                    .collect(java.util.stream.Collectors.toList());
+    private boolean saveOutfits() {
+        // Filter out empty outfits
+        List<Outfit> emptyOutfits = outfits.values().stream()
+                .filter(outfit -> outfit.getProductIds().isEmpty())
+                .collect(java.util.stream.Collectors.toList());
 
+        if (!emptyOutfits.isEmpty()) {
             System.out.println("saveOutfits: Found " + emptyOutfits.size() + " empty outfits to remove");
+        }
 
-            // Remove empty outfits from the collection
-            for (Outfit emptyOutfit : emptyOutfits) {
-                outfits.remove(emptyOutfit.getOutfitId());
-
-                // Also remove from user's outfit list
-                User user = users.get(emptyOutfit.getUserId());
-                if (user != null) {
-                    user.removeOutfit(emptyOutfit.getOutfitId());
-                }
+        // Remove empty outfits from the collection
+        for (Outfit emptyOutfit : emptyOutfits) {
+            outfits.remove(emptyOutfit.getOutfitId());
+            indexes.unindexOutfit(emptyOutfit.getOutfitId());
 
-                System.out.println("saveOutfits: Removed empty outfit: " + emptyOutfit.getName() +
-                        " (ID: " + emptyOutfit.getOutfitId() + ")");
+            // Also remove from user's outfit list
+            User user = users.get(emptyOutfit.getUserId());
+            if (user != null) {
+                user.removeOutfit(emptyOutfit.getOutfitId());
             }
 
-            // Clear existing outfit products and tags to avoid duplicates
-            ps = conn.prepareStatement("DELETE FROM outfit_products");
-            ps.executeUpdate();
-            ps.close();
-
-            ps = conn.prepareStatement("DELETE FROM outfit_tags");
-            ps.executeUpdate();
-            ps.close();
-
-            for (Outfit outfit : outfits.values()) {
-                // Upsert outfit record
-                ps = conn.prepareStatement(
-                        "INSERT INTO outfits " +
-                                "(outfit_id, user_id, name, description, created_at, last_modified, " +
-                                "ai_generated, style_rating, likes_count, season, occasion) " +
-                                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
-                                "ON DUPLICATE KEY UPDATE " +
-                                "name = VALUES(name), " +
-                                "description = VALUES(description), " +
-                                "last_modified = VALUES(last_modified), " +
-                                "ai_generated = VALUES(ai_generated), " +
-                                "style_rating = VALUES(style_rating), " +
-                                "likes_count = VALUES(likes_count), " +
-                                "season = VALUES(season), " +
-                                "occasion = VALUES(occasion)");
-
-                ps.setString(1, outfit.getOutfitId());
-                ps.setString(2, outfit.getUserId());
-                ps.setString(3, outfit.getName());
-                ps.setString(4, outfit.getDescription());
-                ps.setTimestamp(5,
-                        outfit.getCreatedAt() != null ? new Timestamp(outfit.getCreatedAt().getTime()) : null);
-                ps.setTimestamp(6,
-                        outfit.getLastModified() != null ? new Timestamp(outfit.getLastModified().getTime()) : null);
-                ps.setBoolean(7, outfit.isAiGenerated());
-                ps.setDouble(8, outfit.getStyleRating());
-                ps.setInt(9, outfit.getLikesCount());
-                ps.setString(10, outfit.getSeason() != null ? outfit.getSeason().name() : null);
-                ps.setString(11, outfit.getOccasion() != null ? outfit.getOccasion().name() : null);
-
-                ps.executeUpdate();
-                ps.close();
-
-                // Insert outfit products
-                if (!outfit.getProductIds().isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO outfit_products (outfit_id, product_id) VALUES (?, ?)");
-
-                    for (String productId : outfit.getProductIds()) {
-                        ps.setString(1, outfit.getOutfitId());
-                        ps.setString(2, productId);
-                        ps.addBatch();
-                    }
-
-                    ps.executeBatch();
-                    ps.close();
-                }
-
-                // Insert outfit tags
-                if (!outfit.getTags().isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO outfit_tags (outfit_id, tag) VALUES (?, ?)");
-
-                    for (String tag : outfit.getTags()) {
-                        ps.setString(1, outfit.getOutfitId());
-                        ps.setString(2, tag);
-                        ps.addBatch();
-                    }
-
-                    ps.executeBatch();
-                    ps.close();
-                }
-            }
+            System.out.println("saveOutfits: Removed empty outfit: " + emptyOutfit.getName() +
+                    " (ID: " + emptyOutfit.getOutfitId() + ")");
+        }
 
-            conn.commit();
-            System.out.println("Saved " + outfits.size() + " outfits to database");
+        return saveOutfits(outfits.values());
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Error saving outfits: " + e.getMessage());
-            e.printStackTrace();
+    private boolean saveOutfits(Collection<Outfit> candidates) {
+        synchronized (persistenceLock) {
+            return saveOutfitsLocked(candidates);
+        }
+    }
 
-            try {
-                if (conn != null)
-                    conn.rollback();
-            } catch (SQLException ex) {
-                System.err.println("Error rolling back transaction: " + ex.getMessage());
-            }
-        } finally {
-            try {
-                if (conn != null)
-                    conn.setAutoCommit(true);
-            } catch (SQLException e) {
-                System.err.println("Error resetting auto-commit: " + e.getMessage());
+    private boolean saveOutfitsLocked(Collection<Outfit> candidates) {
+        // Empty outfits are never persisted; saveOutfits() drops them from the cache
+        Map<Outfit, Integer> dirtyVersions = new LinkedHashMap<>();
+        for (Outfit outfit : candidates) {
+            if (outfit.hasUnsavedChanges() && !outfit.isEmpty()) {
+                dirtyVersions.put(outfit, outfit.getModCount());
             }
+        }
+        if (dirtyVersions.isEmpty()) {
+            return true;
+        }
+        List<Outfit> dirtyOutfits = new ArrayList<>(dirtyVersions.keySet());
+        dirtyOutfits.forEach(indexes::indexOutfit);
 
-            DatabaseUtils.close(conn, ps, null);
+        if (!storage.outfits().saveAll(dirtyOutfits)) {
+            return false;
         }
+        dirtyVersions.forEach(Outfit::markClean);
+        return true;
     }
 
-    private void saveCarts() {
-        Connection conn = null;
-        PreparedStatement ps = null;
-
-        try {
-            conn = DatabaseUtils.getConnection();
-            conn.setAutoCommit(false);
-
-            // Clear existing cart items to avoid duplicates
-            ps = conn.prepareStatement("DELETE FROM cart_items");
-            ps.executeUpdate();
-            ps.close();
-
-            for (ShoppingCart cart : carts.values()) {
-                // Upsert cart record
-                ps = conn.prepareStatement(
-                        "INSERT INTO shopping_carts (cart_id, user_id) " +
-                                "VALUES (?, ?) " +
-                                "ON DUPLICATE KEY UPDATE user_id = VALUES(user_id)");
-
-                ps.setString(1, cart.getCartId());
-                ps.setString(2, cart.getUserId());
-
-                ps.executeUpdate();
-                ps.close();
-
-                // Insert cart items
-                if (!cart.getItems().isEmpty()) {
-                    ps = conn.prepareStatement(
-                            "INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?)");
-
-                    for (ShoppingCart.CartItem item : cart.getItems()) {
-                        ps.setString(1, cart.getCartId());
-                        ps.setString(2, item.getProduct().getProductId());
-                        ps.setInt(3, item.getQuantity());
-                        ps.addBatch();
-                    }
-
-                    ps.executeBatch();
-                    ps.close();
-                }
-            }
-
-            conn.commit();
-            System.out.println("Saved " + carts.size() + " shopping carts to database");
+    private boolean saveCarts() {
+        return saveCarts(carts.values());
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Error saving carts: " + e.getMessage());
-            e.printStackTrace();
+    private boolean saveCarts(Collection<ShoppingCart> candidates) {
+        synchronized (persistenceLock) {
+            return saveCartsLocked(candidates);
+        }
+    }
 
-            try {
-                if (conn != null)
-                    conn.rollback();
-            } catch (SQLException ex) {
-                System.err.println("Error rolling back transaction: " + ex.getMessage());
-            }
-        } finally {
-            try {
-                if (conn != null)
-                    conn.setAutoCommit(true);
-            } catch (SQLException e) {
-                System.err.println("Error resetting auto-commit: " + e.getMessage());
+    private boolean saveCartsLocked(Collection<ShoppingCart> candidates) {
+        Map<ShoppingCart, Integer> dirtyVersions = new LinkedHashMap<>();
+        for (ShoppingCart cart : candidates) {
+            if (cart.hasUnsavedChanges()) {
+                dirtyVersions.put(cart, cart.getModCount());
             }
+        }
+        if (dirtyVersions.isEmpty()) {
+            return true;
+        }
+        List<ShoppingCart> dirtyCarts = new ArrayList<>(dirtyVersions.keySet());
+        dirtyCarts.forEach(indexes::indexCart);
 
-            DatabaseUtils.close(conn, ps, null);
+        if (!storage.carts().saveAll(dirtyCarts)) {
+            return false;
         }
+        dirtyVersions.forEach(ShoppingCart::markClean);
+        return true;
     }
 
     // User management
@@ -1068,7 +570,7 @@ public class DataManager {
     }
 
     public User getUser(String userId) {
-        return users.get(userId);
+        return userId != null ? users.get(userId) : null;
     }
 
     public User getUserByUsername(String username) {
@@ -1076,14 +578,14 @@ public class DataManager {
             return null;
         }
 
+        User indexedUser = findIndexedUser(username);
+
         // Special case for admin user
         if (username.equals("admin")) {
             // First check if we have a real admin user in the data store
-            for (User user : users.values()) {
-                if (user.getUsername().equals("admin")) {
-                    System.out.println("Found admin user in the user store");
-                    return user;
-                }
+            if (indexedUser != null) {
+                System.out.println("Found admin user in the user store");
+                return indexedUser;
             }
 
             // If not, create a temporary admin user with hardcoded credentials
@@ -1093,13 +595,28 @@ public class DataManager {
         }
 
         // Normal case - find user by username
-        for (User user : users.values()) {
-            if (username.equals(user.getUsername())) {
-                return user;
-            }
-        }
+        return indexedUser;
+    }
 
-        return null;
+    /**
+     * Looks a username up in the username index, re-indexing the hit if the
+     * user has been renamed since it was last indexed.
+     */
+    private User findIndexedUser(String username) {
+        String userId = indexes.userIdForUsername(username);
+        if (userId == null) {
+            return null;
+        }
+        User user = users.get(userId);
+        if (user == null) {
+            indexes.unindexUser(userId);
+            return null;
+        }
+        if (!username.equals(user.getUsername())) {
+            indexes.indexUser(user);
+            return null;
+        }
+        return user;
     }
 
     public void addUser(User user) {
@@ -1107,7 +624,9 @@ public class DataManager {
             throw new IllegalArgumentException("User or user ID cannot be null");
         }
         users.put(user.getUserId(), user);
+        indexes.indexUser(user);
         saveUsers(); // Save immediately when a user is added
+        publish(DataChangeEvent.added(DataChangeEvent.EntityType.USER, user.getUserId(), user));
     }
 
     /**
@@ -1121,96 +640,7 @@ public class DataManager {
             return false;
         }
 
-        boolean databaseSuccess = false;
-        Connection conn = null;
-        PreparedStatement ps = null;
-
-        try {
-            conn = DatabaseUtils.getConnection();
-            conn.setAutoCommit(false);
-
-            // Delete from database tables
-
-            // 1. Remove user's style preferences
-            ps = conn.prepareStatement("DELETE FROM style_preferences WHERE user_id = ?");
-            ps.setString(1, userId);
-            ps.executeUpdate();
-            ps.close();
-
-            // 2. Remove user's wardrobe items
-            ps = conn.prepareStatement("DELETE FROM wardrobe_items WHERE user_id = ?");
-            ps.setString(1, userId);
-            ps.executeUpdate();
-            ps.close();
-
-            // 3. Get user's outfits to remove them
-            ps = conn.prepareStatement("SELECT outfit_id FROM outfits WHERE user_id = ?");
-            ps.setString(1, userId);
-            ResultSet rs = ps.executeQuery();
-
-            while (rs.next()) {
-                String outfitId = rs.getString("outfit_id");
-                // Delete outfit products first
-                PreparedStatement psOutfitProducts = conn.prepareStatement(
-                        "DELETE FROM outfit_products WHERE outfit_id = ?");
-                psOutfitProducts.setString(1, outfitId);
-                psOutfitProducts.executeUpdate();
-                psOutfitProducts.close();
-
-                // Then delete the outfit
-                PreparedStatement psOutfit = conn.prepareStatement(
-                        "DELETE FROM outfits WHERE outfit_id = ?");
-                psOutfit.setString(1, outfitId);
-                psOutfit.executeUpdate();
-                psOutfit.close();
-
-                // Also remove from memory
-                outfits.remove(outfitId);
-            }
-            rs.close();
-            ps.close();
-
-            // 4. Remove user's shopping cart
-            ps = conn.prepareStatement("DELETE FROM cart_items WHERE user_id = ?");
-            ps.setString(1, userId);
-            ps.executeUpdate();
-            ps.close();
-
-            // 5. Finally delete the user
-            ps = conn.prepareStatement("DELETE FROM users WHERE user_id = ?");
-            ps.setString(1, userId);
-            int usersDeleted = ps.executeUpdate();
-            ps.close();
-
-            // Commit changes
-            conn.commit();
-            databaseSuccess = true;
-
-        } catch (SQLException e) {
-            System.err.println("Error deleting user " + userId + " from database: " + e.getMessage());
-            e.printStackTrace();
-
-            try {
-                if (conn != null) {
-                    conn.rollback();
-                }
-            } catch (SQLException ex) {
-                System.err.println("Error rolling back transaction: " + ex.getMessage());
-            }
-
-            // We'll still try to remove the user from memory
-
-        } finally {
-            try {
-                if (conn != null) {
-                    conn.setAutoCommit(true);
-                }
-            } catch (SQLException e) {
-                System.err.println("Error resetting auto-commit: " + e.getMessage());
-            }
-
-            DatabaseUtils.close(conn, ps, null);
-        }
+        boolean databaseSuccess = storage.users().delete(userId);
 
         // Always perform in-memory removal, even if database operations failed
         System.out.println("Removing user " + userId + " from in-memory storage");
@@ -1221,16 +651,24 @@ public class DataManager {
             List<String> outfitIds = new ArrayList<>(userToRemove.getOutfitIds());
             for (String outfitId : outfitIds) {
                 outfits.remove(outfitId);
+                indexes.unindexOutfit(outfitId);
                 userToRemove.removeOutfit(outfitId);
             }
         }
+        for (String outfitId : new ArrayList<>(indexes.outfitIdsForUser(userId))) {
+            outfits.remove(outfitId);
+            indexes.unindexOutfit(outfitId);
+        }
 
         // Remove from memory
         User removedUser = users.remove(userId);
         carts.remove(userId);
+        indexes.unindexUser(userId);
+        indexes.unindexCart(userId);
 
         if (removedUser != null) {
             System.out.println("User removed from memory: " + removedUser.getUsername());
+            publish(DataChangeEvent.removed(DataChangeEvent.EntityType.USER, userId));
 
             // Try to save the changes to persist them
             try {
@@ -1256,26 +694,271 @@ public class DataManager {
             throw new IllegalArgumentException("Product or product ID cannot be null");
         }
         products.put(product.getProductId(), product);
+        indexProduct(product);
         saveProducts(); // Save immediately when a product is added
+        publish(DataChangeEvent.added(DataChangeEvent.EntityType.PRODUCT, product.getProductId(), product));
     }
 
     public Product getProduct(String productId) {
-        return products.get(productId);
+        return productId != null ? products.get(productId) : null;
     }
 
     public List<Product> getAllProducts() {
         return new ArrayList<>(products.values());
     }
 
+    /**
+     * Counts the products in the store without copying them
+     *
+     * @param visibleOnly Whether to leave out hidden products
+     */
+    public int getProductCount(boolean visibleOnly) {
+        return visibleOnly ? facetIndex.count(null, true) : products.size();
+    }
+
+    /**
+     * Gets one page of a filtered, sorted product listing. Once the catalog
+     * is cached the page is read from the sort index, touching only the
+     * products up to the end of the page; before that it is read from
+     * storage with a keyset query.
+     *
+     * @param query The filters, sort order, page size and cursor
+     * @return The page, with the cursor for the next one
+     */
+    public ProductPage queryProducts(ProductQuery query) {
+        if (!productsLoaded) {
+            try {
+                return storage.products().findPage(query);
+            } catch (SQLException e) {
+                System.err.println("Error querying products: " + e.getMessage());
+                e.printStackTrace();
+                return ProductPage.empty();
+            }
+        }
+
+        int limit = query.getPageSize() + 1;
+        List<ProductSortIndex.Entry> entries;
+        Map<FacetIndex.Facet, String> selection = query.getSelection();
+        if (!selection.isEmpty()
+                && facetIndex.count(selection, query.isVisibleOnly()) <= limit * SELECTIVE_QUERY_FACTOR) {
+            // Few products match: sorting them beats walking the whole order
+            entries = ProductSortIndex.sortAndPage(
+                    collectProducts(facetIndex.filter(selection, query.isVisibleOnly()), false), query, limit);
+        } else {
+            entries = sortIndex.page(query, productId -> query.matches(products.get(productId)), limit);
+        }
+        return toPage(query, entries, products::get);
+    }
+
+    /**
+     * Turns up to one more entry than the page size into a page, using the
+     * extra entry only to tell that there is a next page.
+     */
+    static ProductPage toPage(ProductQuery query, List<ProductSortIndex.Entry> entries,
+            Function<String, Product> lookup) {
+        boolean hasMore = entries.size() > query.getPageSize();
+        List<ProductSortIndex.Entry> shown = hasMore ? entries.subList(0, query.getPageSize()) : entries;
+        List<Product> items = new ArrayList<>(shown.size());
+        for (ProductSortIndex.Entry entry : shown) {
+            Product product = lookup.apply(entry.productId);
+            if (product != null) {
+                items.add(product);
+            }
+        }
+        String nextCursor = hasMore && !shown.isEmpty()
+                ? query.cursorAt(shown.get(shown.size() - 1).position(query.getSortKey()))
+                : null;
+        return new ProductPage(items, nextCursor);
+    }
+
     /**
      * Gets all visible products from the store
      * 
      * @return List of all visible products
      */
     public List<Product> getVisibleProducts() {
-        return products.values().stream()
-                .filter(product -> product != null && product.isVisible())
-                .collect(Collectors.toList());
+        return collectProducts(indexes.visibleProductIds(), true);
+    }
+
+    /**
+     * Gets all products in a category, hidden ones included
+     *
+     * @param category The category name
+     * @return List of products in the category
+     */
+    public List<Product> getProductsByCategory(String category) {
+        if (category == null) {
+            return new ArrayList<>();
+        }
+        return collectProducts(indexes.productIdsInCategory(category), false);
+    }
+
+    /**
+     * Gets the visible products in a category
+     *
+     * @param category The category name
+     * @return List of visible products in the category
+     */
+    public List<Product> getVisibleProductsByCategory(String category) {
+        if (category == null) {
+            return new ArrayList<>();
+        }
+        Set<String> categoryIds = indexes.productIdsInCategory(category);
+        Set<String> visibleIds = indexes.visibleProductIds();
+        // Walk the smaller of the two buckets
+        Set<String> candidates = categoryIds.size() <= visibleIds.size() ? categoryIds : visibleIds;
+        List<Product> result = new ArrayList<>();
+        for (String productId : candidates) {
+            Product product = products.get(productId);
+            if (product != null && product.isVisible() && category.equals(product.getCategory())) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the sorted names of all categories that currently have products
+     */
+    public List<String> getProductCategories() {
+        return new ArrayList<>(indexes.categories());
+    }
+
+    /**
+     * Searches product names, descriptions, brands, categories, colors and
+     * materials. See {@link ProductSearchIndex} for the query syntax.
+     *
+     * @param query The search query
+     * @return Matching products, best match first
+     */
+    public List<Product> searchProducts(String query) {
+        List<SearchHit> hits = searchIndex.search(query);
+        List<Product> result = new ArrayList<>(hits.size());
+        for (SearchHit hit : hits) {
+            Product product = products.get(hit.getProductId());
+            if (product != null) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Searches products and keeps the hits matching the selected facet values.
+     *
+     * @param query       The search query
+     * @param selection   Selected value per facet
+     * @param visibleOnly Whether to leave out hidden products
+     * @return Matching products, best match first
+     */
+    public List<Product> searchProducts(String query, Map<FacetIndex.Facet, String> selection,
+            boolean visibleOnly) {
+        List<String> hitIds = new ArrayList<>();
+        for (SearchHit hit : searchIndex.search(query)) {
+            hitIds.add(hit.getProductId());
+        }
+        return collectProducts(facetIndex.retain(hitIds, selection, visibleOnly), visibleOnly);
+    }
+
+    /**
+     * Gets the products matching every selected facet value, answered from the
+     * facet bitmaps without scanning the catalog.
+     *
+     * @param selection   Selected value per facet; facets without a value are not filtered on
+     * @param visibleOnly Whether to leave out hidden products
+     * @return Matching products
+     */
+    public List<Product> filterProducts(Map<FacetIndex.Facet, String> selection, boolean visibleOnly) {
+        return collectProducts(facetIndex.filter(selection, visibleOnly), visibleOnly);
+    }
+
+    public ProductSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public FacetIndex getFacetIndex() {
+        return facetIndex;
+    }
+
+    /**
+     * Gets the products priced from {@code minCents} up to but excluding
+     * {@code maxCents}, cheapest first, answered by binary search on the
+     * price index.
+     *
+     * @param minCents    Lowest price in cents
+     * @param maxCents    Price in cents the range stops before; Long.MAX_VALUE for no upper bound
+     * @param visibleOnly Whether to leave out hidden products
+     * @return Matching products, cheapest first
+     */
+    public List<Product> getProductsInPriceRange(long minCents, long maxCents, boolean visibleOnly) {
+        return collectProducts(priceIndex.productIdsInRange(minCents, maxCents), visibleOnly);
+    }
+
+    /**
+     * Gets the products currently priced below their original price,
+     * cheapest first.
+     */
+    public List<Product> getProductsOnSale(boolean visibleOnly) {
+        return collectProducts(priceIndex.productIdsOnSale(), visibleOnly);
+    }
+
+    public PriceIndex getPriceIndex() {
+        return priceIndex;
+    }
+
+    /**
+     * Gets typeahead suggestions for what the user has typed so far: product
+     * names, brands and categories starting with it, weighted by stock,
+     * rating and featured status.
+     *
+     * @param prefix The typed text
+     * @param limit  Most suggestions to return
+     * @return Suggestions, best first
+     */
+    public List<Suggestion> getSearchSuggestions(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, limit);
+    }
+
+    public SuggestionIndex getSuggestionIndex() {
+        return suggestionIndex;
+    }
+
+    /**
+     * Discounts a product from its original price and queues it for saving.
+     * The price indexes are updated straight away.
+     *
+     * @param product            The product to discount
+     * @param discountPercentage Discount between 0 and 1
+     */
+    public void applyDiscount(Product product, BigDecimal discountPercentage) {
+        entityLocks.runWithLocks(() -> product.applyDiscount(discountPercentage), product.getProductId());
+        queueSave(product);
+    }
+
+    /**
+     * Restores a product's original price and queues it for saving.
+     */
+    public void removeDiscount(Product product) {
+        entityLocks.runWithLocks(product::removeDiscount, product.getProductId());
+        queueSave(product);
+    }
+
+    /**
+     * Checks whether any wardrobe, outfit or shopping cart refers to a product
+     */
+    public boolean isProductReferenced(String productId) {
+        return productId != null && indexes.isReferenced(productId);
+    }
+
+    private List<Product> collectProducts(Collection<String> productIds, boolean visibleOnly) {
+        List<Product> result = new ArrayList<>(productIds.size());
+        for (String productId : productIds) {
+            Product product = products.get(productId);
+            if (product != null && (!visibleOnly || product.isVisible())) {
+                result.add(product);
+            }
+        }
+        return result;
     }
 
     public List<Product> getProductsByIds(List<String> productIds) {
@@ -1289,12 +972,33 @@ public class DataManager {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Replaces or re-saves a product and notifies listeners. Saving doesn't
+     * write the stock of existing products, so when {@code product} is a new
+     * instance with a different stock level, the difference is applied to the
+     * stored level through the inventory service. Stock set directly on the
+     * cached instance is not saved; use {@link InventoryService#restock} for
+     * that.
+     */
     public void updateProduct(Product product) {
         if (product == null || product.getProductId() == null) {
             throw new IllegalArgumentException("Product or product ID cannot be null");
         }
+        Product previous = products.get(product.getProductId());
+        if (previous != null && previous != product
+                && previous.getStockQuantity() != product.getStockQuantity()) {
+            int stock = inventory.restock(previous, product.getStockQuantity() - previous.getStockQuantity());
+            if (stock < 0) {
+                // Keep showing what storage still holds rather than the rejected level
+                System.err.println("Stock of " + product.getProductId() + " was not changed");
+                stock = previous.getStockQuantity();
+            }
+            product.setStockQuantity(stock);
+        }
         products.put(product.getProductId(), product);
+        indexProduct(product);
         saveProducts(); // Save immediately when a product is updated
+        publish(DataChangeEvent.updated(DataChangeEvent.EntityType.PRODUCT, product.getProductId(), product));
     }
 
     public void deleteProduct(String productId) {
@@ -1304,130 +1008,137 @@ public class DataManager {
 
         System.out.println("Deleting product with ID: " + productId);
 
-        Connection conn = null;
-        PreparedStatement ps = null;
+        // Delete the product and all references to it from storage first
+        if (!storage.products().delete(productId)) {
+            return;
+        }
 
-        try {
-            conn = DatabaseUtils.getConnection();
-            conn.setAutoCommit(false);
-
-            // First delete the product from database tables to maintain referential
-            // integrity
-
-            // 1. Remove from product attributes
-            ps = conn.prepareStatement("DELETE FROM product_attributes WHERE product_id = ?");
-            ps.setString(1, productId);
-            int attributesDeleted = ps.executeUpdate();
-            System.out.println("Deleted " + attributesDeleted + " product attributes");
-            ps.close();
-
-            // 2. Remove from outfit products
-            ps = conn.prepareStatement("DELETE FROM outfit_products WHERE product_id = ?");
-            ps.setString(1, productId);
-            int outfitProductsDeleted = ps.executeUpdate();
-            System.out.println("Removed product from " + outfitProductsDeleted + " outfits");
-            ps.close();
-
-            // 3. Remove from wardrobe items
-            ps = conn.prepareStatement("DELETE FROM wardrobe_items WHERE product_id = ?");
-            ps.setString(1, productId);
-            int wardrobeItemsDeleted = ps.executeUpdate();
-            System.out.println("Removed product from " + wardrobeItemsDeleted + " wardrobes");
-            ps.close();
-
-            // 4. Remove from cart items
-            ps = conn.prepareStatement("DELETE FROM cart_items WHERE product_id = ?");
-            ps.setString(1, productId);
-            int cartItemsDeleted = ps.executeUpdate();
-            System.out.println("Removed product from " + cartItemsDeleted + " shopping carts");
-            ps.close();
-
-            // 5. Finally delete the product
-            ps = conn.prepareStatement("DELETE FROM products WHERE product_id = ?");
-            ps.setString(1, productId);
-            int productsDeleted = ps.executeUpdate();
-            System.out.println("Deleted " + productsDeleted + " products");
-            ps.close();
-
-            // Commit changes to database
-            conn.commit();
-            System.out.println("Database transaction committed successfully");
-
-            // Now update the in-memory collections
-
-            // Remove product from the products map
-            Product removedProduct = products.remove(productId);
-            System.out.println("Removed from in-memory products map: " + (removedProduct != null ? "yes" : "no"));
-
-            // Remove the product from all user wardrobes
-            int inMemoryWardrobesUpdated = 0;
-            for (User user : users.values()) {
-                if (user.getWardrobeItemIds().remove(productId)) {
-                    inMemoryWardrobesUpdated++;
+        // Now update the in-memory collections
+
+        // Remove product from the products map
+        Product removedProduct = products.remove(productId);
+        unindexProduct(productId);
+        System.out.println("Removed from in-memory products map: " + (removedProduct != null ? "yes" : "no"));
+
+        // Only the wardrobes, outfits and carts that reference the product are touched.
+        // The rows are already gone from the database, so the entities are marked clean.
+        int inMemoryWardrobesUpdated = 0;
+        for (String userId : indexes.wardrobeOwnersOf(productId)) {
+            User user = users.get(userId);
+            if (user == null) {
+                continue;
+            }
+            boolean wasClean = !user.hasUnsavedChanges();
+            if (user.removeFromWardrobe(productId)) {
+                if (wasClean) {
+                    user.markClean();
                 }
+                inMemoryWardrobesUpdated++;
+                publish(DataChangeEvent.updated(DataChangeEvent.EntityType.USER, userId, user));
             }
-            System.out.println("Updated " + inMemoryWardrobesUpdated + " in-memory user wardrobes");
+            indexes.indexUser(user);
+        }
+        System.out.println("Updated " + inMemoryWardrobesUpdated + " in-memory user wardrobes");
 
-            // Remove the product from all outfits
-            int inMemoryOutfitsUpdated = 0;
-            for (Outfit outfit : outfits.values()) {
-                if (outfit.getProductIds().remove(productId)) {
-                    inMemoryOutfitsUpdated++;
-                }
+        int inMemoryOutfitsUpdated = 0;
+        for (String outfitId : indexes.outfitsContaining(productId)) {
+            Outfit outfit = outfits.get(outfitId);
+            if (outfit == null) {
+                continue;
             }
-            System.out.println("Updated " + inMemoryOutfitsUpdated + " in-memory outfits");
-
-            // Remove the product from all shopping carts
-            int inMemoryCartsUpdated = 0;
-            for (ShoppingCart cart : carts.values()) {
-                int cartSizeBefore = cart.getItemCount();
-                cart.removeItem(productId);
-                if (cart.getItemCount() < cartSizeBefore) {
-                    inMemoryCartsUpdated++;
+            boolean wasClean = !outfit.hasUnsavedChanges();
+            if (outfit.removeProduct(productId)) {
+                if (wasClean) {
+                    outfit.markClean();
                 }
+                inMemoryOutfitsUpdated++;
+                publish(DataChangeEvent.updated(DataChangeEvent.EntityType.OUTFIT, outfitId, outfit));
             }
-            System.out.println("Updated " + inMemoryCartsUpdated + " in-memory shopping carts");
+            indexes.indexOutfit(outfit);
+        }
+        System.out.println("Updated " + inMemoryOutfitsUpdated + " in-memory outfits");
 
-            // Double-check the product is gone
-            if (getProduct(productId) != null) {
-                System.err.println("WARNING: Product still exists in memory after deletion!");
-            } else {
-                System.out.println("Product " + productId + " successfully removed from memory");
+        int inMemoryCartsUpdated = 0;
+        for (String userId : indexes.cartOwnersContaining(productId)) {
+            ShoppingCart cart = carts.get(userId);
+            if (cart == null) {
+                continue;
             }
-
-            // Force a reload to ensure everything is in sync
-            loadAllData();
-
-            // Double-check after reload
-            if (getProduct(productId) != null) {
-                System.err.println("CRITICAL ERROR: Product reappeared after reload!");
-            } else {
-                System.out.println("Product " + productId + " confirmed deleted after reload");
+            boolean wasClean = !cart.hasUnsavedChanges();
+            if (cart.removeItem(productId)) {
+                if (wasClean) {
+                    cart.markClean();
+                }
+                inMemoryCartsUpdated++;
+                publish(DataChangeEvent.updated(DataChangeEvent.EntityType.CART, userId, cart));
             }
+            indexes.indexCart(cart);
+        }
+        System.out.println("Updated " + inMemoryCartsUpdated + " in-memory shopping carts");
 
-        } catch (SQLException e) {
-            System.err.println("Error deleting product " + productId + ": " + e.getMessage());
-            e.printStackTrace();
+        // The cache and storage now agree, so views can drop the product
+        // without reloading everything
+        publish(DataChangeEvent.removed(DataChangeEvent.EntityType.PRODUCT, productId));
+    }
 
-            try {
-                if (conn != null)
-                    conn.rollback();
-                System.out.println("Transaction rolled back due to error");
-            } catch (SQLException ex) {
-                System.err.println("Error rolling back transaction: " + ex.getMessage());
-                ex.printStackTrace();
-            }
-        } finally {
-            try {
-                if (conn != null)
-                    conn.setAutoCommit(true);
-            } catch (SQLException e) {
-                System.err.println("Error resetting auto-commit: " + e.getMessage());
-                e.printStackTrace();
-            }
+    /**
+     * Takes {@code quantity} units of a product out of stock and adds it to the
+     * user's wardrobe. The purchase is placed as an order, so the stock is
+     * reserved with a conditional update in the same transaction that records
+     * the sale: two buyers (or two app instances) can't both take the last
+     * unit, and only the user needs to be saved afterwards.
+     *
+     * @return true if there was enough stock and the purchase was applied
+     */
+    public boolean purchaseProduct(User user, Product product, int quantity) {
+        if (user == null || product == null || quantity <= 0) {
+            return false;
+        }
 
-            DatabaseUtils.close(conn, ps, null);
+        OrderService.PlacementResult result = orderService.placeOrder(user.getUserId(), product, quantity,
+                QUICK_PURCHASE_PAYMENT, OrderService.newIdempotencyKey());
+        if (!result.isPlaced()) {
+            return false;
         }
+
+        entityLocks.runWithLocks(() -> user.addToWardrobe(product.getProductId()), user.getUserId());
+        queueSave(user);
+        return true;
+    }
+
+    public InventoryService getInventoryService() {
+        return inventory;
+    }
+
+    public OrderService getOrderService() {
+        return orderService;
+    }
+
+    /**
+     * Applies stock levels read from storage to the cached products. A product
+     * that had no other unsaved changes stays clean, since storage already
+     * holds the new level.
+     */
+    void applyStockLevels(Map<String, Integer> stockLevels) {
+        stockLevels.forEach((productId, stock) -> {
+            Product product = getProduct(productId);
+            if (product == null) {
+                return;
+            }
+            entityLocks.runWithLocks(() -> {
+                if (product.getStockQuantity() == stock) {
+                    return;
+                }
+                boolean wasClean = !product.hasUnsavedChanges();
+                product.setStockQuantity(stock);
+                if (wasClean) {
+                    product.markClean();
+                }
+            }, productId);
+            // Published even if the cached level already matched: storage that
+            // shares the cached objects has changed the stock in place
+            publish(DataChangeEvent.updated(DataChangeEvent.EntityType.PRODUCT, productId, product));
+        });
     }
 
     // Outfit management
@@ -1438,17 +1149,49 @@ public class DataManager {
 
         if (validateOutfit(outfit)) {
             outfits.put(outfit.getOutfitId(), outfit);
+            indexes.indexOutfit(outfit);
             User user = users.get(outfit.getUserId());
             if (user != null) {
                 user.addOutfit(outfit.getOutfitId());
                 saveUsers(); // Save user changes
             }
             saveOutfits(); // Save immediately when an outfit is added
+            publish(DataChangeEvent.added(DataChangeEvent.EntityType.OUTFIT, outfit.getOutfitId(), outfit));
         }
     }
 
+    /**
+     * Adds an outfit like {@link #addOutfit(Outfit)} but persists it through the
+     * write-behind queue instead of blocking the caller.
+     *
+     * @return true if the outfit was valid and added
+     */
+    public boolean addOutfitAsync(Outfit outfit) {
+        if (outfit == null || outfit.getOutfitId() == null) {
+            throw new IllegalArgumentException("Outfit or outfit ID cannot be null");
+        }
+
+        if (!validateOutfit(outfit) || outfit.isEmpty()) {
+            return false;
+        }
+        outfits.put(outfit.getOutfitId(), outfit);
+        indexes.indexOutfit(outfit);
+        User user = users.get(outfit.getUserId());
+        if (user != null) {
+            user.addOutfit(outfit.getOutfitId());
+            queueSave(user);
+        }
+        writeBehind.submit(outfit);
+        publish(DataChangeEvent.added(DataChangeEvent.EntityType.OUTFIT, outfit.getOutfitId(), outfit));
+        return true;
+    }
+
     public Outfit getOutfit(String outfitId) {
-        return outfits.get(outfitId);
+        return outfitId != null ? outfits.get(outfitId) : null;
+    }
+
+    public List<Outfit> getAllOutfits() {
+        return new ArrayList<>(outfits.values());
     }
 
     public List<Outfit> getUserOutfits(String userId) {
@@ -1456,9 +1199,14 @@ public class DataManager {
             return new ArrayList<>();
         }
 
-        return outfits.values().stream()
-                .filter(outfit -> outfit.getUserId().equals(userId))
-                .collect(Collectors.toList());
+        List<Outfit> result = new ArrayList<>();
+        for (String outfitId : indexes.outfitIdsForUser(userId)) {
+            Outfit outfit = outfits.get(outfitId);
+            if (outfit != null) {
+                result.add(outfit);
+            }
+        }
+        return result;
     }
 
     public List<Outfit> getUserOutfitsWithProducts(String userId) {
@@ -1468,29 +1216,9 @@ public class DataManager {
         System.out.println("getUserOutfitsWithProducts: Found " + userOutfits.size() +
                 " outfits for user " + userId);
 
-        // First, try to get outfits directly from database with their products
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-
+        // First, ask storage which of the user's outfits actually have products
         try {
-            conn = DatabaseUtils.getConnection();
-
-            // This query gets only outfits that have products
-            ps = conn.prepareStatement(
-                    "SELECT o.*, COUNT(op.product_id) as product_count " +
-                            "FROM outfits o " +
-                            "LEFT JOIN outfit_products op ON o.outfit_id = op.outfit_id " +
-                            "WHERE o.user_id = ? " +
-                            "GROUP BY o.outfit_id " +
-                            "HAVING product_count > 0");
-            ps.setString(1, userId);
-            rs = ps.executeQuery();
-
-            Set<String> validOutfitIds = new HashSet<>();
-            while (rs.next()) {
-                validOutfitIds.add(rs.getString("outfit_id"));
-            }
+            Set<String> validOutfitIds = storage.outfits().findOutfitIdsWithProducts(userId);
 
             System.out.println("getUserOutfitsWithProducts: Found " + validOutfitIds.size() +
                     " valid outfits with products in database");
@@ -1503,8 +1231,6 @@ public class DataManager {
         } catch (SQLException e) {
             System.err.println("getUserOutfitsWithProducts: Database error: " + e.getMessage());
             // Continue with the old method if there's a database error
-        } finally {
-            DatabaseUtils.close(conn, ps, rs);
         }
 
         for (Outfit outfit : userOutfits) {
@@ -1524,8 +1250,14 @@ public class DataManager {
                 detailed.addProduct(productId);
             }
 
+            // The copy holds exactly what was loaded, so don't schedule a rewrite for it
+            if (!outfit.hasUnsavedChanges()) {
+                detailed.markClean();
+            }
+
             // Also ensure this outfit is in the outfits map with the correct ID
             outfits.put(detailed.getOutfitId(), detailed);
+            indexes.indexOutfit(detailed);
 
             System.out.println("getUserOutfitsWithProducts: Added outfit " + detailed.getName() +
                     " (ID: " + detailed.getOutfitId() + ") to result and outfits map");
@@ -1543,7 +1275,7 @@ public class DataManager {
         }
 
         for (String productId : outfit.getProductIds()) {
-            if (!products.containsKey(productId)) {
+            if (productId == null || !products.containsKey(productId)) {
                 return false;
             }
         }
@@ -1558,7 +1290,9 @@ public class DataManager {
 
         if (validateOutfit(outfit)) {
             outfits.put(outfit.getOutfitId(), outfit);
+            indexes.indexOutfit(outfit);
             saveOutfits(); // Save immediately when an outfit is updated
+            publish(DataChangeEvent.updated(DataChangeEvent.EntityType.OUTFIT, outfit.getOutfitId(), outfit));
         }
     }
 
@@ -1604,50 +1338,9 @@ public class DataManager {
         }
 
         try {
-            // First, delete from database to maintain referential integrity
-            Connection conn = null;
-            PreparedStatement ps = null;
-
-            try {
-                conn = DatabaseUtils.getConnection();
-                conn.setAutoCommit(false);
-
-                // Delete outfit products
-                ps = conn.prepareStatement("DELETE FROM outfit_products WHERE outfit_id = ?");
-                ps.setString(1, outfitId);
-                int productsDeleted = ps.executeUpdate();
-                System.out.println("removeOutfit: Deleted " + productsDeleted + " outfit products from database");
-                ps.close();
-
-                // Delete outfit tags
-                ps = conn.prepareStatement("DELETE FROM outfit_tags WHERE outfit_id = ?");
-                ps.setString(1, outfitId);
-                int tagsDeleted = ps.executeUpdate();
-                System.out.println("removeOutfit: Deleted " + tagsDeleted + " outfit tags from database");
-                ps.close();
-
-                // Delete the outfit itself
-                ps = conn.prepareStatement("DELETE FROM outfits WHERE outfit_id = ?");
-                ps.setString(1, outfitId);
-                int outfitsDeleted = ps.executeUpdate();
-                System.out.println("removeOutfit: Deleted " + outfitsDeleted + " outfits from database");
-                ps.close();
-
-                conn.commit();
-                System.out.println("removeOutfit: Database changes committed");
-            } catch (SQLException e) {
-                System.err.println("removeOutfit: Database error: " + e.getMessage());
-                if (conn != null) {
-                    try {
-                        conn.rollback();
-                    } catch (SQLException ex) {
-                        System.err.println("removeOutfit: Error rolling back: " + ex.getMessage());
-                    }
-                }
-                // Continue with in-memory deletion despite DB error
-            } finally {
-                DatabaseUtils.close(conn, ps, null);
-            }
+            // First, delete from storage to maintain referential integrity.
+            // Continue with in-memory deletion even if that fails.
+            storage.outfits().delete(outfitId);
 
             // Remove from user's outfit list
             String userId = outfitToRemove.getUserId();
@@ -1663,12 +1356,14 @@ public class DataManager {
 
             // Remove from outfits map
             Outfit removedOutfit = outfits.remove(outfitId);
+            indexes.unindexOutfit(outfitId);
             System.out.println("removeOutfit: Removed from outfits map: " + (removedOutfit != null));
 
             // Save changes
             saveOutfits();
             saveUsers();
             System.out.println("removeOutfit: Changes saved to data store");
+            publish(DataChangeEvent.removed(DataChangeEvent.EntityType.OUTFIT, outfitId));
 
             return true;
         } catch (Exception e) {
@@ -1697,12 +1392,12 @@ public class DataManager {
             return new ShoppingCart("guest");
         }
 
-        ShoppingCart cart = carts.get(userId);
-        if (cart == null) {
-            cart = new ShoppingCart(userId);
-            carts.put(userId, cart);
-        }
-        return cart;
+        // computeIfAbsent so two threads asking for a new cart get the same one
+        return carts.computeIfAbsent(userId, id -> {
+            ShoppingCart cart = new ShoppingCart(id);
+            indexes.indexCart(cart);
+            return cart;
+        });
     }
 
     public void saveCart(ShoppingCart cart) {
@@ -1710,7 +1405,9 @@ public class DataManager {
             throw new IllegalArgumentException("Cart or user ID cannot be null");
         }
         carts.put(cart.getUserId(), cart);
+        indexes.indexCart(cart);
         saveCarts(); // Save immediately when a cart is updated
+        publish(DataChangeEvent.updated(DataChangeEvent.EntityType.CART, cart.getUserId(), cart));
     }
 
     // Sample data initialization
@@ -1719,6 +1416,7 @@ public class DataManager {
         if (getUserByUsername("admin") == null) {
             User adminUser = new User("admin", "admin@example.com", "admin");
             users.put(adminUser.getUserId(), adminUser);
+            indexes.indexUser(adminUser);
         }
 
         // Check if we already have sample products
@@ -1736,18 +1434,21 @@ public class DataManager {
         if (users.isEmpty()) {
             User sampleUser = new User("sampleuser", "user@example.com", "password123");
             users.put(sampleUser.getUserId(), sampleUser);
+            indexes.indexUser(sampleUser);
 
             // Sample outfits
             Outfit casualOutfit = new Outfit(sampleUser.getUserId(), "Casual Look");
             casualOutfit.addProduct(tshirt.getProductId());
             casualOutfit.addProduct(jeans.getProductId());
             outfits.put(casualOutfit.getOutfitId(), casualOutfit);
+            indexes.indexOutfit(casualOutfit);
             sampleUser.addOutfit(casualOutfit.getOutfitId());
 
             Outfit sportyOutfit = new Outfit(sampleUser.getUserId(), "Sporty Look");
             sportyOutfit.addProduct(tshirt.getProductId());
             sportyOutfit.addProduct(shoes.getProductId());
             outfits.put(sportyOutfit.getOutfitId(), sportyOutfit);
+            indexes.indexOutfit(sportyOutfit);
             sampleUser.addOutfit(sportyOutfit.getOutfitId());
         }
 
@@ -1761,6 +1462,7 @@ public class DataManager {
         product.setDescription("Sample " + name + " in " + color);
         product.setStockQuantity(10); // Set some initial stock
         products.put(product.getProductId(), product);
+        indexProduct(product);
         return product;
     }
 
@@ -1784,7 +1486,7 @@ public class DataManager {
      * @return true if the account was deactivated, false otherwise
      */
     public boolean deactivateUser(String userId) {
-        User user = users.get(userId);
+        User user = getUser(userId);
         if (user == null) {
             return false;
         }
@@ -1807,7 +1509,7 @@ public class DataManager {
      *         deactivated
      */
     public boolean reactivateUser(String userId) {
-        User user = users.get(userId);
+        User user = getUser(userId);
         if (user == null) {
             return false;
         }
@@ -1833,7 +1535,7 @@ public class DataManager {
      * @return true if the user was banned, false otherwise
      */
     public boolean banUser(String userId, String reason) {
-        User user = users.get(userId);
+        User user = getUser(userId);
         if (user == null) {
             return false;
         }
@@ -1857,7 +1559,7 @@ public class DataManager {
      * @return true if the user was banned, false otherwise
      */
     public boolean banUserTemporarily(String userId, String reason, int days) {
-        User user = users.get(userId);
+        User user = getUser(userId);
         if (user == null) {
             return false;
         }
@@ -1879,7 +1581,7 @@ public class DataManager {
      * @return true if the user was unbanned, false otherwise
      */
     public boolean unbanUser(String userId) {
-        User user = users.get(userId);
+        User user = getUser(userId);
         if (user == null) {
             return false;
         }
@@ -1926,7 +1628,7 @@ public class DataManager {
      * @return true if the preference was saved, false otherwise
      */
     public boolean saveUserDarkModePreference(String userId, boolean darkModeEnabled) {
-        User user = users.get(userId);
+        User user = getUser(userId);
         if (user == null) {
             return false;
         }
@@ -1943,7 +1645,7 @@ public class DataManager {
      * @return true if dark mode is enabled, false otherwise
      */
     public boolean isUserDarkModeEnabled(String userId) {
-        User user = users.get(userId);
+        User user = getUser(userId);
         if (user == null) {
             return false; // Default to light mode
         }
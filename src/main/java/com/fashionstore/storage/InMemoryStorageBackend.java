@@ -0,0 +1,292 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Order;
+import com.fashionstore.models.Outfit;
+import com.fashionstore.models.Product;
+import com.fashionstore.models.ShoppingCart;
+import com.fashionstore.models.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Storage backend that keeps entities in memory. Nothing survives the JVM,
+ * which makes it suitable for load tests, profiling and integration runs on
+ * machines without MySQL: with {@code new DataManager(new InMemoryStorageBackend())}
+ * all measured time is spent in the application itself.
+ *
+ * Saved entities are stored by reference, so a reload returns the same objects.
+ */
+public class InMemoryStorageBackend implements StorageBackend {
+
+    private final Map<String, User> storedUsers = new ConcurrentHashMap<>();
+    private final Map<String, Product> storedProducts = new ConcurrentHashMap<>();
+    private final Map<String, Outfit> storedOutfits = new ConcurrentHashMap<>();
+    private final Map<String, ShoppingCart> storedCarts = new ConcurrentHashMap<>();
+    // Orders are keyed by idempotency key, which is what inserts check
+    private final Map<String, Order> storedOrders = new ConcurrentHashMap<>();
+
+    // Number of entities written, for benchmarks that want to check write volume
+    private final AtomicLong writeCount = new AtomicLong();
+
+    private final UserRepository users = new UserRepository() {
+        @Override
+        public List<User> loadAll() {
+            return new ArrayList<>(storedUsers.values());
+        }
+
+        @Override
+        public boolean saveAll(List<User> changedUsers, Collection<User> conflicts) {
+            for (User user : changedUsers) {
+                boolean taken = user.getUsername() != null && storedUsers.values().stream()
+                        .anyMatch(stored -> !stored.getUserId().equals(user.getUserId())
+                                && user.getUsername().equals(stored.getUsername()));
+                if (taken) {
+                    conflicts.add(user);
+                } else {
+                    storedUsers.put(user.getUserId(), user);
+                    writeCount.incrementAndGet();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean delete(String userId) {
+            storedOutfits.values().removeIf(outfit -> userId.equals(outfit.getUserId()));
+            storedCarts.remove(userId);
+            return storedUsers.remove(userId) != null;
+        }
+    };
+
+    private final ProductRepository products = new ProductRepository() {
+        @Override
+        public List<Product> loadAll() {
+            return new ArrayList<>(storedProducts.values());
+        }
+
+        @Override
+        public ProductPage findPage(ProductQuery query) {
+            List<ProductSortIndex.Entry> entries = ProductSortIndex.sortAndPage(
+                    storedProducts.values(), query, query.getPageSize() + 1);
+            return DataManager.toPage(query, entries, storedProducts::get);
+        }
+
+        @Override
+        public boolean saveAll(List<Product> changedProducts) {
+            changedProducts.forEach(product -> storedProducts.put(product.getProductId(), product));
+            writeCount.addAndGet(changedProducts.size());
+            return true;
+        }
+
+        @Override
+        public boolean delete(String productId) {
+            // Wardrobes, outfits and carts are shared with DataManager's cache,
+            // which removes the references itself
+            storedProducts.remove(productId);
+            return true;
+        }
+
+        @Override
+        public StockReservation reserveStock(Map<String, Integer> quantities) {
+            // Check and decrement under one lock so the reservation is atomic
+            synchronized (storedProducts) {
+                boolean allAvailable = true;
+                for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+                    Product product = storedProducts.get(line.getKey());
+                    if (product == null || product.getStockQuantity() < line.getValue()) {
+                        allAvailable = false;
+                    }
+                }
+
+                List<StockReservation.Line> lines = new ArrayList<>();
+                for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+                    String productId = line.getKey();
+                    int quantity = line.getValue();
+                    Product product = storedProducts.get(productId);
+                    if (product == null) {
+                        lines.add(new StockReservation.Line(productId, quantity,
+                                StockReservation.Status.UNKNOWN_PRODUCT, -1));
+                    } else if (product.getStockQuantity() < quantity) {
+                        lines.add(new StockReservation.Line(productId, quantity,
+                                StockReservation.Status.INSUFFICIENT_STOCK, product.getStockQuantity()));
+                    } else if (!allAvailable) {
+                        lines.add(new StockReservation.Line(productId, quantity,
+                                StockReservation.Status.ROLLED_BACK, product.getStockQuantity()));
+                    } else {
+                        // Stored products are shared with DataManager's cache, so
+                        // the decrement must not make a clean product look unsaved
+                        int remaining = product.getStockQuantity() - quantity;
+                        boolean wasClean = !product.hasUnsavedChanges();
+                        product.setStockQuantity(remaining);
+                        if (wasClean) {
+                            product.markClean();
+                        }
+                        lines.add(new StockReservation.Line(productId, quantity,
+                                StockReservation.Status.RESERVED, remaining));
+                    }
+                }
+                if (allAvailable) {
+                    writeCount.addAndGet(quantities.size());
+                }
+                return new StockReservation(lines, allAvailable);
+            }
+        }
+
+        @Override
+        public Map<String, Integer> adjustStock(Map<String, Integer> changes) {
+            synchronized (storedProducts) {
+                Map<String, Integer> stockLevels = new LinkedHashMap<>();
+                changes.forEach((productId, change) -> {
+                    Product product = storedProducts.get(productId);
+                    if (product == null) {
+                        return;
+                    }
+                    int stock = Math.max(0, product.getStockQuantity() + change);
+                    boolean wasClean = !product.hasUnsavedChanges();
+                    product.setStockQuantity(stock);
+                    if (wasClean) {
+                        product.markClean();
+                    }
+                    stockLevels.put(productId, stock);
+                });
+                writeCount.addAndGet(stockLevels.size());
+                return stockLevels;
+            }
+        }
+    };
+
+    private final OutfitRepository outfits = new OutfitRepository() {
+        @Override
+        public List<Outfit> loadAll() {
+            return new ArrayList<>(storedOutfits.values());
+        }
+
+        @Override
+        public boolean saveAll(List<Outfit> changedOutfits) {
+            changedOutfits.forEach(outfit -> storedOutfits.put(outfit.getOutfitId(), outfit));
+            writeCount.addAndGet(changedOutfits.size());
+            return true;
+        }
+
+        @Override
+        public boolean delete(String outfitId) {
+            return storedOutfits.remove(outfitId) != null;
+        }
+
+        @Override
+        public Set<String> findOutfitIdsWithProducts(String userId) {
+            return storedOutfits.values().stream()
+                    .filter(outfit -> userId.equals(outfit.getUserId()) && !outfit.isEmpty())
+                    .map(Outfit::getOutfitId)
+                    .collect(Collectors.toSet());
+        }
+    };
+
+    private final CartRepository carts = new CartRepository() {
+        @Override
+        public List<ShoppingCart> loadAll(Map<String, Product> knownProducts) {
+            return new ArrayList<>(storedCarts.values());
+        }
+
+        @Override
+        public boolean saveAll(List<ShoppingCart> changedCarts) {
+            changedCarts.forEach(cart -> storedCarts.put(cart.getUserId(), cart));
+            writeCount.addAndGet(changedCarts.size());
+            return true;
+        }
+    };
+
+    private final OrderRepository orders = new OrderRepository() {
+        @Override
+        public OrderService.PlacementResult placeOrder(Order order) {
+            // Holds the stock lock across the reservation and the insert so
+            // the two happen together
+            synchronized (storedProducts) {
+                Order existing = storedOrders.get(order.getIdempotencyKey());
+                if (existing != null) {
+                    return OrderService.PlacementResult.duplicate(existing);
+                }
+                StockReservation reservation = products.reserveStock(order.getQuantities());
+                if (!reservation.isCommitted()) {
+                    return OrderService.PlacementResult.rejected(reservation);
+                }
+                storedOrders.put(order.getIdempotencyKey(), order);
+                writeCount.addAndGet(1 + order.getItems().size());
+                return OrderService.PlacementResult.placed(order, reservation);
+            }
+        }
+
+        @Override
+        public Order findByIdempotencyKey(String idempotencyKey) {
+            return storedOrders.get(idempotencyKey);
+        }
+
+        @Override
+        public List<Order> findByUser(String userId) {
+            return storedOrders.values().stream()
+                    .filter(order -> userId.equals(order.getUserId()))
+                    .sorted(Comparator.comparing(Order::getCreatedAt).reversed())
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<Order> findByTimeRange(LocalDateTime from, LocalDateTime to) {
+            return storedOrders.values().stream()
+                    .filter(order -> !order.getCreatedAt().isBefore(from) && order.getCreatedAt().isBefore(to))
+                    .sorted(Comparator.comparing(Order::getCreatedAt))
+                    .collect(Collectors.toList());
+        }
+    };
+
+    @Override
+    public void initialize() {
+        System.out.println("Using in-memory storage backend; data will not be persisted.");
+    }
+
+    @Override
+    public String getName() {
+        return "in-memory";
+    }
+
+    @Override
+    public UserRepository users() {
+        return users;
+    }
+
+    @Override
+    public ProductRepository products() {
+        return products;
+    }
+
+    @Override
+    public OutfitRepository outfits() {
+        return outfits;
+    }
+
+    @Override
+    public CartRepository carts() {
+        return carts;
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    /**
+     * Gets the total number of entities written since this backend was created.
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+}
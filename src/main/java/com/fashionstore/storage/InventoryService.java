@@ -0,0 +1,134 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Product;
+import com.fashionstore.models.ShoppingCart;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reserves product stock for purchases and adjusts it for restocking.
+ *
+ * Stock is changed in storage with a conditional update rather than by
+ * saving the cached product, so concurrent buyers can never take stock below
+ * zero and a purchase writes only the rows it touches. The resulting stock
+ * levels are then applied to DataManager's cache, so no reload is needed.
+ */
+public class InventoryService {
+
+    private final DataManager dataManager;
+    private final ProductRepository products;
+
+    InventoryService(DataManager dataManager, ProductRepository products) {
+        this.dataManager = dataManager;
+        this.products = products;
+    }
+
+    /**
+     * Reserves stock for a single product.
+     */
+    public StockReservation reserve(Product product, int quantity) {
+        return reserve(Collections.singletonMap(product.getProductId(), quantity));
+    }
+
+    /**
+     * Reserves stock for every line of a cart in one transaction. Nothing is
+     * reserved unless every line can be.
+     */
+    public StockReservation reserveCart(ShoppingCart cart) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (ShoppingCart.CartItem item : cart.getItems()) {
+            if (item.getProduct() != null) {
+                quantities.merge(item.getProduct().getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        return reserve(quantities);
+    }
+
+    /**
+     * Reserves the given quantity of each product in one transaction.
+     *
+     * @param quantities product ID to quantity
+     */
+    public StockReservation reserve(Map<String, Integer> quantities) {
+        Map<String, Integer> lines = new LinkedHashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (productId != null && quantity != null && quantity > 0) {
+                lines.merge(productId, quantity, Integer::sum);
+            }
+        });
+        if (lines.isEmpty()) {
+            return StockReservation.failed("Nothing to reserve");
+        }
+
+        long start = System.nanoTime();
+        StockReservation reservation = products.reserveStock(lines);
+        apply(reservation);
+
+        System.out.println("Stock reservation for " + lines.size() + " products "
+                + (reservation.isCommitted() ? "committed" : "rejected") + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return reservation;
+    }
+
+    /**
+     * Applies the stock levels read by a reservation to the cached products.
+     * Done even when the reservation failed, so the UI shows the levels that
+     * caused the failure.
+     */
+    void apply(StockReservation reservation) {
+        dataManager.applyStockLevels(reservation.getStockLevels());
+    }
+
+    /**
+     * Adds stock to a product, or removes it if {@code change} is negative.
+     * The change is made to the stored level rather than overwriting it, so
+     * units sold meanwhile stay sold. Stock never goes below zero.
+     *
+     * @return the new stock level, or -1 if the product couldn't be updated
+     */
+    public int restock(Product product, int change) {
+        if (change == 0) {
+            return product.getStockQuantity();
+        }
+
+        long start = System.nanoTime();
+        Map<String, Integer> stockLevels = products.adjustStock(
+                Collections.singletonMap(product.getProductId(), change));
+        dataManager.applyStockLevels(stockLevels);
+
+        Integer stock = stockLevels.get(product.getProductId());
+        System.out.println("Stock of " + product.getProductId() + " adjusted by " + change
+                + (stock != null ? " to " + stock : " failed") + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return stock != null ? stock : -1;
+    }
+
+    /**
+     * Describes why a reservation failed, one line per short product, for
+     * showing to the user.
+     */
+    public String describeFailures(StockReservation reservation) {
+        if (reservation.getErrorMessage() != null) {
+            return "Stock could not be reserved: " + reservation.getErrorMessage();
+        }
+
+        StringBuilder message = new StringBuilder();
+        for (StockReservation.Line line : reservation.getFailedLines()) {
+            Product product = dataManager.getProduct(line.getProductId());
+            String name = product != null ? product.getName() : line.getProductId();
+            if (message.length() > 0) {
+                message.append("\n");
+            }
+            message.append("- ").append(name);
+            if (line.getStatus() == StockReservation.Status.UNKNOWN_PRODUCT) {
+                message.append(": no longer available");
+            } else {
+                message.append(": requested ").append(line.getRequestedQuantity())
+                        .append(", only ").append(line.getAvailableStock()).append(" in stock");
+            }
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,174 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Product;
+import com.fashionstore.models.ShoppingCart;
+import com.fashionstore.utils.DatabaseUtils;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * MySQL-backed shopping cart repository.
+ */
+class JdbcCartRepository implements CartRepository {
+
+    @Override
+    public List<ShoppingCart> loadAll(Map<String, Product> products) throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        List<ShoppingCart> loadedCarts = new ArrayList<>();
+        Map<String, ShoppingCart> cartsById = new HashMap<>();
+
+        try {
+            conn = DatabaseUtils.getConnection();
+
+            // Get all carts
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn, "SELECT * FROM shopping_carts");
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                String cartId = rs.getString("cart_id");
+                String userId = rs.getString("user_id");
+
+                ShoppingCart cart = new ShoppingCart(userId);
+                // Set the cart ID explicitly since we're reconstructing from DB
+                cart.setCartId(cartId);
+                cartsById.put(cartId, cart);
+                loadedCarts.add(cart);
+            }
+            rs.close();
+            ps.close();
+
+            // Load cart items for all carts in a single scan. Only the columns needed
+            // to rebuild a product that is missing from the cache are joined in.
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn,
+                    "SELECT ci.cart_id, ci.product_id, ci.quantity, p.name, p.category, p.price " +
+                            "FROM cart_items ci " +
+                            "JOIN products p ON ci.product_id = p.product_id");
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                ShoppingCart cart = cartsById.get(rs.getString("cart_id"));
+                if (cart == null) {
+                    continue;
+                }
+
+                // For each cart item, we need the product and quantity
+                String productId = rs.getString("product_id");
+                int quantity = rs.getInt("quantity");
+
+                // Get the product from cache if it exists, or create a new one
+                Product product = products.get(productId);
+                if (product == null) {
+                    String name = rs.getString("name");
+                    String category = rs.getString("category");
+                    BigDecimal price = rs.getBigDecimal("price");
+
+                    product = new Product(name, category, price);
+                    // Set the product ID explicitly since we're reconstructing from DB
+                    product.setProductId(productId);
+                    product.markClean();
+                    products.put(productId, product);
+                }
+
+                // Add product to cart with specified quantity
+                cart.addItem(product, quantity);
+            }
+            rs.close();
+            ps.close();
+
+            return loadedCarts;
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+
+    @Override
+    public boolean saveAll(List<ShoppingCart> dirtyCarts) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        boolean databaseSaved = false;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            // Upsert new or re-keyed cart records
+            List<ShoppingCart> cartsChanged = dirtyCarts.stream()
+                    .filter(ShoppingCart::isDirty)
+                    .collect(Collectors.toList());
+            if (!cartsChanged.isEmpty()) {
+                ps = conn.prepareStatement(
+                        "INSERT INTO shopping_carts (cart_id, user_id) " +
+                                "VALUES (?, ?) " +
+                                "ON DUPLICATE KEY UPDATE user_id = VALUES(user_id)");
+                for (ShoppingCart cart : cartsChanged) {
+                    ps.setString(1, cart.getCartId());
+                    ps.setString(2, cart.getUserId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ps.close();
+            }
+
+            // Rewrite items only for carts whose contents changed
+            List<ShoppingCart> itemsChanged = dirtyCarts.stream()
+                    .filter(ShoppingCart::isItemsDirty)
+                    .collect(Collectors.toList());
+            if (!itemsChanged.isEmpty()) {
+                ps = conn.prepareStatement("DELETE FROM cart_items WHERE cart_id = ?");
+                for (ShoppingCart cart : itemsChanged) {
+                    ps.setString(1, cart.getCartId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ps.close();
+
+                ps = conn.prepareStatement(
+                        "INSERT INTO cart_items (cart_id, product_id, quantity) VALUES (?, ?, ?)");
+                for (ShoppingCart cart : itemsChanged) {
+                    for (ShoppingCart.CartItem item : cart.getItems()) {
+                        ps.setString(1, cart.getCartId());
+                        ps.setString(2, item.getProduct().getProductId());
+                        ps.setInt(3, item.getQuantity());
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+                ps.close();
+            }
+
+            conn.commit();
+            databaseSaved = true;
+            System.out.println("Saved " + dirtyCarts.size() + " changed shopping carts to database");
+
+        } catch (SQLException e) {
+            System.err.println("Error saving carts: " + e.getMessage());
+
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+
+            DatabaseUtils.close(conn, ps, null);
+        }
+        return databaseSaved;
+    }}
@@ -0,0 +1,194 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Order;
+import com.fashionstore.utils.DatabaseUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MySQL-backed order ledger.
+ */
+class JdbcOrderRepository implements OrderRepository {
+
+    // Orders joined with their items; callers append a WHERE and ORDER BY clause
+    private static final String SELECT_ORDERS =
+            "SELECT o.order_id, o.idempotency_key, o.user_id, o.payment_method, o.created_at, " +
+                    "i.product_id, i.product_name, i.quantity, i.unit_price " +
+                    "FROM orders o " +
+                    "LEFT JOIN order_items i ON i.order_id = o.order_id ";
+
+    @Override
+    public OrderService.PlacementResult placeOrder(Order order) throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            // The order row goes first: its unique idempotency key makes a
+            // duplicate fail before any stock is touched, and holds off a
+            // concurrent placement with the same key until this one commits
+            ps = conn.prepareStatement(
+                    "INSERT INTO orders (order_id, idempotency_key, user_id, payment_method, total_amount, created_at) " +
+                            "VALUES (?, ?, ?, ?, ?, ?)");
+            ps.setString(1, order.getOrderId());
+            ps.setString(2, order.getIdempotencyKey());
+            ps.setString(3, order.getUserId());
+            ps.setString(4, order.getPaymentMethod());
+            ps.setBigDecimal(5, order.getTotalAmount());
+            ps.setTimestamp(6, Timestamp.valueOf(order.getCreatedAt()));
+            try {
+                ps.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                // Another request with the same idempotency key got there first
+                conn.rollback();
+                Order existing = findByIdempotencyKey(conn, order.getIdempotencyKey());
+                if (existing == null) {
+                    throw e;
+                }
+                return OrderService.PlacementResult.duplicate(existing);
+            }
+            ps.close();
+
+            StockReservation reservation = JdbcProductRepository.reserveStock(conn, order.getQuantities());
+            if (!reservation.isCommitted()) {
+                conn.rollback();
+                return OrderService.PlacementResult.rejected(reservation);
+            }
+
+            // All lines in one batch
+            ps = conn.prepareStatement(
+                    "INSERT INTO order_items (order_id, line_number, product_id, product_name, quantity, unit_price) " +
+                            "VALUES (?, ?, ?, ?, ?, ?)");
+            int lineNumber = 1;
+            for (Order.OrderItem item : order.getItems()) {
+                ps.setString(1, order.getOrderId());
+                ps.setInt(2, lineNumber++);
+                ps.setString(3, item.getProductId());
+                ps.setString(4, item.getProductName());
+                ps.setInt(5, item.getQuantity());
+                ps.setBigDecimal(6, item.getUnitPrice());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+            conn.commit();
+            return OrderService.PlacementResult.placed(order, reservation);
+
+        } catch (SQLException e) {
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+            throw e;
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+            DatabaseUtils.close(conn, ps, null);
+        }
+    }
+
+    @Override
+    public Order findByIdempotencyKey(String idempotencyKey) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DatabaseUtils.getConnection();
+            return findByIdempotencyKey(conn, idempotencyKey);
+        } finally {
+            DatabaseUtils.close(conn, null, null);
+        }
+    }
+
+    private Order findByIdempotencyKey(Connection conn, String idempotencyKey) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                SELECT_ORDERS + "WHERE o.idempotency_key = ? ORDER BY i.line_number")) {
+            ps.setString(1, idempotencyKey);
+            List<Order> orders = readOrders(ps);
+            return orders.isEmpty() ? null : orders.get(0);
+        }
+    }
+
+    @Override
+    public List<Order> findByUser(String userId) throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        try {
+            conn = DatabaseUtils.getConnection();
+            // Served by idx_orders_user_created
+            ps = conn.prepareStatement(SELECT_ORDERS +
+                    "WHERE o.user_id = ? ORDER BY o.created_at DESC, o.order_id, i.line_number");
+            ps.setString(1, userId);
+            return readOrders(ps);
+        } finally {
+            DatabaseUtils.close(conn, ps, null);
+        }
+    }
+
+    @Override
+    public List<Order> findByTimeRange(LocalDateTime from, LocalDateTime to) throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        try {
+            conn = DatabaseUtils.getConnection();
+            // Served by idx_orders_created; streamed since a range can be large
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn, SELECT_ORDERS +
+                    "WHERE o.created_at >= ? AND o.created_at < ? " +
+                    "ORDER BY o.created_at, o.order_id, i.line_number");
+            ps.setTimestamp(1, Timestamp.valueOf(from));
+            ps.setTimestamp(2, Timestamp.valueOf(to));
+            return readOrders(ps);
+        } finally {
+            DatabaseUtils.close(conn, ps, null);
+        }
+    }
+
+    /**
+     * Reads joined order/item rows, which must be grouped by order.
+     */
+    private List<Order> readOrders(PreparedStatement ps) throws SQLException {
+        Map<String, Order.Builder> builders = new LinkedHashMap<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String orderId = rs.getString("order_id");
+                Order.Builder builder = builders.get(orderId);
+                if (builder == null) {
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    builder = new Order.Builder(rs.getString("user_id"), rs.getString("idempotency_key"))
+                            .orderId(orderId)
+                            .paymentMethod(rs.getString("payment_method"))
+                            .createdAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+                    builders.put(orderId, builder);
+                }
+
+                String productId = rs.getString("product_id");
+                if (productId != null) {
+                    builder.addItem(productId, rs.getString("product_name"),
+                            rs.getInt("quantity"), rs.getBigDecimal("unit_price"));
+                }
+            }
+        }
+
+        List<Order> orders = new ArrayList<>(builders.size());
+        for (Order.Builder builder : builders.values()) {
+            orders.add(builder.build());
+        }
+        return orders;
+    }
+}
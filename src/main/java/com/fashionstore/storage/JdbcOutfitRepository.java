@@ -0,0 +1,307 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Outfit;
+import com.fashionstore.utils.DatabaseUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * MySQL-backed outfit repository.
+ */
+class JdbcOutfitRepository implements OutfitRepository {
+
+    @Override
+    public List<Outfit> loadAll() throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<String, Outfit> loadedOutfits = new LinkedHashMap<>();
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn, "SELECT * FROM outfits");
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                String outfitId = rs.getString("outfit_id");
+                String userId = rs.getString("user_id");
+                String name = rs.getString("name");
+
+                Outfit outfit = new Outfit(userId, name);
+                // Set the outfit ID explicitly since we're reconstructing from DB
+                outfit.setOutfitId(outfitId);
+
+                outfit.setDescription(rs.getString("description"));
+                outfit.setAiGenerated(rs.getBoolean("ai_generated"));
+                outfit.setStyleRating(rs.getDouble("style_rating"));
+
+                String seasonStr = rs.getString("season");
+                if (seasonStr != null) {
+                    outfit.setSeason(Outfit.OutfitSeason.valueOf(seasonStr));
+                }
+
+                String occasionStr = rs.getString("occasion");
+                if (occasionStr != null) {
+                    outfit.setOccasion(Outfit.OutfitOccasion.valueOf(occasionStr));
+                }
+
+                loadedOutfits.put(outfitId, outfit);
+            }
+            rs.close();
+            ps.close();
+
+            // Load outfit products for all outfits in a single scan
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn, "SELECT outfit_id, product_id FROM outfit_products");
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                Outfit outfit = loadedOutfits.get(rs.getString("outfit_id"));
+                if (outfit != null) {
+                    outfit.addProduct(rs.getString("product_id"));
+                }
+            }
+            rs.close();
+            ps.close();
+
+            // Load outfit tags for all outfits in a single scan
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn, "SELECT outfit_id, tag FROM outfit_tags");
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                Outfit outfit = loadedOutfits.get(rs.getString("outfit_id"));
+                if (outfit != null) {
+                    outfit.addTag(rs.getString("tag"));
+                }
+            }
+            rs.close();
+            ps.close();
+
+            return new ArrayList<>(loadedOutfits.values());
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+
+    @Override
+    public boolean saveAll(List<Outfit> dirtyOutfits) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        boolean databaseSaved = false;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            // Upsert changed outfit records in a single batch
+            ps = conn.prepareStatement(
+                    "INSERT INTO outfits " +
+                            "(outfit_id, user_id, name, description, created_at, last_modified, " +
+                            "ai_generated, style_rating, likes_count, season, occasion) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                            "ON DUPLICATE KEY UPDATE " +
+                            "name = VALUES(name), " +
+                            "description = VALUES(description), " +
+                            "last_modified = VALUES(last_modified), " +
+                            "ai_generated = VALUES(ai_generated), " +
+                            "style_rating = VALUES(style_rating), " +
+                            "likes_count = VALUES(likes_count), " +
+                            "season = VALUES(season), " +
+                            "occasion = VALUES(occasion)");
+
+            for (Outfit outfit : dirtyOutfits) {
+                if (!outfit.isDirty()) {
+                    continue;
+                }
+                ps.setString(1, outfit.getOutfitId());
+                ps.setString(2, outfit.getUserId());
+                ps.setString(3, outfit.getName());
+                ps.setString(4, outfit.getDescription());
+                ps.setTimestamp(5,
+                        outfit.getCreatedAt() != null ? new Timestamp(outfit.getCreatedAt().getTime()) : null);
+                ps.setTimestamp(6,
+                        outfit.getLastModified() != null ? new Timestamp(outfit.getLastModified().getTime()) : null);
+                ps.setBoolean(7, outfit.isAiGenerated());
+                ps.setDouble(8, outfit.getStyleRating());
+                ps.setInt(9, outfit.getLikesCount());
+                ps.setString(10, outfit.getSeason() != null ? outfit.getSeason().name() : null);
+                ps.setString(11, outfit.getOccasion() != null ? outfit.getOccasion().name() : null);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ps.close();
+
+            // Rewrite outfit products only for outfits whose product set changed
+            List<Outfit> productsChanged = dirtyOutfits.stream()
+                    .filter(Outfit::isProductsDirty)
+                    .collect(Collectors.toList());
+            if (!productsChanged.isEmpty()) {
+                ps = conn.prepareStatement("DELETE FROM outfit_products WHERE outfit_id = ?");
+                for (Outfit outfit : productsChanged) {
+                    ps.setString(1, outfit.getOutfitId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ps.close();
+
+                ps = conn.prepareStatement(
+                        "INSERT INTO outfit_products (outfit_id, product_id) VALUES (?, ?)");
+                for (Outfit outfit : productsChanged) {
+                    for (String productId : outfit.getProductIds()) {
+                        ps.setString(1, outfit.getOutfitId());
+                        ps.setString(2, productId);
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+                ps.close();
+            }
+
+            // Rewrite outfit tags only for outfits whose tags changed
+            List<Outfit> tagsChanged = dirtyOutfits.stream()
+                    .filter(Outfit::isTagsDirty)
+                    .collect(Collectors.toList());
+            if (!tagsChanged.isEmpty()) {
+                ps = conn.prepareStatement("DELETE FROM outfit_tags WHERE outfit_id = ?");
+                for (Outfit outfit : tagsChanged) {
+                    ps.setString(1, outfit.getOutfitId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ps.close();
+
+                ps = conn.prepareStatement(
+                        "INSERT INTO outfit_tags (outfit_id, tag) VALUES (?, ?)");
+                for (Outfit outfit : tagsChanged) {
+                    for (String tag : outfit.getTags()) {
+                        ps.setString(1, outfit.getOutfitId());
+                        ps.setString(2, tag);
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+                ps.close();
+            }
+
+            conn.commit();
+            databaseSaved = true;
+            System.out.println("Saved " + dirtyOutfits.size() + " changed outfits to database");
+
+        } catch (SQLException e) {
+            System.err.println("Error saving outfits: " + e.getMessage());
+
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+
+            DatabaseUtils.close(conn, ps, null);
+        }
+        return databaseSaved;
+    }
+
+    @Override
+    public boolean delete(String outfitId) {
+        boolean deleted = false;
+        Connection conn = null;
+        PreparedStatement ps = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            // Delete outfit products
+            ps = conn.prepareStatement("DELETE FROM outfit_products WHERE outfit_id = ?");
+            ps.setString(1, outfitId);
+            int productsDeleted = ps.executeUpdate();
+            System.out.println("removeOutfit: Deleted " + productsDeleted + " outfit products from database");
+            ps.close();
+
+            // Delete outfit tags
+            ps = conn.prepareStatement("DELETE FROM outfit_tags WHERE outfit_id = ?");
+            ps.setString(1, outfitId);
+            int tagsDeleted = ps.executeUpdate();
+            System.out.println("removeOutfit: Deleted " + tagsDeleted + " outfit tags from database");
+            ps.close();
+
+            // Delete the outfit itself
+            ps = conn.prepareStatement("DELETE FROM outfits WHERE outfit_id = ?");
+            ps.setString(1, outfitId);
+            int outfitsDeleted = ps.executeUpdate();
+            System.out.println("removeOutfit: Deleted " + outfitsDeleted + " outfits from database");
+            ps.close();
+
+            conn.commit();
+            deleted = true;
+            System.out.println("removeOutfit: Database changes committed");
+        } catch (SQLException e) {
+            System.err.println("removeOutfit: Database error: " + e.getMessage());
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    System.err.println("removeOutfit: Error rolling back: " + ex.getMessage());
+                }
+            }
+        } finally {
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                System.err.println("removeOutfit: Error resetting auto-commit: " + e.getMessage());
+            }
+            DatabaseUtils.close(conn, ps, null);
+        }
+        return deleted;
+    }
+
+    @Override
+    public Set<String> findOutfitIdsWithProducts(String userId) throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+
+            // This query gets only outfits that have products
+            ps = conn.prepareStatement(
+                    "SELECT o.*, COUNT(op.product_id) as product_count " +
+                            "FROM outfits o " +
+                            "LEFT JOIN outfit_products op ON o.outfit_id = op.outfit_id " +
+                            "WHERE o.user_id = ? " +
+                            "GROUP BY o.outfit_id " +
+                            "HAVING product_count > 0");
+            ps.setString(1, userId);
+            rs = ps.executeQuery();
+
+            Set<String> validOutfitIds = new HashSet<>();
+            while (rs.next()) {
+                validOutfitIds.add(rs.getString("outfit_id"));
+            }
+            return validOutfitIds;
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+}
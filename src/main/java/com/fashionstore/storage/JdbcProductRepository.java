@@ -0,0 +1,601 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Product;
+import com.fashionstore.search.FacetIndex;
+import com.fashionstore.utils.DatabaseUtils;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * MySQL-backed product repository.
+ */
+class JdbcProductRepository implements ProductRepository {
+
+    @Override
+    public List<Product> loadAll() throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<String, Product> loadedProducts = new LinkedHashMap<>();
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn, "SELECT * FROM products");
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                Product product = readProduct(rs);
+                loadedProducts.put(product.getProductId(), product);
+            }
+            rs.close();
+            ps.close();
+
+            // Load product attributes for all products in a single scan
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn,
+                    "SELECT product_id, attribute_name, attribute_value FROM product_attributes");
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                Product product = loadedProducts.get(rs.getString("product_id"));
+                if (product != null) {
+                    product.setAttribute(
+                            rs.getString("attribute_name"),
+                            rs.getString("attribute_value"));
+                }
+            }
+            rs.close();
+            ps.close();
+
+            return new ArrayList<>(loadedProducts.values());
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+
+    @Override
+    public ProductPage findPage(ProductQuery query) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT * FROM products WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+
+        for (Map.Entry<FacetIndex.Facet, String> filter : query.getSelection().entrySet()) {
+            if (filter.getKey() != FacetIndex.Facet.PRICE) {
+                sql.append(" AND ").append(filter.getKey().name().toLowerCase()).append(" = ?");
+                params.add(filter.getValue());
+            }
+        }
+        if (query.isVisibleOnly()) {
+            sql.append(" AND (is_visible IS NULL OR is_visible = TRUE)");
+        }
+        long[] range = query.effectivePriceRange();
+        if (range[0] > 0) {
+            sql.append(" AND price >= ?");
+            params.add(BigDecimal.valueOf(range[0], 2));
+        }
+        if (range[1] != Long.MAX_VALUE) {
+            sql.append(" AND price < ?");
+            params.add(BigDecimal.valueOf(range[1], 2));
+        }
+
+        // Seek past the cursor rather than skipping with OFFSET, so every page
+        // is a range scan of the (sort column, product_id) index
+        ProductQuery.Position after = query.getPosition();
+        switch (query.getSortKey()) {
+            case NAME:
+                if (after != null) {
+                    sql.append(" AND (name > ? OR (name = ? AND product_id > ?))");
+                    params.add(after.text);
+                    params.add(after.text);
+                    params.add(after.productId);
+                }
+                sql.append(" ORDER BY name, product_id");
+                break;
+            case PRICE_LOW_TO_HIGH:
+                if (after != null) {
+                    sql.append(" AND (price > ? OR (price = ? AND product_id > ?))");
+                    params.add(BigDecimal.valueOf(after.number, 2));
+                    params.add(BigDecimal.valueOf(after.number, 2));
+                    params.add(after.productId);
+                }
+                sql.append(" ORDER BY price, product_id");
+                break;
+            case PRICE_HIGH_TO_LOW:
+                if (after != null) {
+                    sql.append(" AND (price < ? OR (price = ? AND product_id < ?))");
+                    params.add(BigDecimal.valueOf(after.number, 2));
+                    params.add(BigDecimal.valueOf(after.number, 2));
+                    params.add(after.productId);
+                }
+                sql.append(" ORDER BY price DESC, product_id DESC");
+                break;
+            default:
+                if (after != null) {
+                    sql.append(" AND product_id > ?");
+                    params.add(after.productId);
+                }
+                sql.append(" ORDER BY product_id");
+                break;
+        }
+        // One extra row tells whether there is a next page
+        sql.append(" LIMIT ?");
+        params.add(query.getPageSize() + 1);
+
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<String, Product> pageProducts = new LinkedHashMap<>();
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            ps = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                Product product = readProduct(rs);
+                pageProducts.put(product.getProductId(), product);
+            }
+            rs.close();
+            ps.close();
+
+            List<Product> items = new ArrayList<>(pageProducts.values());
+            boolean hasMore = items.size() > query.getPageSize();
+            if (hasMore) {
+                Product extra = items.remove(items.size() - 1);
+                pageProducts.remove(extra.getProductId());
+            }
+
+            if (!pageProducts.isEmpty()) {
+                String placeholders = pageProducts.keySet().stream().map(id -> "?").collect(Collectors.joining(", "));
+                ps = conn.prepareStatement(
+                        "SELECT product_id, attribute_name, attribute_value FROM product_attributes " +
+                                "WHERE product_id IN (" + placeholders + ")");
+                int index = 1;
+                for (String productId : pageProducts.keySet()) {
+                    ps.setString(index++, productId);
+                }
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    Product product = pageProducts.get(rs.getString("product_id"));
+                    if (product != null) {
+                        product.setAttribute(
+                                rs.getString("attribute_name"),
+                                rs.getString("attribute_value"));
+                    }
+                }
+            }
+
+            String nextCursor = hasMore
+                    ? query.cursorAt(ProductQuery.Position.of(query.getSortKey(), items.get(items.size() - 1)))
+                    : null;
+            return new ProductPage(items, nextCursor);
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+
+    @Override
+    public boolean saveAll(List<Product> dirtyProducts) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        boolean databaseSaved = false;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            // Upsert changed product records in a single batch. Stock is only
+            // written for new products: existing stock changes go through the
+            // conditional updates in reserveStock and adjustStock, so saving a
+            // cached product can't undo a sale made meanwhile.
+            ps = conn.prepareStatement(
+                    "INSERT INTO products " +
+                            "(product_id, name, description, brand, category, subcategory, price, " +
+                            "original_price, cost, gender, size, color, material, season, " +
+                            "image_path, stock_quantity, date_added, last_updated, is_featured, " +
+                            "average_rating, review_count, is_visible) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                            "ON DUPLICATE KEY UPDATE " +
+                            "name = VALUES(name), " +
+                            "description = VALUES(description), " +
+                            "brand = VALUES(brand), " +
+                            "category = VALUES(category), " +
+                            "subcategory = VALUES(subcategory), " +
+                            "price = VALUES(price), " +
+                            "original_price = VALUES(original_price), " +
+                            "cost = VALUES(cost), " +
+                            "gender = VALUES(gender), " +
+                            "size = VALUES(size), " +
+                            "color = VALUES(color), " +
+                            "material = VALUES(material), " +
+                            "season = VALUES(season), " +
+                            "image_path = VALUES(image_path), " +
+                            "last_updated = VALUES(last_updated), " +
+                            "is_featured = VALUES(is_featured), " +
+                            "average_rating = VALUES(average_rating), " +
+                            "review_count = VALUES(review_count), " +
+                            "is_visible = VALUES(is_visible)");
+
+            for (Product product : dirtyProducts) {
+                if (!product.isDirty()) {
+                    continue;
+                }
+                ps.setString(1, product.getProductId());
+                ps.setString(2, product.getName());
+                ps.setString(3, product.getDescription());
+                ps.setString(4, product.getBrand());
+                ps.setString(5, product.getCategory());
+                ps.setString(6, product.getSubcategory());
+                ps.setBigDecimal(7, product.getPrice());
+                ps.setBigDecimal(8, product.getOriginalPrice());
+                ps.setBigDecimal(9, product.getCost());
+                ps.setString(10, product.getGender());
+                ps.setString(11, product.getSize());
+                ps.setString(12, product.getColor());
+                ps.setString(13, product.getMaterial());
+                ps.setString(14, product.getSeason());
+                ps.setString(15, product.getImagePath());
+                ps.setInt(16, product.getStockQuantity());
+                ps.setTimestamp(17,
+                        product.getDateAdded() != null ? new Timestamp(product.getDateAdded().getTime()) : null);
+                ps.setTimestamp(18,
+                        product.getLastUpdated() != null ? new Timestamp(product.getLastUpdated().getTime()) : null);
+                ps.setBoolean(19, product.isFeatured());
+                ps.setDouble(20, product.getAverageRating());
+                ps.setInt(21, product.getReviewCount());
+                ps.setBoolean(22, product.isVisible());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ps.close();
+
+            // Rewrite attributes only for products whose attributes changed
+            List<Product> attributesChanged = dirtyProducts.stream()
+                    .filter(Product::isAttributesDirty)
+                    .collect(Collectors.toList());
+            if (!attributesChanged.isEmpty()) {
+                ps = conn.prepareStatement("DELETE FROM product_attributes WHERE product_id = ?");
+                for (Product product : attributesChanged) {
+                    ps.setString(1, product.getProductId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ps.close();
+
+                ps = conn.prepareStatement(
+                        "INSERT INTO product_attributes (product_id, attribute_name, attribute_value) " +
+                                "VALUES (?, ?, ?)");
+                for (Product product : attributesChanged) {
+                    for (Map.Entry<String, String> entry : product.getAllAttributes().entrySet()) {
+                        ps.setString(1, product.getProductId());
+                        ps.setString(2, entry.getKey());
+                        ps.setString(3, entry.getValue());
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+                ps.close();
+            }
+
+            conn.commit();
+            databaseSaved = true;
+            System.out.println("Saved " + dirtyProducts.size() + " changed products to database");
+
+        } catch (SQLException e) {
+            System.err.println("Error saving products: " + e.getMessage());
+
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+
+            DatabaseUtils.close(conn, ps, null);
+        }
+        return databaseSaved;
+    }
+
+    @Override
+    public boolean delete(String productId) {
+        boolean deleted = false;
+        Connection conn = null;
+        PreparedStatement ps = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            // First delete the product from database tables to maintain referential
+            // integrity
+
+            // 1. Remove from product attributes
+            ps = conn.prepareStatement("DELETE FROM product_attributes WHERE product_id = ?");
+            ps.setString(1, productId);
+            int attributesDeleted = ps.executeUpdate();
+            System.out.println("Deleted " + attributesDeleted + " product attributes");
+            ps.close();
+
+            // 2. Remove from outfit products
+            ps = conn.prepareStatement("DELETE FROM outfit_products WHERE product_id = ?");
+            ps.setString(1, productId);
+            int outfitProductsDeleted = ps.executeUpdate();
+            System.out.println("Removed product from " + outfitProductsDeleted + " outfits");
+            ps.close();
+
+            // 3. Remove from wardrobe items
+            ps = conn.prepareStatement("DELETE FROM wardrobe_items WHERE product_id = ?");
+            ps.setString(1, productId);
+            int wardrobeItemsDeleted = ps.executeUpdate();
+            System.out.println("Removed product from " + wardrobeItemsDeleted + " wardrobes");
+            ps.close();
+
+            // 4. Remove from cart items
+            ps = conn.prepareStatement("DELETE FROM cart_items WHERE product_id = ?");
+            ps.setString(1, productId);
+            int cartItemsDeleted = ps.executeUpdate();
+            System.out.println("Removed product from " + cartItemsDeleted + " shopping carts");
+            ps.close();
+
+            // 5. Finally delete the product
+            ps = conn.prepareStatement("DELETE FROM products WHERE product_id = ?");
+            ps.setString(1, productId);
+            int productsDeleted = ps.executeUpdate();
+            System.out.println("Deleted " + productsDeleted + " products");
+            ps.close();
+
+            // Commit changes to database
+            conn.commit();
+            System.out.println("Database transaction committed successfully");
+            deleted = true;
+
+        } catch (SQLException e) {
+            System.err.println("Error deleting product " + productId + ": " + e.getMessage());
+            e.printStackTrace();
+
+            try {
+                if (conn != null)
+                    conn.rollback();
+                System.out.println("Transaction rolled back due to error");
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+                ex.printStackTrace();
+            }
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+                e.printStackTrace();
+            }
+
+            DatabaseUtils.close(conn, ps, null);
+        }
+        return deleted;
+    }
+
+    @Override
+    public Map<String, Integer> adjustStock(Map<String, Integer> changes) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            // Adjust in product ID order, like reserveStock, so the two can't
+            // deadlock each other
+            Map<String, Integer> ordered = new TreeMap<>(changes);
+            ps = conn.prepareStatement(
+                    "UPDATE products SET stock_quantity = GREATEST(stock_quantity + ?, 0) WHERE product_id = ?");
+            for (Map.Entry<String, Integer> change : ordered.entrySet()) {
+                ps.setInt(1, change.getValue());
+                ps.setString(2, change.getKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ps.close();
+
+            String placeholders = ordered.keySet().stream().map(id -> "?").collect(Collectors.joining(", "));
+            ps = conn.prepareStatement(
+                    "SELECT product_id, stock_quantity FROM products WHERE product_id IN (" + placeholders + ")");
+            int index = 1;
+            for (String productId : ordered.keySet()) {
+                ps.setString(index++, productId);
+            }
+            Map<String, Integer> stockLevels = new LinkedHashMap<>();
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                stockLevels.put(rs.getString("product_id"), rs.getInt("stock_quantity"));
+            }
+
+            conn.commit();
+            return stockLevels;
+
+        } catch (SQLException e) {
+            System.err.println("Error adjusting stock: " + e.getMessage());
+            e.printStackTrace();
+
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+            return Collections.emptyMap();
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+
+    @Override
+    public StockReservation reserveStock(Map<String, Integer> quantities) {
+        Connection conn = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            StockReservation reservation = reserveStock(conn, quantities);
+            if (reservation.isCommitted()) {
+                conn.commit();
+            } else {
+                conn.rollback();
+            }
+            return reservation;
+
+        } catch (SQLException e) {
+            System.err.println("Error reserving stock: " + e.getMessage());
+            e.printStackTrace();
+
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+            return StockReservation.failed(e.getMessage());
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+            DatabaseUtils.close(conn, null, null);
+        }
+    }
+
+    /**
+     * Decrements stock within the caller's transaction. The caller commits if
+     * the returned reservation is committed and rolls back otherwise, so other
+     * writes can share the transaction with the reservation.
+     */
+    static StockReservation reserveStock(Connection conn, Map<String, Integer> quantities) throws SQLException {
+        // Decrement in product ID order so concurrent checkouts lock rows in
+        // the same order and can't deadlock each other
+        Map<String, Integer> ordered = new TreeMap<>(quantities);
+        Map<String, Boolean> decremented = new LinkedHashMap<>();
+        boolean allReserved = true;
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE products SET stock_quantity = stock_quantity - ? " +
+                        "WHERE product_id = ? AND stock_quantity >= ?")) {
+            for (Map.Entry<String, Integer> line : ordered.entrySet()) {
+                ps.setInt(1, line.getValue());
+                ps.setString(2, line.getKey());
+                ps.setInt(3, line.getValue());
+                boolean reserved = ps.executeUpdate() == 1;
+                decremented.put(line.getKey(), reserved);
+                allReserved &= reserved;
+            }
+        }
+
+        // Read back the stock levels, including our own decrements
+        String placeholders = ordered.keySet().stream().map(id -> "?").collect(Collectors.joining(", "));
+        Map<String, Integer> stockLevels = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT product_id, stock_quantity FROM products WHERE product_id IN (" + placeholders + ")")) {
+            int index = 1;
+            for (String productId : ordered.keySet()) {
+                ps.setString(index++, productId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    stockLevels.put(rs.getString("product_id"), rs.getInt("stock_quantity"));
+                }
+            }
+        }
+
+        List<StockReservation.Line> lines = new ArrayList<>();
+        for (Map.Entry<String, Integer> line : ordered.entrySet()) {
+            String productId = line.getKey();
+            int quantity = line.getValue();
+            Integer stock = stockLevels.get(productId);
+            if (stock == null) {
+                lines.add(new StockReservation.Line(productId, quantity,
+                        StockReservation.Status.UNKNOWN_PRODUCT, -1));
+            } else if (!decremented.get(productId)) {
+                lines.add(new StockReservation.Line(productId, quantity,
+                        StockReservation.Status.INSUFFICIENT_STOCK, stock));
+            } else if (allReserved) {
+                lines.add(new StockReservation.Line(productId, quantity,
+                        StockReservation.Status.RESERVED, stock));
+            } else {
+                // Our decrement will be rolled back
+                lines.add(new StockReservation.Line(productId, quantity,
+                        StockReservation.Status.ROLLED_BACK, stock + quantity));
+            }
+        }
+        return new StockReservation(lines, allReserved);
+    }
+
+    /**
+     * Builds a product from the current row of a products query.
+     */
+    private static Product readProduct(ResultSet rs) throws SQLException {
+        String productId = rs.getString("product_id");
+        String name = rs.getString("name");
+        String category = rs.getString("category");
+        BigDecimal price = rs.getBigDecimal("price");
+
+        Product product = new Product(name, category, price);
+        // Set the product ID explicitly since we're reconstructing from DB
+        product.setProductId(productId);
+
+        product.setDescription(rs.getString("description"));
+        product.setBrand(rs.getString("brand"));
+        product.setSubcategory(rs.getString("subcategory"));
+        product.setOriginalPrice(rs.getBigDecimal("original_price"));
+        product.setCost(rs.getBigDecimal("cost"));
+        product.setGender(rs.getString("gender"));
+        product.setSize(rs.getString("size"));
+        product.setColor(rs.getString("color"));
+        product.setMaterial(rs.getString("material"));
+        product.setSeason(rs.getString("season"));
+        product.setImagePath(rs.getString("image_path"));
+        product.setStockQuantity(rs.getInt("stock_quantity"));
+        product.setFeatured(rs.getBoolean("is_featured"));
+
+        // Default to true if column doesn't exist or is null
+        boolean isVisible = true;
+        try {
+            isVisible = rs.getBoolean("is_visible");
+            if (rs.wasNull()) {
+                isVisible = true; // Default to visible if NULL
+            }
+        } catch (SQLException e) {
+            // Column doesn't exist, use default value
+            System.out.println("Warning: is_visible column not found, defaulting to true");
+        }
+        product.setVisible(isVisible);
+        return product;
+    }
+}
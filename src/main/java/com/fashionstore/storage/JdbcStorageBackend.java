@@ -0,0 +1,89 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.utils.DatabaseUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * MySQL storage backend using the shared connection pool in {@link DatabaseUtils}.
+ */
+public class JdbcStorageBackend implements StorageBackend {
+
+    private final UserRepository users = new JdbcUserRepository();
+    private final ProductRepository products = new JdbcProductRepository();
+    private final OutfitRepository outfits = new JdbcOutfitRepository();
+    private final CartRepository carts = new JdbcCartRepository();
+    private final OrderRepository orders = new JdbcOrderRepository();
+
+    @Override
+    public void initialize() throws Exception {
+        // Create database and tables if they don't exist
+        DatabaseUtils.createDatabaseIfNotExists();
+
+        // Verify that we can connect to the database
+        Connection conn = null;
+        try {
+            conn = DatabaseUtils.getConnection();
+            System.out.println("Database connection verified successfully.");
+
+            // Test a simple query to make sure tables exist
+            PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM users");
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                int userCount = rs.getInt(1);
+                System.out.println("Database ready: " + userCount + " users found in database.");
+            }
+            rs.close();
+            ps.close();
+        } catch (SQLException e) {
+            System.err.println("Error verifying database connection: " + e.getMessage());
+            throw e; // Re-throw to ensure we don't proceed if database is not available
+        } finally {
+            DatabaseUtils.close(conn, null, null);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "MySQL";
+    }
+
+    @Override
+    public UserRepository users() {
+        return users;
+    }
+
+    @Override
+    public ProductRepository products() {
+        return products;
+    }
+
+    @Override
+    public OutfitRepository outfits() {
+        return outfits;
+    }
+
+    @Override
+    public CartRepository carts() {
+        return carts;
+    }
+
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+    /**
+     * Prepares a forward-only, read-only statement that streams rows instead of
+     * buffering the whole result set. MySQL Connector/J only streams when the
+     * fetch size is Integer.MIN_VALUE.
+     */
+    static PreparedStatement prepareStreamingQuery(Connection conn, String sql) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(Integer.MIN_VALUE);
+        return ps;
+    }
+}
@@ -0,0 +1,457 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.StylePreference;
+import com.fashionstore.models.User;
+import com.fashionstore.utils.DatabaseUtils;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * MySQL-backed user repository.
+ */
+class JdbcUserRepository implements UserRepository {
+
+    @Override
+    public List<User> loadAll() throws SQLException {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<String, User> loadedUsers = new LinkedHashMap<>();
+
+        try {
+            conn = DatabaseUtils.getConnection();
+
+            // Load users
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn, "SELECT * FROM users");
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                String userId = rs.getString("user_id");
+                String username = rs.getString("username");
+                String email = rs.getString("email");
+                String passwordHash = rs.getString("password_hash");
+
+                User user = new User(username, email, passwordHash);
+                // We need to set the user ID explicitly since we're reconstructing from DB
+                user.setUserId(userId);
+
+                // Set first and last name properly
+                user.setFirstName(rs.getString("first_name"));
+                user.setLastName(rs.getString("last_name"));
+
+                // Handle date fields
+                Timestamp dateRegistered = rs.getTimestamp("date_registered");
+                if (dateRegistered != null) {
+                    user.setDateRegistered(new Date(dateRegistered.getTime()));
+                }
+
+                Timestamp lastLogin = rs.getTimestamp("last_login");
+                if (lastLogin != null) {
+                    user.setLastLogin(new Date(lastLogin.getTime()));
+                }
+
+                // Load deactivation status and date
+                try {
+                    boolean isDeactivated = rs.getBoolean("is_deactivated");
+                    if (!rs.wasNull() && isDeactivated) {
+                        // Call deactivateAccount which handles setting isDeactivated
+                        user.deactivateAccount();
+
+                        // Override the deactivation date with the one from the database
+                        Timestamp deactivationDate = rs.getTimestamp("deactivation_date");
+                        if (deactivationDate != null) {
+                            // We don't need to explicitly set this as deactivateAccount() already sets it
+                            // But we want to use the date from the database, not the current date
+                            Field deactivationDateField = User.class.getDeclaredField("deactivationDate");
+                            deactivationDateField.setAccessible(true);
+                            deactivationDateField.set(user, new Date(deactivationDate.getTime()));
+                        }
+                    }
+                } catch (SQLException e) {
+                    // Column might not exist in older databases
+                    System.out.println("Warning: Deactivation columns not found for user " + userId);
+                } catch (Exception e) {
+                    // This is for the reflection part - if it fails, just stick with the default
+                    // deactivation date
+                    System.out.println("Warning: Could not set deactivation date via reflection for " + userId);
+                }
+
+                // Load dark mode preference
+                try {
+                    boolean isDarkMode = rs.getBoolean("is_dark_mode");
+                    if (!rs.wasNull()) {
+                        user.setDarkModeEnabled(isDarkMode);
+                    }
+                } catch (SQLException e) {
+                    // Column might not exist in older databases
+                    System.out.println("Warning: Dark mode column not found for user " + userId);
+                }
+
+                // Load ban information
+                try {
+                    boolean isBanned = rs.getBoolean("is_banned");
+                    if (!rs.wasNull() && isBanned) {
+                        String banReason = rs.getString("ban_reason");
+                        user.banUser(banReason);
+
+                        // Set ban expiration if it exists
+                        Timestamp banExpiration = rs.getTimestamp("ban_expiration");
+                        if (banExpiration != null) {
+                            try {
+                                // We need to use reflection to set the ban expiration date directly
+                                // because banUser() method sets it to null by default (permanent ban)
+                                Field banExpirationField = User.class.getDeclaredField("banExpiration");
+                                banExpirationField.setAccessible(true);
+                                banExpirationField.set(user, new Date(banExpiration.getTime()));
+                            } catch (Exception e) {
+                                System.out
+                                        .println("Warning: Could not set ban expiration via reflection for " + userId);
+                            }
+                        }
+                    }
+                } catch (SQLException e) {
+                    // Column might not exist in older databases
+                    System.out.println("Warning: Ban columns not found for user " + userId);
+                }
+
+                loadedUsers.put(userId, user);
+            }
+            rs.close();
+            ps.close();
+
+            // Load wardrobe items for all users in a single scan
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn, "SELECT user_id, product_id FROM wardrobe_items");
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                User user = loadedUsers.get(rs.getString("user_id"));
+                if (user != null) {
+                    user.addToWardrobe(rs.getString("product_id"));
+                }
+            }
+            rs.close();
+            ps.close();
+
+            // Load style preferences for all users in a single scan
+            ps = JdbcStorageBackend.prepareStreamingQuery(conn,
+                    "SELECT user_id, preference_type, preference_value, preference_weight " +
+                            "FROM style_preferences");
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                User user = loadedUsers.get(rs.getString("user_id"));
+                if (user != null) {
+                    StylePreference preference = new StylePreference(
+                            rs.getString("preference_type"),
+                            rs.getString("preference_value"),
+                            rs.getDouble("preference_weight"));
+                    user.addStylePreference(preference);
+                }
+            }
+            rs.close();
+            ps.close();
+
+            return new ArrayList<>(loadedUsers.values());
+        } finally {
+            DatabaseUtils.close(conn, ps, rs);
+        }
+    }
+
+    @Override
+    public boolean saveAll(List<User> dirtyUsers, Collection<User> conflicts) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        boolean databaseSaved = false;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            // Upsert changed user records in a single batch. The update only
+            // applies to the row with the same user ID, so a new user whose
+            // username clashes with another's can never overwrite that user.
+            ps = conn.prepareStatement(
+                    "INSERT INTO users " +
+                            "(user_id, username, email, password_hash, first_name, last_name, date_registered, " +
+                            "last_login, is_deactivated, deactivation_date, is_dark_mode, is_banned, ban_reason, ban_expiration) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) AS new " +
+                            "ON DUPLICATE KEY UPDATE " +
+                            "username = IF(users.user_id = new.user_id, new.username, users.username), " +
+                            "email = IF(users.user_id = new.user_id, new.email, users.email), " +
+                            "password_hash = IF(users.user_id = new.user_id, new.password_hash, users.password_hash), " +
+                            "first_name = IF(users.user_id = new.user_id, new.first_name, users.first_name), " +
+                            "last_name = IF(users.user_id = new.user_id, new.last_name, users.last_name), " +
+                            "last_login = IF(users.user_id = new.user_id, new.last_login, users.last_login), " +
+                            "is_deactivated = IF(users.user_id = new.user_id, new.is_deactivated, users.is_deactivated), " +
+                            "deactivation_date = IF(users.user_id = new.user_id, new.deactivation_date, users.deactivation_date), " +
+                            "is_dark_mode = IF(users.user_id = new.user_id, new.is_dark_mode, users.is_dark_mode), " +
+                            "is_banned = IF(users.user_id = new.user_id, new.is_banned, users.is_banned), " +
+                            "ban_reason = IF(users.user_id = new.user_id, new.ban_reason, users.ban_reason), " +
+                            "ban_expiration = IF(users.user_id = new.user_id, new.ban_expiration, users.ban_expiration)");
+
+            List<User> upserted = new ArrayList<>();
+            for (User user : dirtyUsers) {
+                if (!user.isDirty()) {
+                    continue;
+                }
+                ps.setString(1, user.getUserId());
+                ps.setString(2, user.getUsername());
+                ps.setString(3, user.getEmail());
+                ps.setString(4, user.getPasswordHash());
+                ps.setString(5, user.getFirstName());
+                ps.setString(6, user.getLastName());
+                ps.setTimestamp(7,
+                        user.getDateRegistered() != null ? new Timestamp(user.getDateRegistered().getTime()) : null);
+                ps.setTimestamp(8, user.getLastLogin() != null ? new Timestamp(user.getLastLogin().getTime()) : null);
+                ps.setBoolean(9, user.isDeactivated());
+                ps.setTimestamp(10,
+                        user.getDeactivationDate() != null ? new Timestamp(user.getDeactivationDate().getTime())
+                                : null);
+                ps.setBoolean(11, user.isDarkModeEnabled());
+                ps.setBoolean(12, user.isBanned());
+                ps.setString(13, user.getBanReason());
+                ps.setTimestamp(14,
+                        user.getBanExpiration() != null ? new Timestamp(user.getBanExpiration().getTime()) : null);
+                ps.addBatch();
+                upserted.add(user);
+            }
+            int[] counts = ps.executeBatch();
+            ps.close();
+
+            // A count of 2 means the user's own row was updated. Anything else is
+            // an insert, an unchanged row or a username clash that the guard
+            // turned into a no-op; the driver may even report the clash as 1
+            // (found rows) or give no count at all. Those rows are settled by
+            // checking that the user ID actually made it into the table.
+            List<String> unconfirmed = new ArrayList<>();
+            for (int i = 0; i < upserted.size(); i++) {
+                if (i >= counts.length || counts[i] != 2) {
+                    unconfirmed.add(upserted.get(i).getUserId());
+                }
+            }
+            Set<String> conflictIds = new HashSet<>(unconfirmed);
+            if (!unconfirmed.isEmpty()) {
+                ps = conn.prepareStatement("SELECT user_id FROM users WHERE user_id IN ("
+                        + String.join(", ", Collections.nCopies(unconfirmed.size(), "?")) + ")");
+                for (int i = 0; i < unconfirmed.size(); i++) {
+                    ps.setString(i + 1, unconfirmed.get(i));
+                }
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    conflictIds.remove(rs.getString("user_id"));
+                }
+                rs.close();
+                ps.close();
+            }
+            if (!conflictIds.isEmpty()) {
+                // Leave these users, and their wardrobe and preference rows, out
+                // of the transaction so the rest of the batch still commits
+                for (User user : dirtyUsers) {
+                    if (conflictIds.contains(user.getUserId())) {
+                        System.err.println("Not saving user " + user.getUserId() + ": username '"
+                                + user.getUsername() + "' belongs to another user");
+                        conflicts.add(user);
+                    }
+                }
+                dirtyUsers = dirtyUsers.stream()
+                        .filter(user -> !conflictIds.contains(user.getUserId()))
+                        .collect(Collectors.toList());
+            }
+
+            // Rewrite wardrobe items only for users whose wardrobe changed
+            List<User> wardrobeChanged = dirtyUsers.stream()
+                    .filter(User::isWardrobeDirty)
+                    .collect(Collectors.toList());
+            if (!wardrobeChanged.isEmpty()) {
+                ps = conn.prepareStatement("DELETE FROM wardrobe_items WHERE user_id = ?");
+                for (User user : wardrobeChanged) {
+                    ps.setString(1, user.getUserId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ps.close();
+
+                ps = conn.prepareStatement(
+                        "INSERT INTO wardrobe_items (user_id, product_id) VALUES (?, ?)");
+                for (User user : wardrobeChanged) {
+                    for (String productId : user.getWardrobeItemIds()) {
+                        ps.setString(1, user.getUserId());
+                        ps.setString(2, productId);
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+                ps.close();
+            }
+
+            // Rewrite style preferences only for users whose preferences changed
+            List<User> preferencesChanged = dirtyUsers.stream()
+                    .filter(User::isStylePreferencesDirty)
+                    .collect(Collectors.toList());
+            if (!preferencesChanged.isEmpty()) {
+                ps = conn.prepareStatement("DELETE FROM style_preferences WHERE user_id = ?");
+                for (User user : preferencesChanged) {
+                    ps.setString(1, user.getUserId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ps.close();
+
+                ps = conn.prepareStatement(
+                        "INSERT INTO style_preferences " +
+                                "(preference_id, user_id, preference_type, preference_value, preference_weight) " +
+                                "VALUES (?, ?, ?, ?, ?)");
+                for (User user : preferencesChanged) {
+                    for (StylePreference pref : user.getStylePreferences()) {
+                        String prefId = UUID.randomUUID().toString();
+                        ps.setString(1, prefId);
+                        ps.setString(2, user.getUserId());
+                        ps.setString(3, pref.getType());
+                        ps.setString(4, pref.getValue());
+                        ps.setDouble(5, pref.getWeight());
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+                ps.close();
+            }
+
+            conn.commit();
+            databaseSaved = true;
+            System.out.println("Saved " + dirtyUsers.size() + " changed users to database");
+
+        } catch (SQLException e) {
+            System.err.println("Error saving users to database: " + e.getMessage());
+
+            try {
+                if (conn != null)
+                    conn.rollback();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+        } finally {
+            try {
+                if (conn != null)
+                    conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+
+            DatabaseUtils.close(conn, ps, rs);
+        }
+
+        // If we failed to save to the database, log the error
+        if (!databaseSaved) {
+            System.err.println("Failed to save users to database!");
+        }
+        return databaseSaved;
+    }
+
+    @Override
+    public boolean delete(String userId) {
+        boolean databaseSuccess = false;
+        Connection conn = null;
+        PreparedStatement ps = null;
+
+        try {
+            conn = DatabaseUtils.getConnection();
+            conn.setAutoCommit(false);
+
+            // Delete from database tables
+
+            // 1. Remove user's style preferences
+            ps = conn.prepareStatement("DELETE FROM style_preferences WHERE user_id = ?");
+            ps.setString(1, userId);
+            ps.executeUpdate();
+            ps.close();
+
+            // 2. Remove user's wardrobe items
+            ps = conn.prepareStatement("DELETE FROM wardrobe_items WHERE user_id = ?");
+            ps.setString(1, userId);
+            ps.executeUpdate();
+            ps.close();
+
+            // 3. Get user's outfits to remove them
+            ps = conn.prepareStatement("SELECT outfit_id FROM outfits WHERE user_id = ?");
+            ps.setString(1, userId);
+            ResultSet rs = ps.executeQuery();
+
+            while (rs.next()) {
+                String outfitId = rs.getString("outfit_id");
+                // Delete outfit products first
+                PreparedStatement psOutfitProducts = conn.prepareStatement(
+                        "DELETE FROM outfit_products WHERE outfit_id = ?");
+                psOutfitProducts.setString(1, outfitId);
+                psOutfitProducts.executeUpdate();
+                psOutfitProducts.close();
+
+                // Then delete the outfit
+                PreparedStatement psOutfit = conn.prepareStatement(
+                        "DELETE FROM outfits WHERE outfit_id = ?");
+                psOutfit.setString(1, outfitId);
+                psOutfit.executeUpdate();
+                psOutfit.close();
+            }
+            rs.close();
+            ps.close();
+
+            // 4. Remove user's shopping cart
+            ps = conn.prepareStatement("DELETE FROM cart_items WHERE user_id = ?");
+            ps.setString(1, userId);
+            ps.executeUpdate();
+            ps.close();
+
+            // 5. Finally delete the user
+            ps = conn.prepareStatement("DELETE FROM users WHERE user_id = ?");
+            ps.setString(1, userId);
+            ps.executeUpdate();
+            ps.close();
+
+            // Commit changes
+            conn.commit();
+            databaseSuccess = true;
+
+        } catch (SQLException e) {
+            System.err.println("Error deleting user " + userId + " from database: " + e.getMessage());
+            e.printStackTrace();
+
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back transaction: " + ex.getMessage());
+            }
+
+        } finally {
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error resetting auto-commit: " + e.getMessage());
+            }
+
+            DatabaseUtils.close(conn, ps, null);
+        }
+
+        return databaseSuccess;
+    }
+}
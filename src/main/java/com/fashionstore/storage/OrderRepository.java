@@ -0,0 +1,40 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Order;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Persistence operations for the order ledger. Orders are only ever inserted,
+ * never updated, and always together with the stock they take.
+ */
+public interface OrderRepository {
+
+    /**
+     * Reserves stock for an order's items and stores the order with its items,
+     * all in one transaction keyed by the order's idempotency key. Nothing is
+     * stored unless every item can be reserved, and nothing changes if an
+     * order with the same key already exists.
+     *
+     * @return the placed order and its reservation, the existing order with
+     *         the same idempotency key, or the reservation that failed
+     */
+    OrderService.PlacementResult placeOrder(Order order) throws SQLException;
+
+    /**
+     * Finds the order placed with the given idempotency key, or null.
+     */
+    Order findByIdempotencyKey(String idempotencyKey) throws SQLException;
+
+    /**
+     * Finds a user's orders, newest first.
+     */
+    List<Order> findByUser(String userId) throws SQLException;
+
+    /**
+     * Finds orders created in {@code [from, to)}, oldest first.
+     */
+    List<Order> findByTimeRange(LocalDateTime from, LocalDateTime to) throws SQLException;
+}
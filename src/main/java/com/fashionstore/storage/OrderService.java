@@ -0,0 +1,188 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Order;
+import com.fashionstore.models.Product;
+import com.fashionstore.models.ShoppingCart;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Places orders and queries the order ledger.
+ *
+ * Every order carries an idempotency key chosen by the caller (one per
+ * checkout), so submitting the same checkout twice returns the first order
+ * instead of taking stock and recording a sale a second time. The stock is
+ * taken in the same transaction that records the order, so every sale is in
+ * the ledger and a failed write leaves the stock untouched.
+ */
+public class OrderService {
+
+    /**
+     * Outcome of {@link #placeOrder}.
+     */
+    public static class PlacementResult {
+        private final Order order;
+        private final StockReservation reservation;
+        private final boolean duplicate;
+        private final String errorMessage;
+
+        private PlacementResult(Order order, StockReservation reservation, boolean duplicate,
+                String errorMessage) {
+            this.order = order;
+            this.reservation = reservation;
+            this.duplicate = duplicate;
+            this.errorMessage = errorMessage;
+        }
+
+        static PlacementResult placed(Order order, StockReservation reservation) {
+            return new PlacementResult(order, reservation, false, null);
+        }
+
+        static PlacementResult duplicate(Order existing) {
+            return new PlacementResult(existing, null, true, null);
+        }
+
+        static PlacementResult rejected(StockReservation reservation) {
+            return new PlacementResult(null, reservation, false, reservation.getErrorMessage());
+        }
+
+        static PlacementResult failed(String errorMessage) {
+            return new PlacementResult(null, null, false, errorMessage);
+        }
+
+        /**
+         * Whether the order is recorded and its stock taken, now or by an
+         * earlier submission with the same key.
+         */
+        public boolean isPlaced() {
+            return order != null;
+        }
+
+        public Order getOrder() {
+            return order;
+        }
+
+        /**
+         * Gets the stock reservation, or null if none was attempted.
+         */
+        public StockReservation getReservation() {
+            return reservation;
+        }
+
+        /**
+         * Whether the order had already been placed with the same idempotency key.
+         */
+        public boolean isDuplicate() {
+            return duplicate;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+    }
+
+    private final InventoryService inventory;
+    private final OrderRepository orders;
+
+    // Serializes placements that share an idempotency key
+    private final StripedLocks keyLocks = new StripedLocks();
+
+    OrderService(InventoryService inventory, OrderRepository orders) {
+        this.inventory = inventory;
+        this.orders = orders;
+    }
+
+    /**
+     * Creates a new idempotency key for one checkout.
+     */
+    public static String newIdempotencyKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Reserves stock for a cart and records the order with its lines. The cart
+     * itself is not changed.
+     */
+    public PlacementResult placeOrder(ShoppingCart cart, String paymentMethod, String idempotencyKey) {
+        Order.Builder builder = new Order.Builder(cart.getUserId(), idempotencyKey)
+                .paymentMethod(paymentMethod);
+        for (ShoppingCart.CartItem item : cart.getItems()) {
+            if (item.getProduct() != null) {
+                builder.addItem(item.getProduct(), item.getQuantity());
+            }
+        }
+        return placeOrder(builder.build());
+    }
+
+    /**
+     * Reserves stock for a single product and records it as an order, as
+     * buying straight from the store does.
+     */
+    public PlacementResult placeOrder(String userId, Product product, int quantity, String paymentMethod,
+            String idempotencyKey) {
+        Order order = new Order.Builder(userId, idempotencyKey)
+                .paymentMethod(paymentMethod)
+                .addItem(product, quantity)
+                .build();
+        return placeOrder(order);
+    }
+
+    private PlacementResult placeOrder(Order order) {
+        if (order.getItems().isEmpty()) {
+            return PlacementResult.failed("The cart is empty");
+        }
+        return keyLocks.callWithLocks(() -> placeOrderLocked(order), order.getIdempotencyKey());
+    }
+
+    private PlacementResult placeOrderLocked(Order order) {
+        long start = System.nanoTime();
+        PlacementResult result;
+        try {
+            result = orders.placeOrder(order);
+        } catch (SQLException e) {
+            // Rolled back, so neither the stock nor the ledger changed
+            System.err.println("Error placing order " + order.getOrderId() + ": " + e.getMessage());
+            e.printStackTrace();
+            return PlacementResult.failed(e.getMessage());
+        }
+
+        if (result.isDuplicate()) {
+            System.out.println("Order " + result.getOrder().getOrderId() + " was already placed with this key");
+            return result;
+        }
+        inventory.apply(result.getReservation());
+        if (result.isPlaced()) {
+            System.out.println("Placed order " + order.getOrderId() + " with " + order.getItems().size()
+                    + " lines in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        return result;
+    }
+
+    /**
+     * Gets a user's orders, newest first.
+     */
+    public List<Order> getOrdersForUser(String userId) {
+        try {
+            return orders.findByUser(userId);
+        } catch (SQLException e) {
+            System.err.println("Error loading orders for user " + userId + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Gets the orders created in {@code [from, to)}, oldest first.
+     */
+    public List<Order> getOrdersBetween(LocalDateTime from, LocalDateTime to) {
+        try {
+            return orders.findByTimeRange(from, to);
+        } catch (SQLException e) {
+            System.err.println("Error loading orders between " + from + " and " + to + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Outfit;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Persistence operations for outfits, their products and tags.
+ */
+public interface OutfitRepository {
+
+    /**
+     * Loads every stored outfit together with its product IDs and tags.
+     */
+    List<Outfit> loadAll() throws SQLException;
+
+    /**
+     * Writes the given changed outfits in one transaction. Product and tag rows
+     * are only rewritten for outfits where they changed.
+     *
+     * @return true if all outfits were persisted
+     */
+    boolean saveAll(List<Outfit> changedOutfits);
+
+    /**
+     * Deletes an outfit with its product and tag rows.
+     *
+     * @return true if the delete was committed
+     */
+    boolean delete(String outfitId);
+
+    /**
+     * Gets the IDs of a user's stored outfits that contain at least one product.
+     */
+    Set<String> findOutfitIdsWithProducts(String userId) throws SQLException;
+}
@@ -0,0 +1,39 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Product;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of products returned by {@link DataManager#queryProducts(ProductQuery)}.
+ */
+public class ProductPage {
+
+    private final List<Product> items;
+    private final String nextCursor;
+
+    ProductPage(List<Product> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    static ProductPage empty() {
+        return new ProductPage(Collections.emptyList(), null);
+    }
+
+    public List<Product> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the cursor for the next page, or null if this is the last one.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
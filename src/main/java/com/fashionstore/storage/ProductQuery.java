@@ -0,0 +1,297 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Product;
+import com.fashionstore.search.FacetIndex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One page of a filtered, sorted product listing.
+ *
+ * Pages are addressed by an opaque cursor taken from the previous page
+ * ({@link ProductPage#getNextCursor()}) instead of an offset. The cursor
+ * records the sort value and ID of the last product shown, so the next page
+ * starts right after it (keyset pagination) and stays stable while products
+ * are added or removed elsewhere in the listing.
+ *
+ * <pre>
+ * ProductQuery query = new ProductQuery.Builder()
+ *         .filter(FacetIndex.Facet.CATEGORY, "Dresses")
+ *         .visibleOnly(true)
+ *         .sortBy(ProductQuery.SortKey.PRICE_LOW_TO_HIGH)
+ *         .pageSize(24)
+ *         .build();
+ * ProductPage page = dataManager.queryProducts(query);
+ * ProductPage next = dataManager.queryProducts(query.after(page.getNextCursor()));
+ * </pre>
+ */
+public class ProductQuery {
+
+    /**
+     * Listing orders. Ties are broken by product ID so every order is total.
+     */
+    public enum SortKey {
+        PRODUCT_ID, NAME, PRICE_LOW_TO_HIGH, PRICE_HIGH_TO_LOW
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 24;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Separates the fields of a decoded cursor; never part of an ID or number
+    private static final char CURSOR_SEPARATOR = '\u001f';
+
+    private final Map<FacetIndex.Facet, String> selection;
+    private final boolean visibleOnly;
+    private final long minPriceCents;
+    private final long maxPriceCents;
+    private final SortKey sortKey;
+    private final int pageSize;
+    private final String cursor;
+    private final Position position;
+
+    private ProductQuery(Builder builder, String cursor) {
+        this.selection = Collections.unmodifiableMap(new EnumMap<>(builder.selection));
+        this.visibleOnly = builder.visibleOnly;
+        this.minPriceCents = builder.minPriceCents;
+        this.maxPriceCents = builder.maxPriceCents;
+        this.sortKey = builder.sortKey;
+        this.pageSize = builder.pageSize;
+        this.cursor = cursor;
+        this.position = cursor != null ? decode(cursor, builder.sortKey) : null;
+    }
+
+    /**
+     * Gets the same query for the page after the given cursor; a null cursor
+     * gets the first page.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or comes
+     *                                  from a listing with another sort order
+     */
+    public ProductQuery after(String cursor) {
+        Builder builder = new Builder();
+        builder.selection.putAll(selection);
+        builder.visibleOnly = visibleOnly;
+        builder.minPriceCents = minPriceCents;
+        builder.maxPriceCents = maxPriceCents;
+        builder.sortKey = sortKey;
+        builder.pageSize = pageSize;
+        return new ProductQuery(builder, cursor);
+    }
+
+    public Map<FacetIndex.Facet, String> getSelection() {
+        return selection;
+    }
+
+    public boolean isVisibleOnly() {
+        return visibleOnly;
+    }
+
+    /**
+     * Gets the lowest price in cents, inclusive.
+     */
+    public long getMinPriceCents() {
+        return minPriceCents;
+    }
+
+    /**
+     * Gets the price in cents the listing stops before.
+     */
+    public long getMaxPriceCents() {
+        return maxPriceCents;
+    }
+
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Gets where the previous page ended, or null for the first page.
+     */
+    Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets the price range in cents, narrowed by a selected price bucket.
+     *
+     * @return {minimum inclusive, maximum exclusive}
+     */
+    long[] effectivePriceRange() {
+        long min = minPriceCents;
+        long max = maxPriceCents;
+        String bucket = selection.get(FacetIndex.Facet.PRICE);
+        if (bucket != null) {
+            long[] range = FacetIndex.priceBucketRange(bucket);
+            min = Math.max(min, range[0]);
+            max = Math.min(max, range[1]);
+        }
+        return new long[] { min, max };
+    }
+
+    /**
+     * Checks a product against the filters, leaving the cursor aside.
+     */
+    boolean matches(Product product) {
+        if (product == null || (visibleOnly && !product.isVisible())) {
+            return false;
+        }
+        long[] range = effectivePriceRange();
+        long cents = product.getPriceCents();
+        if (cents < range[0] || cents >= range[1]) {
+            return false;
+        }
+        for (Map.Entry<FacetIndex.Facet, String> entry : selection.entrySet()) {
+            if (entry.getKey() != FacetIndex.Facet.PRICE
+                    && !entry.getValue().equals(facetValue(product, entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String facetValue(Product product, FacetIndex.Facet facet) {
+        switch (facet) {
+            case CATEGORY:
+                return product.getCategory();
+            case BRAND:
+                return product.getBrand();
+            case COLOR:
+                return product.getColor();
+            case SIZE:
+                return product.getSize();
+            case SEASON:
+                return product.getSeason();
+            case GENDER:
+                return product.getGender();
+            default:
+                return FacetIndex.priceBucket(product.getPriceCents());
+        }
+    }
+
+    /**
+     * Gets the cursor pointing just after a position in this listing.
+     */
+    String cursorAt(Position last) {
+        String raw = sortKey.name() + CURSOR_SEPARATOR + last.number + CURSOR_SEPARATOR + last.productId
+                + CURSOR_SEPARATOR + (last.text != null ? last.text : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Position decode(String cursor, SortKey expectedKey) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(CURSOR_SEPARATOR), 4);
+            if (parts.length != 4 || SortKey.valueOf(parts[0]) != expectedKey) {
+                throw new IllegalArgumentException("Cursor does not belong to a " + expectedKey + " listing");
+            }
+            String text = expectedKey == SortKey.NAME ? parts[3] : null;
+            return new Position(Long.parseLong(parts[1]), text, parts[2]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid product cursor: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A product's place in a listing: its sort value and ID.
+     */
+    static final class Position {
+        final long number;
+        final String text;
+        final String productId;
+
+        Position(long number, String text, String productId) {
+            this.number = number;
+            this.text = text;
+            this.productId = productId;
+        }
+
+        static Position of(SortKey sortKey, Product product) {
+            switch (sortKey) {
+                case NAME:
+                    return new Position(0, product.getName(), product.getProductId());
+                case PRICE_LOW_TO_HIGH:
+                case PRICE_HIGH_TO_LOW:
+                    return new Position(product.getPriceCents(), null, product.getProductId());
+                default:
+                    return new Position(0, null, product.getProductId());
+            }
+        }
+    }
+
+    public static class Builder {
+        private final Map<FacetIndex.Facet, String> selection = new EnumMap<>(FacetIndex.Facet.class);
+        private boolean visibleOnly;
+        private long minPriceCents = 0;
+        private long maxPriceCents = Long.MAX_VALUE;
+        private SortKey sortKey = SortKey.PRODUCT_ID;
+        private int pageSize = DEFAULT_PAGE_SIZE;
+        private String cursor;
+
+        /**
+         * Keeps only products with the given facet value; a null value
+         * removes the filter.
+         */
+        public Builder filter(FacetIndex.Facet facet, String value) {
+            if (value == null) {
+                selection.remove(facet);
+            } else {
+                selection.put(facet, value);
+            }
+            return this;
+        }
+
+        public Builder filters(Map<FacetIndex.Facet, String> filters) {
+            filters.forEach(this::filter);
+            return this;
+        }
+
+        public Builder visibleOnly(boolean visibleOnly) {
+            this.visibleOnly = visibleOnly;
+            return this;
+        }
+
+        /**
+         * Keeps only products priced from {@code minCents} up to but
+         * excluding {@code maxCents}.
+         */
+        public Builder priceRange(long minCents, long maxCents) {
+            this.minPriceCents = minCents;
+            this.maxPriceCents = maxCents;
+            return this;
+        }
+
+        public Builder sortBy(SortKey sortKey) {
+            this.sortKey = sortKey != null ? sortKey : SortKey.PRODUCT_ID;
+            return this;
+        }
+
+        public Builder pageSize(int pageSize) {
+            if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        public Builder after(String cursor) {
+            this.cursor = cursor;
+            return this;
+        }
+
+        public ProductQuery build() {
+            return new ProductQuery(this, cursor);
+        }
+    }
+}
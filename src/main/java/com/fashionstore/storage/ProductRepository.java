@@ -0,0 +1,58 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Product;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistence operations for products and their attributes.
+ */
+public interface ProductRepository {
+
+    /**
+     * Loads every stored product together with its attributes.
+     */
+    List<Product> loadAll() throws SQLException;
+
+    /**
+     * Loads one page of a product listing, seeking past the query's cursor
+     * instead of reading the products before it.
+     */
+    ProductPage findPage(ProductQuery query) throws SQLException;
+
+    /**
+     * Writes the given changed products in one transaction. Attribute rows are
+     * only rewritten for products whose attributes changed.
+     *
+     * @return true if all products were persisted
+     */
+    boolean saveAll(List<Product> changedProducts);
+
+    /**
+     * Deletes a product along with every wardrobe, outfit and cart reference to it.
+     *
+     * @return true if the delete was committed
+     */
+    boolean delete(String productId);
+
+    /**
+     * Decrements the stock of every product by the given quantity, provided
+     * each one has enough stock. Either all lines are reserved or none are.
+     *
+     * @param quantities product ID to quantity, with every quantity positive
+     */
+    StockReservation reserveStock(Map<String, Integer> quantities);
+
+    /**
+     * Adds each change to the product's stock in one transaction, a negative
+     * change removing stock. Changes are applied to the stored level, so
+     * concurrent reservations are kept, and never take stock below zero.
+     *
+     * @param changes product ID to stock change
+     * @return the resulting stock level of each product found, or an empty
+     *         map if nothing was changed
+     */
+    Map<String, Integer> adjustStock(Map<String, Integer> changes);
+}
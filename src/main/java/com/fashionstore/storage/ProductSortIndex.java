@@ -0,0 +1,239 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * The cached products in every {@link ProductQuery.SortKey} order, for keyset
+ * pagination over the cache.
+ *
+ * A page starts at the cursor's position in the sorted set and walks forward
+ * until it has enough products matching the filters, so it only touches the
+ * products it returns and those it skips. Price-sorted listings also start and
+ * stop at the ends of their price range.
+ *
+ * DataManager re-indexes a product whenever it is added or changed. Updates
+ * take a write lock and pages a read lock.
+ */
+class ProductSortIndex {
+
+    /**
+     * A product's sort values, as of when it was last indexed.
+     */
+    static final class Entry {
+        final String productId;
+        final String name;
+        final long priceCents;
+
+        Entry(String productId, String name, long priceCents) {
+            this.productId = productId;
+            this.name = name != null ? name : "";
+            this.priceCents = priceCents;
+        }
+
+        static Entry of(Product product) {
+            return new Entry(product.getProductId(), product.getName(), product.getPriceCents());
+        }
+
+        ProductQuery.Position position(ProductQuery.SortKey sortKey) {
+            switch (sortKey) {
+                case NAME:
+                    return new ProductQuery.Position(0, name, productId);
+                case PRICE_LOW_TO_HIGH:
+                case PRICE_HIGH_TO_LOW:
+                    return new ProductQuery.Position(priceCents, null, productId);
+                default:
+                    return new ProductQuery.Position(0, null, productId);
+            }
+        }
+    }
+
+    private static final Comparator<Entry> BY_ID = Comparator.comparing(e -> e.productId);
+    private static final Comparator<Entry> BY_NAME = Comparator
+            .comparing((Entry e) -> e.name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(e -> e.productId);
+    private static final Comparator<Entry> BY_PRICE = Comparator
+            .comparingLong((Entry e) -> e.priceCents)
+            .thenComparing(e -> e.productId);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableSet<Entry> byId = new TreeSet<>(BY_ID);
+    private final NavigableSet<Entry> byName = new TreeSet<>(BY_NAME);
+    private final NavigableSet<Entry> byPrice = new TreeSet<>(BY_PRICE);
+
+    private final Map<String, Entry> indexed = new HashMap<>();
+
+    void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        Entry entry = Entry.of(product);
+
+        lock.writeLock().lock();
+        try {
+            Entry old = indexed.get(entry.productId);
+            if (old != null && old.name.equals(entry.name) && old.priceCents == entry.priceCents) {
+                return;
+            }
+            if (old != null) {
+                removeEntry(old);
+            }
+            byId.add(entry);
+            byName.add(entry);
+            byPrice.add(entry);
+            indexed.put(entry.productId, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            Entry old = indexed.remove(productId);
+            if (old != null) {
+                removeEntry(old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            byName.clear();
+            byPrice.clear();
+            indexed.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Walks the query's order from its cursor and collects up to
+     * {@code limit} entries whose products pass {@code accept}.
+     */
+    List<Entry> page(ProductQuery query, Predicate<String> accept, int limit) {
+        long[] range = query.effectivePriceRange();
+        List<Entry> result = new ArrayList<>(limit);
+
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> order = order(query.getSortKey());
+            Entry start = startOf(query, order.comparator(), range);
+            for (Entry entry : start != null ? order.tailSet(start, false) : order) {
+                if (pastPriceRange(query.getSortKey(), entry, range)) {
+                    break;
+                }
+                if (accept.test(entry.productId)) {
+                    result.add(entry);
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sorts a small candidate set in the query's order and takes up to
+     * {@code limit} matching products after the cursor. Used when the
+     * filters match few products, and by storage without a sort index.
+     */
+    static List<Entry> sortAndPage(Collection<Product> candidates, ProductQuery query, int limit) {
+        Comparator<Entry> comparator = comparator(query.getSortKey());
+        Entry after = query.getPosition() != null ? probe(query.getPosition()) : null;
+        List<Entry> entries = new ArrayList<>();
+        for (Product product : candidates) {
+            if (query.matches(product)) {
+                Entry entry = Entry.of(product);
+                if (after == null || comparator.compare(entry, after) > 0) {
+                    entries.add(entry);
+                }
+            }
+        }
+        entries.sort(comparator);
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, limit)) : entries;
+    }
+
+    private NavigableSet<Entry> order(ProductQuery.SortKey sortKey) {
+        switch (sortKey) {
+            case NAME:
+                return byName;
+            case PRICE_LOW_TO_HIGH:
+                return byPrice;
+            case PRICE_HIGH_TO_LOW:
+                return byPrice.descendingSet();
+            default:
+                return byId;
+        }
+    }
+
+    private static Comparator<Entry> comparator(ProductQuery.SortKey sortKey) {
+        switch (sortKey) {
+            case NAME:
+                return BY_NAME;
+            case PRICE_LOW_TO_HIGH:
+                return BY_PRICE;
+            case PRICE_HIGH_TO_LOW:
+                return BY_PRICE.reversed();
+            default:
+                return BY_ID;
+        }
+    }
+
+    /**
+     * Gets the entry a page starts after: the cursor, or for price orders
+     * the start of the price range if that comes later.
+     */
+    private static Entry startOf(ProductQuery query, Comparator<? super Entry> comparator, long[] range) {
+        Entry start = query.getPosition() != null ? probe(query.getPosition()) : null;
+        Entry rangeStart = null;
+        // An empty ID sorts before every product at the same price
+        if (query.getSortKey() == ProductQuery.SortKey.PRICE_LOW_TO_HIGH && range[0] > 0) {
+            rangeStart = new Entry("", null, range[0]);
+        } else if (query.getSortKey() == ProductQuery.SortKey.PRICE_HIGH_TO_LOW && range[1] != Long.MAX_VALUE) {
+            rangeStart = new Entry("", null, range[1]);
+        }
+        if (rangeStart == null) {
+            return start;
+        }
+        return start == null || comparator.compare(rangeStart, start) > 0 ? rangeStart : start;
+    }
+
+    private static boolean pastPriceRange(ProductQuery.SortKey sortKey, Entry entry, long[] range) {
+        if (sortKey == ProductQuery.SortKey.PRICE_LOW_TO_HIGH) {
+            return entry.priceCents >= range[1];
+        }
+        if (sortKey == ProductQuery.SortKey.PRICE_HIGH_TO_LOW) {
+            return entry.priceCents < range[0];
+        }
+        return false;
+    }
+
+    private static Entry probe(ProductQuery.Position position) {
+        return new Entry(position.productId, position.text, position.number);
+    }
+
+    private void removeEntry(Entry entry) {
+        byId.remove(entry);
+        byName.remove(entry);
+        byPrice.remove(entry);
+    }
+}
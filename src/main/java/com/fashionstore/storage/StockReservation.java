@@ -0,0 +1,132 @@
+package com.fashionstore.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of reserving stock for one or more products.
+ *
+ * A reservation is all-or-nothing: if any line can't be reserved, none of the
+ * lines are, and the reservation is not committed. Each line reports its own
+ * status and the stock level left after the reservation, so callers can tell
+ * the user exactly which items are short.
+ */
+public class StockReservation {
+
+    /**
+     * Status of a single reserved line.
+     */
+    public enum Status {
+        /** Stock was decremented and the reservation committed. */
+        RESERVED,
+        /** Not enough stock for the requested quantity. */
+        INSUFFICIENT_STOCK,
+        /** The product doesn't exist in the store. */
+        UNKNOWN_PRODUCT,
+        /** The line could have been reserved but another line failed. */
+        ROLLED_BACK
+    }
+
+    /**
+     * A single product line of a reservation.
+     */
+    public static class Line {
+        private final String productId;
+        private final int requestedQuantity;
+        private final Status status;
+        private final int availableStock;
+
+        public Line(String productId, int requestedQuantity, Status status, int availableStock) {
+            this.productId = productId;
+            this.requestedQuantity = requestedQuantity;
+            this.status = status;
+            this.availableStock = availableStock;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public int getRequestedQuantity() {
+            return requestedQuantity;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Gets the stock level after the reservation, or -1 if the product is unknown.
+         */
+        public int getAvailableStock() {
+            return availableStock;
+        }
+
+        public boolean isReserved() {
+            return status == Status.RESERVED;
+        }
+    }
+
+    private final List<Line> lines;
+    private final boolean committed;
+    private final String errorMessage;
+
+    public StockReservation(List<Line> lines, boolean committed) {
+        this(lines, committed, null);
+    }
+
+    private StockReservation(List<Line> lines, boolean committed, String errorMessage) {
+        this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+        this.committed = committed;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Creates a reservation that failed before any line could be checked, e.g.
+     * because the database was unavailable.
+     */
+    public static StockReservation failed(String errorMessage) {
+        return new StockReservation(Collections.emptyList(), false, errorMessage);
+    }
+
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    public List<Line> getFailedLines() {
+        List<Line> failed = new ArrayList<>();
+        for (Line line : lines) {
+            if (line.getStatus() == Status.INSUFFICIENT_STOCK || line.getStatus() == Status.UNKNOWN_PRODUCT) {
+                failed.add(line);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Gets the stock level of every known product after the reservation.
+     */
+    public Map<String, Integer> getStockLevels() {
+        Map<String, Integer> levels = new LinkedHashMap<>();
+        for (Line line : lines) {
+            if (line.getAvailableStock() >= 0) {
+                levels.put(line.getProductId(), line.getAvailableStock());
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Gets the error that prevented the reservation from running, if any.
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -0,0 +1,34 @@
+package com.fashionstore.storage;
+
+/**
+ * A storage backend for {@link DataManager}: one repository per entity type.
+ *
+ * {@link JdbcStorageBackend} persists to MySQL; {@link InMemoryStorageBackend}
+ * keeps everything in the JVM so the domain logic can be exercised and
+ * profiled without a database server.
+ */
+public interface StorageBackend {
+
+    /**
+     * Prepares the backend (e.g. creates the schema). Called once by DataManager.
+     *
+     * @throws Exception if the backend is unavailable; DataManager then keeps
+     *                   working from its in-memory caches
+     */
+    void initialize() throws Exception;
+
+    /**
+     * Gets a short name for log messages.
+     */
+    String getName();
+
+    UserRepository users();
+
+    ProductRepository products();
+
+    OutfitRepository outfits();
+
+    CartRepository carts();
+
+    OrderRepository orders();
+}
@@ -0,0 +1,80 @@
+package com.fashionstore.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of locks shared by entity ID. Compound updates that touch several
+ * entities (e.g. a product's stock and a user's wardrobe) lock the stripes of
+ * every entity involved; unrelated entities usually land on different stripes
+ * and don't contend.
+ */
+class StripedLocks {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantLock[] stripes;
+
+    StripedLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    StripedLocks(int stripeCount) {
+        // Round up to a power of two so the stripe can be picked with a mask
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Runs an action while holding the stripes of all given keys. Stripes are
+     * always acquired in index order, so two callers locking the same keys in a
+     * different order can't deadlock.
+     */
+    <T> T callWithLocks(Supplier<T> action, String... keys) {
+        int[] indexes = new int[keys.length];
+        int count = 0;
+        for (String key : keys) {
+            int index = stripeIndex(key);
+            boolean seen = false;
+            for (int i = 0; i < count; i++) {
+                if (indexes[i] == index) {
+                    seen = true;
+                    break;
+                }
+            }
+            if (!seen) {
+                indexes[count++] = index;
+            }
+        }
+        Arrays.sort(indexes, 0, count);
+
+        int locked = 0;
+        try {
+            for (; locked < count; locked++) {
+                stripes[indexes[locked]].lock();
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    void runWithLocks(Runnable action, String... keys) {
+        callWithLocks(() -> {
+            action.run();
+            return null;
+        }, keys);
+    }
+
+    private int stripeIndex(String key) {
+        int hash = key != null ? key.hashCode() : 0;
+        hash ^= (hash >>> 16);
+        return hash & (stripes.length - 1);
+    }
+}
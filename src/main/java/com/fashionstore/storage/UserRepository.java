@@ -0,0 +1,38 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.User;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persistence operations for users, their wardrobe items and style preferences.
+ */
+public interface UserRepository {
+
+    /**
+     * Loads every stored user together with its wardrobe and style preferences.
+     */
+    List<User> loadAll() throws SQLException;
+
+    /**
+     * Writes the given changed users in one transaction. Wardrobe and style
+     * preference rows are only rewritten for users whose flags say they changed.
+     * A user whose username already belongs to another stored user is left out
+     * of the transaction and added to {@code conflicts} instead.
+     *
+     * @param conflicts receives the users that were not written because of a
+     *                  username conflict
+     * @return true if the transaction was committed
+     */
+    boolean saveAll(List<User> changedUsers, Collection<User> conflicts);
+
+    /**
+     * Deletes a user and everything it owns: style preferences, wardrobe items,
+     * outfits and cart items.
+     *
+     * @return true if the delete was committed
+     */
+    boolean delete(String userId);
+}
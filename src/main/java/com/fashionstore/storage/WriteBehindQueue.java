@@ -0,0 +1,506 @@
+package com.fashionstore.storage;
+
+import com.fashionstore.models.Outfit;
+import com.fashionstore.models.Product;
+import com.fashionstore.models.ShoppingCart;
+import com.fashionstore.models.User;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind persistence queue for {@link DataManager}.
+ *
+ * Callers on the JavaFX thread submit the entities they changed and return
+ * immediately. Repeated submissions of the same entity before the next flush
+ * are coalesced into a single pending write. A single background thread
+ * drains the queue periodically (or as soon as a batch fills up) and hands
+ * the batch to DataManager, which writes each entity type in one batched
+ * JDBC transaction.
+ *
+ * The queue is bounded: once {@code capacity} distinct entities are pending,
+ * submitters wait briefly for the flusher to drain the queue. They never wait
+ * while the store is failing, so a database outage can't freeze the UI;
+ * pending writes only reference entities already held in memory.
+ *
+ * A failed batch is retried with exponential backoff. Writes that still fail
+ * after {@code MAX_ATTEMPTS} tries are dropped with a log line; their entities
+ * stay marked unsaved, so the next save that reaches them writes them. A JVM
+ * shutdown hook flushes whatever is still pending before the process exits.
+ */
+public class WriteBehindQueue {
+
+    public enum EntityType {
+        USER, PRODUCT, OUTFIT, CART
+    }
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 500;
+    private static final long SHUTDOWN_TIMEOUT_MS = 30_000;
+    // Longest a submitter waits for room before queueing over capacity
+    private static final long MAX_BACKPRESSURE_WAIT_MS = 200;
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final String FLUSHER_THREAD_NAME = "write-behind-flusher";
+
+    private final DataManager dataManager;
+    private final int capacity;
+    private final int batchThreshold;
+    private final long retryBaseDelayMs;
+
+    // Pending writes keyed by "TYPE:id"; insertion order is flush order
+    private final Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+
+    // Retry backoff, only changed by the flushing thread
+    private volatile int consecutiveFailures;
+    private volatile long retryAtNanos;
+
+    // Metrics
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong backpressureWaits = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong flushedEntityCount = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+
+    public WriteBehindQueue(DataManager dataManager) {
+        this(dataManager, DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    public WriteBehindQueue(DataManager dataManager, int capacity, long flushIntervalMs) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.dataManager = dataManager;
+        this.capacity = capacity;
+        this.batchThreshold = Math.max(1, capacity / 4);
+        this.retryBaseDelayMs = Math.max(1, flushIntervalMs);
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, FLUSHER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::runScheduledFlush,
+                flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+        // Guarantee that queued changes reach the database when the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "write-behind-shutdown"));
+    }
+
+    // Submission
+
+    public void submit(User user) {
+        if (user != null) {
+            submit(EntityType.USER, user.getUserId(), user);
+        }
+    }
+
+    public void submit(Product product) {
+        if (product != null) {
+            submit(EntityType.PRODUCT, product.getProductId(), product);
+        }
+    }
+
+    public void submit(Outfit outfit) {
+        if (outfit != null) {
+            submit(EntityType.OUTFIT, outfit.getOutfitId(), outfit);
+        }
+    }
+
+    public void submit(ShoppingCart cart) {
+        if (cart != null) {
+            submit(EntityType.CART, cart.getCartId(), cart);
+        }
+    }
+
+    private void submit(EntityType type, String id, Object entity) {
+        if (id == null) {
+            return;
+        }
+
+        // After shutdown there is no flusher left, so write through
+        if (shutdown.get()) {
+            List<PendingWrite> single = new ArrayList<>();
+            single.add(new PendingWrite(type, entity));
+            persist(single);
+            return;
+        }
+
+        String key = type.name() + ":" + id;
+        int depth;
+        lock.lock();
+        try {
+            PendingWrite existing = pending.get(key);
+            if (existing != null) {
+                // Coalesce with the write that is already queued
+                existing.entity = entity;
+                coalescedCount.incrementAndGet();
+                return;
+            }
+
+            // Backpressure: wait a little for the flusher to make room. The
+            // flusher itself never waits, otherwise it would deadlock on its own
+            // queue, and nobody waits on a store that is failing.
+            boolean onFlusherThread = FLUSHER_THREAD_NAME.equals(Thread.currentThread().getName());
+            long waitNanos = TimeUnit.MILLISECONDS.toNanos(MAX_BACKPRESSURE_WAIT_MS);
+            while (pending.size() >= capacity && !onFlusherThread && !shutdown.get()
+                    && consecutiveFailures == 0 && waitNanos > 0) {
+                backpressureWaits.incrementAndGet();
+                requestFlush();
+                try {
+                    waitNanos = notFull.awaitNanos(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            pending.put(key, new PendingWrite(type, entity));
+            submittedCount.incrementAndGet();
+            depth = pending.size();
+        } finally {
+            lock.unlock();
+        }
+
+        if (depth >= batchThreshold) {
+            requestFlush();
+        }
+    }
+
+    // Flushing
+
+    /**
+     * Asks the background thread to flush as soon as possible.
+     */
+    public void requestFlush() {
+        if (!shutdown.get() && flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::runScheduledFlush);
+            } catch (Exception e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Flushes all pending writes and waits until they have been written.
+     *
+     * @return true if every pending write was persisted
+     */
+    public boolean flush() {
+        if (shutdown.get() || FLUSHER_THREAD_NAME.equals(Thread.currentThread().getName())) {
+            return drainAndPersist();
+        }
+        try {
+            Future<Boolean> result = executor.submit(this::drainAndPersist);
+            return result.get(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("WriteBehindQueue: Flush failed: " + e.getMessage());
+            return false;
+        } catch (Exception e) {
+            // Executor already shut down
+            return drainAndPersist();
+        }
+    }
+
+    private void runScheduledFlush() {
+        flushRequested.set(false);
+        if (System.nanoTime() - retryAtNanos < 0) {
+            // Backing off after a failure; explicit flushes still go through
+            return;
+        }
+        try {
+            drainAndPersist();
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled task
+            System.err.println("WriteBehindQueue: Unexpected error during flush: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private boolean drainAndPersist() {
+        List<PendingWrite> batch;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return true;
+            }
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return persist(batch);
+    }
+
+    private boolean persist(List<PendingWrite> batch) {
+        List<User> users = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+        List<Outfit> outfits = new ArrayList<>();
+        List<ShoppingCart> carts = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            switch (write.type) {
+                case USER:
+                    users.add((User) write.entity);
+                    break;
+                case PRODUCT:
+                    products.add((Product) write.entity);
+                    break;
+                case OUTFIT:
+                    outfits.add((Outfit) write.entity);
+                    break;
+                case CART:
+                    carts.add((ShoppingCart) write.entity);
+                    break;
+            }
+        }
+
+        long start = System.nanoTime();
+        boolean success = dataManager.persistChanges(users, products, outfits, carts);
+        long elapsed = System.nanoTime() - start;
+
+        flushCount.incrementAndGet();
+        flushedEntityCount.addAndGet(batch.size());
+        totalFlushNanos.addAndGet(elapsed);
+        lastFlushNanos.set(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+
+        if (success) {
+            consecutiveFailures = 0;
+            retryAtNanos = 0;
+        } else {
+            failedFlushCount.incrementAndGet();
+            requeue(batch);
+        }
+        return success;
+    }
+
+    /**
+     * Puts failed writes back so that a later flush retries them, after a
+     * delay that doubles with each consecutive failure. Writes that have used
+     * up their attempts are dropped. Entities that were newly submitted in the
+     * meantime keep their newer reference.
+     */
+    private void requeue(List<PendingWrite> batch) {
+        if (shutdown.get()) {
+            droppedCount.addAndGet(batch.size());
+            System.err.println("WriteBehindQueue: Dropping " + batch.size() + " writes that failed during shutdown");
+            return;
+        }
+
+        int failures = consecutiveFailures + 1;
+        consecutiveFailures = failures;
+        long delayMs = Math.min(MAX_RETRY_DELAY_MS, retryBaseDelayMs << Math.min(failures - 1, 20));
+        retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+
+        int dropped = 0;
+        lock.lock();
+        try {
+            for (PendingWrite write : batch) {
+                if (++write.attempts >= MAX_ATTEMPTS) {
+                    dropped++;
+                    continue;
+                }
+                String key = write.type.name() + ":" + idOf(write);
+                pending.putIfAbsent(key, write);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // One line per failure; the repositories have already logged the cause
+        System.err.println("WriteBehindQueue: Flush of " + batch.size() + " writes failed " + failures
+                + " time(s) in a row, retrying in " + delayMs + " ms");
+        if (dropped > 0) {
+            droppedCount.addAndGet(dropped);
+            System.err.println("WriteBehindQueue: Dropping " + dropped + " writes after " + MAX_ATTEMPTS
+                    + " failed attempts; they stay unsaved until the entity is saved again");
+        }
+    }
+
+    private static String idOf(PendingWrite write) {
+        switch (write.type) {
+            case USER:
+                return ((User) write.entity).getUserId();
+            case PRODUCT:
+                return ((Product) write.entity).getProductId();
+            case OUTFIT:
+                return ((Outfit) write.entity).getOutfitId();
+            default:
+                return ((ShoppingCart) write.entity).getCartId();
+        }
+    }
+
+    /**
+     * Stops the flusher after writing everything that is still pending. Safe to
+     * call more than once; only the first call has an effect.
+     */
+    public void shutdown() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+        System.out.println("WriteBehindQueue: Flushing " + getQueueDepth() + " pending writes before shutdown...");
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // The flusher is gone, drain the remainder on this thread
+        drainAndPersist();
+    }
+
+    // Metrics
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(this);
+    }
+
+    /**
+     * Immutable snapshot of the queue's counters.
+     */
+    public static class Metrics {
+        private final int queueDepth;
+        private final int capacity;
+        private final long submitted;
+        private final long coalesced;
+        private final long backpressureWaits;
+        private final long flushes;
+        private final long failedFlushes;
+        private final long dropped;
+        private final long flushedEntities;
+        private final double lastFlushMillis;
+        private final double averageFlushMillis;
+        private final double maxFlushMillis;
+
+        private Metrics(WriteBehindQueue queue) {
+            this.queueDepth = queue.getQueueDepth();
+            this.capacity = queue.capacity;
+            this.submitted = queue.submittedCount.get();
+            this.coalesced = queue.coalescedCount.get();
+            this.backpressureWaits = queue.backpressureWaits.get();
+            this.flushes = queue.flushCount.get();
+            this.failedFlushes = queue.failedFlushCount.get();
+            this.dropped = queue.droppedCount.get();
+            this.flushedEntities = queue.flushedEntityCount.get();
+            this.lastFlushMillis = queue.lastFlushNanos.get() / 1_000_000.0;
+            this.maxFlushMillis = queue.maxFlushNanos.get() / 1_000_000.0;
+            this.averageFlushMillis = flushes == 0 ? 0.0
+                    : queue.totalFlushNanos.get() / 1_000_000.0 / flushes;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        public long getBackpressureWaits() {
+            return backpressureWaits;
+        }
+
+        public long getFlushes() {
+            return flushes;
+        }
+
+        public long getFailedFlushes() {
+            return failedFlushes;
+        }
+
+        /**
+         * Gets the number of writes given up on after failing repeatedly.
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        public long getFlushedEntities() {
+            return flushedEntities;
+        }
+
+        public double getLastFlushMillis() {
+            return lastFlushMillis;
+        }
+
+        public double getAverageFlushMillis() {
+            return averageFlushMillis;
+        }
+
+        public double getMaxFlushMillis() {
+            return maxFlushMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "WriteBehindMetrics{depth=%d/%d, submitted=%d, coalesced=%d, backpressureWaits=%d, " +
+                            "flushes=%d, failed=%d, dropped=%d, entities=%d, lastMs=%.2f, avgMs=%.2f, maxMs=%.2f}",
+                    queueDepth, capacity, submitted, coalesced, backpressureWaits,
+                    flushes, failedFlushes, dropped, flushedEntities, lastFlushMillis, averageFlushMillis, maxFlushMillis);
+        }
+    }
+
+    private static class PendingWrite {
+        private final EntityType type;
+        private Object entity;
+        private int attempts;
+
+        PendingWrite(EntityType type, Object entity) {
+            this.type = type;
+            this.entity = entity;
+        }
+    }
+}
@@ -1,10 +1,10 @@
 package com.fashionstore.ui.components;
 
 import com.fashionstore.models.Product;
+import com.fashionstore.utils.ImageCache;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.ClipboardContent;
 import javafx.scene.input.Dragboard;
@@ -13,10 +13,11 @@ import javafx.scene.input.TransferMode;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
-import java.io.File;
 
 public class ClothingItemView extends VBox {
 
+    private static final double IMAGE_SIZE = 130;
+
     private Product product;
     private boolean isSelected = false;
     private boolean isDraggable = true;
@@ -63,47 +64,14 @@ public class ClothingItemView extends VBox {
 
     private ImageView createImageView() {
         ImageView imageView = new ImageView();
-        imageView.setFitWidth(130);
-        imageView.setFitHeight(130);
+        imageView.setFitWidth(IMAGE_SIZE);
+        imageView.setFitHeight(IMAGE_SIZE);
         imageView.setPreserveRatio(true);
 
-        // Try to load the image using the path stored in the product
-        String imagePath = product.getImagePath();
-        if (imagePath != null && !imagePath.isEmpty()) {
-            try {
-                // First try to load as a resource (typical for application images)
-                java.io.InputStream resourceStream = getClass().getResourceAsStream(imagePath);
-                if (resourceStream != null) {
-                    Image image = new Image(resourceStream);
-                    imageView.setImage(image);
-                    return imageView;
-                }
-
-                // Fallback to file system for development environment
-                File imageFile = new File("src/main/resources" + imagePath);
-                if (imageFile.exists()) {
-                    Image image = new Image(imageFile.toURI().toString());
-                    imageView.setImage(image);
-                    return imageView;
-                }
-
-                // Last attempt - try absolute path (should rarely be needed)
-                File absoluteFile = new File(imagePath);
-                if (absoluteFile.exists()) {
-                    Image image = new Image(absoluteFile.toURI().toString());
-                    imageView.setImage(image);
-                    return imageView;
-                }
-
-                // If we got here, no image could be loaded
-                createPlaceholder(imageView);
-            } catch (Exception e) {
-                System.err.println("Error loading image for product " + product.getProductId() + ": " + e.getMessage());
-                createPlaceholder(imageView);
-            }
-        } else {
-            createPlaceholder(imageView);
-        }
+        // Load the image using the path stored in the product, decoded at thumbnail size
+        ImageCache.getInstance().load(product.getImagePath(), IMAGE_SIZE,
+                imageView::setImage,
+                () -> createPlaceholder(imageView));
 
         return imageView;
     }
@@ -0,0 +1,43 @@
+package com.fashionstore.ui.components;
+
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.ListCell;
+
+import java.util.function.Function;
+
+/**
+ * Combo box cell that shows a filter value with the number of products it
+ * would show, e.g. "Dresses (12)". The combo box keeps the plain value as its
+ * item, so selection handling is unaffected.
+ */
+public class FacetCountCell extends ListCell<String> {
+
+    private final Function<String, Integer> counts;
+
+    /**
+     * @param counts Gets the count for a value, or null to show the value alone
+     */
+    public FacetCountCell(Function<String, Integer> counts) {
+        this.counts = counts;
+    }
+
+    /**
+     * Shows counts in a combo box's list and button. Call again after the
+     * counts change to redraw the cells.
+     */
+    public static void install(ComboBox<String> comboBox, Function<String, Integer> counts) {
+        comboBox.setCellFactory(listView -> new FacetCountCell(counts));
+        comboBox.setButtonCell(new FacetCountCell(counts));
+    }
+
+    @Override
+    protected void updateItem(String item, boolean empty) {
+        super.updateItem(item, empty);
+        if (empty || item == null) {
+            setText(null);
+            return;
+        }
+        Integer count = counts.apply(item);
+        setText(count != null ? item + " (" + count + ")" : item);
+    }
+}
@@ -5,6 +5,7 @@ import com.fashionstore.controllers.OutfitDetailController;
 import com.fashionstore.models.Outfit;
 import com.fashionstore.models.Product;
 import com.fashionstore.storage.DataManager;
+import com.fashionstore.utils.ImageCache;
 import com.fashionstore.utils.SceneManager;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -21,11 +22,9 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 public class OutfitPreview extends VBox {
     private static final int IMAGE_SIZE = 80;
@@ -97,37 +96,16 @@ public class OutfitPreview extends VBox {
     private ImageView createProductImageView(Product product) {
         ImageView imageView = new ImageView();
         configureImageView(imageView);
-
-        try {
-            String imagePath = product.getImagePath();
-            if (imagePath != null && !imagePath.isEmpty()) {
-                // Try to load from file system first
-                File imageFile = new File(imagePath);
-                if (imageFile.exists()) {
-                    imageView.setImage(new Image(imageFile.toURI().toString()));
-                    return imageView;
-                }
-
-                // Try to load from classpath resources
-                try {
-                    imageView.setImage(new Image(getClass().getResourceAsStream(imagePath)));
-                    return imageView;
-                } catch (Exception ignored) {
-                }
-            }
-
-            // Fallback to placeholder
-            imageView.setImage(loadResourceImage("/images/product-placeholder.png"));
-        } catch (Exception e) {
-            imageView.setImage(loadResourceImage("/images/broken-image.png"));
-        }
-
+        ImageCache.getInstance().load(product.getImagePath(), IMAGE_SIZE,
+                imageView::setImage,
+                () -> loadResourceImage(imageView, "/images/product-placeholder.png"));
         return imageView;
     }
 
     private ImageView createPlaceholderImage() {
-        ImageView placeholder = new ImageView(loadResourceImage("/images/outfit-placeholder.png"));
+        ImageView placeholder = new ImageView();
         configureImageView(placeholder);
+        loadResourceImage(placeholder, "/images/outfit-placeholder.png");
         return placeholder;
     }
 
@@ -137,14 +115,10 @@ public class OutfitPreview extends VBox {
         imageView.setPreserveRatio(true);
     }
 
-    private Image loadResourceImage(String path) {
-        try {
-            return new Image(Objects.requireNonNull(
-                    getClass().getResourceAsStream(path),
-                    "Failed to load image: " + path));
-        } catch (Exception e) {
-            return createColorPlaceholder(Color.LIGHTGRAY);
-        }
+    private void loadResourceImage(ImageView imageView, String path) {
+        ImageCache.getInstance().load(path, IMAGE_SIZE,
+                imageView::setImage,
+                () -> imageView.setImage(createColorPlaceholder(Color.LIGHTGRAY)));
     }
 
     private Image createColorPlaceholder(Color color) {
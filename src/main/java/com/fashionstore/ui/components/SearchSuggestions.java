@@ -0,0 +1,108 @@
+package com.fashionstore.ui.components;
+
+import com.fashionstore.search.Suggestion;
+import javafx.geometry.Side;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextField;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Drop-down of typeahead suggestions under a search field. Suggestions are
+ * looked up on every keystroke; picking one puts its text in the field and
+ * runs the search.
+ */
+public class SearchSuggestions {
+
+    private final TextField field;
+    private final Function<String, List<Suggestion>> lookup;
+    private final Consumer<String> onPick;
+    private final ContextMenu menu = new ContextMenu();
+
+    // Set while a picked suggestion is written to the field
+    private boolean picking;
+
+    private SearchSuggestions(TextField field, Function<String, List<Suggestion>> lookup,
+            Consumer<String> onPick) {
+        this.field = field;
+        this.lookup = lookup;
+        this.onPick = onPick;
+    }
+
+    /**
+     * Shows suggestions under a text field as the user types.
+     *
+     * @param field  The search field
+     * @param lookup Gets the suggestions for the typed text
+     * @param onPick Runs with the text of a picked suggestion
+     */
+    public static SearchSuggestions install(TextField field, Function<String, List<Suggestion>> lookup,
+            Consumer<String> onPick) {
+        SearchSuggestions suggestions = new SearchSuggestions(field, lookup, onPick);
+        field.textProperty().addListener((obs, oldText, newText) -> suggestions.update(newText));
+        field.focusedProperty().addListener((obs, wasFocused, focused) -> {
+            if (!focused) {
+                suggestions.hide();
+            }
+        });
+        return suggestions;
+    }
+
+    public void hide() {
+        menu.hide();
+    }
+
+    private void update(String text) {
+        if (picking) {
+            return;
+        }
+        if (text == null || text.trim().isEmpty() || !field.isFocused()) {
+            menu.hide();
+            return;
+        }
+
+        List<Suggestion> suggestions = lookup.apply(text);
+        if (suggestions.isEmpty()) {
+            menu.hide();
+            return;
+        }
+
+        List<MenuItem> items = new ArrayList<>(suggestions.size());
+        for (Suggestion suggestion : suggestions) {
+            MenuItem item = new MenuItem(describe(suggestion));
+            item.setOnAction(e -> pick(suggestion.getText()));
+            items.add(item);
+        }
+        menu.getItems().setAll(items);
+        if (!menu.isShowing()) {
+            menu.show(field, Side.BOTTOM, 0, 0);
+        }
+    }
+
+    private void pick(String text) {
+        picking = true;
+        try {
+            field.setText(text);
+            field.positionCaret(text.length());
+        } finally {
+            picking = false;
+        }
+        menu.hide();
+        onPick.accept(text);
+    }
+
+    private static String describe(Suggestion suggestion) {
+        switch (suggestion.getKind()) {
+            case BRAND:
+                return suggestion.getText() + "  — brand";
+            case CATEGORY:
+                return suggestion.getText() + "  — category";
+            default:
+                return suggestion.getText();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.fashionstore.ui.components;
 
 import com.fashionstore.models.Product;
+import com.fashionstore.utils.ImageCache;
 import javafx.animation.FadeTransition;
 import javafx.animation.ScaleTransition;
 import javafx.event.ActionEvent;
@@ -20,23 +21,36 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.util.Duration;
 
-import java.io.File;
-import java.io.InputStream;
 import java.math.BigDecimal;
 
-public class StoreItemView extends VBox {
+public class StoreItemView extends VBox implements VirtualGrid.Cell<Product> {
 
     private static final double IMAGE_WIDTH = 260;
     private static final double IMAGE_HEIGHT = 260;
     private static final double CORNER_RADIUS = 12;
 
-    private final Product product;
+    private Product product;
     private final Button purchaseButton;
     private final ImageView imageView;
     private final StackPane imageContainer;
+    private final Label nameLabel = new Label();
+    private final Label priceLabel = new Label();
+    private final Label stockLabel = new Label();
+    private final Label infoLabel = new Label();
+
+    // Image path currently shown, so rebinding the same product keeps its image
+    private String shownImagePath;
 
     public StoreItemView(Product product) {
-        this.product = product;
+        this();
+        updateItem(product);
+    }
+
+    /**
+     * Creates an empty card, e.g. for a {@link VirtualGrid} to bind to
+     * products with {@link #updateItem(Product)}.
+     */
+    public StoreItemView() {
         this.imageView = new ImageView();
         this.imageContainer = new StackPane();
         this.purchaseButton = createPurchaseButton();
@@ -48,15 +62,35 @@ public class StoreItemView extends VBox {
 
         detailsBox.getChildren().add(purchaseButton);
 
-        // Set out-of-stock status after everything is initialized
-        if (product.getStockQuantity() <= 0) {
-            purchaseButton.setDisable(true);
-            purchaseButton.setText("Out of Stock");
-        }
-
         setupInteractiveEffects();
     }
 
+    /**
+     * Shows another product in this card, so the card can be reused while
+     * scrolling instead of creating a new one.
+     */
+    @Override
+    public void updateItem(Product product) {
+        boolean sameImage = product == this.product && shownImagePath != null
+                && shownImagePath.equals(String.valueOf(product.getImagePath()));
+        this.product = product;
+        setScaleX(1);
+        setScaleY(1);
+
+        nameLabel.setText(product.getName());
+        priceLabel.setText(formatPrice(product.getPrice()));
+        infoLabel.setText(buildInfoText());
+
+        purchaseButton.setDisable(false);
+        purchaseButton.setText("Add to Cart");
+        updateStockLabel();
+
+        if (!sameImage) {
+            shownImagePath = String.valueOf(product.getImagePath());
+            loadProductImage();
+        }
+    }
+
     private void setupContainer() {
         setMinWidth(240);
         setPrefWidth(280);
@@ -89,7 +123,6 @@ public class StoreItemView extends VBox {
         imageContainer.getStyleClass().add("image-container");
 
         applyClippingMask();
-        loadProductImage();
     }
 
     private void applyClippingMask() {
@@ -100,36 +133,34 @@ public class StoreItemView extends VBox {
     }
 
     private void loadProductImage() {
-        try {
-            String imagePath = product.getImagePath();
-            System.out.println("Loading image: " + imagePath);
-
-            if (imagePath == null || imagePath.isEmpty()) {
-                imagePath = "/images/default-product.png";
-            }
-
-            // Try loading from resources (works in JAR)
-            InputStream resourceStream = getClass().getResourceAsStream(imagePath);
-            if (resourceStream != null) {
-                Image image = new Image(resourceStream);
-                processAndDisplayImage(image);
-                return;
-            }
+        // Drop the previous product's image, placeholder and overlay
+        imageContainer.getChildren().setAll(imageView);
+        imageView.setImage(null);
+        imageView.setViewport(null);
+
+        String imagePath = product.getImagePath();
+        if (imagePath == null || imagePath.isEmpty()) {
+            imagePath = "/images/default-product.png";
+        }
 
-            // Fallback to file system (works in development)
-            File imageFile = new File("src/main/resources" + imagePath);
-            if (imageFile.exists()) {
-                Image image = new Image(imageFile.toURI().toString());
-                processAndDisplayImage(image);
-                return;
-            }
+        Product requested = product;
+        String requestedPath = shownImagePath;
+        ImageCache.getInstance().load(imagePath, Math.max(IMAGE_WIDTH, IMAGE_HEIGHT),
+                image -> {
+                    if (isStillShowing(requested, requestedPath)) {
+                        processAndDisplayImage(image);
+                    }
+                },
+                () -> {
+                    if (isStillShowing(requested, requestedPath)) {
+                        createPlaceholder();
+                    }
+                });
+    }
 
-            System.err.println("Image not found at: " + imagePath);
-            createPlaceholder();
-        } catch (Exception e) {
-            System.err.println("Error loading image: " + e.getMessage());
-            createPlaceholder();
-        }
+    // The cell may have been rebound while the image loaded
+    private boolean isStillShowing(Product requested, String requestedPath) {
+        return product == requested && requestedPath != null && requestedPath.equals(shownImagePath);
     }
 
     private void processAndDisplayImage(Image image) {
@@ -202,18 +233,12 @@ public class StoreItemView extends VBox {
         detailsBox.setAlignment(Pos.TOP_LEFT);
         detailsBox.getStyleClass().add("product-details");
 
-        Label nameLabel = new Label(product.getName());
         nameLabel.setWrapText(true);
         nameLabel.maxWidthProperty().bind(widthProperty().subtract(20));
         nameLabel.getStyleClass().add("item-name");
 
-        Label priceLabel = new Label(formatPrice(product.getPrice()));
         priceLabel.getStyleClass().add("item-price");
 
-        // Add stock information
-        Label stockLabel = createStockLabel();
-
-        Label infoLabel = new Label(buildInfoText());
         infoLabel.setWrapText(true);
         infoLabel.maxWidthProperty().bind(widthProperty().subtract(20));
         infoLabel.getStyleClass().add("item-info");
@@ -226,10 +251,10 @@ public class StoreItemView extends VBox {
         return detailsBox;
     }
 
-    private Label createStockLabel() {
-        Label stockLabel = new Label();
+    private void updateStockLabel() {
         int stockQty = product.getStockQuantity();
-        
+        stockLabel.getStyleClass().removeAll("stock-out", "stock-low", "stock-available");
+
         if (stockQty <= 0) {
             stockLabel.setText("Out of Stock");
             stockLabel.getStyleClass().add("stock-out");
@@ -243,8 +268,6 @@ public class StoreItemView extends VBox {
             stockLabel.setText("In Stock: " + stockQty);
             stockLabel.getStyleClass().add("stock-available");
         }
-        
-        return stockLabel;
     }
 
     private Button createPurchaseButton() {
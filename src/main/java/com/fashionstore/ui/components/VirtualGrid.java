@@ -0,0 +1,405 @@
+package com.fashionstore.ui.components;
+
+import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Region;
+import javafx.scene.shape.Rectangle;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Scrolling grid of fixed-size cells that only creates nodes for the rows in
+ * view, plus one row above and below.
+ *
+ * Cells scrolled out of view go back to a pool and are rebound to whichever
+ * item scrolls into view next, so the number of nodes depends on the size of
+ * the viewport rather than the number of items. Cells implement
+ * {@link Cell}; a cell is only rebound when it is given a different item, or
+ * after {@link #refresh()}.
+ *
+ * <pre>
+ * VirtualGrid&lt;Product&gt; grid = new VirtualGrid&lt;&gt;();
+ * grid.setCellFactory(StoreItemView::new);
+ * grid.getItems().setAll(products);
+ * </pre>
+ *
+ * The grid scrolls itself, so it should not be placed in a ScrollPane.
+ */
+public class VirtualGrid<T> extends Region {
+
+    /**
+     * A node that can show any item of the grid.
+     */
+    public interface Cell<T> {
+        void updateItem(T item);
+    }
+
+    // Rows kept laid out beyond each edge of the viewport
+    private static final int OVERSCAN_ROWS = 1;
+
+    // How close to the last row scrolling has to get to ask for more items
+    private static final int NEAR_END_ROWS = 2;
+
+    private static final double SCROLL_STEP = 40;
+
+    private final ObservableList<T> items = FXCollections.observableArrayList();
+
+    private final DoubleProperty cellWidth = new SimpleDoubleProperty(this, "cellWidth", 280);
+    private final DoubleProperty cellHeight = new SimpleDoubleProperty(this, "cellHeight", 460);
+    private final DoubleProperty hgap = new SimpleDoubleProperty(this, "hgap", 20);
+    private final DoubleProperty vgap = new SimpleDoubleProperty(this, "vgap", 20);
+
+    private final ScrollBar scrollBar = new ScrollBar();
+    private final Pane viewport = new Pane();
+    private final Rectangle viewportClip = new Rectangle();
+
+    // Cells laid out by item index, and cells waiting to be reused
+    private final Map<Integer, Slot<T>> activeSlots = new HashMap<>();
+    private final Deque<Slot<T>> freeSlots = new ArrayDeque<>();
+
+    private Supplier<? extends Node> cellFactory;
+    private Node placeholder;
+    private Runnable onNearEnd;
+
+    // Item count the near-end callback last ran for, so it runs once per batch
+    private int nearEndRequestedAt = -1;
+
+    private static final class Slot<T> {
+        final Node node;
+        T item;
+        boolean bound;
+
+        Slot(Node node) {
+            this.node = node;
+        }
+    }
+
+    public VirtualGrid() {
+        getStyleClass().add("virtual-grid");
+
+        scrollBar.setOrientation(Orientation.VERTICAL);
+        scrollBar.setMin(0);
+        scrollBar.valueProperty().addListener((obs, oldValue, newValue) -> requestLayout());
+
+        viewport.setClip(viewportClip);
+        viewport.setManaged(false);
+        getChildren().addAll(viewport, scrollBar);
+
+        addEventHandler(ScrollEvent.SCROLL, event -> {
+            scrollTo(scrollBar.getValue() - event.getDeltaY());
+            event.consume();
+        });
+
+        items.addListener((ListChangeListener<T>) change -> {
+            while (change.next()) {
+                if (change.wasPermutated() || change.wasUpdated()) {
+                    // Same items, new state; cells at shifted positions are
+                    // rebound anyway because their item changes
+                    refresh();
+                }
+            }
+            nearEndRequestedAt = -1;
+            updatePlaceholder();
+            requestLayout();
+        });
+
+        cellWidth.addListener((obs, oldValue, newValue) -> requestLayout());
+        cellHeight.addListener((obs, oldValue, newValue) -> requestLayout());
+        hgap.addListener((obs, oldValue, newValue) -> requestLayout());
+        vgap.addListener((obs, oldValue, newValue) -> requestLayout());
+    }
+
+    public ObservableList<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Sets how cells are created. Cells already created are discarded.
+     */
+    public <C extends Node & Cell<T>> void setCellFactory(Supplier<C> cellFactory) {
+        this.cellFactory = cellFactory;
+        for (Slot<T> slot : activeSlots.values()) {
+            viewport.getChildren().remove(slot.node);
+        }
+        for (Slot<T> slot : freeSlots) {
+            viewport.getChildren().remove(slot.node);
+        }
+        activeSlots.clear();
+        freeSlots.clear();
+        requestLayout();
+    }
+
+    /**
+     * Sets the node shown instead of cells while there are no items.
+     */
+    public void setPlaceholder(Node placeholder) {
+        if (this.placeholder != null) {
+            getChildren().remove(this.placeholder);
+        }
+        this.placeholder = placeholder;
+        if (placeholder != null) {
+            getChildren().add(placeholder);
+        }
+        updatePlaceholder();
+        requestLayout();
+    }
+
+    /**
+     * Sets a callback run when scrolling gets near the last row, e.g. to
+     * append the next page of items. It runs once per change to the items.
+     */
+    public void setOnNearEnd(Runnable onNearEnd) {
+        this.onNearEnd = onNearEnd;
+        nearEndRequestedAt = -1;
+        requestLayout();
+    }
+
+    /**
+     * Rebinds every visible cell on the next layout, e.g. after the items
+     * themselves changed.
+     */
+    public void refresh() {
+        for (Slot<T> slot : activeSlots.values()) {
+            slot.bound = false;
+        }
+        for (Slot<T> slot : freeSlots) {
+            slot.bound = false;
+        }
+        requestLayout();
+    }
+
+    /**
+     * Rebinds the cell showing an item, if it is in view, e.g. after its
+     * stock changed. Other cells are left alone.
+     */
+    public void refreshItem(T item) {
+        for (Slot<T> slot : activeSlots.values()) {
+            if (slot.item == item) {
+                slot.bound = false;
+                requestLayout();
+            }
+        }
+    }
+
+    /**
+     * Scrolls to a vertical offset in pixels, clamped to the content.
+     */
+    public void scrollTo(double offset) {
+        scrollBar.setValue(Math.max(scrollBar.getMin(), Math.min(scrollBar.getMax(), offset)));
+    }
+
+    public void scrollToTop() {
+        scrollTo(0);
+    }
+
+    /**
+     * Gets how many cell nodes exist, visible or pooled.
+     */
+    public int getCellCount() {
+        return activeSlots.size() + freeSlots.size();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = getWidth();
+        double height = getHeight();
+        Insets insets = getInsets();
+        double barWidth = scrollBar.prefWidth(-1);
+        double contentWidth = Math.max(0, width - barWidth);
+
+        int columns = columnCount(contentWidth - insets.getLeft() - insets.getRight());
+        int rowCount = (items.size() + columns - 1) / columns;
+        double rowHeight = getCellHeight() + getVgap();
+        double contentHeight = insets.getTop() + insets.getBottom() + Math.max(0, rowCount * rowHeight - getVgap());
+
+        double maxOffset = Math.max(0, contentHeight - height);
+        scrollBar.setMax(maxOffset);
+        scrollBar.setVisibleAmount(maxOffset > 0 ? height * maxOffset / contentHeight : 0);
+        scrollBar.setUnitIncrement(SCROLL_STEP);
+        scrollBar.setBlockIncrement(Math.max(SCROLL_STEP, height - rowHeight));
+        scrollBar.setVisible(maxOffset > 0);
+        if (scrollBar.getValue() > maxOffset) {
+            scrollBar.setValue(maxOffset);
+        }
+        scrollBar.resizeRelocate(contentWidth, 0, barWidth, height);
+
+        viewport.resizeRelocate(0, 0, contentWidth, height);
+        viewportClip.setWidth(contentWidth);
+        viewportClip.setHeight(height);
+
+        if (placeholder != null) {
+            placeholder.resizeRelocate(insets.getLeft(), insets.getTop(),
+                    placeholder.prefWidth(-1), placeholder.prefHeight(-1));
+        }
+
+        if (rowCount == 0 || cellFactory == null) {
+            releaseSlotsOutside(0, -1);
+            return;
+        }
+
+        double offset = scrollBar.getValue();
+        int firstRow = Math.max(0, (int) Math.floor((offset - insets.getTop()) / rowHeight) - OVERSCAN_ROWS);
+        int lastRow = Math.min(rowCount - 1,
+                (int) Math.floor((offset + height - insets.getTop()) / rowHeight) + OVERSCAN_ROWS);
+        int first = firstRow * columns;
+        int last = Math.min(items.size() - 1, (lastRow + 1) * columns - 1);
+
+        releaseSlotsOutside(first, last);
+        for (int index = first; index <= last; index++) {
+            Slot<T> slot = slotFor(index);
+            T item = items.get(index);
+            if (!slot.bound || slot.item != item) {
+                slot.item = item;
+                slot.bound = true;
+                cellOf(slot).updateItem(item);
+            }
+            slot.node.setVisible(true);
+
+            int row = index / columns;
+            int column = index % columns;
+            slot.node.resizeRelocate(
+                    insets.getLeft() + column * (getCellWidth() + getHgap()),
+                    insets.getTop() + row * rowHeight - offset,
+                    getCellWidth(), getCellHeight());
+        }
+
+        if (onNearEnd != null && lastRow >= rowCount - 1 - NEAR_END_ROWS && nearEndRequestedAt != items.size()) {
+            nearEndRequestedAt = items.size();
+            // Not during layout, since the callback is likely to change the items
+            Platform.runLater(onNearEnd);
+        }
+    }
+
+    private int columnCount(double availableWidth) {
+        return Math.max(1, (int) ((availableWidth + getHgap()) / (getCellWidth() + getHgap())));
+    }
+
+    /**
+     * Returns the cells outside {@code first..last} to the pool, hidden.
+     */
+    private void releaseSlotsOutside(int first, int last) {
+        Iterator<Map.Entry<Integer, Slot<T>>> it = activeSlots.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Slot<T>> entry = it.next();
+            if (entry.getKey() < first || entry.getKey() > last) {
+                Slot<T> slot = entry.getValue();
+                slot.node.setVisible(false);
+                freeSlots.push(slot);
+                it.remove();
+            }
+        }
+    }
+
+    private Slot<T> slotFor(int index) {
+        Slot<T> slot = activeSlots.get(index);
+        if (slot != null) {
+            return slot;
+        }
+        slot = freeSlots.poll();
+        if (slot == null) {
+            slot = new Slot<>(cellFactory.get());
+            // Sized and placed by this grid, not by the viewport pane
+            slot.node.setManaged(false);
+            viewport.getChildren().add(slot.node);
+        }
+        activeSlots.put(index, slot);
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cell<T> cellOf(Slot<T> slot) {
+        return (Cell<T>) slot.node;
+    }
+
+    private void updatePlaceholder() {
+        if (placeholder != null) {
+            placeholder.setVisible(items.isEmpty());
+        }
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        Insets insets = getInsets();
+        return insets.getLeft() + insets.getRight() + 3 * getCellWidth() + 2 * getHgap()
+                + scrollBar.prefWidth(-1);
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        Insets insets = getInsets();
+        return insets.getTop() + insets.getBottom() + getCellHeight();
+    }
+
+    @Override
+    protected double computeMinWidth(double height) {
+        return getCellWidth() + scrollBar.prefWidth(-1);
+    }
+
+    @Override
+    protected double computeMinHeight(double width) {
+        return 0;
+    }
+
+    public double getCellWidth() {
+        return cellWidth.get();
+    }
+
+    public void setCellWidth(double value) {
+        cellWidth.set(value);
+    }
+
+    public DoubleProperty cellWidthProperty() {
+        return cellWidth;
+    }
+
+    public double getCellHeight() {
+        return cellHeight.get();
+    }
+
+    public void setCellHeight(double value) {
+        cellHeight.set(value);
+    }
+
+    public DoubleProperty cellHeightProperty() {
+        return cellHeight;
+    }
+
+    public double getHgap() {
+        return hgap.get();
+    }
+
+    public void setHgap(double value) {
+        hgap.set(value);
+    }
+
+    public DoubleProperty hgapProperty() {
+        return hgap;
+    }
+
+    public double getVgap() {
+        return vgap.get();
+    }
+
+    public void setVgap(double value) {
+        vgap.set(value);
+    }
+
+    public DoubleProperty vgapProperty() {
+        return vgap;
+    }
+}
@@ -4,10 +4,14 @@ import com.fashionstore.models.Product;
 import com.fashionstore.models.User;
 import com.fashionstore.models.ShoppingCart;
 import com.fashionstore.models.Outfit;
+import com.fashionstore.models.Order;
+import com.fashionstore.search.PriceIndex;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.ZoneId;
+import java.time.format.TextStyle;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -19,6 +23,9 @@ import java.util.stream.Collectors;
  */
 public class AnalyticsService {
 
+    // Complete months of order history used for revenue projections
+    private static final int REVENUE_HISTORY_MONTHS = 6;
+
     /**
      * Generates category distribution data for visualization.
      * 
@@ -72,6 +79,26 @@ public class AnalyticsService {
         return distribution;
     }
 
+    // Upper bounds (exclusive, in cents) of the price ranges above, except the last
+    private static final long[] PRICE_RANGE_BOUNDARIES = { 2500, 5000, 10000, 20000 };
+    private static final String[] PRICE_RANGE_LABELS = { "$0-$25", "$25-$50", "$50-$100", "$100-$200", "$200+" };
+
+    /**
+     * Generates price range distribution data from the price index, with one
+     * binary search per range instead of a pass over the products.
+     * 
+     * @param priceIndex Index of product prices
+     * @return Map of price ranges to counts
+     */
+    public static Map<String, Integer> getPriceRangeDistribution(PriceIndex priceIndex) {
+        int[] counts = priceIndex.histogram(PRICE_RANGE_BOUNDARIES);
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        for (int i = 0; i < PRICE_RANGE_LABELS.length; i++) {
+            distribution.put(PRICE_RANGE_LABELS[i], counts[i]);
+        }
+        return distribution;
+    }
+
     /**
      * Generates stock level distribution for visualization.
      * 
@@ -187,33 +214,51 @@ public class AnalyticsService {
     }
 
     /**
-     * Generate a monthly revenue forecast based on historical data.
+     * Projects revenue for the next 6 months from recorded orders.
+     * 
+     * The projection starts from the average revenue of the last 3 complete
+     * months and grows at the monthly rate observed between those months and
+     * the 3 before them, capped at +/-10% per month.
      * 
-     * @return Map of months to projected revenue
+     * @param orders Orders from at least the last 6 complete months
+     * @return Map of month names to projected revenue, starting with the current month
      */
-    public static Map<String, Double> getRevenueProjection() {
-        // In a real application, this would use actual historical sales data
-        // Here we'll just generate some sample data
+    public static Map<String, Double> getRevenueProjection(List<Order> orders) {
         Map<String, Double> projection = new LinkedHashMap<>();
 
-        // Get current month as starting point
-        String[] months = { "Jan", "Feb", "Mar", "Apr", "May", "Jun",
-                "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
-        int currentMonthIndex = LocalDate.now().getMonthValue() - 1;
+        // Sum revenue per complete month over the history window
+        YearMonth currentMonth = YearMonth.now();
+        double[] monthlyRevenue = new double[REVENUE_HISTORY_MONTHS];
+        for (Order order : orders) {
+            YearMonth month = YearMonth.from(order.getCreatedAt());
+            long monthsAgo = ChronoUnit.MONTHS.between(month, currentMonth);
+            if (monthsAgo >= 1 && monthsAgo <= REVENUE_HISTORY_MONTHS) {
+                monthlyRevenue[(int) monthsAgo - 1] += order.getTotalAmount().doubleValue();
+            }
+        }
 
-        // Generate projections for next 6 months
-        double baseRevenue = 5000 + new Random().nextDouble() * 5000;
-        double growth = 1.05; // 5% monthly growth
+        double recent = (monthlyRevenue[0] + monthlyRevenue[1] + monthlyRevenue[2]) / 3;
+        double previous = (monthlyRevenue[3] + monthlyRevenue[4] + monthlyRevenue[5]) / 3;
+        double growth = previous > 0 ? Math.pow(recent / previous, 1.0 / 3) : 1.0;
+        growth = Math.max(0.9, Math.min(1.1, growth));
 
         for (int i = 0; i < 6; i++) {
-            int monthIndex = (currentMonthIndex + i) % 12;
-            double projectedRevenue = baseRevenue * Math.pow(growth, i);
-            projection.put(months[monthIndex], projectedRevenue);
+            YearMonth month = currentMonth.plusMonths(i);
+            String label = month.getMonth().getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
+            projection.put(label, recent * Math.pow(growth, i + 1));
         }
 
         return projection;
     }
 
+    /**
+     * Gets the start of the order history that {@link #getRevenueProjection}
+     * uses.
+     */
+    public static LocalDateTime getRevenueHistoryStart() {
+        return YearMonth.now().minusMonths(REVENUE_HISTORY_MONTHS).atDay(1).atStartOfDay();
+    }
+
     /**
      * Calculate statistical metrics about the store inventory.
      * 
@@ -0,0 +1,446 @@
+package com.fashionstore.utils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * The number of borrowed connections is limited by a fair semaphore, so
+ * callers wait in arrival order for up to {@code connectionTimeoutMillis}
+ * instead of failing as soon as the pool is empty. Idle connections sit in a
+ * lock-free deque; there is no pool-wide lock on the borrow/return path.
+ *
+ * Connections are only validated when they have been idle for longer than
+ * {@code validationIntervalMillis}, and are closed once they are older than
+ * {@code maxLifetimeMillis}. A housekeeping thread reports connections that
+ * have been borrowed for longer than {@code leakDetectionThresholdMillis},
+ * along with the stack trace of the code that borrowed them.
+ */
+public class ConnectionPool {
+
+    /** Upper bounds (in milliseconds) of the wait time histogram buckets; the last bucket is open-ended. */
+    private static final long[] WAIT_BUCKET_BOUNDS_MILLIS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long connectionTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final long maxLifetimeMillis;
+    private final long leakDetectionThresholdMillis;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Map<Connection, PooledConnection> borrowed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Metrics
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong retiredCount = new AtomicLong();
+    private final AtomicLong failedValidationCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_BUCKET_BOUNDS_MILLIS.length + 1);
+
+    public ConnectionPool(String url, String user, String password, int maxSize, long connectionTimeoutMillis,
+            long validationIntervalMillis, long maxLifetimeMillis, long leakDetectionThresholdMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.connectionTimeoutMillis = Math.max(0, connectionTimeoutMillis);
+        this.validationIntervalMillis = Math.max(0, validationIntervalMillis);
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long housekeepingMillis = housekeepingInterval();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingMillis, housekeepingMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured connection timeout if
+     * all connections are in use.
+     *
+     * @throws SQLException if no connection became available in time or a new
+     *                      connection could not be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + connectionTimeoutMillis
+                        + " ms waiting for a database connection (active=" + borrowed.size()
+                        + ", idle=" + idle.size() + ", waiters=" + permits.getQueueLength() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - waitStart);
+
+        try {
+            PooledConnection pooled = takeIdleConnection();
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowStack = leakDetectionThresholdMillis > 0 ? Thread.currentThread().getStackTrace() : null;
+            pooled.leakReported = false;
+            borrowed.put(pooled.connection, pooled);
+            borrowCount.incrementAndGet();
+            return pooled.connection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a borrowed connection to the pool. Closed, broken or expired
+     * connections are discarded and their slot is freed for a new one.
+     *
+     * @return true if the connection belonged to this pool
+     */
+    public boolean release(Connection connection) {
+        if (connection == null) {
+            return false;
+        }
+        PooledConnection pooled = borrowed.remove(connection);
+        if (pooled == null) {
+            System.err.println("ConnectionPool: Ignoring release of a connection that is not borrowed from this pool");
+            return false;
+        }
+
+        pooled.borrowStack = null;
+        pooled.lastUsedAt = System.currentTimeMillis();
+        try {
+            if (closed || isExpired(pooled, pooled.lastUsedAt) || connection.isClosed()) {
+                retire(pooled);
+            } else {
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            retire(pooled);
+        } finally {
+            permits.release();
+        }
+        return true;
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeping thread. Connections
+     * that are still borrowed are closed when they are released.
+     */
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            retire(pooled);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(this);
+    }
+
+    // Borrowing
+
+    private PooledConnection takeIdleConnection() {
+        PooledConnection pooled;
+        // Most recently returned first, so the connections in active use stay warm
+        while ((pooled = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (isExpired(pooled, now)) {
+                retire(pooled);
+                continue;
+            }
+            if (now - pooled.lastUsedAt >= validationIntervalMillis && !isUsable(pooled)) {
+                failedValidationCount.incrementAndGet();
+                retire(pooled);
+                continue;
+            }
+            return pooled;
+        }
+        return null;
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        openConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(connection);
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeMillis > 0 && now - pooled.createdAt >= maxLifetimeMillis;
+    }
+
+    private void retire(PooledConnection pooled) {
+        openConnections.decrementAndGet();
+        retiredCount.incrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            System.err.println("ConnectionPool: Error closing connection: " + e.getMessage());
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        int bucket = 0;
+        while (bucket < WAIT_BUCKET_BOUNDS_MILLIS.length && waitMillis >= WAIT_BUCKET_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        waitHistogram.incrementAndGet(bucket);
+    }
+
+    // Housekeeping
+
+    private long housekeepingInterval() {
+        long interval = 30_000;
+        if (leakDetectionThresholdMillis > 0) {
+            interval = Math.min(interval, leakDetectionThresholdMillis / 2);
+        }
+        if (maxLifetimeMillis > 0) {
+            interval = Math.min(interval, maxLifetimeMillis / 2);
+        }
+        return Math.max(1_000, interval);
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Retire idle connections that reached their maximum lifetime
+            for (PooledConnection pooled : idle) {
+                if (isExpired(pooled, now) && idle.remove(pooled)) {
+                    retire(pooled);
+                }
+            }
+
+            if (leakDetectionThresholdMillis > 0) {
+                for (PooledConnection pooled : borrowed.values()) {
+                    StackTraceElement[] stack = pooled.borrowStack;
+                    if (!pooled.leakReported && stack != null
+                            && now - pooled.borrowedAt >= leakDetectionThresholdMillis) {
+                        pooled.leakReported = true;
+                        leakCount.incrementAndGet();
+                        reportLeak(pooled, stack, now);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("ConnectionPool: Housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private void reportLeak(PooledConnection pooled, StackTraceElement[] stack, long now) {
+        Exception trace = new Exception("Connection borrowed " + (now - pooled.borrowedAt)
+                + " ms ago and not returned");
+        // Drop the getStackTrace/getConnection frames so the trace starts at the caller
+        int skip = Math.min(2, stack.length);
+        trace.setStackTrace(Arrays.copyOfRange(stack, skip, stack.length));
+        System.err.println("ConnectionPool: Possible connection leak detected");
+        trace.printStackTrace();
+    }
+
+    private static final class PooledConnection {
+        private final Connection connection;
+        private final long createdAt;
+        private volatile long lastUsedAt;
+        private volatile long borrowedAt;
+        private volatile StackTraceElement[] borrowStack;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of pool usage counters.
+     */
+    public static class Metrics {
+        private final int maxSize;
+        private final int active;
+        private final int idle;
+        private final int waiters;
+        private final int open;
+        private final long borrows;
+        private final long timeouts;
+        private final long created;
+        private final long retired;
+        private final long failedValidations;
+        private final long leaks;
+        private final double averageWaitMillis;
+        private final double maxWaitMillis;
+        private final long[] waitHistogram;
+
+        private Metrics(ConnectionPool pool) {
+            this.maxSize = pool.maxSize;
+            this.active = pool.borrowed.size();
+            this.idle = pool.idle.size();
+            this.waiters = pool.permits.getQueueLength();
+            this.open = pool.openConnections.get();
+            this.borrows = pool.borrowCount.get();
+            this.timeouts = pool.timeoutCount.get();
+            this.created = pool.createdCount.get();
+            this.retired = pool.retiredCount.get();
+            this.failedValidations = pool.failedValidationCount.get();
+            this.leaks = pool.leakCount.get();
+            this.averageWaitMillis = borrows == 0 ? 0.0 : pool.totalWaitNanos.get() / 1_000_000.0 / borrows;
+            this.maxWaitMillis = pool.maxWaitNanos.get() / 1_000_000.0;
+            this.waitHistogram = new long[pool.waitHistogram.length()];
+            for (int i = 0; i < waitHistogram.length; i++) {
+                waitHistogram[i] = pool.waitHistogram.get(i);
+            }
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getWaiters() {
+            return waiters;
+        }
+
+        public int getOpen() {
+            return open;
+        }
+
+        public long getBorrows() {
+            return borrows;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getRetired() {
+            return retired;
+        }
+
+        public long getFailedValidations() {
+            return failedValidations;
+        }
+
+        public long getLeaks() {
+            return leaks;
+        }
+
+        public double getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        /**
+         * Gets the number of borrows per wait time bucket. Bucket {@code i} counts
+         * waits below {@link #getWaitBucketBoundsMillis()}{@code [i]}; the last
+         * bucket counts everything above the largest bound.
+         */
+        public long[] getWaitHistogram() {
+            return waitHistogram.clone();
+        }
+
+        public static long[] getWaitBucketBoundsMillis() {
+            return WAIT_BUCKET_BOUNDS_MILLIS.clone();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder histogram = new StringBuilder();
+            for (int i = 0; i < waitHistogram.length; i++) {
+                if (i > 0) {
+                    histogram.append(", ");
+                }
+                histogram.append(i < WAIT_BUCKET_BOUNDS_MILLIS.length
+                        ? "<" + WAIT_BUCKET_BOUNDS_MILLIS[i] + "ms"
+                        : ">=" + WAIT_BUCKET_BOUNDS_MILLIS[WAIT_BUCKET_BOUNDS_MILLIS.length - 1] + "ms")
+                        .append('=').append(waitHistogram[i]);
+            }
+            return String.format(
+                    "ConnectionPoolMetrics{active=%d, idle=%d, open=%d/%d, waiters=%d, borrows=%d, timeouts=%d, " +
+                            "created=%d, retired=%d, failedValidations=%d, leaks=%d, avgWaitMs=%.2f, " +
+                            "maxWaitMs=%.2f, waits=[%s]}",
+                    active, idle, open, maxSize, waiters, borrows, timeouts, created, retired,
+                    failedValidations, leaks, averageWaitMillis, maxWaitMillis, histogram);
+        }
+    }
+}
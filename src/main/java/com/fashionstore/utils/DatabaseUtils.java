@@ -39,6 +39,13 @@ public class DatabaseUtils {
         }
     }
     
+    /**
+     * Closes pooled connections. Called when the application exits.
+     */
+    public static void shutdown() {
+        SimpleConnectionPool.shutdown();
+    }
+    
     /**
      * Creates database and tables if they don't exist
      */
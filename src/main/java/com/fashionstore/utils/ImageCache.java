@@ -0,0 +1,311 @@
+package com.fashionstore.utils;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Shared cache of decoded product images.
+ *
+ * Images are keyed by path and display size and decoded in the background by
+ * JavaFX, from the {@link ThumbnailService} thumbnail for that size when there
+ * is one, otherwise from the original scaled down while decoding. A 130px view
+ * of a 4000px photo costs 130px of memory and never blocks the FX thread.
+ * Missing thumbnails are queued for generation. Requests for an image that
+ * is still loading share the same {@link Image}. Decoded images are kept in
+ * an LRU bounded by their estimated pixel memory.
+ *
+ * Paths are resolved once with {@link ImageManager#resolveImage(String)}, and
+ * a path that resolves to nothing is remembered so the filesystem isn't
+ * probed again for every card. Call {@link #invalidate(String)} after
+ * writing an image file.
+ *
+ * Callbacks run on the FX thread, possibly after the requesting view has been
+ * reused for something else, so views check that the image is still wanted.
+ */
+public class ImageCache {
+
+    // About 64 MB of decoded pixels, e.g. 240 store cards at 260px
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Marks a path that resolved to nothing
+    private static final String MISSING = "";
+
+    private static volatile ImageCache instance;
+
+    private final long maxBytes;
+
+    // Decoded and loading images, least recently used first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+
+    // Path -> URL to load it from, or MISSING
+    private final Map<String, String> resolvedUrls = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static final class Entry {
+        final String path;
+        final Image image;
+        long bytes;
+
+        Entry(String path, Image image) {
+            this.path = path;
+            this.image = image;
+        }
+    }
+
+    public ImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static ImageCache getInstance() {
+        ImageCache current = instance;
+        if (current != null) {
+            return current;
+        }
+        synchronized (ImageCache.class) {
+            if (instance == null) {
+                instance = new ImageCache(DEFAULT_MAX_BYTES);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Gets an image for a view {@code size} pixels square. The image is at
+     * least that size along its shorter side, unless the original is smaller.
+     *
+     * @param path     Image path as stored on the product
+     * @param size     Width and height of the view
+     * @param onLoaded Gets the image once it is decoded; straight away if cached
+     * @param onFailed Runs if there is no such image or it can't be decoded
+     */
+    public void load(String path, double size, Consumer<Image> onLoaded, Runnable onFailed) {
+        if (path == null || path.isEmpty()) {
+            onFailed.run();
+            return;
+        }
+        String url = resolve(path);
+        if (url == null) {
+            onFailed.run();
+            return;
+        }
+
+        Image image = imageFor(path, url, size);
+        if (image.isError()) {
+            onFailed.run();
+        } else if (image.getProgress() >= 1) {
+            onLoaded.accept(image);
+        } else {
+            whenDone(image, onLoaded, onFailed);
+        }
+    }
+
+    /**
+     * Forgets the decoded images and resolved location of a path, e.g. after
+     * its file was replaced or created.
+     */
+    public synchronized void invalidate(String path) {
+        resolvedUrls.remove(path);
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.path.equals(path)) {
+                cachedBytes -= entry.bytes;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedBytes = 0;
+        resolvedUrls.clear();
+    }
+
+    public synchronized Metrics getMetrics() {
+        return new Metrics(this, entries.size(), cachedBytes);
+    }
+
+    private synchronized Image imageFor(String path, String url, double size) {
+        String key = path + '@' + Math.round(size);
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.image.isError()) {
+            hits.incrementAndGet();
+            return entry.image;
+        }
+
+        misses.incrementAndGet();
+        Image image;
+        File thumbnail = ThumbnailService.getInstance().find(path, size);
+        if (thumbnail != null) {
+            // Already at display size
+            image = new Image(thumbnail.toURI().toString(), true);
+        } else {
+            // Fit within twice the size so views cropping to fill aren't
+            // upscaled, until the thumbnails have been generated
+            image = new Image(url, size * 2, size * 2, true, true, true);
+            ThumbnailService.getInstance().submit(path);
+        }
+        Entry created = new Entry(path, image);
+        entries.put(key, created);
+        whenDone(image, loaded -> account(key, created), () -> {
+            failures.incrementAndGet();
+            remove(key, created);
+        });
+        return image;
+    }
+
+    /**
+     * Records the memory of a decoded image and evicts the least recently
+     * used images over the budget.
+     */
+    private synchronized void account(String key, Entry entry) {
+        if (entries.get(key) != entry || entry.bytes > 0) {
+            return;
+        }
+        entry.bytes = Math.max(1, Math.round(entry.image.getWidth() * entry.image.getHeight() * 4));
+        cachedBytes += entry.bytes;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (cachedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getValue() == entry) {
+                continue;
+            }
+            if (eldest.getValue().bytes == 0) {
+                // Still loading; someone is waiting for it
+                continue;
+            }
+            cachedBytes -= eldest.getValue().bytes;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private synchronized void remove(String key, Entry entry) {
+        if (entries.get(key) == entry) {
+            entries.remove(key);
+            cachedBytes -= entry.bytes;
+        }
+    }
+
+    private String resolve(String path) {
+        String url = resolvedUrls.computeIfAbsent(path, ImageCache::locate);
+        return url.equals(MISSING) ? null : url;
+    }
+
+    private static String locate(String path) {
+        URL url = ImageManager.resolveImage(path);
+        if (url == null) {
+            System.err.println("Image not found at: " + path);
+            return MISSING;
+        }
+        return url.toExternalForm();
+    }
+
+    /**
+     * Runs one of the callbacks once a background-loading image has finished.
+     */
+    private static void whenDone(Image image, Consumer<Image> onLoaded, Runnable onFailed) {
+        ChangeListener<Number> listener = new ChangeListener<Number>() {
+            @Override
+            public void changed(ObservableValue<? extends Number> obs,
+                    Number oldProgress, Number progress) {
+                if (progress.doubleValue() >= 1 || image.isError()) {
+                    image.progressProperty().removeListener(this);
+                    if (image.isError()) {
+                        onFailed.run();
+                    } else {
+                        onLoaded.accept(image);
+                    }
+                }
+            }
+        };
+        image.progressProperty().addListener(listener);
+        // It may have finished before the listener was added
+        if (image.getProgress() >= 1 || image.isError()) {
+            listener.changed(image.progressProperty(), 0, image.getProgress());
+        }
+    }
+
+    /**
+     * Immutable snapshot of the cache's counters.
+     */
+    public static class Metrics {
+        private final long hits;
+        private final long misses;
+        private final long failures;
+        private final long evictions;
+        private final int entries;
+        private final long bytes;
+        private final long maxBytes;
+
+        private Metrics(ImageCache cache, int entries, long bytes) {
+            this.hits = cache.hits.get();
+            this.misses = cache.misses.get();
+            this.failures = cache.failures.get();
+            this.evictions = cache.evictions.get();
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = cache.maxBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        /**
+         * Gets the estimated memory of the decoded images, at 4 bytes a pixel.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "ImageCacheMetrics{hits=%d, misses=%d, hitRate=%.2f, failures=%d, evictions=%d, " +
+                            "entries=%d, memoryKb=%d/%d}",
+                    hits, misses, getHitRate(), failures, evictions, entries, bytes / 1024, maxBytes / 1024);
+        }
+    }
+}
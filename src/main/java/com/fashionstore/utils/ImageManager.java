@@ -4,12 +4,47 @@ import javafx.stage.FileChooser;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 
 public class ImageManager {
+
+    // Images saved while the app runs are only on the classpath after a rebuild
+    private static final String RESOURCES_DIR = "src/main/resources";
+
+    /**
+     * Finds a product image path as a classpath resource, a file under
+     * {@code src/main/resources} or a plain file.
+     *
+     * @return The image's URL, or null if there is no such image
+     */
+    public static URL resolveImage(String imagePath) {
+        if (imagePath == null || imagePath.isEmpty()) {
+            return null;
+        }
+        URL resource = ImageManager.class.getResource(imagePath);
+        if (resource != null) {
+            return resource;
+        }
+        try {
+            File addedFile = new File(RESOURCES_DIR + imagePath);
+            if (addedFile.isFile()) {
+                return addedFile.toURI().toURL();
+            }
+            File file = new File(imagePath);
+            if (file.isFile()) {
+                return file.toURI().toURL();
+            }
+        } catch (MalformedURLException e) {
+            System.err.println("Invalid image path " + imagePath + ": " + e.getMessage());
+        }
+        return null;
+    }
+
     // Fixed ImageManager implementation
     public static String saveProductImageToCustomDir(String productId, String directory) {
         FileChooser fileChooser = new FileChooser();
@@ -45,7 +80,12 @@ public class ImageManager {
                 System.out.println("Image saved successfully to: " + destFile.getAbsolutePath());
 
                 // Return path relative to resources folder for JavaFX
-                return "/images/" + fileName;
+                String imagePath = "/images/" + fileName;
+
+                // The file may replace one already decoded; render it from thumbnails
+                ImageCache.getInstance().invalidate(imagePath);
+                ThumbnailService.getInstance().submit(imagePath);
+                return imagePath;
             } catch (IOException e) {
                 System.err.println("Failed to save image: " + e.getMessage());
                 e.printStackTrace();
@@ -0,0 +1,257 @@
+package com.fashionstore.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Versioned schema migrations.
+ *
+ * The applied version is recorded in the {@code schema_version} table. On
+ * startup every step with a higher version than the recorded one is applied in
+ * order and recorded, so a database that is up to date costs one query and
+ * the save paths never need to inspect table metadata.
+ *
+ * Steps must be idempotent against databases created before versioning was
+ * introduced, which may already contain some of the columns.
+ */
+public class SchemaMigrator {
+
+    /**
+     * A single schema change.
+     */
+    public interface Migration {
+        int getVersion();
+
+        String getDescription();
+
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final String LOCK_NAME = "fashionstore_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+
+    private final List<Migration> migrations = new ArrayList<>();
+
+    public SchemaMigrator() {
+        register(migration(1, "Create base tables", SimpleConnectionPool::createTables));
+        register(migration(2, "Add products.is_visible", conn ->
+                addColumnIfMissing(conn, "products", "is_visible", "BOOLEAN DEFAULT TRUE")));
+        register(migration(3, "Add user deactivation, dark mode and ban columns", conn -> {
+            addColumnIfMissing(conn, "users", "is_deactivated", "BOOLEAN DEFAULT FALSE");
+            addColumnIfMissing(conn, "users", "deactivation_date", "TIMESTAMP NULL");
+            addColumnIfMissing(conn, "users", "is_dark_mode", "BOOLEAN DEFAULT FALSE");
+            addColumnIfMissing(conn, "users", "is_banned", "BOOLEAN DEFAULT FALSE");
+            addColumnIfMissing(conn, "users", "ban_reason", "VARCHAR(255) NULL");
+            addColumnIfMissing(conn, "users", "ban_expiration", "TIMESTAMP NULL");
+        }));
+        register(migration(4, "Create orders and order_items tables", SchemaMigrator::createOrderTables));
+        register(migration(5, "Add product listing indexes", conn -> {
+            // One index per listing order, so keyset pages are index range scans
+            addIndexIfMissing(conn, "products", "idx_products_name", "name, product_id");
+            addIndexIfMissing(conn, "products", "idx_products_price", "price, product_id");
+            addIndexIfMissing(conn, "products", "idx_products_category_price", "category, price, product_id");
+        }));
+    }
+
+    /**
+     * Adds a migration step. Versions must be unique; steps run in version order.
+     */
+    public void register(Migration migration) {
+        for (Migration existing : migrations) {
+            if (existing.getVersion() == migration.getVersion()) {
+                throw new IllegalArgumentException("Duplicate schema version " + migration.getVersion());
+            }
+        }
+        migrations.add(migration);
+        migrations.sort((a, b) -> Integer.compare(a.getVersion(), b.getVersion()));
+    }
+
+    public List<Migration> getMigrations() {
+        return Collections.unmodifiableList(migrations);
+    }
+
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    /**
+     * Brings the schema up to the latest version.
+     *
+     * @return the schema version after migrating
+     */
+    public int migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS schema_version (" +
+                            "version INT PRIMARY KEY, " +
+                            "description VARCHAR(255) NOT NULL, " +
+                            "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                            ")");
+        }
+
+        // Serialize migrations across application instances sharing the database
+        boolean locked = acquireLock(conn);
+        try {
+            int currentVersion = getCurrentVersion(conn);
+            if (currentVersion >= getLatestVersion()) {
+                System.out.println("Database schema is up to date (version " + currentVersion + ")");
+                return currentVersion;
+            }
+
+            for (Migration migration : migrations) {
+                if (migration.getVersion() <= currentVersion) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                migration.apply(conn);
+                recordVersion(conn, migration);
+                currentVersion = migration.getVersion();
+                System.out.println("Applied schema migration " + migration.getVersion() + " ("
+                        + migration.getDescription() + ") in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+            return currentVersion;
+        } finally {
+            if (locked) {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    private int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void recordVersion(Connection conn, Migration migration) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+            ps.setInt(1, migration.getVersion());
+            ps.setString(2, migration.getDescription());
+            ps.executeUpdate();
+        }
+    }
+
+    private boolean acquireLock(Connection conn) {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not acquire schema migration lock: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void releaseLock(Connection conn) {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Could not release schema migration lock: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a column unless it already exists. Only used while migrating, never
+     * on the save path.
+     */
+    static void addColumnIfMissing(Connection conn, String table, String column, String definition)
+            throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(null, null, table, column)) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+            System.out.println("Added " + column + " column to " + table + " table");
+        }
+    }
+
+    /**
+     * Adds an index unless one with that name already exists.
+     */
+    static void addIndexIfMissing(Connection conn, String table, String index, String columns)
+            throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(null, null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+            System.out.println("Added " + index + " index to " + table + " table");
+        }
+    }
+
+    /**
+     * Orders are a ledger, so they deliberately have no foreign keys to users
+     * or products: deleting either must not erase sales history. Line items
+     * keep the product name and unit price as they were when ordered.
+     */
+    private static void createOrderTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS orders (" +
+                            "order_id VARCHAR(50) PRIMARY KEY, " +
+                            "idempotency_key VARCHAR(64) NOT NULL, " +
+                            "user_id VARCHAR(50) NOT NULL, " +
+                            "payment_method VARCHAR(50), " +
+                            "total_amount DECIMAL(12,2) NOT NULL, " +
+                            "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                            "UNIQUE KEY uk_orders_idempotency_key (idempotency_key), " +
+                            "KEY idx_orders_user_created (user_id, created_at), " +
+                            "KEY idx_orders_created (created_at)" +
+                            ")");
+
+            stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS order_items (" +
+                            "order_id VARCHAR(50) NOT NULL, " +
+                            "line_number INT NOT NULL, " +
+                            "product_id VARCHAR(50) NOT NULL, " +
+                            "product_name VARCHAR(100), " +
+                            "quantity INT NOT NULL, " +
+                            "unit_price DECIMAL(10,2) NOT NULL, " +
+                            "PRIMARY KEY (order_id, line_number), " +
+                            "KEY idx_order_items_product (product_id), " +
+                            "FOREIGN KEY (order_id) REFERENCES orders(order_id) ON DELETE CASCADE" +
+                            ")");
+        }
+    }
+
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static Migration migration(int version, String description, Step step) {
+        return new Migration() {
+            @Override
+            public int getVersion() {
+                return version;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+
+            @Override
+            public void apply(Connection conn) throws SQLException {
+                step.apply(conn);
+            }
+        };
+    }
+}
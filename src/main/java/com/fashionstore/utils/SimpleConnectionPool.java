@@ -3,46 +3,61 @@ package com.fashionstore.utils;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Properties;
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
- * A simple database connection pool implementation
- * that doesn't rely on external libraries.
+ * Database connection pool facade. Reads the connection and pool settings
+ * from database.properties and hands out connections from a bounded
+ * {@link ConnectionPool}; also creates and migrates the schema.
  */
 public class SimpleConnectionPool {
     private static final int DEFAULT_POOL_SIZE = 10;
+    private static final long DEFAULT_CONNECTION_TIMEOUT_MS = 30000;
+    private static final long DEFAULT_VALIDATION_INTERVAL_MS = 30000;
+    private static final long DEFAULT_MAX_LIFETIME_MS = 30 * 60 * 1000;
+    private static final long DEFAULT_LEAK_DETECTION_THRESHOLD_MS = 60000;
+
     private static String DB_URL = "jdbc:mysql://localhost:3306/fashionstore";
     private static String DB_USER = "Asser";
     private static String DB_PASSWORD = "00990099";
     private static String DB_DRIVER = "com.mysql.cj.jdbc.Driver";
+    private static int POOL_MAX_SIZE = DEFAULT_POOL_SIZE;
+    private static long CONNECTION_TIMEOUT_MS = DEFAULT_CONNECTION_TIMEOUT_MS;
+    private static long VALIDATION_INTERVAL_MS = DEFAULT_VALIDATION_INTERVAL_MS;
+    private static long MAX_LIFETIME_MS = DEFAULT_MAX_LIFETIME_MS;
+    private static long LEAK_DETECTION_THRESHOLD_MS = DEFAULT_LEAK_DETECTION_THRESHOLD_MS;
+
+    private final ConnectionPool pool;
+    private static volatile SimpleConnectionPool instance;
+    private static volatile boolean schemaMigrated = false;
+
+    private SimpleConnectionPool() {
+        pool = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD, POOL_MAX_SIZE, CONNECTION_TIMEOUT_MS,
+                VALIDATION_INTERVAL_MS, MAX_LIFETIME_MS, LEAK_DETECTION_THRESHOLD_MS);
+        System.out.println("Connection pool created: maxSize=" + POOL_MAX_SIZE
+                + ", connectionTimeout=" + CONNECTION_TIMEOUT_MS + " ms");
+    }
 
-    private final List<Connection> connectionPool;
-    private final List<Connection> usedConnections = new ArrayList<>();
-    private static SimpleConnectionPool instance;
-
-    private SimpleConnectionPool(int poolSize) throws SQLException {
-        connectionPool = new ArrayList<>(poolSize);
-        for (int i = 0; i < poolSize; i++) {
-            connectionPool.add(createConnection());
+    public static SimpleConnectionPool getInstance() throws SQLException {
+        SimpleConnectionPool current = instance;
+        if (current != null) {
+            return current;
         }
-    }
+        synchronized (SimpleConnectionPool.class) {
+            if (instance == null) {
+                loadProperties();
+                try {
+                    Class.forName(DB_DRIVER);
+                } catch (ClassNotFoundException e) {
+                    throw new SQLException("Database driver not found: " + e.getMessage());
+                }
 
-    public static synchronized SimpleConnectionPool getInstance() throws SQLException {
-        if (instance == null) {
-            loadProperties();
-            try {
-                Class.forName(DB_DRIVER);
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("Database driver not found: " + e.getMessage());
+                instance = new SimpleConnectionPool();
             }
-
-            instance = new SimpleConnectionPool(DEFAULT_POOL_SIZE);
+            return instance;
         }
-        return instance;
     }
 
     private static void loadProperties() {
@@ -54,6 +69,18 @@ public class SimpleConnectionPool {
                 DB_USER = props.getProperty("db.user", DB_USER);
                 DB_PASSWORD = props.getProperty("db.password", DB_PASSWORD);
                 DB_DRIVER = props.getProperty("db.driver", DB_DRIVER);
+                POOL_MAX_SIZE = (int) longProperty(props, "db.pool.maxSize", DEFAULT_POOL_SIZE);
+                CONNECTION_TIMEOUT_MS = longProperty(props, "db.pool.connectionTimeout",
+                        DEFAULT_CONNECTION_TIMEOUT_MS);
+                VALIDATION_INTERVAL_MS = longProperty(props, "db.pool.validationInterval",
+                        DEFAULT_VALIDATION_INTERVAL_MS);
+                MAX_LIFETIME_MS = longProperty(props, "db.pool.maxLifetime", DEFAULT_MAX_LIFETIME_MS);
+                LEAK_DETECTION_THRESHOLD_MS = longProperty(props, "db.pool.leakDetectionThreshold",
+                        DEFAULT_LEAK_DETECTION_THRESHOLD_MS);
+                if (POOL_MAX_SIZE <= 0) {
+                    System.err.println("Invalid db.pool.maxSize " + POOL_MAX_SIZE + ", using " + DEFAULT_POOL_SIZE);
+                    POOL_MAX_SIZE = DEFAULT_POOL_SIZE;
+                }
                 System.out.println("Loaded database configuration from properties file");
             } else {
                 System.out.println("Using default database configuration");
@@ -64,56 +91,73 @@ public class SimpleConnectionPool {
         }
     }
 
-    public synchronized Connection getConnection() throws SQLException {
-        if (connectionPool.isEmpty()) {
-            if (usedConnections.size() < DEFAULT_POOL_SIZE) {
-                connectionPool.add(createConnection());
-            } else {
-                throw new SQLException("Connection pool exhausted");
-            }
+    private static long longProperty(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
         }
-
-        Connection connection = connectionPool.remove(connectionPool.size() - 1);
-
-        // Validate connection
-        if (!connection.isValid(1)) {
-            connection = createConnection();
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
         }
-
-        usedConnections.add(connection);
-        return connection;
     }
 
-    public synchronized boolean releaseConnection(Connection connection) {
-        connectionPool.add(connection);
-        return usedConnections.remove(connection);
+    /**
+     * Borrows a connection, waiting up to db.pool.connectionTimeout ms when all
+     * db.pool.maxSize connections are in use.
+     */
+    public Connection getConnection() throws SQLException {
+        return pool.getConnection();
     }
 
-    private Connection createConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    public boolean releaseConnection(Connection connection) {
+        return pool.release(connection);
     }
 
     public static void close(Connection conn) {
         if (conn != null) {
             try {
-                if (!conn.isClosed()) {
-                    getInstance().releaseConnection(conn);
-                }
+                // Released even if already closed so the pool frees its slot
+                getInstance().releaseConnection(conn);
             } catch (SQLException e) {
                 System.err.println("Error releasing connection: " + e.getMessage());
             }
         }
     }
 
+    /**
+     * Closes idle connections and stops pool housekeeping. Called on application exit.
+     */
+    public static void shutdown() {
+        SimpleConnectionPool current = instance;
+        if (current != null) {
+            current.pool.shutdown();
+        }
+    }
+
     public int getSize() {
-        return connectionPool.size() + usedConnections.size();
+        return pool.getActiveCount() + pool.getIdleCount();
     }
 
     public int getAvailable() {
-        return connectionPool.size();
+        return pool.getIdleCount();
     }
 
-    public static void createDatabaseIfNotExists() {
+    public ConnectionPool.Metrics getMetrics() {
+        return pool.getMetrics();
+    }
+
+    /**
+     * Creates the database if needed and brings its schema up to date. Only
+     * the first successful call does any work.
+     */
+    public static synchronized void createDatabaseIfNotExists() {
+        if (schemaMigrated) {
+            return;
+        }
+
         Connection conn = null;
         Connection tempConn = null;
 
@@ -148,13 +192,11 @@ public class SimpleConnectionPool {
             // Now connect to the fashionstore database and create tables
             conn = getInstance().getConnection();
 
-            // Create tables
-            createTables(conn);
+            // Create tables and apply any pending migrations
+            int version = new SchemaMigrator().migrate(conn);
+            schemaMigrated = true;
 
-            // Run migrations for existing databases
-            migrateDatabaseSchema(conn);
-
-            System.out.println("Database schema created successfully");
+            System.out.println("Database schema ready (version " + version + ")");
 
         } catch (SQLException e) {
             System.err.println("Error creating database schema: " + e.getMessage());
@@ -175,7 +217,7 @@ public class SimpleConnectionPool {
         }
     }
 
-    private static void createTables(Connection conn) throws SQLException {
+    static void createTables(Connection conn) throws SQLException {
         try (java.sql.Statement stmt = conn.createStatement()) {
             // Create users table
             stmt.executeUpdate(
@@ -310,106 +352,4 @@ public class SimpleConnectionPool {
                             ")");
         }
     }
-
-    /**
-     * Run migrations to update existing database schema
-     */
-    private static void migrateDatabaseSchema(Connection conn) {
-        try {
-            // Check for each column we might need to add
-            
-            // Check if is_visible column exists in products table
-            boolean isVisibleExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "products", "is_visible")) {
-                isVisibleExists = rs.next();
-            }
-
-            // Add is_visible column if it doesn't exist
-            if (!isVisibleExists) {
-                try (java.sql.Statement stmt = conn.createStatement()) {
-                    stmt.executeUpdate(
-                            "ALTER TABLE products " +
-                                    "ADD COLUMN is_visible BOOLEAN DEFAULT TRUE");
-                    System.out.println("Added is_visible column to products table");
-                }
-            }
-            
-            // Check if new user-related columns exist
-            boolean isDeactivatedExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "is_deactivated")) {
-                isDeactivatedExists = rs.next();
-            }
-            
-            boolean deactivationDateExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "deactivation_date")) {
-                deactivationDateExists = rs.next();
-            }
-            
-            boolean isDarkModeExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "is_dark_mode")) {
-                isDarkModeExists = rs.next();
-            }
-            
-            boolean isBannedExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "is_banned")) {
-                isBannedExists = rs.next();
-            }
-            
-            boolean banReasonExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "ban_reason")) {
-                banReasonExists = rs.next();
-            }
-            
-            boolean banExpirationExists = false;
-            try (java.sql.ResultSet rs = conn.getMetaData().getColumns(
-                    null, null, "users", "ban_expiration")) {
-                banExpirationExists = rs.next();
-            }
-            
-            // Add user columns if they don't exist
-            try (java.sql.Statement stmt = conn.createStatement()) {
-                if (!isDeactivatedExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN is_deactivated BOOLEAN DEFAULT FALSE");
-                    System.out.println("Added is_deactivated column to users table");
-                }
-                
-                if (!deactivationDateExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN deactivation_date TIMESTAMP NULL");
-                    System.out.println("Added deactivation_date column to users table");
-                }
-                
-                if (!isDarkModeExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN is_dark_mode BOOLEAN DEFAULT FALSE");
-                    System.out.println("Added is_dark_mode column to users table");
-                }
-                
-                if (!isBannedExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN is_banned BOOLEAN DEFAULT FALSE");
-                    System.out.println("Added is_banned column to users table");
-                }
-                
-                if (!banReasonExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN ban_reason VARCHAR(255) NULL");
-                    System.out.println("Added ban_reason column to users table");
-                }
-                
-                if (!banExpirationExists) {
-                    stmt.executeUpdate("ALTER TABLE users ADD COLUMN ban_expiration TIMESTAMP NULL");
-                    System.out.println("Added ban_expiration column to users table");
-                }
-            } catch (SQLException e) {
-                System.err.println("Error adding columns to users table: " + e.getMessage());
-            }
-            
-        } catch (SQLException e) {
-            System.err.println("Error migrating database schema: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-}
\ No newline at end of file
+}
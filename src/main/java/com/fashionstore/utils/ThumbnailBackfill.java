@@ -0,0 +1,44 @@
+package com.fashionstore.utils;
+
+import com.fashionstore.models.Product;
+import com.fashionstore.storage.DataManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates thumbnails for every product image in the database.
+ *
+ * Run after compiling, from the project directory so image paths resolve:
+ * <pre>
+ * java -cp target/classes:&lt;dependencies&gt; com.fashionstore.utils.ThumbnailBackfill
+ * </pre>
+ * Images whose thumbnails are already up to date are skipped, so it is safe
+ * to run again after adding products.
+ */
+public class ThumbnailBackfill {
+
+    public static void main(String[] args) {
+        DataManager dataManager = new DataManager();
+        dataManager.loadAllData();
+
+        List<String> imagePaths = new ArrayList<>();
+        for (Product product : dataManager.getAllProducts()) {
+            if (product.getImagePath() != null && !product.getImagePath().isEmpty()) {
+                imagePaths.add(product.getImagePath());
+            }
+        }
+        System.out.println("Backfilling thumbnails for " + imagePaths.size() + " product images...");
+
+        long start = System.nanoTime();
+        ThumbnailService thumbnails = ThumbnailService.getInstance();
+        thumbnails.backfill(imagePaths).join();
+        System.out.println("Backfill finished in " + (System.nanoTime() - start) / 1_000_000 + " ms: "
+                + thumbnails.getMetrics());
+
+        thumbnails.shutdown();
+        dataManager.shutdown();
+        DatabaseUtils.shutdown();
+        System.exit(thumbnails.getMetrics().getFailed() == 0 ? 0 : 1);
+    }
+}
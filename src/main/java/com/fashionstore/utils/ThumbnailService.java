@@ -0,0 +1,522 @@
+package com.fashionstore.utils;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates fixed-size thumbnails of product images on a worker pool.
+ *
+ * Each image gets one thumbnail per {@link Size}, scaled so its shorter side
+ * is that size. Thumbnails are named after the SHA-256 of the original's
+ * bytes, so products sharing an image share thumbnails and a replaced image
+ * never shows a stale one. An index file maps image paths to their content
+ * hash, along with the original's modification stamp to notice changes.
+ *
+ * Lookups from the FX thread never touch the filesystem: a thumbnail is only
+ * handed out once a worker has checked it against its original, after
+ * generating it or when verifying the index at startup.
+ *
+ * Thumbnails are written to {@code thumbnails/} in the working directory, or
+ * the directory in the {@code fashionstore.thumbnailDir} system property.
+ * Existing products are backfilled with {@link ThumbnailBackfill}.
+ */
+public class ThumbnailService {
+
+    /**
+     * Thumbnail sizes, one per view that shows product images.
+     */
+    public enum Size {
+        OUTFIT_PREVIEW(80), CLOTHING_ITEM(130), STORE_ITEM(260);
+
+        private final int pixels;
+
+        Size(int pixels) {
+            this.pixels = pixels;
+        }
+
+        public int getPixels() {
+            return pixels;
+        }
+
+        /**
+         * Gets the size with exactly this many pixels, or null.
+         */
+        public static Size forPixels(double pixels) {
+            for (Size size : values()) {
+                if (size.pixels == Math.round(pixels)) {
+                    return size;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final String DIR_PROPERTY = "fashionstore.thumbnailDir";
+    private static final String DEFAULT_DIR = "thumbnails";
+    private static final String INDEX_FILE = "index.properties";
+
+    // Originals are subsampled while decoding down to twice the largest size
+    private static final int DECODE_OVERSAMPLING = 2;
+
+    private static volatile ThumbnailService instance;
+
+    private final File directory;
+    private final ExecutorService workers;
+
+    // Image path -> where its thumbnails are
+    private final Map<String, IndexEntry> index = new ConcurrentHashMap<>();
+
+    // Image paths whose thumbnails a worker has checked are up to date
+    private final Map<String, IndexEntry> verified = new ConcurrentHashMap<>();
+
+    // Image paths being generated, so repeated requests share one job
+    private final Map<String, CompletableFuture<Boolean>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+    private final AtomicLong upToDate = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong generateNanos = new AtomicLong();
+
+    private static final class IndexEntry {
+        final String hash;
+        final String extension;
+        final String stamp;
+
+        IndexEntry(String hash, String extension, String stamp) {
+            this.hash = hash;
+            this.extension = extension;
+            this.stamp = stamp;
+        }
+
+        String format() {
+            return hash + ',' + extension + ',' + stamp;
+        }
+
+        static IndexEntry parse(String value) {
+            String[] parts = value.split(",", 3);
+            return parts.length == 3 ? new IndexEntry(parts[0], parts[1], parts[2]) : null;
+        }
+    }
+
+    public ThumbnailService(File directory, int workerCount) {
+        this.directory = directory;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        loadIndex();
+        // Check the loaded thumbnails in the background before handing them out
+        for (String imagePath : index.keySet()) {
+            submit(imagePath);
+        }
+    }
+
+    public static ThumbnailService getInstance() {
+        ThumbnailService current = instance;
+        if (current != null) {
+            return current;
+        }
+        synchronized (ThumbnailService.class) {
+            if (instance == null) {
+                int workerCount = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+                instance = new ThumbnailService(
+                        new File(System.getProperty(DIR_PROPERTY, DEFAULT_DIR)), workerCount);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Queues thumbnail generation for an image. Thumbnails already up to
+     * date are left alone. The image's thumbnails are not handed out by
+     * {@link #find} until the job has checked them.
+     *
+     * @return Completes with true if thumbnails were written, false if they
+     *         were up to date or the image couldn't be read
+     */
+    public CompletableFuture<Boolean> submit(String imagePath) {
+        if (imagePath == null || imagePath.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        CompletableFuture<Boolean> job = pending.computeIfAbsent(imagePath, path -> {
+            verified.remove(path);
+            return CompletableFuture.supplyAsync(() -> generate(path), workers);
+        });
+        job.whenComplete((result, error) -> pending.remove(imagePath, job));
+        return job;
+    }
+
+    /**
+     * Queues thumbnail generation for every distinct image path.
+     *
+     * @return Completes when all of them are done
+     */
+    public CompletableFuture<Void> backfill(Collection<String> imagePaths) {
+        List<CompletableFuture<Boolean>> jobs = new ArrayList<>();
+        for (String imagePath : new LinkedHashSet<>(imagePaths)) {
+            jobs.add(submit(imagePath));
+        }
+        return CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Finds the thumbnail of an image for a view size. Only looks in memory,
+     * so it is safe to call from the FX thread.
+     *
+     * @return The thumbnail file, or null if the size has no thumbnails or
+     *         this image's haven't been checked against the image yet
+     */
+    public File find(String imagePath, double pixels) {
+        Size size = Size.forPixels(pixels);
+        IndexEntry entry = imagePath != null ? verified.get(imagePath) : null;
+        if (size == null || entry == null) {
+            return null;
+        }
+        return thumbnailFile(entry.hash, size, entry.extension);
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(this);
+    }
+
+    /**
+     * Stops the workers, abandoning queued jobs after a few seconds.
+     */
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Generation, on a worker thread
+
+    private boolean generate(String imagePath) {
+        long start = System.nanoTime();
+        try {
+            URL source = ImageManager.resolveImage(imagePath);
+            if (source == null) {
+                System.err.println("Thumbnails: image not found at " + imagePath);
+                failed.incrementAndGet();
+                return false;
+            }
+            String stamp = stampOf(source);
+            IndexEntry existing = index.get(imagePath);
+            if (existing != null && existing.stamp.equals(stamp) && thumbnailsExist(existing)) {
+                upToDate.incrementAndGet();
+                if (verified.put(imagePath, existing) == null) {
+                    ImageCache.getInstance().invalidate(imagePath);
+                }
+                return false;
+            }
+
+            byte[] bytes;
+            try (InputStream in = source.openStream()) {
+                bytes = in.readAllBytes();
+            }
+            String hash = sha256(bytes);
+            IndexEntry entry = thumbnailsFor(hash);
+            if (entry != null) {
+                // Same picture as another product's image
+                shared.incrementAndGet();
+                entry = new IndexEntry(hash, entry.extension, stamp);
+            } else {
+                BufferedImage original = decode(bytes);
+                if (original == null) {
+                    System.err.println("Thumbnails: unsupported image format at " + imagePath);
+                    failed.incrementAndGet();
+                    return false;
+                }
+                String extension = original.getColorModel().hasAlpha() ? "png" : "jpg";
+                for (Size size : Size.values()) {
+                    write(scaleToCover(original, size.pixels), thumbnailFile(hash, size, extension), extension);
+                }
+                generated.incrementAndGet();
+                entry = new IndexEntry(hash, extension, stamp);
+            }
+
+            index.put(imagePath, entry);
+            verified.put(imagePath, entry);
+            saveIndex();
+            // Views showing the original switch to the thumbnail when next bound
+            ImageCache.getInstance().invalidate(imagePath);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Thumbnails: failed for " + imagePath + ": " + e.getMessage());
+            failed.incrementAndGet();
+            return false;
+        } finally {
+            generateNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Decodes an image, subsampling large originals while reading so a
+     * 4000px photo never sits in memory at full size.
+     */
+    private static BufferedImage decode(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int shorterSide = Math.min(reader.getWidth(0), reader.getHeight(0));
+                int largest = Size.values()[Size.values().length - 1].pixels;
+                int subsampling = Math.max(1, shorterSide / (largest * DECODE_OVERSAMPLING));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales an image so its shorter side is {@code pixels}, halving in
+     * steps for quality; smaller images keep their size.
+     */
+    private static BufferedImage scaleToCover(BufferedImage image, int pixels) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        double scale = Math.min(1.0, pixels / (double) Math.min(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        do {
+            int width = Math.max(targetWidth, current.getWidth() / 2);
+            int height = Math.max(targetHeight, current.getHeight() / 2);
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+        return current;
+    }
+
+    /**
+     * Writes through a temporary file so readers never see half a thumbnail.
+     */
+    private static void write(BufferedImage image, File file, String extension) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.exists()) {
+            parent.mkdirs();
+        }
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                if (!ImageIO.write(image, extension, out)) {
+                    throw new IOException("No " + extension + " writer available");
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    // Index
+
+    private File thumbnailFile(String hash, Size size, String extension) {
+        // Sharded by hash prefix to keep directories small
+        return new File(new File(directory, hash.substring(0, 2)), hash + "-" + size.pixels + "." + extension);
+    }
+
+    private boolean thumbnailsExist(IndexEntry entry) {
+        for (Size size : Size.values()) {
+            if (!thumbnailFile(entry.hash, size, entry.extension).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds existing thumbnails with this content hash, from any image path.
+     */
+    private IndexEntry thumbnailsFor(String hash) {
+        for (IndexEntry entry : index.values()) {
+            if (entry.hash.equals(hash) && thumbnailsExist(entry)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void loadIndex() {
+        File file = new File(directory, INDEX_FILE);
+        if (!file.isFile()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.err.println("Thumbnails: could not read index, thumbnails will be regenerated: "
+                    + e.getMessage());
+            return;
+        }
+        for (String imagePath : properties.stringPropertyNames()) {
+            IndexEntry entry = IndexEntry.parse(properties.getProperty(imagePath));
+            if (entry != null) {
+                index.put(imagePath, entry);
+            }
+        }
+        System.out.println("Thumbnails: loaded index of " + index.size() + " images from " + file);
+    }
+
+    private synchronized void saveIndex() throws IOException {
+        Properties properties = new Properties();
+        index.forEach((imagePath, entry) -> properties.setProperty(imagePath, entry.format()));
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File temp = new File(directory, INDEX_FILE + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, "Product image path = content hash,format,source stamp");
+        }
+        Files.move(temp.toPath(), new File(directory, INDEX_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Gets the modification time and length of an image, to notice when it
+     * has been replaced.
+     */
+    private static String stampOf(URL source) {
+        try {
+            URLConnection connection = source.openConnection();
+            long stamp = connection.getLastModified();
+            long length = connection.getContentLengthLong();
+            // Opening the connection may have opened a stream
+            connection.getInputStream().close();
+            return stamp + ":" + length;
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Immutable snapshot of the service's counters.
+     */
+    public static class Metrics {
+        private final long generated;
+        private final long shared;
+        private final long upToDate;
+        private final long failed;
+        private final long generateMillis;
+        private final int indexedImages;
+
+        private Metrics(ThumbnailService service) {
+            this.generated = service.generated.get();
+            this.shared = service.shared.get();
+            this.upToDate = service.upToDate.get();
+            this.failed = service.failed.get();
+            this.generateMillis = service.generateNanos.get() / 1_000_000;
+            this.indexedImages = service.index.size();
+        }
+
+        /**
+         * Gets the number of images whose thumbnails were decoded and written.
+         */
+        public long getGenerated() {
+            return generated;
+        }
+
+        /**
+         * Gets the number of images that reused another path's thumbnails.
+         */
+        public long getShared() {
+            return shared;
+        }
+
+        public long getUpToDate() {
+            return upToDate;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * Gets the total worker time spent, in milliseconds.
+         */
+        public long getGenerateMillis() {
+            return generateMillis;
+        }
+
+        public int getIndexedImages() {
+            return indexedImages;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "ThumbnailMetrics{generated=%d, shared=%d, upToDate=%d, failed=%d, workerMs=%d, indexed=%d}",
+                    generated, shared, upToDate, failed, generateMillis, indexedImages);
+        }
+    }
+}
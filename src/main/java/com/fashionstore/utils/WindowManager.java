@@ -4,7 +4,13 @@ import javafx.animation.FadeTransition;
 import javafx.animation.KeyFrame;
 import javafx.animation.KeyValue;
 import javafx.animation.Timeline;
+import com.fashionstore.storage.DataChangeListener;
+import com.fashionstore.storage.DataManager;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Modality;
@@ -15,6 +21,7 @@ import javafx.util.Duration;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class WindowManager {
     private static final String FXML_PATH = "/fxml/";
@@ -203,45 +210,43 @@ public class WindowManager {
                 errorMessage);
     }
 
-    public static void refreshHomeView() {
-        // Run on JavaFX application thread to avoid threading issues
-        javafx.application.Platform.runLater(() -> {
-            try {
-                // Find all open windows and refresh them if they contain a HomeController or
-                // StoreViewController
-                for (javafx.stage.Window window : javafx.stage.Stage.getWindows()) {
-                    if (window instanceof javafx.stage.Stage) {
-                        javafx.stage.Stage stage = (javafx.stage.Stage) window;
-                        javafx.scene.Scene scene = stage.getScene();
-
-                        if (scene != null && scene.getRoot() != null) {
-                            // Check if this is the home view
-                            if (scene.getRoot().getId() != null && scene.getRoot().getId().equals("homeView")) {
-                                Object controller = scene.getRoot().getUserData();
-                                if (controller instanceof com.fashionstore.controllers.HomeController) {
-                                    System.out.println("Refreshing HomeController");
-                                    ((com.fashionstore.controllers.HomeController) controller).refreshView();
-                                }
-                            }
-
-                            // Also refresh store view if open
-                            if (scene.getRoot().getId() != null && scene.getRoot().getId().equals("storeView")) {
-                                Object controller = scene.getRoot().getUserData();
-                                if (controller instanceof com.fashionstore.controllers.StoreViewController) {
-                                    System.out.println("Refreshing StoreViewController");
-                                    ((com.fashionstore.controllers.StoreViewController) controller).refreshView();
-                                }
-                            }
-
-                            // Note: Add more view refresh calls here if other controllers implement
-                            // refreshView()
-                        }
-                    }
+    /**
+     * Forwards data changes to a view on the JavaFX thread until the view's
+     * window has been shown and then closed, or the view has been replaced
+     * after being shown. Changes that arrive before the view is first shown
+     * are forwarded too, so a view can register while it is being built.
+     *
+     * @param node     Any node of the view, used to tell whether it is still shown
+     * @param listener Applies a change to the view; always called on the JavaFX thread
+     */
+    public static void listenForChanges(Node node, DataManager dataManager, DataChangeListener listener) {
+        AtomicBoolean closed = new AtomicBoolean();
+        DataChangeListener forwarder = event -> Platform.runLater(() -> {
+            if (!closed.get()) {
+                listener.onDataChanged(event);
+            }
+        });
+        dataManager.addChangeListener(forwarder);
+
+        // Whether the node is in a showing window; false while it has no
+        // scene or window yet
+        ObservableValue<Boolean> showing = node.sceneProperty()
+                .flatMap(Scene::windowProperty)
+                .flatMap(Window::showingProperty)
+                .orElse(false);
+        AtomicBoolean shown = new AtomicBoolean(showing.getValue());
+        showing.addListener(new ChangeListener<Boolean>() {
+            @Override
+            public void changed(ObservableValue<? extends Boolean> observable, Boolean wasShowing,
+                    Boolean isShowing) {
+                if (isShowing) {
+                    shown.set(true);
+                } else if (shown.get()) {
+                    closed.set(true);
+                    dataManager.removeChangeListener(forwarder);
+                    observable.removeListener(this);
                 }
-            } catch (Exception e) {
-                System.err.println("Error refreshing views: " + e.getMessage());
-                e.printStackTrace();
             }
         });
     }
-}
\ No newline at end of file
+}
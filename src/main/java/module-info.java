@@ -6,6 +6,9 @@ module com.fashionstore {
     // JDBC modules
     requires java.sql;
 
+    // ImageIO for generating thumbnails
+    requires java.desktop;
+
     // HikariCP - use automatic modules approach since HikariCP isn't fully
     // modularized
     requires static com.zaxxer.hikari;
@@ -0,0 +1,135 @@
+package com.fashionstore.ai;
+
+import com.fashionstore.models.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the composer against brute force on small random wardrobes.
+ */
+class OutfitComposerTest {
+
+    private static final int CASES = 300;
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    void matchesBruteForceWhileTheBeamIsNeverCut() {
+        Random random = new Random(42);
+        for (int c = 0; c < CASES; c++) {
+            List<OutfitComposer.Slot> slots = new ArrayList<>();
+            List<Product> all = new ArrayList<>();
+            int required = random.nextInt(3);
+            int optional = 2 + random.nextInt(4);
+            for (int s = 0; s < required + optional; s++) {
+                boolean isOptional = s >= required;
+                List<Product> items = new ArrayList<>();
+                int size = (isOptional ? 0 : 1) + random.nextInt(4);
+                for (int i = 0; i < size; i++) {
+                    Product item = new Product("Item " + s + "-" + i, "Category " + s, BigDecimal.TEN);
+                    items.add(item);
+                    all.add(item);
+                }
+                slots.add(isOptional
+                        ? OutfitComposer.Slot.optional("Slot " + s, items, random.nextDouble() * 0.5)
+                        : OutfitComposer.Slot.required("Slot " + s, items));
+            }
+            RandomScorer scorer = new RandomScorer(all, random);
+            int count = 1 + random.nextInt(2);
+
+            OutfitComposer.Composition composition =
+                    new OutfitComposer(scorer, OutfitComposer.DEFAULT_BEAM_WIDTH, c).compose(slots, count);
+            List<Double> expected = bruteForce(slots, scorer, count);
+
+            assertTrue(composition.isExact(), "case " + c);
+            assertEquals(expected.size(), composition.getCandidates().size(), "case " + c);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i), composition.getCandidates().get(i).getScore(), TOLERANCE,
+                        "case " + c + ", outfit " + i);
+            }
+        }
+    }
+
+    private static List<Double> bruteForce(List<OutfitComposer.Slot> slots, OutfitComposer.Scorer scorer,
+            int count) {
+        List<Double> scores = new ArrayList<>();
+        enumerate(slots, scorer, 0, new ArrayList<>(), 0, scores);
+        scores.sort(Comparator.reverseOrder());
+        return scores.subList(0, Math.min(count, scores.size()));
+    }
+
+    private static void enumerate(List<OutfitComposer.Slot> slots, OutfitComposer.Scorer scorer, int s,
+            List<Product> chosen, double cost, List<Double> scores) {
+        if (s == slots.size()) {
+            if (chosen.isEmpty()) {
+                return;
+            }
+            double score = -cost;
+            for (int i = 0; i < chosen.size(); i++) {
+                score += scorer.itemScore(chosen.get(i));
+                for (int j = i + 1; j < chosen.size(); j++) {
+                    score += scorer.pairScore(chosen.get(i), chosen.get(j));
+                }
+            }
+            scores.add(score);
+            return;
+        }
+        OutfitComposer.Slot slot = slots.get(s);
+        if (slot.isOptional()) {
+            enumerate(slots, scorer, s + 1, chosen, cost, scores);
+        }
+        for (Product item : slot.getItems()) {
+            chosen.add(item);
+            enumerate(slots, scorer, s + 1, chosen, cost + slot.getItemCost(), scores);
+            chosen.remove(chosen.size() - 1);
+        }
+    }
+
+    // Negative item scores and symmetric pair scores close to a per-case level,
+    // so the pair bound is tight and optional slots often only pay off together
+    private static final class RandomScorer implements OutfitComposer.Scorer {
+        private final Map<Product, Integer> index = new HashMap<>();
+        private final double[] itemScores;
+        private final double[][] pairScores;
+        private double maxPair = Double.NEGATIVE_INFINITY;
+
+        RandomScorer(List<Product> items, Random random) {
+            itemScores = new double[items.size()];
+            pairScores = new double[items.size()][items.size()];
+            double level = random.nextDouble() * 1.5 - 0.5;
+            double spread = random.nextDouble() * 0.05;
+            for (int i = 0; i < items.size(); i++) {
+                index.put(items.get(i), i);
+                itemScores[i] = -Math.abs(level) * (1 + random.nextDouble() * 3);
+                for (int j = 0; j < i; j++) {
+                    pairScores[i][j] = pairScores[j][i] = level + random.nextDouble() * spread;
+                    maxPair = Math.max(maxPair, pairScores[i][j]);
+                }
+            }
+        }
+
+        @Override
+        public double itemScore(Product item) {
+            return itemScores[index.get(item)];
+        }
+
+        @Override
+        public double pairScore(Product first, Product second) {
+            return pairScores[index.get(first)][index.get(second)];
+        }
+
+        @Override
+        public double maxPairScore() {
+            return maxPair == Double.NEGATIVE_INFINITY ? 0 : maxPair;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.fashionstore.search;
+
+import com.fashionstore.models.Product;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures typeahead lookup and update latency on a large synthetic catalog.
+ *
+ * Lives with the tests so it stays out of the application jar, but is not a
+ * test itself. Run it after {@code mvn test-compile}:
+ * <pre>
+ * java -Xmx2g -cp target/classes:target/test-classes com.fashionstore.search.SuggestionBenchmark [terms]
+ * </pre>
+ * Loads a million product names by default, plus brands and categories,
+ * times random prefix lookups and incremental product updates, and exits
+ * with status 1 if the lookup p99 is 1 ms or more.
+ */
+public class SuggestionBenchmark {
+
+    private static final int DEFAULT_TERMS = 1_000_000;
+    private static final int WARMUP_QUERIES = 100_000;
+    private static final int MEASURED_QUERIES = 500_000;
+    private static final int UPDATED_PRODUCTS = 10_000;
+    private static final long P99_LIMIT_NANOS = 1_000_000;
+
+    private static final String[] STYLES = { "Classic", "Slim", "Relaxed", "Vintage", "Oversized", "Cropped",
+            "Tailored", "Casual", "Essential", "Premium", "Lightweight", "Quilted", "Ribbed", "Pleated",
+            "Wrap", "Boxy", "Fitted", "Distressed", "Sport", "Urban" };
+    private static final String[] COLORS = { "Black", "White", "Navy", "Red", "Olive", "Beige", "Grey", "Blue",
+            "Green", "Pink", "Brown", "Cream", "Burgundy", "Mustard", "Teal", "Lavender" };
+    private static final String[] MATERIALS = { "Cotton", "Linen", "Denim", "Wool", "Silk", "Leather",
+            "Cashmere", "Velvet", "Suede", "Jersey", "Corduroy", "Satin" };
+    private static final String[] ITEMS = { "Shirt", "Dress", "Jeans", "Jacket", "Coat", "Sweater", "Skirt",
+            "Blazer", "Hoodie", "Trousers", "Shorts", "Cardigan", "Blouse", "Sneakers", "Boots", "Loafers",
+            "Scarf", "Hat", "Belt", "Bag", "Vest", "Parka", "Tee", "Polo", "Chinos" };
+    private static final String[] CATEGORIES = { "Tops", "Bottoms", "Dresses", "Outerwear", "Footwear",
+            "Accessories", "Activewear", "Knitwear" };
+
+    public static void main(String[] args) {
+        int termCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TERMS;
+        Random random = new Random(42);
+        SuggestionIndex index = new SuggestionIndex();
+
+        String[] names = syntheticNames(termCount, random);
+        String[] brands = new String[Math.max(1, termCount / 1000)];
+        for (int i = 0; i < brands.length; i++) {
+            brands[i] = "Brand" + Integer.toString(i, 36) + " " + STYLES[i % STYLES.length];
+        }
+
+        long loadStart = System.nanoTime();
+        index.addTerms(Suggestion.Kind.NAME, names, skewedWeights(names.length, random));
+        index.addTerms(Suggestion.Kind.BRAND, brands, skewedWeights(brands.length, random));
+        index.addTerms(Suggestion.Kind.CATEGORY, CATEGORIES, skewedWeights(CATEGORIES.length, random));
+        System.out.println("Loaded " + index.getTermCount() + " terms in "
+                + (System.nanoTime() - loadStart) / 1_000_000 + " ms");
+        printHeapUsage();
+
+        String[] queries = new String[WARMUP_QUERIES + MEASURED_QUERIES];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = randomPrefix(names, brands, random);
+        }
+
+        long found = 0;
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            found += index.suggest(queries[i], SuggestionIndex.MAX_SUGGESTIONS).size();
+        }
+        long[] lookupNanos = new long[MEASURED_QUERIES];
+        for (int i = 0; i < MEASURED_QUERIES; i++) {
+            long start = System.nanoTime();
+            found += index.suggest(queries[WARMUP_QUERIES + i], SuggestionIndex.MAX_SUGGESTIONS).size();
+            lookupNanos[i] = System.nanoTime() - start;
+        }
+        printPercentiles("Lookup", lookupNanos);
+        System.out.println("Average suggestions per lookup: "
+                + String.format("%.2f", found / (double) queries.length));
+
+        // Incremental updates: add products, then change their stock and ratings
+        Product[] products = new Product[UPDATED_PRODUCTS];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = new Product.Builder(names[random.nextInt(names.length)] + " " + i,
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], BigDecimal.TEN)
+                    .brand(brands[random.nextInt(brands.length)])
+                    .stockQuantity(random.nextInt(50))
+                    .build();
+            index.index(products[i]);
+        }
+        long[] updateNanos = new long[UPDATED_PRODUCTS];
+        for (int i = 0; i < updateNanos.length; i++) {
+            Product product = products[random.nextInt(products.length)];
+            product.setStockQuantity(random.nextInt(100));
+            product.addRating(1 + random.nextInt(5));
+            long start = System.nanoTime();
+            index.index(product);
+            updateNanos[i] = System.nanoTime() - start;
+        }
+        printPercentiles("Update", updateNanos);
+
+        long p99 = percentile(lookupNanos, 0.99);
+        if (p99 >= P99_LIMIT_NANOS) {
+            System.out.println("FAIL: lookup p99 " + micros(p99) + " us is not under 1 ms");
+            System.exit(1);
+        }
+        System.out.println("PASS: lookup p99 " + micros(p99) + " us is under 1 ms");
+    }
+
+    private static String[] syntheticNames(int count, Random random) {
+        Set<String> names = new HashSet<>(count * 2);
+        while (names.size() < count) {
+            StringBuilder name = new StringBuilder()
+                    .append(STYLES[random.nextInt(STYLES.length)]).append(' ')
+                    .append(COLORS[random.nextInt(COLORS.length)]).append(' ')
+                    .append(MATERIALS[random.nextInt(MATERIALS.length)]).append(' ')
+                    .append(ITEMS[random.nextInt(ITEMS.length)]);
+            // Collection names keep a million names distinct
+            name.append(' ').append(Integer.toString(random.nextInt(count), 36).toUpperCase());
+            names.add(name.toString());
+        }
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Gets weights where a few terms are much heavier than the rest, as with
+     * real stock and ratings.
+     */
+    private static float[] skewedWeights(int count, Random random) {
+        float[] weights = new float[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = (float) (1.0 / Math.pow(1.0 - random.nextDouble() * 0.999, 1.2));
+        }
+        return weights;
+    }
+
+    /**
+     * Gets a prefix of a random name or brand, from its start or from one of
+     * its word starts, one to twelve characters long.
+     */
+    private static String randomPrefix(String[] names, String[] brands, Random random) {
+        String text = random.nextInt(10) == 0 ? brands[random.nextInt(brands.length)]
+                : names[random.nextInt(names.length)];
+        if (random.nextBoolean()) {
+            String[] words = text.split(" ");
+            int from = random.nextInt(Math.min(words.length, 4));
+            text = String.join(" ", Arrays.copyOfRange(words, from, words.length));
+        }
+        int length = 1 + random.nextInt(Math.min(12, text.length()));
+        return text.substring(0, length);
+    }
+
+    private static void printPercentiles(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.println(label + " latency over " + sorted.length + " calls (us): p50="
+                + micros(percentile(sorted, 0.50)) + " p90=" + micros(percentile(sorted, 0.90))
+                + " p99=" + micros(percentile(sorted, 0.99)) + " p99.9=" + micros(percentile(sorted, 0.999))
+                + " max=" + micros(sorted[sorted.length - 1]));
+    }
+
+    private static long percentile(long[] nanos, double fraction) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+
+    private static void printHeapUsage() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        System.out.println("Heap used: " + used / (1024 * 1024) + " MB");
+    }
+}